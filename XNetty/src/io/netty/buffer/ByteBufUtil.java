@@ -66,6 +66,9 @@ public final class ByteBufUtil {
 
     static final ByteBufAllocator DEFAULT_ALLOCATOR;
 
+    private static final int SWAR_MIN_LENGTH = 16;
+    private static final boolean SWAR_UNSAFE = PlatformDependent.hasUnsafe() && PlatformDependent.isUnaligned();
+
     static {
         String allocType = SystemPropertyUtil.get(
                 "io.netty.allocator.type", PlatformDependent.isAndroid() ? "unpooled" : "pooled");
@@ -318,6 +321,35 @@ public final class ByteBufUtil {
         }
     }
 
+    /**
+     * Returns the reader index of the first occurrence of the readable bytes of {@code needle} within the readable
+     * bytes of {@code haystack}, or {@code -1} if there is none. An empty {@code needle} is found at the reader index
+     * of {@code haystack}.
+     */
+    public static int indexOf(ByteBuf needle, ByteBuf haystack) {
+        final int needleLength = needle.readableBytes();
+        final int haystackEnd = haystack.writerIndex();
+        int i = haystack.readerIndex();
+        if (needleLength == 0) {
+            return i;
+        }
+        final int needleStart = needle.readerIndex();
+        final byte first = needle.getByte(needleStart);
+        // Only the last possible start position of the needle has to be found.
+        final int lastStart = haystackEnd - needleLength;
+        while (i <= lastStart) {
+            i = haystack.indexOf(i, lastStart + 1, first);
+            if (i < 0) {
+                return -1;
+            }
+            if (equals(haystack, i + 1, needle, needleStart + 1, needleLength - 1)) {
+                return i;
+            }
+            i++;
+        }
+        return -1;
+    }
+
     /**
      * Toggles the endianness of the specified 16-bit short integer.
      */
@@ -373,9 +405,100 @@ public final class ByteBufUtil {
             return -1;
         }
 
+        if (buffer instanceof AbstractByteBuf) {
+            ((AbstractByteBuf) buffer).checkIndex(fromIndex, toIndex - fromIndex);
+            return firstIndexOf0((AbstractByteBuf) buffer, fromIndex, toIndex, value);
+        }
         return buffer.forEachByte(fromIndex, toIndex - fromIndex, new ByteProcessor.IndexOfProcessor(value));
     }
 
+    /**
+     * Searches eight bytes at a time (SWAR) using the memory address or the backing array of the buffer if there is
+     * one, and the components of a {@link CompositeByteBuf} one by one.
+     */
+    private static int firstIndexOf0(AbstractByteBuf buffer, int fromIndex, int toIndex, byte value) {
+        if (toIndex - fromIndex < SWAR_MIN_LENGTH) {
+            return firstIndexOfBytes(buffer, fromIndex, toIndex, value);
+        }
+        if (buffer instanceof CompositeByteBuf) {
+            return firstIndexOfComposite((CompositeByteBuf) buffer, fromIndex, toIndex, value);
+        }
+
+        final long pattern = swarPattern(value);
+        int i = fromIndex;
+        final int longEnd = toIndex - 7;
+        if (SWAR_UNSAFE && buffer.hasMemoryAddress()) {
+            final long address = buffer.memoryAddress();
+            for (; i < longEnd; i += 8) {
+                long mask = swarMatch(PlatformDependent.getLong(address + i), pattern);
+                if (mask != 0) {
+                    return i + swarNativeIndex(mask);
+                }
+            }
+        } else if (SWAR_UNSAFE && buffer.hasArray()) {
+            final byte[] array = buffer.array();
+            final int offset = buffer.arrayOffset();
+            for (; i < longEnd; i += 8) {
+                long mask = swarMatch(PlatformDependent.getLong(array, offset + i), pattern);
+                if (mask != 0) {
+                    return i + swarNativeIndex(mask);
+                }
+            }
+        } else {
+            // _getLong(...) always returns the bytes in big endian order.
+            for (; i < longEnd; i += 8) {
+                long mask = swarMatch(buffer._getLong(i), pattern);
+                if (mask != 0) {
+                    return i + (Long.numberOfLeadingZeros(mask) >>> 3);
+                }
+            }
+        }
+        return firstIndexOfBytes(buffer, i, toIndex, value);
+    }
+
+    private static int firstIndexOfComposite(CompositeByteBuf buffer, int fromIndex, int toIndex, byte value) {
+        for (int cIndex = buffer.toComponentIndex(fromIndex); fromIndex < toIndex; cIndex++) {
+            ByteBuf component = buffer.internalComponent(cIndex);
+            int offset = buffer.toByteIndex(cIndex);
+            int end = Math.min(toIndex, offset + component.capacity());
+            int index = component.indexOf(fromIndex - offset, end - offset, value);
+            if (index >= 0) {
+                return offset + index;
+            }
+            fromIndex = end;
+        }
+        return -1;
+    }
+
+    private static int firstIndexOfBytes(AbstractByteBuf buffer, int fromIndex, int toIndex, byte value) {
+        for (int i = fromIndex; i < toIndex; i++) {
+            if (buffer._getByte(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static long swarPattern(byte value) {
+        return (value & 0xFFL) * 0x0101010101010101L;
+    }
+
+    /**
+     * Returns a mask which has the highest bit set in every byte of {@code word} which equals the byte of
+     * {@code pattern}, and no other bits. Unlike the shorter {@code (x - 0x01..) & ~x & 0x80..} this can not report
+     * false positives because no carry crosses byte boundaries, so the mask is valid in either byte order.
+     */
+    private static long swarMatch(long word, long pattern) {
+        long input = word ^ pattern;
+        long tmp = (input & 0x7F7F7F7F7F7F7F7FL) + 0x7F7F7F7F7F7F7F7FL;
+        return ~(tmp | input | 0x7F7F7F7F7F7F7F7FL);
+    }
+
+    private static int swarNativeIndex(long mask) {
+        return (PlatformDependent.BIG_ENDIAN_NATIVE_ORDER ?
+                Long.numberOfLeadingZeros(mask) : Long.numberOfTrailingZeros(mask)) >>> 3;
+    }
+
     private static int lastIndexOf(ByteBuf buffer, int fromIndex, int toIndex, byte value) {
         fromIndex = Math.min(fromIndex, buffer.capacity());
         if (fromIndex < 0 || buffer.capacity() == 0) {
@@ -66,6 +66,8 @@ abstract class PoolArena<T> implements PoolArenaMetric {
     private final LongCounter allocationsSmall = PlatformDependent.newLongCounter();
     private final LongCounter allocationsHuge = PlatformDependent.newLongCounter();
     private final LongCounter activeBytesHuge = PlatformDependent.newLongCounter();
+    // Bytes that are allocated for active buffers but exceed their requested capacity.
+    private final LongCounter activeFragmentationBytes = PlatformDependent.newLongCounter();
 
     private long deallocationsTiny;
     private long deallocationsSmall;
@@ -98,12 +100,12 @@ abstract class PoolArena<T> implements PoolArenaMetric {
             smallSubpagePools[i] = newSubpagePoolHead(pageSize);
         }
 
-        q100 = new PoolChunkList<T>(null, 100, Integer.MAX_VALUE, chunkSize);
-        q075 = new PoolChunkList<T>(q100, 75, 100, chunkSize);
-        q050 = new PoolChunkList<T>(q075, 50, 100, chunkSize);
-        q025 = new PoolChunkList<T>(q050, 25, 75, chunkSize);
-        q000 = new PoolChunkList<T>(q025, 1, 50, chunkSize);
-        qInit = new PoolChunkList<T>(q000, Integer.MIN_VALUE, 25, chunkSize);
+        q100 = new PoolChunkList<T>(this, null, 100, Integer.MAX_VALUE, chunkSize);
+        q075 = new PoolChunkList<T>(this, q100, 75, 100, chunkSize);
+        q050 = new PoolChunkList<T>(this, q075, 50, 100, chunkSize);
+        q025 = new PoolChunkList<T>(this, q050, 25, 75, chunkSize);
+        q000 = new PoolChunkList<T>(this, q025, 1, 50, chunkSize);
+        qInit = new PoolChunkList<T>(this, q000, Integer.MIN_VALUE, 25, chunkSize);
 
         q100.prevList(q075);
         q075.prevList(q050);
@@ -297,6 +299,23 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         }
     }
 
+    /**
+     * Release all {@link PoolChunk}s which were not used for at least {@code idleNanos}. Returns the number of
+     * released chunks.
+     */
+    int trimIdleChunks(long nanoTime, long idleNanos) {
+        List<PoolChunk<T>> released = new ArrayList<PoolChunk<T>>();
+        synchronized (this) {
+            // Only qInit may hold empty chunks, chunks in all other lists are destroyed as soon as they become empty.
+            qInit.removeIdleChunks(nanoTime, idleNanos, released);
+        }
+        for (int i = 0; i < released.size(); i++) {
+            // destroyChunk not need to be called while holding the synchronized lock.
+            destroyChunk(released.get(i));
+        }
+        return released.size();
+    }
+
     PoolSubpage<T> findSubpagePoolHead(int elemSize) {
         int tableIdx;
         PoolSubpage<T>[] table;
@@ -369,6 +388,8 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         int readerIndex = buf.readerIndex();
         int writerIndex = buf.writerIndex();
 
+        // The new allocation will account its own internal fragmentation.
+        addFragmentation(oldCapacity - oldMaxLength);
         allocate(parent.threadCache(), buf, newCapacity);
         if (newCapacity > oldCapacity) {
             memoryCopy(
@@ -394,6 +415,15 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         }
     }
 
+    /**
+     * Adjust the number of bytes which are allocated for active buffers but not requested by them.
+     */
+    void addFragmentation(int delta) {
+        if (delta != 0) {
+            activeFragmentationBytes.add(delta);
+        }
+    }
+
     @Override
     public int numThreadCaches() {
         return numThreadCaches.get();
@@ -553,6 +583,11 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         return max(0, val);
     }
 
+    @Override
+    public long numActiveFragmentationBytes() {
+        return max(0, activeFragmentationBytes.value());
+    }
+
     protected abstract PoolChunk<T> newChunk(int pageSize, int maxOrder, int pageShifts, int chunkSize);
     protected abstract PoolChunk<T> newUnpooledChunk(int capacity);
     protected abstract PooledByteBuf<T> newByteBuf(int maxCapacity);
@@ -137,4 +137,10 @@ public interface PoolArenaMetric {
      * Return the number of active bytes that are currently allocated by the arena.
      */
     long numActiveBytes();
+
+    /**
+     * Return the number of bytes that are allocated for currently active buffers but exceed the capacity which was
+     * requested for them. This is the internal fragmentation caused by rounding up to the size classes of the arena.
+     */
+    long numActiveFragmentationBytes();
 }
@@ -128,6 +128,10 @@ final class PoolChunk<T> implements PoolChunkMetric {
     PoolChunk<T> prev;
     PoolChunk<T> next;
 
+    // Used by the idle chunk trimming to remember since when the chunk is empty. Guarded by the arena.
+    boolean empty;
+    long emptySinceNanos;
+
     // TODO: Test if adding padding helps under contention
     //private long pad0, pad1, pad2, pad3, pad4, pad5, pad6, pad7;
 
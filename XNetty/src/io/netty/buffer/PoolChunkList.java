@@ -27,20 +27,26 @@ import static java.lang.Math.*;
 
 final class PoolChunkList<T> implements PoolChunkListMetric {
     private static final Iterator<PoolChunkMetric> EMPTY_METRICS = Collections.<PoolChunkMetric>emptyList().iterator();
+    private final PoolArena<T> arena;
     private final PoolChunkList<T> nextList;
     private final int minUsage;
     private final int maxUsage;
     private final int maxCapacity;
     private PoolChunk<T> head;
 
+    // Number of chunks that moved to the next / previous list. Guarded by the arena.
+    private long numPromotions;
+    private long numDemotions;
+
     // This is only update once when create the linked like list of PoolChunkList in PoolArena constructor.
     private PoolChunkList<T> prevList;
 
     // TODO: Test if adding padding helps under contention
     //private long pad0, pad1, pad2, pad3, pad4, pad5, pad6, pad7;
 
-    PoolChunkList(PoolChunkList<T> nextList, int minUsage, int maxUsage, int chunkSize) {
+    PoolChunkList(PoolArena<T> arena, PoolChunkList<T> nextList, int minUsage, int maxUsage, int chunkSize) {
         assert minUsage <= maxUsage;
+        this.arena = arena;
         this.nextList = nextList;
         this.minUsage = minUsage;
         this.maxUsage = maxUsage;
@@ -90,6 +96,7 @@ final class PoolChunkList<T> implements PoolChunkListMetric {
                 cur.initBuf(buf, handle, reqCapacity);
                 if (cur.usage() >= maxUsage) {
                     remove(cur);
+                    ++numPromotions;
                     nextList.add(cur);
                 }
                 return true;
@@ -101,6 +108,7 @@ final class PoolChunkList<T> implements PoolChunkListMetric {
         chunk.free(handle);
         if (chunk.usage() < minUsage) {
             remove(chunk);
+            ++numDemotions;
             // Move the PoolChunk down the PoolChunkList linked-list.
             return move0(chunk);
         }
@@ -159,6 +167,27 @@ final class PoolChunkList<T> implements PoolChunkListMetric {
         }
     }
 
+    /**
+     * Removes all {@link PoolChunk}s of this {@link PoolChunkList} that were found to be empty for at least
+     * {@code idleNanos} and adds them to {@code released}. A chunk is only considered to be idle if it was empty
+     * every time this method was called during that period. Must be called while holding the lock of the arena.
+     */
+    void removeIdleChunks(long nanoTime, long idleNanos, List<PoolChunk<T>> released) {
+        for (PoolChunk<T> cur = head; cur != null;) {
+            PoolChunk<T> next = cur.next;
+            if (cur.freeBytes() != cur.chunkSize()) {
+                cur.empty = false;
+            } else if (!cur.empty) {
+                cur.empty = true;
+                cur.emptySinceNanos = nanoTime;
+            } else if (nanoTime - cur.emptySinceNanos >= idleNanos) {
+                remove(cur);
+                released.add(cur);
+            }
+            cur = next;
+        }
+    }
+
     private void remove(PoolChunk<T> cur) {
         if (cur == head) {
             head = cur.next;
@@ -189,19 +218,35 @@ final class PoolChunkList<T> implements PoolChunkListMetric {
     }
 
     @Override
-    public Iterator<PoolChunkMetric> iterator() {
-        if (head == null) {
-            return EMPTY_METRICS;
+    public long numPromotions() {
+        synchronized (arena) {
+            return numPromotions;
         }
-        List<PoolChunkMetric> metrics = new ArrayList<PoolChunkMetric>();
-        for (PoolChunk<T> cur = head;;) {
-            metrics.add(cur);
-            cur = cur.next;
-            if (cur == null) {
-                break;
+    }
+
+    @Override
+    public long numDemotions() {
+        synchronized (arena) {
+            return numDemotions;
+        }
+    }
+
+    @Override
+    public Iterator<PoolChunkMetric> iterator() {
+        synchronized (arena) {
+            if (head == null) {
+                return EMPTY_METRICS;
+            }
+            List<PoolChunkMetric> metrics = new ArrayList<PoolChunkMetric>();
+            for (PoolChunk<T> cur = head;;) {
+                metrics.add(cur);
+                cur = cur.next;
+                if (cur == null) {
+                    break;
+                }
             }
+            return metrics.iterator();
         }
-        return metrics.iterator();
     }
 
     @Override
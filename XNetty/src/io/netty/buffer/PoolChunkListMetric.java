@@ -29,4 +29,16 @@ public interface PoolChunkListMetric extends Iterable<PoolChunkMetric> {
      * Return the minum usage of the chunk list after which chunks are promoted to the next list.
      */
     int maxUsage();
+
+    /**
+     * Return the number of times a chunk was moved from this list to the next list because its usage grew above
+     * {@link #maxUsage()}.
+     */
+    long numPromotions();
+
+    /**
+     * Return the number of times a chunk was moved from this list to the previous list (or released if there is no
+     * previous list) because its usage dropped below {@link #minUsage()}.
+     */
+    long numDemotions();
 }
@@ -21,13 +21,16 @@ import io.netty.buffer.PoolArena.SizeClass;
 import io.netty.util.Recycler;
 import io.netty.util.Recycler.Handle;
 import io.netty.util.ThreadDeathWatcher;
+import io.netty.util.concurrent.EventExecutor;
 import io.netty.util.internal.MathUtil;
 import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.ThreadExecutorMap;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
 import java.nio.ByteBuffer;
 import java.util.Queue;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Acts a Thread cache for allocations. This implementation is moduled after
@@ -35,7 +38,7 @@ import java.util.Queue;
  * technics of <a href="https://www.facebook.com/notes/facebook-engineering/scalable-memory-allocation-using-jemalloc/
  * 480222803919">Scalable memory allocation using jemalloc</a>.
  */
-final class PoolThreadCache {
+final class PoolThreadCache implements PoolThreadCacheMetric {
 
     private static final InternalLogger logger = InternalLoggerFactory.getInstance(PoolThreadCache.class);
 
@@ -57,6 +60,14 @@ final class PoolThreadCache {
 
     private int allocations;
 
+    // Metrics for cache hits and misses. These are only updated by the owning thread and so are not synchronized.
+    private long tinyCacheHits;
+    private long tinyCacheMisses;
+    private long smallCacheHits;
+    private long smallCacheMisses;
+    private long normalCacheHits;
+    private long normalCacheMisses;
+
     private final Thread thread = Thread.currentThread();
     private final Runnable freeTask = new Runnable() {
         @Override
@@ -65,6 +76,20 @@ final class PoolThreadCache {
         }
     };
 
+    // The EventExecutor that owns the thread (if any), used to trim the cache once the thread became idle.
+    private final EventExecutor executor = ThreadExecutorMap.currentExecutor();
+    private final Runnable idleTrimTask = new Runnable() {
+        @Override
+        public void run() {
+            freeCached();
+        }
+    };
+
+    // Only accessed by the allocator's trimmer.
+    private long lastSeenAllocations;
+    private long idleSinceNanos = System.nanoTime();
+    private boolean idleTrimmed;
+
     // TODO: Test if adding padding helps under contention
     //private long pad0, pad1, pad2, pad3, pad4, pad5, pad6, pad7;
 
@@ -120,11 +145,23 @@ final class PoolThreadCache {
             numShiftsNormalHeap = -1;
         }
 
+        PooledByteBufAllocator parent = parent();
+        if (parent != null) {
+            parent.addThreadCache(this);
+        }
+
         // The thread-local cache will keep a list of pooled buffers which must be returned to
         // the pool when the thread is not alive anymore.
         ThreadDeathWatcher.watch(thread, freeTask);
     }
 
+    private PooledByteBufAllocator parent() {
+        if (directArena != null) {
+            return directArena.parent;
+        }
+        return heapArena != null ? heapArena.parent : null;
+    }
+
     private static <T> MemoryRegionCache<T>[] createSubPageCaches(
             int cacheSize, int numCaches, SizeClass sizeClass) {
         if (cacheSize > 0) {
@@ -170,21 +207,36 @@ final class PoolThreadCache {
      * Try to allocate a tiny buffer out of the cache. Returns {@code true} if successful {@code false} otherwise
      */
     boolean allocateTiny(PoolArena<?> area, PooledByteBuf<?> buf, int reqCapacity, int normCapacity) {
-        return allocate(cacheForTiny(area, normCapacity), buf, reqCapacity);
+        if (allocate(cacheForTiny(area, normCapacity), buf, reqCapacity)) {
+            ++ tinyCacheHits;
+            return true;
+        }
+        ++ tinyCacheMisses;
+        return false;
     }
 
     /**
      * Try to allocate a small buffer out of the cache. Returns {@code true} if successful {@code false} otherwise
      */
     boolean allocateSmall(PoolArena<?> area, PooledByteBuf<?> buf, int reqCapacity, int normCapacity) {
-        return allocate(cacheForSmall(area, normCapacity), buf, reqCapacity);
+        if (allocate(cacheForSmall(area, normCapacity), buf, reqCapacity)) {
+            ++ smallCacheHits;
+            return true;
+        }
+        ++ smallCacheMisses;
+        return false;
     }
 
     /**
      * Try to allocate a small buffer out of the cache. Returns {@code true} if successful {@code false} otherwise
      */
     boolean allocateNormal(PoolArena<?> area, PooledByteBuf<?> buf, int reqCapacity, int normCapacity) {
-        return allocate(cacheForNormal(area, normCapacity), buf, reqCapacity);
+        if (allocate(cacheForNormal(area, normCapacity), buf, reqCapacity)) {
+            ++ normalCacheHits;
+            return true;
+        }
+        ++ normalCacheMisses;
+        return false;
     }
 
     @SuppressWarnings({ "unchecked", "rawtypes" })
@@ -247,6 +299,11 @@ final class PoolThreadCache {
             logger.debug("Freed {} thread-local buffer(s) from thread: {}", numFreed, thread.getName());
         }
 
+        PooledByteBufAllocator parent = parent();
+        if (parent != null) {
+            parent.removeThreadCache(this);
+        }
+
         if (directArena != null) {
             directArena.numThreadCaches.getAndDecrement();
         }
@@ -284,6 +341,54 @@ final class PoolThreadCache {
         trim(normalHeapCaches);
     }
 
+    /**
+     * Release all cached buffers, but unlike {@link #free()} keep the cache usable. Must only be called by the thread
+     * that owns this cache.
+     */
+    private void freeCached() {
+        int numFreed = free(tinySubPageDirectCaches) +
+                free(smallSubPageDirectCaches) +
+                free(normalDirectCaches) +
+                free(tinySubPageHeapCaches) +
+                free(smallSubPageHeapCaches) +
+                free(normalHeapCaches);
+
+        if (numFreed > 0 && logger.isDebugEnabled()) {
+            logger.debug("Freed {} idle thread-local buffer(s) from thread: {}", numFreed, thread.getName());
+        }
+    }
+
+    /**
+     * Schedules the release of all cached buffers on the {@link EventExecutor} that owns this cache if the cache was
+     * not used for allocations for at least {@code idleNanos}. Unlike {@link #trim()}, which only releases the
+     * buffers that were not allocated often enough, this empties the cache completely. Returns {@code true} if the
+     * release was scheduled.
+     *
+     * This is called by the trimmer of the {@link PooledByteBufAllocator} and must not be called concurrently.
+     */
+    boolean trimIfIdle(long nanoTime, long idleNanos) {
+        long allocations = tinyCacheHits + tinyCacheMisses + smallCacheHits + smallCacheMisses +
+                normalCacheHits + normalCacheMisses;
+        if (allocations != lastSeenAllocations) {
+            lastSeenAllocations = allocations;
+            idleSinceNanos = nanoTime;
+            idleTrimmed = false;
+            return false;
+        }
+        if (idleTrimmed || executor == null || nanoTime - idleSinceNanos < idleNanos) {
+            return false;
+        }
+        // The MemoryRegionCaches must only be drained by the thread that owns them, so trim via the executor.
+        try {
+            executor.execute(idleTrimTask);
+        } catch (RejectedExecutionException ignore) {
+            // The executor was shutdown, the cache will be freed once the thread terminates.
+            return false;
+        }
+        idleTrimmed = true;
+        return true;
+    }
+
     private static void trim(MemoryRegionCache<?>[] caches) {
         if (caches == null) {
             return;
@@ -300,6 +405,41 @@ final class PoolThreadCache {
         cache.trim();
     }
 
+    @Override
+    public String threadName() {
+        return thread.getName();
+    }
+
+    @Override
+    public long numTinyCacheHits() {
+        return tinyCacheHits;
+    }
+
+    @Override
+    public long numTinyCacheMisses() {
+        return tinyCacheMisses;
+    }
+
+    @Override
+    public long numSmallCacheHits() {
+        return smallCacheHits;
+    }
+
+    @Override
+    public long numSmallCacheMisses() {
+        return smallCacheMisses;
+    }
+
+    @Override
+    public long numNormalCacheHits() {
+        return normalCacheHits;
+    }
+
+    @Override
+    public long numNormalCacheMisses() {
+        return normalCacheMisses;
+    }
+
     private MemoryRegionCache<?> cacheForTiny(PoolArena<?> area, int normCapacity) {
         int idx = PoolArena.tinyIdx(normCapacity);
         if (area.isDirect()) {
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+/**
+ * Metrics for a thread-local cache of a {@link PooledByteBufAllocator}.
+ *
+ * The counters are only updated by the thread that owns the cache and are not synchronized, so reads from other
+ * threads are best-effort and may be slightly stale.
+ */
+public interface PoolThreadCacheMetric {
+
+    /**
+     * Return the name of the {@link Thread} that owns the cache.
+     */
+    String threadName();
+
+    /**
+     * Return the number of tiny allocations that were served out of the cache.
+     */
+    long numTinyCacheHits();
+
+    /**
+     * Return the number of tiny allocations that could not be served out of the cache and so hit the arena.
+     */
+    long numTinyCacheMisses();
+
+    /**
+     * Return the number of small allocations that were served out of the cache.
+     */
+    long numSmallCacheHits();
+
+    /**
+     * Return the number of small allocations that could not be served out of the cache and so hit the arena.
+     */
+    long numSmallCacheMisses();
+
+    /**
+     * Return the number of normal allocations that were served out of the cache.
+     */
+    long numNormalCacheHits();
+
+    /**
+     * Return the number of normal allocations that could not be served out of the cache and so hit the arena.
+     */
+    long numNormalCacheMisses();
+}
@@ -53,6 +53,7 @@ abstract class PooledByteBuf<T> extends AbstractReferenceCountedByteBuf {
         this.maxLength = maxLength;
         tmpNioBuf = null;
         this.cache = cache;
+        chunk.arena.addFragmentation(maxLength - length);
     }
 
     void initUnpooled(PoolChunk<T> chunk, int length) {
@@ -94,6 +95,7 @@ abstract class PooledByteBuf<T> extends AbstractReferenceCountedByteBuf {
         } else {
             if (newCapacity > length) {
                 if (newCapacity <= maxLength) {
+                    chunk.arena.addFragmentation(length - newCapacity);
                     length = newCapacity;
                     return this;
                 }
@@ -101,11 +103,13 @@ abstract class PooledByteBuf<T> extends AbstractReferenceCountedByteBuf {
                 if (newCapacity > maxLength >>> 1) {
                     if (maxLength <= 512) {
                         if (newCapacity > maxLength - 16) {
+                            chunk.arena.addFragmentation(length - newCapacity);
                             length = newCapacity;
                             setIndex(Math.min(readerIndex(), newCapacity), Math.min(writerIndex(), newCapacity));
                             return this;
                         }
                     } else { // > 512 (i.e. >= 1024)
+                        chunk.arena.addFragmentation(length - newCapacity);
                         length = newCapacity;
                         setIndex(Math.min(readerIndex(), newCapacity), Math.min(writerIndex(), newCapacity));
                         return this;
@@ -168,6 +172,7 @@ abstract class PooledByteBuf<T> extends AbstractReferenceCountedByteBuf {
             final long handle = this.handle;
             this.handle = -1;
             memory = null;
+            chunk.arena.addFragmentation(length - maxLength);
             chunk.arena.free(chunk, handle, maxLength, cache);
             recycle();
         }
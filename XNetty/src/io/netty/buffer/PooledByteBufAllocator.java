@@ -27,6 +27,10 @@ import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 public class PooledByteBufAllocator extends AbstractByteBufAllocator {
 
@@ -42,6 +46,7 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
     private static final int DEFAULT_MAX_CACHED_BUFFER_CAPACITY;
     private static final int DEFAULT_CACHE_TRIM_INTERVAL;
 
+    private static final int TRIM_CHECKS_PER_IDLE_TIMEOUT = 4;
     private static final int MIN_PAGE_SIZE = 4096;
     private static final int MAX_CHUNK_SIZE = (int) (((long) Integer.MAX_VALUE + 1) / 2);
 
@@ -136,6 +141,12 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
     private final List<PoolArenaMetric> heapArenaMetrics;
     private final List<PoolArenaMetric> directArenaMetrics;
     private final PoolThreadLocalCache threadCache;
+    private final Set<PoolThreadCache> threadCaches =
+            Collections.newSetFromMap(PlatformDependent.<PoolThreadCache, Boolean>newConcurrentHashMap());
+    // Serializes the trim passes, as PoolThreadCache.trimIfIdle(...) must not be called concurrently.
+    private final Object trimLock = new Object();
+    private final int chunkSize;
+    private final PooledByteBufAllocatorMetric metric;
 
     public PooledByteBufAllocator() {
         this(false);
@@ -161,7 +172,7 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
         this.tinyCacheSize = tinyCacheSize;
         this.smallCacheSize = smallCacheSize;
         this.normalCacheSize = normalCacheSize;
-        final int chunkSize = validateAndCalculateChunkSize(pageSize, maxOrder);
+        chunkSize = validateAndCalculateChunkSize(pageSize, maxOrder);
 
         if (nHeapArena < 0) {
             throw new IllegalArgumentException("nHeapArena: " + nHeapArena + " (expected: >= 0)");
@@ -200,6 +211,7 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
             directArenas = null;
             directArenaMetrics = Collections.emptyList();
         }
+        metric = new PooledByteBufAllocatorMetric(this);
     }
 
     @SuppressWarnings("unchecked")
@@ -442,10 +454,132 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
         return normalCacheSize;
     }
 
+    /**
+     * Return the chunk size for an arena.
+     */
+    final int chunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Return a {@link List} of the {@link PoolThreadCacheMetric}s of all threads that currently hold a thread-local
+     * cache of this {@link PooledByteBufAllocator}.
+     */
+    final List<PoolThreadCacheMetric> threadCaches() {
+        return Collections.unmodifiableList(new ArrayList<PoolThreadCacheMetric>(threadCaches));
+    }
+
+    final void addThreadCache(PoolThreadCache cache) {
+        threadCaches.add(cache);
+    }
+
+    final void removeThreadCache(PoolThreadCache cache) {
+        threadCaches.remove(cache);
+    }
+
     final PoolThreadCache threadCache() {
         return threadCache.get();
     }
 
+    /**
+     * Periodically releases the memory this allocator does not need anymore, using the given
+     * {@link ScheduledExecutorService}:
+     * <ul>
+     *     <li>{@link PoolChunk}s which were empty for at least {@code idleTimeout} are returned to the system.</li>
+     *     <li>The thread-local caches of {@link io.netty.util.concurrent.EventExecutor} threads which did not allocate
+     *     for at least {@code idleTimeout} are flushed back to their arenas.</li>
+     * </ul>
+     * Nothing is done on the allocation path, so the trimming does not add any allocation latency. The trimming can be
+     * stopped by cancelling the returned {@link ScheduledFuture}.
+     */
+    public ScheduledFuture<?> scheduleTrim(ScheduledExecutorService executor, long idleTimeout, TimeUnit unit) {
+        if (executor == null) {
+            throw new NullPointerException("executor");
+        }
+        if (unit == null) {
+            throw new NullPointerException("unit");
+        }
+        if (idleTimeout <= 0) {
+            throw new IllegalArgumentException("idleTimeout: " + idleTimeout + " (expected: > 0)");
+        }
+        final long idleNanos = unit.toNanos(idleTimeout);
+        // Check multiple times per idle period so a chunk is released at most 25% after its idle timeout expired.
+        long period = Math.max(1, idleNanos / TRIM_CHECKS_PER_IDLE_TIMEOUT);
+        return executor.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                trimIdle(System.nanoTime(), idleNanos);
+            }
+        }, period, period, TimeUnit.NANOSECONDS);
+    }
+
+    private void trimIdle(long nanoTime, long idleNanos) {
+        int numChunks;
+        int numCaches = 0;
+        synchronized (trimLock) {
+            numChunks = trimIdleChunks(heapArenas, nanoTime, idleNanos) +
+                    trimIdleChunks(directArenas, nanoTime, idleNanos);
+            for (PoolThreadCache cache: threadCaches) {
+                if (cache.trimIfIdle(nanoTime, idleNanos)) {
+                    numCaches ++;
+                }
+            }
+        }
+        if ((numChunks > 0 || numCaches > 0) && logger.isDebugEnabled()) {
+            logger.debug("Released {} idle chunk(s) and trimmed {} idle thread-local cache(s)", numChunks, numCaches);
+        }
+    }
+
+    private static int trimIdleChunks(PoolArena<?>[] arenas, long nanoTime, long idleNanos) {
+        if (arenas == null) {
+            return 0;
+        }
+        int numChunks = 0;
+        for (PoolArena<?> arena: arenas) {
+            numChunks += arena.trimIdleChunks(nanoTime, idleNanos);
+        }
+        return numChunks;
+    }
+
+    /**
+     * Returns a {@link PooledByteBufAllocatorMetric} that exposes metrics of this allocator.
+     */
+    public final PooledByteBufAllocatorMetric metric() {
+        return metric;
+    }
+
+    /**
+     * Periodically passes the {@link #metric()} of this allocator to the given
+     * {@link PooledByteBufAllocatorMetricExporter} using the given {@link ScheduledExecutorService}. The export can be
+     * stopped by cancelling the returned {@link ScheduledFuture}.
+     */
+    public ScheduledFuture<?> scheduleMetricExport(
+            ScheduledExecutorService executor, final PooledByteBufAllocatorMetricExporter exporter,
+            long period, TimeUnit unit) {
+        if (executor == null) {
+            throw new NullPointerException("executor");
+        }
+        if (exporter == null) {
+            throw new NullPointerException("exporter");
+        }
+        if (unit == null) {
+            throw new NullPointerException("unit");
+        }
+        if (period <= 0) {
+            throw new IllegalArgumentException("period: " + period + " (expected: > 0)");
+        }
+        return executor.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    exporter.export(metric);
+                } catch (Throwable t) {
+                    logger.warn("An exception was thrown by {}.export()", exporter.getClass().getName(), t);
+                }
+            }
+        }, period, period, unit);
+    }
+
     /**
      * Returns the status of the allocator (which contains all metrics) as string. Be aware this may be expensive
      * and so should not called too frequently.
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exports the {@link PooledByteBufAllocatorMetric} of a {@link PooledByteBufAllocator} to a monitoring system.
+ *
+ * @see PooledByteBufAllocator#scheduleMetricExport(ScheduledExecutorService, PooledByteBufAllocatorMetricExporter,
+ *      long, TimeUnit)
+ */
+public interface PooledByteBufAllocatorMetricExporter {
+
+    /**
+     * Called periodically with the metric of the allocator. Implementations should not block as this is executed
+     * on the {@link ScheduledExecutorService} that was used to schedule the export. The counters exposed by the
+     * metric are monotonic, so rates can be computed by taking the difference between two exports.
+     */
+    void export(PooledByteBufAllocatorMetric metric);
+}
@@ -16,6 +16,8 @@
 package io.netty.channel;
 
 import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.RejectedExecutionHandlers;
+import io.netty.util.concurrent.ScheduledTaskStoreFactory;
 
 import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadFactory;
@@ -46,6 +48,12 @@ public class DefaultEventLoop extends SingleThreadEventLoop {
         super(parent, executor, true);
     }
 
+    public DefaultEventLoop(EventLoopGroup parent, Executor executor,
+                            ScheduledTaskStoreFactory scheduledTaskStoreFactory) {
+        super(parent, executor, true, DEFAULT_MAX_PENDING_TASKS, RejectedExecutionHandlers.reject(),
+              scheduledTaskStoreFactory);
+    }
+
     @Override
     protected void run() {
         for (;;) {
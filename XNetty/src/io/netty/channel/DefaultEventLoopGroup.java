@@ -15,6 +15,9 @@
  */
 package io.netty.channel;
 
+import io.netty.util.concurrent.ScheduledTaskStoreFactory;
+import io.netty.util.concurrent.ScheduledTaskStores;
+
 import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadFactory;
 
@@ -46,7 +49,20 @@ public class DefaultEventLoopGroup extends MultithreadEventLoopGroup {
      * @param threadFactory     the {@link ThreadFactory} or {@code null} to use the default
      */
     public DefaultEventLoopGroup(int nThreads, ThreadFactory threadFactory) {
-        super(nThreads, threadFactory);
+        this(nThreads, threadFactory, ScheduledTaskStores.timingWheel());
+    }
+
+    /**
+     * Create a new instance
+     *
+     * @param nThreads                      the number of threads to use
+     * @param threadFactory                 the {@link ThreadFactory} or {@code null} to use the default
+     * @param scheduledTaskStoreFactory     the {@link ScheduledTaskStoreFactory} which creates the store for the
+     *                                      scheduled tasks of each event loop
+     */
+    public DefaultEventLoopGroup(int nThreads, ThreadFactory threadFactory,
+                                 ScheduledTaskStoreFactory scheduledTaskStoreFactory) {
+        super(nThreads, threadFactory, scheduledTaskStoreFactory);
     }
 
     /**
@@ -56,11 +72,23 @@ public class DefaultEventLoopGroup extends MultithreadEventLoopGroup {
      * @param executor          the Executor to use, or {@code null} if the default should be used.
      */
     public DefaultEventLoopGroup(int nThreads, Executor executor) {
-        super(nThreads, executor);
+        this(nThreads, executor, ScheduledTaskStores.timingWheel());
+    }
+
+    /**
+     * Create a new instance
+     *
+     * @param nThreads                      the number of threads to use
+     * @param executor                      the Executor to use, or {@code null} if the default should be used.
+     * @param scheduledTaskStoreFactory     the {@link ScheduledTaskStoreFactory} which creates the store for the
+     *                                      scheduled tasks of each event loop
+     */
+    public DefaultEventLoopGroup(int nThreads, Executor executor, ScheduledTaskStoreFactory scheduledTaskStoreFactory) {
+        super(nThreads, executor, scheduledTaskStoreFactory);
     }
 
     @Override
     protected EventLoop newChild(Executor executor, Object... args) throws Exception {
-        return new DefaultEventLoop(this, executor);
+        return new DefaultEventLoop(this, executor, (ScheduledTaskStoreFactory) args[0]);
     }
 }
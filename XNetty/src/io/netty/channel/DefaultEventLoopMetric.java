@@ -0,0 +1,58 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.channel;
+
+import io.netty.util.concurrent.DefaultEventExecutorMetric;
+import io.netty.util.concurrent.EventExecutorHistogram;
+
+/**
+ * {@link EventLoopMetric} of a {@link SingleThreadEventLoop}.
+ */
+final class DefaultEventLoopMetric extends DefaultEventExecutorMetric implements EventLoopMetric {
+    private final EventExecutorHistogram ioWaitTime = new EventExecutorHistogram();
+    private final EventExecutorHistogram ioProcessingTime = new EventExecutorHistogram();
+    private final EventExecutorHistogram ioEvents = new EventExecutorHistogram();
+
+    DefaultEventLoopMetric(SingleThreadEventLoop eventLoop) {
+        super(eventLoop);
+    }
+
+    @Override
+    public EventExecutorHistogram ioWaitTime() {
+        return ioWaitTime;
+    }
+
+    @Override
+    public EventExecutorHistogram ioProcessingTime() {
+        return ioProcessingTime;
+    }
+
+    @Override
+    public EventExecutorHistogram ioEvents() {
+        return ioEvents;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder buf = new StringBuilder(super.toString());
+        buf.setLength(buf.length() - 1);
+        return buf.append(", ioWaitTime: ").append(ioWaitTime)
+                  .append(", ioProcessingTime: ").append(ioProcessingTime)
+                  .append(", ioEvents: ").append(ioEvents)
+                  .append(')').toString();
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.channel;
+
+import io.netty.util.concurrent.EventExecutorHistogram;
+import io.netty.util.concurrent.EventExecutorMetric;
+
+/**
+ * Expose metrics of an {@link EventLoop} which also handles I/O, on top of those of its tasks.
+ */
+public interface EventLoopMetric extends EventExecutorMetric {
+
+    /**
+     * Returns the histogram of the time in nanoseconds that each iteration of the event loop blocked while waiting
+     * for I/O events, for example in {@code select(...)} or {@code epoll_wait(...)}.
+     */
+    EventExecutorHistogram ioWaitTime();
+
+    /**
+     * Returns the histogram of the time in nanoseconds that each iteration of the event loop spent handling the
+     * I/O events it waited for.
+     */
+    EventExecutorHistogram ioProcessingTime();
+
+    /**
+     * Returns the histogram of the number of I/O events, for example selected keys, that each iteration of the
+     * event loop handled.
+     */
+    EventExecutorHistogram ioEvents();
+}
@@ -15,8 +15,11 @@
  */
 package io.netty.channel;
 
+import io.netty.util.concurrent.DefaultEventExecutorMetric;
+import io.netty.util.concurrent.EventExecutorMetric;
 import io.netty.util.concurrent.RejectedExecutionHandler;
 import io.netty.util.concurrent.RejectedExecutionHandlers;
+import io.netty.util.concurrent.ScheduledTaskStoreFactory;
 import io.netty.util.concurrent.SingleThreadEventExecutor;
 import io.netty.util.internal.ObjectUtil;
 import io.netty.util.internal.SystemPropertyUtil;
@@ -59,11 +62,64 @@ public abstract class SingleThreadEventLoop extends SingleThreadEventExecutor im
         tailTasks = newTaskQueue(maxPendingTasks);
     }
 
+    protected SingleThreadEventLoop(EventLoopGroup parent, ThreadFactory threadFactory,
+                                    boolean addTaskWakesUp, int maxPendingTasks,
+                                    RejectedExecutionHandler rejectedExecutionHandler,
+                                    ScheduledTaskStoreFactory scheduledTaskStoreFactory) {
+        super(parent, threadFactory, addTaskWakesUp, maxPendingTasks, rejectedExecutionHandler,
+              scheduledTaskStoreFactory);
+        tailTasks = newTaskQueue(maxPendingTasks);
+    }
+
+    protected SingleThreadEventLoop(EventLoopGroup parent, Executor executor,
+                                    boolean addTaskWakesUp, int maxPendingTasks,
+                                    RejectedExecutionHandler rejectedExecutionHandler,
+                                    ScheduledTaskStoreFactory scheduledTaskStoreFactory) {
+        super(parent, executor, addTaskWakesUp, maxPendingTasks, rejectedExecutionHandler,
+              scheduledTaskStoreFactory);
+        tailTasks = newTaskQueue(maxPendingTasks);
+    }
+
     @Override
     public EventLoopGroup parent() {
         return (EventLoopGroup) super.parent();
     }
 
+    @Override
+    protected DefaultEventExecutorMetric newMetric() {
+        return new DefaultEventLoopMetric(this);
+    }
+
+    /**
+     * Returns {@code true} if {@link #enableMetrics()} was called, so sub-classes should measure and record their
+     * I/O via {@link #recordIoWait(long)} and {@link #recordIoProcessing(long, int)}.
+     */
+    protected final boolean isMetricsEnabled() {
+        return metric() != null;
+    }
+
+    /**
+     * Record that this event loop blocked for the given nanoseconds while waiting for I/O events.
+     */
+    protected final void recordIoWait(long waitNanos) {
+        EventExecutorMetric metric = metric();
+        if (metric instanceof EventLoopMetric) {
+            ((EventLoopMetric) metric).ioWaitTime().record(waitNanos);
+        }
+    }
+
+    /**
+     * Record that this event loop spent the given nanoseconds handling the given number of I/O events.
+     */
+    protected final void recordIoProcessing(long processingNanos, int ioEvents) {
+        EventExecutorMetric metric = metric();
+        if (metric instanceof EventLoopMetric) {
+            EventLoopMetric eventLoopMetric = (EventLoopMetric) metric;
+            eventLoopMetric.ioProcessingTime().record(processingNanos);
+            eventLoopMetric.ioEvents().record(ioEvents);
+        }
+    }
+
     @Override
     public EventLoop next() {
         return (EventLoop) super.next();
@@ -148,6 +204,11 @@ public abstract class SingleThreadEventLoop extends SingleThreadEventExecutor im
         return super.pendingTasks() + tailTasks.size();
     }
 
+    @Override
+    protected int queuedTasks() {
+        return super.queuedTasks() + tailTasks.size();
+    }
+
     /**
      * Marker interface for {@link Runnable} that will not trigger an {@link #wakeup(boolean)} in all cases.
      */
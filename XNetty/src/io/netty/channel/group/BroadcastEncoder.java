@@ -0,0 +1,177 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.channel.group;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.internal.LongCounter;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.UnstableApi;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Encodes a message once for all the members of a {@link DefaultChannelGroup}, see
+ * {@link DefaultChannelGroup#writeAndFlush(Object, ChannelMatcher, BroadcastEncoder)}. Each member is then written a
+ * retained duplicate of the encoded bytes, which passes through the encoders of its own pipeline untouched, while
+ * per {@link Channel} stages like TLS still apply.
+ * <p>
+ * The encoders given to the constructor run in a private pipeline, so they must not depend on the state of a member
+ * {@link Channel} and must produce {@link ByteBuf}s. A WebSocket frame encoder is a typical example, while a
+ * compression encoder only qualifies if it does not keep a context between messages.
+ * <p>
+ * Members which are not {@link Channel#isWritable() writable} as their peer does not keep up are handled according to
+ * the {@link SlowConsumerPolicy}.
+ */
+@UnstableApi
+public final class BroadcastEncoder {
+
+    /**
+     * What to do with a member which is not {@link Channel#isWritable() writable} when a message is broadcast.
+     */
+    public enum SlowConsumerPolicy {
+        /**
+         * Write the message anyway, so it is queued in the outbound buffer of the {@link Channel}.
+         */
+        WRITE,
+        /**
+         * Do not write the message to the {@link Channel}.
+         */
+        DROP,
+        /**
+         * Do not write the message and close the {@link Channel}.
+         */
+        CLOSE
+    }
+
+    private final EmbeddedChannel encoderChannel;
+    private final SlowConsumerPolicy slowConsumerPolicy;
+    private final LongCounter droppedMessages = PlatformDependent.newLongCounter();
+    private final LongCounter closedChannels = PlatformDependent.newLongCounter();
+
+    /**
+     * Creates a new instance which writes to slow consumers anyway.
+     *
+     * @param encoders  the encoders which are run once per message, in the order of a pipeline
+     */
+    public BroadcastEncoder(ChannelHandler... encoders) {
+        this(SlowConsumerPolicy.WRITE, encoders);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param slowConsumerPolicy    how to handle members which are not writable
+     * @param encoders              the encoders which are run once per message, in the order of a pipeline
+     */
+    public BroadcastEncoder(SlowConsumerPolicy slowConsumerPolicy, ChannelHandler... encoders) {
+        this.slowConsumerPolicy = ObjectUtil.checkNotNull(slowConsumerPolicy, "slowConsumerPolicy");
+        encoderChannel = new EmbeddedChannel(ObjectUtil.checkNotNull(encoders, "encoders"));
+    }
+
+    /**
+     * Returns the number of times a message was not written to a member because it was not writable.
+     */
+    public long droppedMessages() {
+        return droppedMessages.value();
+    }
+
+    /**
+     * Returns the number of times a member was closed because it was not writable.
+     */
+    public long closedChannels() {
+        return closedChannels.value();
+    }
+
+    /**
+     * Releases the resources of the encoders. This instance must not be used afterwards.
+     */
+    public void close() {
+        synchronized (encoderChannel) {
+            encoderChannel.finishAndReleaseAll();
+        }
+    }
+
+    /**
+     * Encodes the message, which is released in any case, and returns the result which must be released by the
+     * caller.
+     */
+    ByteBuf encode(Object message) {
+        List<ByteBuf> encoded = new ArrayList<ByteBuf>(1);
+        // The encoders may be called from any thread, but only by one at a time.
+        synchronized (encoderChannel) {
+            encoderChannel.writeOutbound(message);
+            for (;;) {
+                Object msg = encoderChannel.readOutbound();
+                if (msg == null) {
+                    break;
+                }
+                if (!(msg instanceof ByteBuf)) {
+                    ReferenceCountUtil.release(msg);
+                    for (ByteBuf buf: encoded) {
+                        buf.release();
+                    }
+                    throw new IllegalStateException(
+                            "encoders produced an unexpected message type: " + StringUtil.simpleClassName(msg) +
+                            " (expected: ByteBuf)");
+                }
+                encoded.add((ByteBuf) msg);
+            }
+        }
+
+        switch (encoded.size()) {
+        case 0:
+            throw new IllegalStateException("encoders produced no output");
+        case 1:
+            return encoded.get(0);
+        default:
+            CompositeByteBuf composite = encoderChannel.alloc().compositeBuffer(encoded.size());
+            composite.addComponents(true, encoded);
+            return composite;
+        }
+    }
+
+    /**
+     * Returns {@code true} if the encoded message should be written to the given member.
+     */
+    boolean accept(Channel channel) {
+        if (channel.isWritable()) {
+            return true;
+        }
+        switch (slowConsumerPolicy) {
+        case WRITE:
+            return true;
+        case DROP:
+            droppedMessages.increment();
+            return false;
+        case CLOSE:
+            droppedMessages.increment();
+            closedChannels.increment();
+            channel.close();
+            return false;
+        default:
+            throw new Error();
+        }
+    }
+}
@@ -303,6 +303,53 @@ public class DefaultChannelGroup extends AbstractSet<Channel> implements Channel
         return writeAndFlush(message, ChannelMatchers.all());
     }
 
+    /**
+     * Writes the specified {@code message} to all {@link Channel}s in this group that are matched by the given
+     * {@link ChannelMatcher}, running the encoders of the given {@link BroadcastEncoder} only once for all of them
+     * instead of once per {@link Channel}.
+     */
+    public ChannelGroupFuture write(Object message, ChannelMatcher matcher, BroadcastEncoder encoder) {
+        return broadcast(message, matcher, encoder, false);
+    }
+
+    /**
+     * Writes and flushes the specified {@code message} to all {@link Channel}s in this group that are matched by the
+     * given {@link ChannelMatcher}, running the encoders of the given {@link BroadcastEncoder} only once for all of
+     * them instead of once per {@link Channel}.
+     */
+    public ChannelGroupFuture writeAndFlush(Object message, ChannelMatcher matcher, BroadcastEncoder encoder) {
+        return broadcast(message, matcher, encoder, true);
+    }
+
+    private ChannelGroupFuture broadcast(Object message, ChannelMatcher matcher, BroadcastEncoder encoder,
+                                         boolean flush) {
+        if (message == null) {
+            throw new NullPointerException("message");
+        }
+        if (matcher == null) {
+            ReferenceCountUtil.release(message);
+            throw new NullPointerException("matcher");
+        }
+        if (encoder == null) {
+            ReferenceCountUtil.release(message);
+            throw new NullPointerException("encoder");
+        }
+
+        ByteBuf encoded = encoder.encode(message);
+        try {
+            Map<Channel, ChannelFuture> futures = new LinkedHashMap<Channel, ChannelFuture>(size());
+            for (Channel c: nonServerChannels.values()) {
+                if (matcher.matches(c) && encoder.accept(c)) {
+                    ByteBuf duplicate = encoded.retainedDuplicate();
+                    futures.put(c, flush ? c.writeAndFlush(duplicate) : c.write(duplicate));
+                }
+            }
+            return new DefaultChannelGroupFuture(this, futures, executor);
+        } finally {
+            encoded.release();
+        }
+    }
+
     @Override
     public ChannelGroupFuture disconnect(ChannelMatcher matcher) {
         if (matcher == null) {
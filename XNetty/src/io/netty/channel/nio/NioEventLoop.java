@@ -23,6 +23,7 @@ import io.netty.channel.SelectStrategy;
 import io.netty.channel.SingleThreadEventLoop;
 import io.netty.util.IntSupplier;
 import io.netty.util.concurrent.RejectedExecutionHandler;
+import io.netty.util.concurrent.ScheduledTaskStoreFactory;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.SystemPropertyUtil;
 import io.netty.util.internal.logging.InternalLogger;
@@ -136,8 +137,9 @@ public final class NioEventLoop extends SingleThreadEventLoop {
     private boolean needsToSelectAgain;
 
     NioEventLoop(NioEventLoopGroup parent, Executor executor, SelectorProvider selectorProvider,
-                 SelectStrategy strategy, RejectedExecutionHandler rejectedExecutionHandler) {
-        super(parent, executor, false, DEFAULT_MAX_PENDING_TASKS, rejectedExecutionHandler);
+                 SelectStrategy strategy, RejectedExecutionHandler rejectedExecutionHandler,
+                 ScheduledTaskStoreFactory scheduledTaskStoreFactory) {
+        super(parent, executor, false, DEFAULT_MAX_PENDING_TASKS, rejectedExecutionHandler, scheduledTaskStoreFactory);
         if (selectorProvider == null) {
             throw new NullPointerException("selectorProvider");
         }
@@ -393,11 +395,16 @@ public final class NioEventLoop extends SingleThreadEventLoop {
     protected void run() {
         for (;;) {
             try {
+                final boolean recordMetrics = isMetricsEnabled();
                 switch (selectStrategy.calculateStrategy(selectNowSupplier, hasTasks())) {
                     case SelectStrategy.CONTINUE:
                         continue;
                     case SelectStrategy.SELECT:
+                        final long selectStartTime = recordMetrics ? System.nanoTime() : 0;
                         select(wakenUp.getAndSet(false));
+                        if (recordMetrics) {
+                            recordIoWait(System.nanoTime() - selectStartTime);
+                        }
 
                         // 'wakenUp.compareAndSet(false, true)' is always evaluated
                         // before calling 'selector.wakeup()' to reduce the wake-up
@@ -437,7 +444,7 @@ public final class NioEventLoop extends SingleThreadEventLoop {
                 cancelledKeys = 0;
                 needsToSelectAgain = false;
                 final int ioRatio = this.ioRatio;
-                if (ioRatio == 100) {
+                if (ioRatio == 100 && !recordMetrics) {
                     try {
                         processSelectedKeys();
                     } finally {
@@ -446,12 +453,20 @@ public final class NioEventLoop extends SingleThreadEventLoop {
                     }
                 } else {
                     final long ioStartTime = System.nanoTime();
+                    int selectedKeys = 0;
                     try {
-                        processSelectedKeys();
+                        selectedKeys = processSelectedKeys();
                     } finally {
                         // Ensure we always run tasks.
                         final long ioTime = System.nanoTime() - ioStartTime;
-                        runAllTasks(ioTime * (100 - ioRatio) / ioRatio);
+                        if (recordMetrics) {
+                            recordIoProcessing(ioTime, selectedKeys);
+                        }
+                        if (ioRatio == 100) {
+                            runAllTasks();
+                        } else {
+                            runAllTasks(ioTime * (100 - ioRatio) / ioRatio);
+                        }
                     }
                 }
             } catch (Throwable t) {
@@ -483,11 +498,14 @@ public final class NioEventLoop extends SingleThreadEventLoop {
         }
     }
 
-    private void processSelectedKeys() {
+    /**
+     * Process the selected keys and return how many were processed.
+     */
+    private int processSelectedKeys() {
         if (selectedKeys != null) {
-            processSelectedKeysOptimized(selectedKeys.flip());
+            return processSelectedKeysOptimized(selectedKeys.flip());
         } else {
-            processSelectedKeysPlain(selector.selectedKeys());
+            return processSelectedKeysPlain(selector.selectedKeys());
         }
     }
 
@@ -518,19 +536,21 @@ public final class NioEventLoop extends SingleThreadEventLoop {
         return task;
     }
 
-    private void processSelectedKeysPlain(Set<SelectionKey> selectedKeys) {
+    private int processSelectedKeysPlain(Set<SelectionKey> selectedKeys) {
         // check if the set is empty and if so just return to not create garbage by
         // creating a new Iterator every time even if there is nothing to process.
         // See https://github.com/netty/netty/issues/597
         if (selectedKeys.isEmpty()) {
-            return;
+            return 0;
         }
 
+        int processed = 0;
         Iterator<SelectionKey> i = selectedKeys.iterator();
         for (;;) {
             final SelectionKey k = i.next();
             final Object a = k.attachment();
             i.remove();
+            processed ++;
 
             if (a instanceof AbstractNioChannel) {
                 processSelectedKey(k, (AbstractNioChannel) a);
@@ -556,9 +576,11 @@ public final class NioEventLoop extends SingleThreadEventLoop {
                 }
             }
         }
+        return processed;
     }
 
-    private void processSelectedKeysOptimized(SelectionKey[] selectedKeys) {
+    private int processSelectedKeysOptimized(SelectionKey[] selectedKeys) {
+        int processed = 0;
         for (int i = 0;; i ++) {
             final SelectionKey k = selectedKeys[i];
             if (k == null) {
@@ -567,6 +589,7 @@ public final class NioEventLoop extends SingleThreadEventLoop {
             // null out entry in the array to allow to have it GC'ed once the Channel close
             // See https://github.com/netty/netty/issues/2363
             selectedKeys[i] = null;
+            processed ++;
 
             final Object a = k.attachment();
 
@@ -599,6 +622,7 @@ public final class NioEventLoop extends SingleThreadEventLoop {
                 i = -1;
             }
         }
+        return processed;
     }
 
     private void processSelectedKey(SelectionKey k, AbstractNioChannel ch) {
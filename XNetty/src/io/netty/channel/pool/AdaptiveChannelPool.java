@@ -0,0 +1,762 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.channel.pool;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelInitializer;
+import io.netty.util.AttributeKey;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
+import io.netty.util.concurrent.Promise;
+import io.netty.util.internal.ThrowableUtil;
+import io.netty.util.internal.UnstableApi;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+/**
+ * {@link ChannelPool} implementation which keeps a warm set of connections and hands out the least loaded one.
+ * <p>
+ * The pool connects {@code minConnections} {@link Channel}s up front and tops them up again whenever connections
+ * are lost or evicted, so bursts of {@link #acquire()} calls do not have to pay the connect latency. When the last
+ * free slot is handed out another connection is opened in the background, up to {@code maxConnections}.
+ * <p>
+ * A {@link Channel} may be acquired up to {@code maxInFlightPerChannel} times concurrently, which allows to pool
+ * multiplexed connections. The time between an acquire and its matching release is taken as the latency of the
+ * request. Every {@link Channel} keeps an exponentially weighted moving average of these latencies and the pool
+ * picks the healthy {@link Channel} with the lowest {@code latency * (inFlight + 1)}. A {@link Channel} whose
+ * 99th percentile latency is more than {@code evictionP99Factor} times the median of the pool is not handed out
+ * anymore. It is closed right away if it is idle and otherwise once all its requests were released, without waiting
+ * for a replacement, which is connected by the next maintenance run.
+ * <p>
+ * All the state of the pool is only ever modified by a single {@link EventExecutor} of the {@link Bootstrap}'s
+ * group, so there is no need for synchronization.
+ */
+@UnstableApi
+public final class AdaptiveChannelPool implements ChannelPool {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(AdaptiveChannelPool.class);
+
+    private static final AttributeKey<PooledChannel> POOLED_CHANNEL_KEY =
+            AttributeKey.newInstance("adaptiveChannelPool");
+    private static final IllegalStateException FULL_EXCEPTION = ThrowableUtil.unknownStackTrace(
+            new IllegalStateException("Too many outstanding acquire operations"),
+            AdaptiveChannelPool.class, "acquire0(...)");
+
+    // The number of latency samples which are kept per Channel to compute the percentiles.
+    private static final int SAMPLES = 128;
+    // The minimum number of samples a Channel needs before it is considered for eviction.
+    private static final int MIN_EVICTION_SAMPLES = 32;
+    // The minimum number of Channels with enough samples to compute a meaningful median of the pool.
+    private static final int MIN_EVICTION_PEERS = 3;
+    private static final double EWMA_WEIGHT = 0.2;
+
+    private final EventExecutor executor;
+    private final Bootstrap bootstrap;
+    private final ChannelPoolHandler handler;
+    private final ChannelHealthChecker healthCheck;
+    private final int minConnections;
+    private final int maxConnections;
+    private final int maxInFlightPerChannel;
+    private final int maxPendingAcquires;
+    private final double evictionP99Factor;
+    private final ScheduledFuture<?> maintenanceFuture;
+
+    // There is no need to worry about synchronization as everything that modifies the state below is done
+    // by the above EventExecutor.
+    private final List<PooledChannel> channels = new ArrayList<PooledChannel>();
+    private final Queue<Promise<Channel>> pendingAcquires = new ArrayDeque<Promise<Channel>>();
+    private int connecting;
+    private double poolLatencyEwma;
+    private boolean closed;
+
+    // Metrics which are only written by the executor but may be read from any thread.
+    private volatile int connectionCount;
+    private volatile int inFlightCount;
+    private volatile int pendingAcquireCount;
+    private volatile long connectCount;
+    private volatile long connectFailureCount;
+    private volatile long evictionCount;
+    private volatile long latencyEwmaNanos;
+    private volatile long latencyP99Nanos;
+
+    /**
+     * Creates a new instance using the {@link ChannelHealthChecker#ACTIVE} which hands out every {@link Channel}
+     * exclusively.
+     *
+     * @param bootstrap         the {@link Bootstrap} that is used for connections
+     * @param handler           the {@link ChannelPoolHandler} that will be notified for the different pool actions
+     * @param minConnections    the number of connections which are kept open even if they are not used
+     * @param maxConnections    the maximal number of connections, once this is reached and all of them are in use
+     *                          new tries to acquire a {@link Channel} will be delayed until one is released again.
+     */
+    public AdaptiveChannelPool(Bootstrap bootstrap, ChannelPoolHandler handler,
+                               int minConnections, int maxConnections) {
+        this(bootstrap, handler, ChannelHealthChecker.ACTIVE, minConnections, maxConnections, 1,
+             Integer.MAX_VALUE, 3, 1000);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param bootstrap                 the {@link Bootstrap} that is used for connections
+     * @param handler                   the {@link ChannelPoolHandler} that will be notified for the different pool
+     *                                  actions
+     * @param healthCheck               the {@link ChannelHealthChecker} that is used to periodically check the idle
+     *                                  {@link Channel}s of the pool
+     * @param minConnections            the number of connections which are kept open even if they are not used
+     * @param maxConnections            the maximal number of connections, once this is reached and all of them are
+     *                                  in use new tries to acquire a {@link Channel} will be delayed until one is
+     *                                  released again.
+     * @param maxInFlightPerChannel     how often a {@link Channel} may be acquired at the same time, {@code 1} for
+     *                                  protocols which can not multiplex requests.
+     * @param maxPendingAcquires        the maximum number of pending acquires. Once this is exceed acquire tries
+     *                                  will be failed.
+     * @param evictionP99Factor         a {@link Channel} is evicted once its 99th percentile latency is this many
+     *                                  times higher than the median of the pool, or {@code 0} to never evict.
+     * @param maintenanceIntervalMillis the interval (in milliseconds) in which the pool is topped up to
+     *                                  {@code minConnections}, idle {@link Channel}s are health checked and slow
+     *                                  {@link Channel}s are evicted.
+     */
+    public AdaptiveChannelPool(Bootstrap bootstrap, final ChannelPoolHandler handler, ChannelHealthChecker healthCheck,
+                               int minConnections, int maxConnections, int maxInFlightPerChannel,
+                               int maxPendingAcquires, double evictionP99Factor, long maintenanceIntervalMillis) {
+        this.handler = checkNotNull(handler, "handler");
+        this.healthCheck = checkNotNull(healthCheck, "healthCheck");
+        if (minConnections < 0) {
+            throw new IllegalArgumentException("minConnections: " + minConnections + " (expected: >= 0)");
+        }
+        if (maxConnections < 1 || maxConnections < minConnections) {
+            throw new IllegalArgumentException(
+                    "maxConnections: " + maxConnections + " (expected: >= max(1, minConnections))");
+        }
+        if (maxInFlightPerChannel < 1) {
+            throw new IllegalArgumentException(
+                    "maxInFlightPerChannel: " + maxInFlightPerChannel + " (expected: >= 1)");
+        }
+        if (maxPendingAcquires < 1) {
+            throw new IllegalArgumentException("maxPendingAcquires: " + maxPendingAcquires + " (expected: >= 1)");
+        }
+        if (evictionP99Factor != 0 && !(evictionP99Factor > 1)) {
+            throw new IllegalArgumentException(
+                    "evictionP99Factor: " + evictionP99Factor + " (expected: 0 or > 1)");
+        }
+        if (maintenanceIntervalMillis <= 0) {
+            throw new IllegalArgumentException(
+                    "maintenanceIntervalMillis: " + maintenanceIntervalMillis + " (expected: > 0)");
+        }
+        this.minConnections = minConnections;
+        this.maxConnections = maxConnections;
+        this.maxInFlightPerChannel = maxInFlightPerChannel;
+        this.maxPendingAcquires = maxPendingAcquires;
+        this.evictionP99Factor = evictionP99Factor;
+
+        // Clone the original Bootstrap as we want to set our own handler
+        this.bootstrap = checkNotNull(bootstrap, "bootstrap").clone();
+        this.bootstrap.handler(new ChannelInitializer<Channel>() {
+            @Override
+            protected void initChannel(Channel ch) throws Exception {
+                assert ch.eventLoop().inEventLoop();
+                handler.channelCreated(ch);
+            }
+        });
+        executor = bootstrap.config().group().next();
+        maintenanceFuture = executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                maintain();
+            }
+        }, maintenanceIntervalMillis, maintenanceIntervalMillis, TimeUnit.MILLISECONDS);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                connectToMinimum();
+            }
+        });
+    }
+
+    @Override
+    public Future<Channel> acquire() {
+        return acquire(executor.<Channel>newPromise());
+    }
+
+    @Override
+    public Future<Channel> acquire(final Promise<Channel> promise) {
+        checkNotNull(promise, "promise");
+        try {
+            if (executor.inEventLoop()) {
+                acquire0(promise);
+            } else {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        acquire0(promise);
+                    }
+                });
+            }
+        } catch (Throwable cause) {
+            promise.tryFailure(cause);
+        }
+        return promise;
+    }
+
+    private void acquire0(Promise<Channel> promise) {
+        assert executor.inEventLoop();
+
+        if (closed) {
+            promise.tryFailure(new IllegalStateException("AdaptiveChannelPool was closed"));
+            return;
+        }
+        if (pendingAcquires.isEmpty()) {
+            PooledChannel pooled = select();
+            if (pooled != null) {
+                handOut(pooled, promise);
+                return;
+            }
+        }
+        if (pendingAcquires.size() >= maxPendingAcquires) {
+            promise.tryFailure(FULL_EXCEPTION);
+            return;
+        }
+        pendingAcquires.add(promise);
+        pendingAcquireCount = pendingAcquires.size();
+        // Only connect if the connections which are already on their way can not serve all the waiters.
+        if ((long) connecting * maxInFlightPerChannel < pendingAcquires.size() &&
+                channels.size() + connecting < maxConnections) {
+            connect();
+        }
+    }
+
+    /**
+     * Returns the usable {@link Channel} with the lowest expected latency or {@code null} if there is none.
+     * If the returned {@link Channel} is the last free slot of the pool a spare connection is opened.
+     */
+    private PooledChannel select() {
+        PooledChannel best = null;
+        double bestScore = Double.MAX_VALUE;
+        int freeSlots = 0;
+        for (int i = 0; i < channels.size(); i++) {
+            PooledChannel pooled = channels.get(i);
+            if (pooled.evicted || pooled.inFlight >= maxInFlightPerChannel || !pooled.channel.isActive()) {
+                continue;
+            }
+            freeSlots += maxInFlightPerChannel - pooled.inFlight;
+            // Channels which did not serve any request yet are assumed to be as fast as the average of the pool.
+            double latency = pooled.latencyEwma > 0 ? pooled.latencyEwma : poolLatencyEwma;
+            double score = (pooled.inFlight + 1) * latency;
+            if (best == null || score < bestScore || score == bestScore && pooled.inFlight < best.inFlight) {
+                best = pooled;
+                bestScore = score;
+            }
+        }
+        if (freeSlots == 1 && connecting == 0 && channels.size() + connecting < maxConnections) {
+            // Warm up the next connection before it is needed.
+            connect();
+        }
+        return best;
+    }
+
+    private void handOut(final PooledChannel pooled, final Promise<Channel> promise) {
+        assert executor.inEventLoop();
+
+        pooled.acquired(System.nanoTime());
+        inFlightCount++;
+
+        final Channel ch = pooled.channel;
+        ch.eventLoop().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    handler.channelAcquired(ch);
+                } catch (Throwable cause) {
+                    ch.close();
+                    release(ch);
+                    promise.tryFailure(cause);
+                    return;
+                }
+                if (!promise.trySuccess(ch)) {
+                    // Promise was completed in the meantime (like cancelled), just release the channel again
+                    release(ch);
+                }
+            }
+        });
+    }
+
+    private void runPendingAcquires() {
+        assert executor.inEventLoop();
+
+        for (;;) {
+            Promise<Channel> promise = pendingAcquires.peek();
+            if (promise == null) {
+                break;
+            }
+            if (promise.isDone()) {
+                // Cancelled while waiting.
+                pendingAcquires.remove();
+                continue;
+            }
+            PooledChannel pooled = select();
+            if (pooled == null) {
+                break;
+            }
+            pendingAcquires.remove();
+            handOut(pooled, promise);
+        }
+        pendingAcquireCount = pendingAcquires.size();
+    }
+
+    private void connect() {
+        assert executor.inEventLoop();
+
+        connecting++;
+        connectCount++;
+        final ChannelFuture f;
+        try {
+            f = bootstrap.clone().connect();
+        } catch (Throwable cause) {
+            connectFailed(cause);
+            return;
+        }
+        f.addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(final ChannelFuture future) throws Exception {
+                if (executor.inEventLoop()) {
+                    connected(future);
+                } else {
+                    executor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            connected(future);
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    private void connected(ChannelFuture future) {
+        assert executor.inEventLoop();
+
+        if (!future.isSuccess()) {
+            connectFailed(future.cause());
+            return;
+        }
+        connecting--;
+        final Channel ch = future.channel();
+        if (closed) {
+            ch.close();
+            return;
+        }
+        final PooledChannel pooled = new PooledChannel(ch);
+        ch.attr(POOLED_CHANNEL_KEY).set(pooled);
+        channels.add(pooled);
+        connectionCount = channels.size();
+        ch.closeFuture().addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) throws Exception {
+                if (executor.inEventLoop()) {
+                    remove(pooled);
+                } else {
+                    executor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            remove(pooled);
+                        }
+                    });
+                }
+            }
+        });
+        runPendingAcquires();
+    }
+
+    private void connectFailed(Throwable cause) {
+        assert executor.inEventLoop();
+
+        connecting--;
+        connectFailureCount++;
+        if (logger.isDebugEnabled()) {
+            logger.debug("Failed to connect a pooled channel", cause);
+        }
+        // Without any usable connection the waiters which are not covered by the remaining connects would wait
+        // forever, so fail them.
+        if (hasUsableChannel()) {
+            return;
+        }
+        while ((long) connecting * maxInFlightPerChannel < pendingAcquires.size()) {
+            pendingAcquires.poll().tryFailure(cause);
+        }
+        pendingAcquireCount = pendingAcquires.size();
+    }
+
+    private boolean hasUsableChannel() {
+        for (int i = 0; i < channels.size(); i++) {
+            PooledChannel pooled = channels.get(i);
+            if (!pooled.evicted && pooled.channel.isActive()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void remove(PooledChannel pooled) {
+        assert executor.inEventLoop();
+
+        if (pooled.removed) {
+            return;
+        }
+        pooled.removed = true;
+        channels.remove(pooled);
+        // The requests on this Channel are gone with it, the users will still release it though.
+        inFlightCount -= pooled.inFlight;
+        pooled.inFlight = 0;
+        connectionCount = channels.size();
+        if (!pendingAcquires.isEmpty() && !closed && channels.size() + connecting < maxConnections) {
+            connect();
+        }
+    }
+
+    @Override
+    public Future<Void> release(Channel channel) {
+        return release(channel, channel.eventLoop().<Void>newPromise());
+    }
+
+    @Override
+    public Future<Void> release(final Channel channel, final Promise<Void> promise) {
+        checkNotNull(channel, "channel");
+        checkNotNull(promise, "promise");
+        final long releaseTime = System.nanoTime();
+        try {
+            if (executor.inEventLoop()) {
+                release0(channel, releaseTime, promise);
+            } else {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        release0(channel, releaseTime, promise);
+                    }
+                });
+            }
+        } catch (Throwable cause) {
+            channel.close();
+            promise.tryFailure(cause);
+        }
+        return promise;
+    }
+
+    private void release0(final Channel channel, long releaseTime, final Promise<Void> promise) {
+        assert executor.inEventLoop();
+
+        PooledChannel pooled = channel.attr(POOLED_CHANNEL_KEY).get();
+        if (pooled == null || pooled.pool() != this || !pooled.removed && pooled.inFlight == 0) {
+            channel.close();
+            // Better include a stracktrace here as this is an user error.
+            promise.tryFailure(new IllegalArgumentException(
+                    "Channel " + channel + " was not acquired from this ChannelPool"));
+            return;
+        }
+        if (!pooled.removed) {
+            pooled.released(releaseTime);
+            inFlightCount--;
+            if (pooled.inFlight == 0 && (pooled.evicted || closed)) {
+                channel.close();
+                remove(pooled);
+            }
+        }
+        channel.eventLoop().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    handler.channelReleased(channel);
+                    promise.trySuccess(null);
+                } catch (Throwable cause) {
+                    channel.close();
+                    promise.tryFailure(cause);
+                }
+            }
+        });
+        runPendingAcquires();
+    }
+
+    private void connectToMinimum() {
+        assert executor.inEventLoop();
+
+        if (closed) {
+            return;
+        }
+        int usable = connecting;
+        for (int i = 0; i < channels.size(); i++) {
+            if (!channels.get(i).evicted) {
+                usable++;
+            }
+        }
+        while (usable < minConnections && channels.size() + connecting < maxConnections) {
+            connect();
+            usable++;
+        }
+    }
+
+    private void maintain() {
+        assert executor.inEventLoop();
+
+        if (closed) {
+            return;
+        }
+        updateLatencies();
+        connectToMinimum();
+        checkIdleChannels();
+    }
+
+    private void updateLatencies() {
+        double ewmaSum = 0;
+        int ewmaCount = 0;
+        long[] p99s = new long[channels.size()];
+        int p99Count = 0;
+        long[] all = new long[channels.size() * SAMPLES];
+        int allCount = 0;
+        for (int i = 0; i < channels.size(); i++) {
+            PooledChannel pooled = channels.get(i);
+            if (pooled.latencyEwma > 0) {
+                ewmaSum += pooled.latencyEwma;
+                ewmaCount++;
+            }
+            int samples = pooled.sampleCount();
+            System.arraycopy(pooled.samples, 0, all, allCount, samples);
+            allCount += samples;
+            pooled.p99 = samples < MIN_EVICTION_SAMPLES ? -1 : pooled.p99();
+            if (pooled.p99 >= 0) {
+                p99s[p99Count++] = pooled.p99;
+            }
+        }
+        poolLatencyEwma = ewmaCount == 0 ? 0 : ewmaSum / ewmaCount;
+        latencyEwmaNanos = (long) poolLatencyEwma;
+        latencyP99Nanos = percentile(all, allCount, 0.99);
+
+        if (evictionP99Factor == 0 || p99Count < MIN_EVICTION_PEERS) {
+            return;
+        }
+        double limit = percentile(p99s, p99Count, 0.5) * evictionP99Factor;
+        for (int i = channels.size() - 1; i >= 0; i--) {
+            PooledChannel pooled = channels.get(i);
+            if (pooled.evicted || pooled.p99 < 0 || pooled.p99 <= limit) {
+                continue;
+            }
+            pooled.evicted = true;
+            evictionCount++;
+            if (logger.isDebugEnabled()) {
+                logger.debug("Evicting {} as its p99 latency of {}ns exceeds the limit of {}ns",
+                             pooled.channel, pooled.p99, (long) limit);
+            }
+            if (pooled.inFlight == 0) {
+                pooled.channel.close();
+                remove(pooled);
+            }
+        }
+    }
+
+    private void checkIdleChannels() {
+        for (int i = 0; i < channels.size(); i++) {
+            final PooledChannel pooled = channels.get(i);
+            if (pooled.inFlight != 0 || pooled.checking) {
+                continue;
+            }
+            pooled.checking = true;
+            pooled.channel.eventLoop().execute(new Runnable() {
+                @Override
+                public void run() {
+                    Future<Boolean> f;
+                    try {
+                        f = healthCheck.isHealthy(pooled.channel);
+                    } catch (Throwable cause) {
+                        f = pooled.channel.eventLoop().newFailedFuture(cause);
+                    }
+                    f.addListener(new FutureListener<Boolean>() {
+                        @Override
+                        public void operationComplete(final Future<Boolean> future) throws Exception {
+                            executor.execute(new Runnable() {
+                                @Override
+                                public void run() {
+                                    pooled.checking = false;
+                                    if (!future.isSuccess() || !future.getNow()) {
+                                        pooled.channel.close();
+                                        remove(pooled);
+                                    }
+                                }
+                            });
+                        }
+                    });
+                }
+            });
+        }
+    }
+
+    private static long percentile(long[] values, int count, double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        Arrays.sort(values, 0, count);
+        return values[Math.max(0, (int) Math.ceil(count * percentile) - 1)];
+    }
+
+    /**
+     * Returns the number of open connections of the pool.
+     */
+    public int connectionCount() {
+        return connectionCount;
+    }
+
+    /**
+     * Returns the number of acquired {@link Channel}s which were not released yet. A {@link Channel} which is
+     * acquired multiple times is counted multiple times.
+     */
+    public int inFlightCount() {
+        return inFlightCount;
+    }
+
+    /**
+     * Returns the number of acquire operations which wait for a {@link Channel}.
+     */
+    public int pendingAcquireCount() {
+        return pendingAcquireCount;
+    }
+
+    /**
+     * Returns the number of connects which were started by this pool.
+     */
+    public long connectCount() {
+        return connectCount;
+    }
+
+    /**
+     * Returns the number of connects which failed.
+     */
+    public long connectFailureCount() {
+        return connectFailureCount;
+    }
+
+    /**
+     * Returns the number of {@link Channel}s which were evicted because of their latency.
+     */
+    public long evictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Returns the average of the latency EWMAs of all {@link Channel}s, as of the last maintenance run.
+     */
+    public long latencyEwma(TimeUnit unit) {
+        return unit.convert(latencyEwmaNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the 99th percentile latency over the recent requests of all {@link Channel}s, as of the last
+     * maintenance run.
+     */
+    public long latencyP99(TimeUnit unit) {
+        return unit.convert(latencyP99Nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void close() {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                maintenanceFuture.cancel(false);
+                for (;;) {
+                    Promise<Channel> promise = pendingAcquires.poll();
+                    if (promise == null) {
+                        break;
+                    }
+                    promise.tryFailure(new ClosedChannelException());
+                }
+                pendingAcquireCount = 0;
+                // Acquired Channels are closed once they are released.
+                for (int i = channels.size() - 1; i >= 0; i--) {
+                    PooledChannel pooled = channels.get(i);
+                    if (pooled.inFlight == 0) {
+                        pooled.channel.close();
+                        remove(pooled);
+                    }
+                }
+            }
+        });
+    }
+
+    private final class PooledChannel {
+        final Channel channel;
+        // Ring of the acquire times of the requests in flight, oldest first.
+        final long[] acquireTimes = new long[maxInFlightPerChannel];
+        final long[] samples = new long[SAMPLES];
+        int acquireHead;
+        int inFlight;
+        long sampleIndex;
+        double latencyEwma;
+        long p99 = -1;
+        boolean evicted;
+        boolean removed;
+        boolean checking;
+
+        PooledChannel(Channel channel) {
+            this.channel = channel;
+        }
+
+        AdaptiveChannelPool pool() {
+            return AdaptiveChannelPool.this;
+        }
+
+        void acquired(long nanoTime) {
+            acquireTimes[(acquireHead + inFlight) % acquireTimes.length] = nanoTime;
+            inFlight++;
+        }
+
+        void released(long nanoTime) {
+            // Requests are not necessarily released in the order they were acquired, attributing the release to
+            // the oldest outstanding acquire is the best guess we can make.
+            long latency = Math.max(0, nanoTime - acquireTimes[acquireHead]);
+            acquireHead = (acquireHead + 1) % acquireTimes.length;
+            inFlight--;
+
+            samples[(int) (sampleIndex++ % SAMPLES)] = latency;
+            latencyEwma = latencyEwma == 0 ? latency : latencyEwma + (latency - latencyEwma) * EWMA_WEIGHT;
+        }
+
+        int sampleCount() {
+            return (int) Math.min(sampleIndex, SAMPLES);
+        }
+
+        long p99() {
+            int count = sampleCount();
+            return percentile(Arrays.copyOf(samples, count), count, 0.99);
+        }
+    }
+}
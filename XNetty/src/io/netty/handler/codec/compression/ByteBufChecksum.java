@@ -20,6 +20,7 @@ import io.netty.util.ByteProcessor;
 import io.netty.util.internal.ObjectUtil;
 import io.netty.util.internal.PlatformDependent;
 
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.nio.ByteBuffer;
 import java.util.zip.Adler32;
@@ -30,17 +31,41 @@ import java.util.zip.Checksum;
  * {@link Checksum} implementation which can directly act on a {@link ByteBuf}.
  *
  * Implementations may optimize access patterns depending on if the {@link ByteBuf} is backed by a
- * byte array ({@link ByteBuf#hasArray()} is {@code true}) or not.
+ * byte array ({@link ByteBuf#hasArray()} is {@code true}) or not. Direct buffers are passed to
+ * {@link #updateDirect(long, int)} by their memory address, so they never need to be copied.
  */
 abstract class ByteBufChecksum implements Checksum {
+    /**
+     * {@code true} if implementations may read multiple bytes at once via {@link PlatformDependent}.
+     */
+    static final boolean UNSAFE_ACCESS = PlatformDependent.hasUnsafe() && PlatformDependent.isUnaligned();
+
     private static final Method ADLER32_UPDATE_METHOD;
     private static final Method CRC32_UPDATE_METHOD;
+    private static final Constructor<?> CRC32C_CONSTRUCTOR;
+    private static final Method CRC32C_UPDATE_METHOD;
 
     static {
         // See if we can use fast-path when using ByteBuf that is not heap based as Adler32 and CRC32 added support
         // for update(ByteBuffer) in JDK8.
         ADLER32_UPDATE_METHOD = updateByteBuffer(new Adler32());
         CRC32_UPDATE_METHOD = updateByteBuffer(new CRC32());
+
+        // JDK9 added CRC32C, which uses the CRC32 instructions of the CPU if there are any.
+        Constructor<?> crc32cConstructor = null;
+        Method crc32cUpdateMethod = null;
+        if (PlatformDependent.javaVersion() >= 9) {
+            try {
+                crc32cConstructor = Class.forName("java.util.zip.CRC32C").getConstructor();
+                crc32cUpdateMethod = Checksum.class.getMethod("update", ByteBuffer.class);
+                crc32cUpdateMethod.invoke(crc32cConstructor.newInstance(), ByteBuffer.allocateDirect(1));
+            } catch (Throwable ignore) {
+                crc32cConstructor = null;
+                crc32cUpdateMethod = null;
+            }
+        }
+        CRC32C_CONSTRUCTOR = crc32cConstructor;
+        CRC32C_UPDATE_METHOD = crc32cUpdateMethod;
     }
 
     private final ByteProcessor updateProcessor = new ByteProcessor() {
@@ -66,6 +91,9 @@ abstract class ByteBufChecksum implements Checksum {
 
     static ByteBufChecksum wrapChecksum(Checksum checksum) {
         ObjectUtil.checkNotNull(checksum, "checksum");
+        if (checksum instanceof ByteBufChecksum) {
+            return (ByteBufChecksum) checksum;
+        }
         if (checksum instanceof Adler32 && ADLER32_UPDATE_METHOD != null) {
             return new ReflectiveByteBufChecksum(checksum, ADLER32_UPDATE_METHOD);
         }
@@ -75,17 +103,60 @@ abstract class ByteBufChecksum implements Checksum {
         return new SlowByteBufChecksum(checksum);
     }
 
+    /**
+     * Returns a new CRC32-C {@link ByteBufChecksum}, which is the one of the JDK if it has one.
+     */
+    static ByteBufChecksum newCrc32c() {
+        if (CRC32C_CONSTRUCTOR != null) {
+            try {
+                return new ReflectiveByteBufChecksum((Checksum) CRC32C_CONSTRUCTOR.newInstance(), CRC32C_UPDATE_METHOD);
+            } catch (Throwable ignore) {
+                // Fall through to our own implementation.
+            }
+        }
+        return new Crc32c();
+    }
+
     /**
      * @see {@link #update(byte[], int, int)}.
      */
     public void update(ByteBuf b, int off, int len) {
         if (b.hasArray()) {
             update(b.array(), b.arrayOffset() + off, len);
+        } else if (b.hasMemoryAddress()) {
+            updateDirect(b.memoryAddress() + off, len);
+        } else if (b.nioBufferCount() > 0) {
+            // For example a CompositeByteBuf, whose components can be used without copying them.
+            for (ByteBuffer buffer : b.nioBuffers(off, len)) {
+                updateNioBuffer(buffer);
+            }
         } else {
             b.forEachByte(off, len, updateProcessor);
         }
     }
 
+    private void updateNioBuffer(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            update(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        } else if (buffer.isDirect() && PlatformDependent.hasUnsafe()) {
+            updateDirect(PlatformDependent.directBufferAddress(buffer) + buffer.position(), buffer.remaining());
+        } else {
+            for (int i = buffer.position(); i < buffer.limit(); i++) {
+                update(buffer.get(i));
+            }
+        }
+    }
+
+    /**
+     * Updates the checksum with the given number of bytes at the given memory address. Sub-classes should override
+     * this if they can process more than one byte at once.
+     */
+    void updateDirect(long address, int length) {
+        for (int i = 0; i < length; i++) {
+            update(PlatformDependent.getByte(address + i));
+        }
+    }
+
     private static final class ReflectiveByteBufChecksum extends SlowByteBufChecksum {
         private final Method method;
 
@@ -100,9 +171,10 @@ abstract class ByteBufChecksum implements Checksum {
                 update(b.array(), b.arrayOffset() + off, len);
             } else {
                 try {
-                    method.invoke(checksum, CompressionUtil.safeNioBuffer(b));
+                    method.invoke(checksum, b.nioBufferCount() == 1 ? b.internalNioBuffer(off, len)
+                            : b.nioBuffer(off, len));
                 } catch (Throwable cause) {
-                    throw new Error();
+                    throw new Error(cause);
                 }
             }
         }
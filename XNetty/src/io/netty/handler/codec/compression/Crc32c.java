@@ -15,6 +15,8 @@
  */
 package io.netty.handler.codec.compression;
 
+import io.netty.util.internal.PlatformDependent;
+
 /**
  * Implements CRC32-C as defined in:
  * "Optimization of Cyclic Redundancy-CHeck Codes with 24 and 32 Parity Bits",
@@ -22,6 +24,9 @@ package io.netty.handler.codec.compression;
  *
  * The implementation of this class has been sourced from the Appendix of RFC 3309,
  * but with masking due to Java not being able to support unsigned types.
+ *
+ * Blocks of eight bytes are processed at once with the "slicing-by-8" algorithm. Use
+ * {@link ByteBufChecksum#newCrc32c()} to get the implementation of the JDK instead if there is one.
  */
 class Crc32c extends ByteBufChecksum {
     private static final int[] CRC_TABLE = {
@@ -94,6 +99,19 @@ class Crc32c extends ByteBufChecksum {
     private static final long LONG_MASK = 0xFFFFFFFFL;
     private static final int BYTE_MASK = 0xFF;
 
+    /**
+     * Eight tables of 256 entries each, where the n-th table contains the CRC of each byte followed by n zero bytes.
+     */
+    private static final int[] SLICING_TABLE = new int[8 * 256];
+
+    static {
+        System.arraycopy(CRC_TABLE, 0, SLICING_TABLE, 0, 256);
+        for (int i = 256; i < SLICING_TABLE.length; i++) {
+            int crc = SLICING_TABLE[i - 256];
+            SLICING_TABLE[i] = crc >>> 8 ^ CRC_TABLE[crc & BYTE_MASK];
+        }
+    }
+
     private int crc = ~0;
 
     @Override
@@ -103,10 +121,41 @@ class Crc32c extends ByteBufChecksum {
 
     @Override
     public void update(byte[] buffer, int offset, int length) {
+        int crc = this.crc;
         int end = offset + length;
-        for (int i = offset; i < end; i++) {
-            update(buffer[i]);
+        int i = offset;
+        for (; i <= end - 8; i += 8) {
+            if (UNSAFE_ACCESS) {
+                crc = crc32c8(crc, littleEndian(PlatformDependent.getLong(buffer, i)));
+            } else {
+                crc = crc32c8(crc, (buffer[i] & BYTE_MASK) | (buffer[i + 1] & BYTE_MASK) << 8 |
+                                   (buffer[i + 2] & BYTE_MASK) << 16 | buffer[i + 3] << 24,
+                                   (buffer[i + 4] & BYTE_MASK) | (buffer[i + 5] & BYTE_MASK) << 8 |
+                                   (buffer[i + 6] & BYTE_MASK) << 16 | buffer[i + 7] << 24);
+            }
+        }
+        for (; i < end; i++) {
+            crc = crc32c(crc, buffer[i]);
         }
+        this.crc = crc;
+    }
+
+    @Override
+    void updateDirect(long address, int length) {
+        if (!UNSAFE_ACCESS) {
+            super.updateDirect(address, length);
+            return;
+        }
+        int crc = this.crc;
+        long end = address + length;
+        long i = address;
+        for (; i <= end - 8; i += 8) {
+            crc = crc32c8(crc, littleEndian(PlatformDependent.getLong(i)));
+        }
+        for (; i < end; i++) {
+            crc = crc32c(crc, PlatformDependent.getByte(i));
+        }
+        this.crc = crc;
     }
 
     @Override
@@ -122,4 +171,27 @@ class Crc32c extends ByteBufChecksum {
     private static int crc32c(int crc, int b) {
         return crc >>> 8 ^ CRC_TABLE[(crc ^ b & BYTE_MASK) & BYTE_MASK];
     }
+
+    private static long littleEndian(long value) {
+        return PlatformDependent.BIG_ENDIAN_NATIVE_ORDER ? Long.reverseBytes(value) : value;
+    }
+
+    private static int crc32c8(int crc, long value) {
+        return crc32c8(crc, (int) value, (int) (value >>> 32));
+    }
+
+    /**
+     * Processes eight bytes, given as two little endian ints.
+     */
+    private static int crc32c8(int crc, int low, int high) {
+        low ^= crc;
+        return SLICING_TABLE[7 * 256 + (low & BYTE_MASK)] ^
+               SLICING_TABLE[6 * 256 + (low >>> 8 & BYTE_MASK)] ^
+               SLICING_TABLE[5 * 256 + (low >>> 16 & BYTE_MASK)] ^
+               SLICING_TABLE[4 * 256 + (low >>> 24)] ^
+               SLICING_TABLE[3 * 256 + (high & BYTE_MASK)] ^
+               SLICING_TABLE[2 * 256 + (high >>> 8 & BYTE_MASK)] ^
+               SLICING_TABLE[256 + (high >>> 16 & BYTE_MASK)] ^
+               SLICING_TABLE[high >>> 24];
+    }
 }
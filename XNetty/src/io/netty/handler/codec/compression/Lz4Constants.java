@@ -62,6 +62,10 @@ final class Lz4Constants {
      */
     static final int BLOCK_TYPE_NON_COMPRESSED = 0x10;
     static final int BLOCK_TYPE_COMPRESSED = 0x20;
+    /**
+     * A compressed block which may refer to the previous blocks, see {@link Lz4Stream}.
+     */
+    static final int BLOCK_TYPE_COMPRESSED_DEPENDENT = 0x30;
 
     /**
      * Default seed value for xxhash.
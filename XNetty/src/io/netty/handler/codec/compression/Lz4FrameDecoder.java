@@ -21,7 +21,6 @@ import io.netty.handler.codec.ByteToMessageDecoder;
 import net.jpountz.lz4.LZ4Exception;
 import net.jpountz.lz4.LZ4Factory;
 import net.jpountz.lz4.LZ4FastDecompressor;
-import net.jpountz.xxhash.XXHashFactory;
 
 import java.util.List;
 import java.util.zip.Checksum;
@@ -62,6 +61,11 @@ public class Lz4FrameDecoder extends ByteToMessageDecoder {
      */
     private LZ4FastDecompressor decompressor;
 
+    /**
+     * Decompressor of dependent blocks, or {@code null} if they are not supported.
+     */
+    private Lz4Stream.Decompressor streamDecompressor;
+
     /**
      * Underlying checksum calculator in use.
      */
@@ -125,7 +129,7 @@ public class Lz4FrameDecoder extends ByteToMessageDecoder {
      */
     public Lz4FrameDecoder(LZ4Factory factory, boolean validateChecksums) {
         this(factory, validateChecksums ?
-                XXHashFactory.fastestInstance().newStreamingHash32(DEFAULT_SEED).asChecksum()
+                new XxHash32(DEFAULT_SEED)
               : null);
     }
 
@@ -146,6 +150,20 @@ public class Lz4FrameDecoder extends ByteToMessageDecoder {
         this.checksum = checksum == null ? null : ByteBufChecksum.wrapChecksum(checksum);
     }
 
+    /**
+     * Creates a new LZ4 decoder which also supports the dependent blocks which are written by
+     * {@link Lz4FrameEncoder#Lz4FrameEncoder(int, byte[])}.
+     *
+     * @param validateChecksums  if {@code true}, the checksum field will be validated against the actual
+     *                           uncompressed data, and if the checksums do not match, a suitable
+     *                           {@link DecompressionException} will be thrown
+     * @param dictionary         the same dictionary as the one of the encoder, or {@code null}
+     */
+    public Lz4FrameDecoder(boolean validateChecksums, byte[] dictionary) {
+        this(LZ4Factory.fastestInstance(), validateChecksums);
+        streamDecompressor = new Lz4Stream.Decompressor(dictionary);
+    }
+
     @Override
     protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
         try {
@@ -192,6 +210,7 @@ public class Lz4FrameDecoder extends ByteToMessageDecoder {
                     }
                     currentState = State.FINISHED;
                     decompressor = null;
+                    streamDecompressor = null;
                     checksum = null;
                     break;
                 }
@@ -216,19 +235,25 @@ public class Lz4FrameDecoder extends ByteToMessageDecoder {
                 ByteBuf uncompressed = null;
 
                 try {
+                    final Lz4Stream.Decompressor streamDecompressor = this.streamDecompressor;
                     switch (blockType) {
                         case BLOCK_TYPE_NON_COMPRESSED:
                             // Just pass through, we not update the readerIndex yet as we do this outside of the
                             // switch statement.
                             uncompressed = in.retainedSlice(in.readerIndex(), decompressedLength);
+                            if (streamDecompressor != null) {
+                                streamDecompressor.append(in, in.readerIndex(), decompressedLength);
+                            }
+                            break;
+                        case BLOCK_TYPE_COMPRESSED_DEPENDENT:
+                            if (streamDecompressor == null) {
+                                throw new DecompressionException(
+                                        "unexpected dependent block (the decoder does not support them)");
+                            }
+                            uncompressed = decompressBlock(ctx, in, compressedLength, decompressedLength);
                             break;
                         case BLOCK_TYPE_COMPRESSED:
-                            uncompressed = ctx.alloc().buffer(decompressedLength, decompressedLength);
-
-                            decompressor.decompress(CompressionUtil.safeNioBuffer(in),
-                                    uncompressed.internalNioBuffer(uncompressed.writerIndex(), decompressedLength));
-                            // Update the writerIndex now to reflect what we decompressed.
-                            uncompressed.writerIndex(uncompressed.writerIndex() + decompressedLength);
+                            uncompressed = decompressBlock(ctx, in, compressedLength, decompressedLength);
                             break;
                         default:
                             throw new DecompressionException(String.format(
@@ -265,6 +290,35 @@ public class Lz4FrameDecoder extends ByteToMessageDecoder {
         }
     }
 
+    /**
+     * Decompresses the compressed block at the readerIndex of {@code in} into a new buffer, without updating the
+     * readerIndex.
+     */
+    private ByteBuf decompressBlock(ChannelHandlerContext ctx, ByteBuf in, int compressedLength,
+                                    int decompressedLength) {
+        ByteBuf uncompressed = ctx.alloc().buffer(decompressedLength, decompressedLength);
+        boolean success = false;
+        try {
+            final Lz4Stream.Decompressor streamDecompressor = this.streamDecompressor;
+            if (streamDecompressor != null) {
+                // The history must also include independent blocks.
+                streamDecompressor.decompress(
+                        in, in.readerIndex(), compressedLength, decompressedLength, uncompressed);
+            } else {
+                decompressor.decompress(CompressionUtil.safeNioBuffer(in),
+                        uncompressed.internalNioBuffer(uncompressed.writerIndex(), decompressedLength));
+                // Update the writerIndex now to reflect what we decompressed.
+                uncompressed.writerIndex(uncompressed.writerIndex() + decompressedLength);
+            }
+            success = true;
+            return uncompressed;
+        } finally {
+            if (!success) {
+                uncompressed.release();
+            }
+        }
+    }
+
     /**
      * Returns {@code true} if and only if the end of the compressed stream
      * has been reached.
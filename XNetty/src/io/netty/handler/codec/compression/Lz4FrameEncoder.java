@@ -29,7 +29,6 @@ import io.netty.util.concurrent.EventExecutor;
 import net.jpountz.lz4.LZ4Compressor;
 import net.jpountz.lz4.LZ4Exception;
 import net.jpountz.lz4.LZ4Factory;
-import net.jpountz.xxhash.XXHashFactory;
 
 import java.nio.ByteBuffer;
 import java.util.concurrent.TimeUnit;
@@ -61,6 +60,11 @@ public class Lz4FrameEncoder extends MessageToByteEncoder<ByteBuf> {
      */
     private LZ4Compressor compressor;
 
+    /**
+     * Compressor of dependent blocks, or {@code null} if the blocks are compressed independently.
+     */
+    private Lz4Stream.Compressor streamCompressor;
+
     /**
      * Underlying checksum calculator in use.
      */
@@ -115,7 +119,7 @@ public class Lz4FrameEncoder extends MessageToByteEncoder<ByteBuf> {
      */
     public Lz4FrameEncoder(boolean highCompressor) {
         this(LZ4Factory.fastestInstance(), highCompressor, DEFAULT_BLOCK_SIZE,
-                XXHashFactory.fastestInstance().newStreamingHash32(DEFAULT_SEED).asChecksum());
+                new XxHash32(DEFAULT_SEED));
     }
 
     /**
@@ -149,6 +153,35 @@ public class Lz4FrameEncoder extends MessageToByteEncoder<ByteBuf> {
         finished = false;
     }
 
+    /**
+     * Creates a new LZ4 encoder which compresses dependent blocks with xxhash hashing: each block may refer to
+     * the data of the previous blocks and to the given dictionary, which improves the compression of small and
+     * similar messages a lot. The stream can only be decoded by a {@link Lz4FrameDecoder} which was created with
+     * {@link Lz4FrameDecoder#Lz4FrameDecoder(boolean, byte[])} and the same dictionary.
+     *
+     * @param blockSize       the maximum number of bytes to try to compress at once,
+     *                        must be >= 64 and <= 32 M
+     * @param dictionary      the dictionary which is used before the first block, or {@code null}.
+     *                        Only its last 64 KB are used.
+     */
+    public Lz4FrameEncoder(int blockSize, byte[] dictionary) {
+        this(blockSize, new XxHash32(DEFAULT_SEED), dictionary);
+    }
+
+    /**
+     * Creates a new LZ4 encoder which compresses dependent blocks, see {@link #Lz4FrameEncoder(int, byte[])}.
+     *
+     * @param blockSize       the maximum number of bytes to try to compress at once,
+     *                        must be >= 64 and <= 32 M
+     * @param checksum        the {@link Checksum} instance to use to check data for integrity
+     * @param dictionary      the dictionary which is used before the first block, or {@code null}.
+     *                        Only its last 64 KB are used.
+     */
+    public Lz4FrameEncoder(int blockSize, Checksum checksum, byte[] dictionary) {
+        this(LZ4Factory.fastestInstance(), false, blockSize, checksum);
+        streamCompressor = new Lz4Stream.Compressor(blockSize, dictionary);
+    }
+
     /**
      * Calculates compression level on the basis of block size.
      */
@@ -197,14 +230,24 @@ public class Lz4FrameEncoder extends MessageToByteEncoder<ByteBuf> {
         out.ensureWritable(compressedBlockSize);
         final int idx = out.writerIndex();
         int compressedLength;
-        try {
-            ByteBuffer outNioBuffer = out.internalNioBuffer(idx + HEADER_LENGTH, out.writableBytes() - HEADER_LENGTH);
-            int pos = outNioBuffer.position();
-            // We always want to start at position 0 as we take care of reusing the buffer in the encode(...) loop.
-            compressor.compress(buffer.internalNioBuffer(0, currentBlockLength), outNioBuffer);
-            compressedLength = outNioBuffer.position() - pos;
-        } catch (LZ4Exception e) {
-            throw new CompressionException(e);
+        int compressedBlockType = BLOCK_TYPE_COMPRESSED;
+        if (streamCompressor != null) {
+            // The block becomes part of the history even if it is not compressed in the end.
+            compressedLength = streamCompressor.compress(
+                    buffer.array(), buffer.arrayOffset(), currentBlockLength, out, idx + HEADER_LENGTH);
+            compressedBlockType = BLOCK_TYPE_COMPRESSED_DEPENDENT;
+        } else {
+            try {
+                ByteBuffer outNioBuffer =
+                        out.internalNioBuffer(idx + HEADER_LENGTH, out.writableBytes() - HEADER_LENGTH);
+                int pos = outNioBuffer.position();
+                // We always want to start at position 0 as we take care of reusing the buffer in the encode(...)
+                // loop.
+                compressor.compress(buffer.internalNioBuffer(0, currentBlockLength), outNioBuffer);
+                compressedLength = outNioBuffer.position() - pos;
+            } catch (LZ4Exception e) {
+                throw new CompressionException(e);
+            }
         }
         final int blockType;
         if (compressedLength >= currentBlockLength) {
@@ -212,7 +255,7 @@ public class Lz4FrameEncoder extends MessageToByteEncoder<ByteBuf> {
             compressedLength = currentBlockLength;
             out.setBytes(idx + HEADER_LENGTH, buffer, 0, currentBlockLength);
         } else {
-            blockType = BLOCK_TYPE_COMPRESSED;
+            blockType = compressedBlockType;
         }
 
         out.setLong(idx, MAGIC_NUMBER);
@@ -226,6 +269,17 @@ public class Lz4FrameEncoder extends MessageToByteEncoder<ByteBuf> {
         this.currentBlockLength = currentBlockLength;
     }
 
+    @Override
+    public void flush(ChannelHandlerContext ctx) throws Exception {
+        // Compress what was written so far, so it is not held back until a whole block was written.
+        if (buffer != null && currentBlockLength > 0) {
+            ByteBuf out = ctx.alloc().buffer(compressedBlockSize);
+            flushBufferedData(out);
+            ctx.write(out);
+        }
+        ctx.flush();
+    }
+
     private ChannelFuture finishEncode(final ChannelHandlerContext ctx, ChannelPromise promise) {
         if (finished) {
             promise.setSuccess();
@@ -255,6 +309,7 @@ public class Lz4FrameEncoder extends MessageToByteEncoder<ByteBuf> {
 
     private void cleanup() {
         compressor = null;
+        streamCompressor = null;
         checksum = null;
         if (buffer != null) {
             buffer.release();
@@ -0,0 +1,348 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.handler.codec.compression;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.internal.EmptyArrays;
+import io.netty.util.internal.PlatformDependent;
+
+import java.util.Arrays;
+
+/**
+ * LZ4 block compression of dependent blocks, which are used by {@link Lz4FrameEncoder} and {@link Lz4FrameDecoder}
+ * if they are created with dependent block support.
+ *
+ * The blocks use the standard LZ4 block format, but the matches of a block may refer to up to 64 KB of the data of
+ * the previous blocks, and to the data of a preset dictionary before the first block. Both sides keep this history
+ * in a window, and the compressor keeps its hash table from one block to the next, so small blocks with repeating
+ * content compress much better than independent blocks.
+ */
+final class Lz4Stream {
+
+    /**
+     * Maximum distance of a match, which is also the amount of history which is kept.
+     */
+    static final int MAX_DISTANCE = 65535;
+    private static final int WINDOW_SIZE = 64 * 1024;
+
+    private static final int MIN_MATCH = 4;
+    private static final int LAST_LITERALS = 5;
+    private static final int MF_LIMIT = 12;
+    private static final int RUN_MASK = 15;
+    private static final int ML_MASK = 15;
+
+    private static final int HASH_LOG = 12;
+    private static final int HASH_TABLE_SIZE = 1 << HASH_LOG;
+    private static final int SKIP_STRENGTH = 6;
+
+    private static final boolean UNSAFE_ACCESS = ByteBufChecksum.UNSAFE_ACCESS;
+
+    private Lz4Stream() { }
+
+    /**
+     * Returns the maximum length of a compressed block of the given length.
+     */
+    static int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    /**
+     * Compresses blocks which may refer to the previous blocks and the dictionary.
+     */
+    static final class Compressor {
+        private final int[] hashTable = new int[HASH_TABLE_SIZE];
+        private final byte[] window;
+        private final byte[] compressed;
+        // The history ends and the next block starts here.
+        private int windowEnd;
+        // Index of the token of the sequence which is currently written.
+        private int tokenIndex;
+
+        Compressor(int maxBlockSize, byte[] dictionary) {
+            window = new byte[WINDOW_SIZE + maxBlockSize];
+            compressed = new byte[maxCompressedLength(maxBlockSize)];
+            Arrays.fill(hashTable, -1);
+            if (dictionary != null) {
+                int length = Math.min(dictionary.length, WINDOW_SIZE);
+                System.arraycopy(dictionary, dictionary.length - length, window, 0, length);
+                for (int i = 0; i <= length - MIN_MATCH; i++) {
+                    hashTable[hash(readInt(window, i))] = i;
+                }
+                windowEnd = length;
+            }
+        }
+
+        /**
+         * Compresses the given block, which becomes part of the history of the next blocks, and writes it to
+         * {@code out} at the given index.
+         *
+         * @return the length of the compressed block
+         */
+        int compress(byte[] src, int srcOff, int srcLen, ByteBuf out, int outIndex) {
+            if (windowEnd + srcLen > window.length) {
+                slide();
+            }
+            final byte[] window = this.window;
+            final int[] hashTable = this.hashTable;
+            final int start = windowEnd;
+            final int end = start + srcLen;
+            System.arraycopy(src, srcOff, window, start, srcLen);
+            windowEnd = end;
+
+            final byte[] dst = compressed;
+            int d = 0;
+            int anchor = start;
+            if (srcLen >= MF_LIMIT + 1) {
+                final int mfLimit = end - MF_LIMIT;
+                final int matchLimit = end - LAST_LITERALS;
+                int ip = start;
+                while (ip < mfLimit) {
+                    int sequence = readInt(window, ip);
+                    int h = hash(sequence);
+                    int ref = hashTable[h];
+                    hashTable[h] = ip;
+                    if (ref < 0 || ip - ref > MAX_DISTANCE || readInt(window, ref) != sequence) {
+                        ip += 1 + (ip - anchor >>> SKIP_STRENGTH);
+                        continue;
+                    }
+
+                    while (ip > anchor && ref > 0 && window[ip - 1] == window[ref - 1]) {
+                        ip--;
+                        ref--;
+                    }
+                    int matchLength = MIN_MATCH;
+                    while (ip + matchLength < matchLimit && window[ip + matchLength] == window[ref + matchLength]) {
+                        matchLength++;
+                    }
+
+                    d = writeSequence(window, anchor, ip - anchor, dst, d);
+                    int offset = ip - ref;
+                    dst[d++] = (byte) offset;
+                    dst[d++] = (byte) (offset >>> 8);
+                    d = writeMatchLength(dst, d, matchLength - MIN_MATCH);
+
+                    ip += matchLength;
+                    anchor = ip;
+                    if (ip - 2 < mfLimit) {
+                        hashTable[hash(readInt(window, ip - 2))] = ip - 2;
+                    }
+                }
+            }
+            d = writeSequence(window, anchor, end - anchor, dst, d);
+            out.setBytes(outIndex, dst, 0, d);
+            return d;
+        }
+
+        /**
+         * Moves the last {@link #WINDOW_SIZE} bytes of the history to the start of the window.
+         */
+        private void slide() {
+            int keep = Math.min(windowEnd, WINDOW_SIZE);
+            int delta = windowEnd - keep;
+            System.arraycopy(window, delta, window, 0, keep);
+            windowEnd = keep;
+            for (int i = 0; i < hashTable.length; i++) {
+                int position = hashTable[i];
+                hashTable[i] = position >= delta ? position - delta : -1;
+            }
+        }
+
+        /**
+         * Writes the token and the literals of a sequence. The match length is filled in by
+         * {@link #writeMatchLength(byte[], int, int)} if there is a match.
+         */
+        private int writeSequence(byte[] src, int anchor, int literalLength, byte[] dst, int d) {
+            tokenIndex = d++;
+            if (literalLength >= RUN_MASK) {
+                dst[tokenIndex] = (byte) (RUN_MASK << 4);
+                d = writeLength(dst, d, literalLength - RUN_MASK);
+            } else {
+                dst[tokenIndex] = (byte) (literalLength << 4);
+            }
+            System.arraycopy(src, anchor, dst, d, literalLength);
+            return d + literalLength;
+        }
+
+        private int writeMatchLength(byte[] dst, int d, int matchLength) {
+            if (matchLength >= ML_MASK) {
+                dst[tokenIndex] |= ML_MASK;
+                return writeLength(dst, d, matchLength - ML_MASK);
+            }
+            dst[tokenIndex] |= matchLength;
+            return d;
+        }
+
+        private static int writeLength(byte[] dst, int d, int length) {
+            while (length >= 255) {
+                dst[d++] = (byte) 255;
+                length -= 255;
+            }
+            dst[d++] = (byte) length;
+            return d;
+        }
+
+        private static int hash(int sequence) {
+            return sequence * -1640531535 >>> 32 - HASH_LOG;
+        }
+    }
+
+    /**
+     * Decompresses blocks which may refer to the previous blocks and the dictionary.
+     */
+    static final class Decompressor {
+        private byte[] window;
+        private int windowEnd;
+        private byte[] compressed = EmptyArrays.EMPTY_BYTES;
+
+        Decompressor(byte[] dictionary) {
+            window = new byte[WINDOW_SIZE * 2];
+            if (dictionary != null) {
+                int length = Math.min(dictionary.length, WINDOW_SIZE);
+                System.arraycopy(dictionary, dictionary.length - length, window, 0, length);
+                windowEnd = length;
+            }
+        }
+
+        /**
+         * Decompresses the block of the given length at the given index of {@code in} and writes it to {@code out}.
+         */
+        void decompress(ByteBuf in, int index, int compressedLength, int decompressedLength, ByteBuf out) {
+            final byte[] src;
+            int s;
+            if (in.hasArray()) {
+                src = in.array();
+                s = in.arrayOffset() + index;
+            } else {
+                if (compressed.length < compressedLength) {
+                    compressed = new byte[compressedLength];
+                }
+                in.getBytes(index, compressed, 0, compressedLength);
+                src = compressed;
+                s = 0;
+            }
+            final int sEnd = s + compressedLength;
+
+            ensureWritable(decompressedLength);
+            final byte[] window = this.window;
+            final int start = windowEnd;
+            final int dEnd = start + decompressedLength;
+            int d = start;
+            for (;;) {
+                if (s >= sEnd) {
+                    throw corrupted();
+                }
+                int token = src[s++] & 0xFF;
+
+                int literalLength = token >>> 4;
+                if (literalLength == RUN_MASK) {
+                    int b;
+                    do {
+                        if (s >= sEnd) {
+                            throw corrupted();
+                        }
+                        b = src[s++] & 0xFF;
+                        literalLength += b;
+                    } while (b == 255 && literalLength <= decompressedLength);
+                }
+                if (literalLength > sEnd - s || literalLength > dEnd - d) {
+                    throw corrupted();
+                }
+                System.arraycopy(src, s, window, d, literalLength);
+                s += literalLength;
+                d += literalLength;
+                if (s == sEnd) {
+                    // The last sequence only has literals.
+                    if (d != dEnd) {
+                        throw corrupted();
+                    }
+                    break;
+                }
+
+                if (sEnd - s < 2) {
+                    throw corrupted();
+                }
+                int offset = src[s] & 0xFF | (src[s + 1] & 0xFF) << 8;
+                s += 2;
+                int ref = d - offset;
+                if (offset == 0 || ref < 0) {
+                    throw corrupted();
+                }
+
+                int matchLength = token & ML_MASK;
+                if (matchLength == ML_MASK) {
+                    int b;
+                    do {
+                        if (s >= sEnd) {
+                            throw corrupted();
+                        }
+                        b = src[s++] & 0xFF;
+                        matchLength += b;
+                    } while (b == 255 && matchLength <= decompressedLength);
+                }
+                matchLength += MIN_MATCH;
+                if (matchLength > dEnd - d) {
+                    throw corrupted();
+                }
+                if (offset >= matchLength) {
+                    System.arraycopy(window, ref, window, d, matchLength);
+                } else {
+                    // Overlapping match, which repeats the last offset bytes.
+                    for (int i = 0; i < matchLength; i++) {
+                        window[d + i] = window[ref + i];
+                    }
+                }
+                d += matchLength;
+            }
+            windowEnd = dEnd;
+            out.writeBytes(window, start, decompressedLength);
+        }
+
+        /**
+         * Adds a block which was not compressed to the history.
+         */
+        void append(ByteBuf in, int index, int length) {
+            ensureWritable(length);
+            in.getBytes(index, window, windowEnd, length);
+            windowEnd += length;
+        }
+
+        private void ensureWritable(int length) {
+            if (windowEnd + length <= window.length) {
+                return;
+            }
+            int keep = Math.min(windowEnd, WINDOW_SIZE);
+            byte[] window = this.window;
+            if (keep + length > window.length) {
+                window = new byte[keep + Math.max(length, WINDOW_SIZE)];
+            }
+            System.arraycopy(this.window, windowEnd - keep, window, 0, keep);
+            this.window = window;
+            windowEnd = keep;
+        }
+
+        private static DecompressionException corrupted() {
+            return new DecompressionException("stream corrupted: invalid LZ4 block");
+        }
+    }
+
+    private static int readInt(byte[] b, int index) {
+        if (UNSAFE_ACCESS) {
+            return PlatformDependent.getInt(b, index);
+        }
+        return b[index] & 0xFF | (b[index + 1] & 0xFF) << 8 | (b[index + 2] & 0xFF) << 16 | b[index + 3] << 24;
+    }
+}
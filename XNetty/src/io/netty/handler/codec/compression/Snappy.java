@@ -609,7 +609,7 @@ public final class Snappy {
      * @param data The input data to calculate the CRC32C checksum of
      */
     static int calculateChecksum(ByteBuf data, int offset, int length) {
-        Crc32c crc32 = new Crc32c();
+        ByteBufChecksum crc32 = ByteBufChecksum.newCrc32c();
         try {
             crc32.update(data, offset, length);
             return maskChecksum((int) crc32.getValue());
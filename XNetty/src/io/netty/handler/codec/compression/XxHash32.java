@@ -0,0 +1,196 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.handler.codec.compression;
+
+import io.netty.util.internal.PlatformDependent;
+
+/**
+ * Streaming implementation of the 32 bit xxHash algorithm by Yann Collet, see
+ * <a href="https://github.com/Cyan4973/xxHash">xxHash</a>.
+ *
+ * Like the {@link java.util.zip.Checksum} of {@code net.jpountz.xxhash.StreamingXXHash32#asChecksum()},
+ * {@link #getValue()} only returns the lower 28 bits of the hash, which is what {@link Lz4FrameEncoder} writes.
+ */
+final class XxHash32 extends ByteBufChecksum {
+    private static final int PRIME1 = 0x9E3779B1;
+    private static final int PRIME2 = 0x85EBCA77;
+    private static final int PRIME3 = 0xC2B2AE3D;
+    private static final int PRIME4 = 0x27D4EB2F;
+    private static final int PRIME5 = 0x165667B1;
+
+    private static final int STRIPE_LENGTH = 16;
+    private static final long VALUE_MASK = 0xFFFFFFFL;
+
+    private final int seed;
+    private final byte[] memory = new byte[STRIPE_LENGTH];
+    private int memorySize;
+    private long totalLength;
+    private int v1;
+    private int v2;
+    private int v3;
+    private int v4;
+
+    XxHash32(int seed) {
+        this.seed = seed;
+        reset();
+    }
+
+    @Override
+    public void update(int b) {
+        memory[memorySize++] = (byte) b;
+        totalLength++;
+        if (memorySize == STRIPE_LENGTH) {
+            processMemory();
+        }
+    }
+
+    @Override
+    public void update(byte[] b, int off, int len) {
+        totalLength += len;
+        int end = off + len;
+        if (memorySize != 0) {
+            int n = Math.min(STRIPE_LENGTH - memorySize, len);
+            System.arraycopy(b, off, memory, memorySize, n);
+            memorySize += n;
+            off += n;
+            if (memorySize < STRIPE_LENGTH) {
+                return;
+            }
+            processMemory();
+        }
+
+        int v1 = this.v1;
+        int v2 = this.v2;
+        int v3 = this.v3;
+        int v4 = this.v4;
+        for (; off <= end - STRIPE_LENGTH; off += STRIPE_LENGTH) {
+            v1 = round(v1, intLE(b, off));
+            v2 = round(v2, intLE(b, off + 4));
+            v3 = round(v3, intLE(b, off + 8));
+            v4 = round(v4, intLE(b, off + 12));
+        }
+        this.v1 = v1;
+        this.v2 = v2;
+        this.v3 = v3;
+        this.v4 = v4;
+
+        memorySize = end - off;
+        System.arraycopy(b, off, memory, 0, memorySize);
+    }
+
+    @Override
+    void updateDirect(long address, int length) {
+        if (!UNSAFE_ACCESS) {
+            super.updateDirect(address, length);
+            return;
+        }
+        totalLength += length;
+        long end = address + length;
+        if (memorySize != 0) {
+            int n = Math.min(STRIPE_LENGTH - memorySize, length);
+            PlatformDependent.copyMemory(address, memory, memorySize, n);
+            memorySize += n;
+            address += n;
+            if (memorySize < STRIPE_LENGTH) {
+                return;
+            }
+            processMemory();
+        }
+
+        int v1 = this.v1;
+        int v2 = this.v2;
+        int v3 = this.v3;
+        int v4 = this.v4;
+        for (; address <= end - STRIPE_LENGTH; address += STRIPE_LENGTH) {
+            v1 = round(v1, intLE(address));
+            v2 = round(v2, intLE(address + 4));
+            v3 = round(v3, intLE(address + 8));
+            v4 = round(v4, intLE(address + 12));
+        }
+        this.v1 = v1;
+        this.v2 = v2;
+        this.v3 = v3;
+        this.v4 = v4;
+
+        memorySize = (int) (end - address);
+        PlatformDependent.copyMemory(address, memory, 0, memorySize);
+    }
+
+    private void processMemory() {
+        v1 = round(v1, intLE(memory, 0));
+        v2 = round(v2, intLE(memory, 4));
+        v3 = round(v3, intLE(memory, 8));
+        v4 = round(v4, intLE(memory, 12));
+        memorySize = 0;
+    }
+
+    @Override
+    public long getValue() {
+        int h;
+        if (totalLength >= STRIPE_LENGTH) {
+            h = Integer.rotateLeft(v1, 1) + Integer.rotateLeft(v2, 7) +
+                Integer.rotateLeft(v3, 12) + Integer.rotateLeft(v4, 18);
+        } else {
+            h = seed + PRIME5;
+        }
+        h += (int) totalLength;
+
+        int i = 0;
+        for (; i <= memorySize - 4; i += 4) {
+            h += intLE(memory, i) * PRIME3;
+            h = Integer.rotateLeft(h, 17) * PRIME4;
+        }
+        for (; i < memorySize; i++) {
+            h += (memory[i] & 0xFF) * PRIME5;
+            h = Integer.rotateLeft(h, 11) * PRIME1;
+        }
+
+        h ^= h >>> 15;
+        h *= PRIME2;
+        h ^= h >>> 13;
+        h *= PRIME3;
+        h ^= h >>> 16;
+        return h & VALUE_MASK;
+    }
+
+    @Override
+    public void reset() {
+        v1 = seed + PRIME1 + PRIME2;
+        v2 = seed + PRIME2;
+        v3 = seed;
+        v4 = seed - PRIME1;
+        memorySize = 0;
+        totalLength = 0;
+    }
+
+    private static int round(int acc, int input) {
+        return Integer.rotateLeft(acc + input * PRIME2, 13) * PRIME1;
+    }
+
+    private static int intLE(byte[] b, int off) {
+        if (UNSAFE_ACCESS) {
+            int value = PlatformDependent.getInt(b, off);
+            return PlatformDependent.BIG_ENDIAN_NATIVE_ORDER ? Integer.reverseBytes(value) : value;
+        }
+        return b[off] & 0xFF | (b[off + 1] & 0xFF) << 8 | (b[off + 2] & 0xFF) << 16 | b[off + 3] << 24;
+    }
+
+    private static int intLE(long address) {
+        int value = PlatformDependent.getInt(address);
+        return PlatformDependent.BIG_ENDIAN_NATIVE_ORDER ? Integer.reverseBytes(value) : value;
+    }
+}
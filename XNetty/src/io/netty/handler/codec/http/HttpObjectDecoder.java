@@ -23,9 +23,14 @@ import io.netty.handler.codec.ByteToMessageDecoder;
 import io.netty.handler.codec.DecoderResult;
 import io.netty.handler.codec.PrematureChannelClosureException;
 import io.netty.handler.codec.TooLongFrameException;
+import io.netty.util.AsciiString;
 import io.netty.util.ByteProcessor;
 import io.netty.util.internal.AppendableCharSequence;
+import io.netty.util.internal.EmptyArrays;
 
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -105,6 +110,7 @@ public abstract class HttpObjectDecoder extends ByteToMessageDecoder {
     private final int maxChunkSize;
     private final boolean chunkedSupported;
     protected final boolean validateHeaders;
+    private final boolean asciiHeaders;
     private final HeaderParser headerParser;
     private final LineParser lineParser;
 
@@ -168,6 +174,22 @@ public abstract class HttpObjectDecoder extends ByteToMessageDecoder {
     protected HttpObjectDecoder(
             int maxInitialLineLength, int maxHeaderSize, int maxChunkSize,
             boolean chunkedSupported, boolean validateHeaders, int initialBufferSize) {
+        this(maxInitialLineLength, maxHeaderSize, maxChunkSize, chunkedSupported, validateHeaders, initialBufferSize,
+             false);
+    }
+
+    /**
+     * Creates a new instance with the specified parameters.
+     *
+     * @param asciiHeaders  if {@code true} the names and values of the headers are decoded into {@link AsciiString}s
+     *                      which share the bytes of their header line instead of into {@link String}s, and names which
+     *                      equal one of the {@link HttpHeaderNames} (or their capitalized form like
+     *                      {@code Content-Length}) are replaced by a shared instance. This saves most of the
+     *                      allocations done for each header. Trailing headers are always decoded into {@link String}s.
+     */
+    protected HttpObjectDecoder(
+            int maxInitialLineLength, int maxHeaderSize, int maxChunkSize,
+            boolean chunkedSupported, boolean validateHeaders, int initialBufferSize, boolean asciiHeaders) {
         if (maxInitialLineLength <= 0) {
             throw new IllegalArgumentException(
                     "maxInitialLineLength must be a positive integer: " +
@@ -189,6 +211,7 @@ public abstract class HttpObjectDecoder extends ByteToMessageDecoder {
         this.maxChunkSize = maxChunkSize;
         this.chunkedSupported = chunkedSupported;
         this.validateHeaders = validateHeaders;
+        this.asciiHeaders = asciiHeaders;
     }
 
     @Override
@@ -566,31 +589,37 @@ public abstract class HttpObjectDecoder extends ByteToMessageDecoder {
         final HttpMessage message = this.message;
         final HttpHeaders headers = message.headers();
 
-        AppendableCharSequence line = headerParser.parse(buffer);
-        if (line == null) {
-            return null;
-        }
-        if (line.length() > 0) {
-            do {
-                char firstChar = line.charAt(0);
-                if (name != null && (firstChar == ' ' || firstChar == '\t')) {
-                    StringBuilder buf = new StringBuilder(value.length() + line.length() + 1);
-                    buf.append(value)
-                       .append(' ')
-                       .append(line.toString().trim());
-                    value = buf.toString();
-                } else {
-                    if (name != null) {
-                        headers.add(name, value);
+        if (asciiHeaders) {
+            if (!readAsciiHeaders(buffer, headers)) {
+                return null;
+            }
+        } else {
+            AppendableCharSequence line = headerParser.parse(buffer);
+            if (line == null) {
+                return null;
+            }
+            if (line.length() > 0) {
+                do {
+                    char firstChar = line.charAt(0);
+                    if (name != null && (firstChar == ' ' || firstChar == '\t')) {
+                        StringBuilder buf = new StringBuilder(value.length() + line.length() + 1);
+                        buf.append(value)
+                           .append(' ')
+                           .append(line.toString().trim());
+                        value = buf.toString();
+                    } else {
+                        if (name != null) {
+                            headers.add(name, value);
+                        }
+                        splitHeader(line);
                     }
-                    splitHeader(line);
-                }
 
-                line = headerParser.parse(buffer);
-                if (line == null) {
-                    return null;
-                }
-            } while (line.length() > 0);
+                    line = headerParser.parse(buffer);
+                    if (line == null) {
+                        return null;
+                    }
+                } while (line.length() > 0);
+            }
         }
 
         // Add the last header.
@@ -616,6 +645,32 @@ public abstract class HttpObjectDecoder extends ByteToMessageDecoder {
         return nextState;
     }
 
+    private boolean readAsciiHeaders(ByteBuf buffer, HttpHeaders headers) {
+        for (;;) {
+            byte[] line = headerParser.parseAscii(buffer);
+            if (line == null) {
+                return false;
+            }
+            if (line.length == 0) {
+                return true;
+            }
+            byte firstByte = line[0];
+            if (name != null && (firstByte == ' ' || firstByte == '\t')) {
+                AsciiString continuation = new AsciiString(line, false).trim();
+                StringBuilder buf = new StringBuilder(value.length() + continuation.length() + 1);
+                buf.append(value)
+                   .append(' ')
+                   .append(continuation);
+                value = new AsciiString(buf);
+            } else {
+                if (name != null) {
+                    headers.add(name, value);
+                }
+                splitAsciiHeader(line);
+            }
+        }
+    }
+
     private long contentLength() {
         if (contentLength == Long.MIN_VALUE) {
             contentLength = HttpUtil.getContentLength(message, -1L);
@@ -749,6 +804,62 @@ public abstract class HttpObjectDecoder extends ByteToMessageDecoder {
         }
     }
 
+    private void splitAsciiHeader(byte[] line) {
+        final int length = line.length;
+        int nameStart;
+        int nameEnd;
+        int colonEnd;
+        int valueStart;
+        int valueEnd;
+
+        nameStart = findNonWhitespace(line, 0);
+        for (nameEnd = nameStart; nameEnd < length; nameEnd ++) {
+            byte b = line[nameEnd];
+            if (b == ':' || isWhitespace(b)) {
+                break;
+            }
+        }
+
+        for (colonEnd = nameEnd; colonEnd < length; colonEnd ++) {
+            if (line[colonEnd] == ':') {
+                colonEnd ++;
+                break;
+            }
+        }
+
+        AsciiString knownName = HeaderNameCache.get(line, nameStart, nameEnd);
+        name = knownName != null ? knownName : new AsciiString(line, nameStart, nameEnd - nameStart, false);
+        valueStart = findNonWhitespace(line, colonEnd);
+        if (valueStart == length) {
+            value = AsciiString.EMPTY_STRING;
+        } else {
+            valueEnd = findEndOfString(line);
+            value = new AsciiString(line, valueStart, valueEnd - valueStart, false);
+        }
+    }
+
+    private static int findNonWhitespace(byte[] line, int offset) {
+        for (int result = offset; result < line.length; ++result) {
+            if (!isWhitespace(line[result])) {
+                return result;
+            }
+        }
+        return line.length;
+    }
+
+    private static int findEndOfString(byte[] line) {
+        for (int result = line.length - 1; result > 0; --result) {
+            if (!isWhitespace(line[result])) {
+                return result + 1;
+            }
+        }
+        return 0;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return Character.isWhitespace((char) b);
+    }
+
     private static int findNonWhitespace(AppendableCharSequence sb, int offset) {
         for (int result = offset; result < sb.length(); ++result) {
             if (!Character.isWhitespace(sb.charAtUnsafe(result))) {
@@ -789,7 +900,17 @@ public abstract class HttpObjectDecoder extends ByteToMessageDecoder {
         public AppendableCharSequence parse(ByteBuf buffer) {
             final int oldSize = size;
             seq.reset();
-            int i = buffer.forEachByte(this);
+            final int readerIndex = buffer.readerIndex();
+            final int lfIndex = buffer.indexOf(readerIndex, buffer.writerIndex(), HttpConstants.LF);
+            final int i;
+            if (lfIndex >= 0) {
+                i = buffer.forEachByte(readerIndex, lfIndex - readerIndex + 1, this);
+            } else if (buffer.readableBytes() <= maxLength - size) {
+                // The line is not complete yet but can not exceed the limit either, so there is no need to copy it.
+                return null;
+            } else {
+                i = buffer.forEachByte(this);
+            }
             if (i == -1) {
                 size = oldSize;
                 return null;
@@ -798,6 +919,38 @@ public abstract class HttpObjectDecoder extends ByteToMessageDecoder {
             return seq;
         }
 
+        /**
+         * Reads the next line like {@link #parse(ByteBuf)} does, but copies it into a new array which is returned.
+         * Unlike {@link #parse(ByteBuf)} only the {@code CR} right before the {@code LF} is stripped.
+         */
+        public byte[] parseAscii(ByteBuf buffer) {
+            final int readerIndex = buffer.readerIndex();
+            final int lfIndex = buffer.indexOf(readerIndex, buffer.writerIndex(), HttpConstants.LF);
+            if (lfIndex < 0) {
+                int length = buffer.readableBytes();
+                if (length > 0 && buffer.getByte(buffer.writerIndex() - 1) == HttpConstants.CR) {
+                    length --;
+                }
+                if (length > maxLength - size) {
+                    throw newException(maxLength);
+                }
+                return null;
+            }
+
+            int length = lfIndex - readerIndex;
+            if (length > 0 && buffer.getByte(lfIndex - 1) == HttpConstants.CR) {
+                length --;
+            }
+            if (length > maxLength - size) {
+                throw newException(maxLength);
+            }
+            size += length;
+            byte[] line = length == 0 ? EmptyArrays.EMPTY_BYTES : new byte[length];
+            buffer.getBytes(readerIndex, line);
+            buffer.readerIndex(lfIndex + 1);
+            return line;
+        }
+
         public void reset() {
             size = 0;
         }
@@ -846,4 +999,86 @@ public abstract class HttpObjectDecoder extends ByteToMessageDecoder {
             return new TooLongFrameException("An HTTP line is larger than " + maxLength + " bytes.");
         }
     }
+
+    /**
+     * Maps the bytes of a header name to the matching {@link HttpHeaderNames} constant, or to a capitalized variant of
+     * it like {@code Content-Length} as this is what most peers send. The case of the name is never changed.
+     */
+    private static final class HeaderNameCache {
+        private static final AsciiString[] NAMES;
+        private static final int MASK;
+
+        static {
+            List<AsciiString> names = new ArrayList<AsciiString>();
+            for (Field field : HttpHeaderNames.class.getFields()) {
+                if (Modifier.isStatic(field.getModifiers()) && field.getType() == AsciiString.class) {
+                    try {
+                        AsciiString name = (AsciiString) field.get(null);
+                        names.add(name);
+                        names.add(capitalize(name));
+                    } catch (IllegalAccessException e) {
+                        throw new ExceptionInInitializerError(e);
+                    }
+                }
+            }
+            NAMES = new AsciiString[Integer.highestOneBit(names.size()) << 2];
+            MASK = NAMES.length - 1;
+            for (AsciiString name : names) {
+                int i = hash(name.array(), name.arrayOffset(), name.arrayOffset() + name.length()) & MASK;
+                while (NAMES[i] != null) {
+                    if (NAMES[i].equals(name)) {
+                        break;
+                    }
+                    i = i + 1 & MASK;
+                }
+                NAMES[i] = name;
+            }
+        }
+
+        private HeaderNameCache() { }
+
+        static AsciiString get(byte[] bytes, int start, int end) {
+            final int length = end - start;
+            for (int i = hash(bytes, start, end) & MASK;; i = i + 1 & MASK) {
+                AsciiString name = NAMES[i];
+                if (name == null) {
+                    return null;
+                }
+                if (name.length() == length && equals(name, bytes, start)) {
+                    return name;
+                }
+            }
+        }
+
+        private static boolean equals(AsciiString name, byte[] bytes, int start) {
+            final byte[] array = name.array();
+            final int offset = name.arrayOffset();
+            for (int i = 0; i < name.length(); i++) {
+                if (array[offset + i] != bytes[start + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static int hash(byte[] bytes, int start, int end) {
+            int hash = 0;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + bytes[i];
+            }
+            return hash ^ hash >>> 16;
+        }
+
+        private static AsciiString capitalize(AsciiString name) {
+            byte[] bytes = name.toByteArray();
+            boolean upper = true;
+            for (int i = 0; i < bytes.length; i++) {
+                if (upper && bytes[i] >= 'a' && bytes[i] <= 'z') {
+                    bytes[i] -= 'a' - 'A';
+                }
+                upper = bytes[i] == '-';
+            }
+            return new AsciiString(bytes, false);
+        }
+    }
 }
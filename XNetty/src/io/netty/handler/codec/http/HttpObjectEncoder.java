@@ -63,6 +63,14 @@ public abstract class HttpObjectEncoder<H extends HttpMessage> extends MessageTo
 
     @Override
     protected void encode(ChannelHandlerContext ctx, Object msg, List<Object> out) throws Exception {
+        if (msg instanceof PreEncodedHttpResponse) {
+            if (state != ST_INIT) {
+                throw new IllegalStateException("unexpected message type: " + StringUtil.simpleClassName(msg));
+            }
+            out.add(((PreEncodedHttpResponse) msg).encodedBuffer());
+            return;
+        }
+
         ByteBuf buf = null;
         if (msg instanceof HttpMessage) {
             if (state != ST_INIT) {
@@ -189,7 +197,8 @@ public abstract class HttpObjectEncoder<H extends HttpMessage> extends MessageTo
 
     @Override
     public boolean acceptOutboundMessage(Object msg) throws Exception {
-        return msg instanceof HttpObject || msg instanceof ByteBuf || msg instanceof FileRegion;
+        return msg instanceof HttpObject || msg instanceof ByteBuf || msg instanceof FileRegion ||
+               msg instanceof PreEncodedHttpResponse;
     }
 
     private static Object encodeAndRetain(Object msg) {
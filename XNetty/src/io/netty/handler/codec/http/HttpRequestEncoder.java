@@ -32,7 +32,8 @@ public class HttpRequestEncoder extends HttpObjectEncoder<HttpRequest> {
 
     @Override
     public boolean acceptOutboundMessage(Object msg) throws Exception {
-        return super.acceptOutboundMessage(msg) && !(msg instanceof HttpResponse);
+        return super.acceptOutboundMessage(msg) && !(msg instanceof HttpResponse) &&
+               !(msg instanceof PreEncodedHttpResponse);
     }
 
     @Override
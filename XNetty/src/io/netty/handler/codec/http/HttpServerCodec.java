@@ -61,6 +61,18 @@ public final class HttpServerCodec extends CombinedChannelDuplexHandler<HttpRequ
           new HttpResponseEncoder());
     }
 
+    /**
+     * Creates a new instance with the specified decoder options.
+     *
+     * @see HttpRequestDecoder#HttpRequestDecoder(int, int, int, boolean, int, boolean)
+     */
+    public HttpServerCodec(int maxInitialLineLength, int maxHeaderSize, int maxChunkSize, boolean validateHeaders,
+                           int initialBufferSize, boolean asciiHeaders) {
+        super(new HttpRequestDecoder(maxInitialLineLength, maxHeaderSize, maxChunkSize, validateHeaders,
+                                     initialBufferSize, asciiHeaders),
+              new HttpResponseEncoder());
+    }
+
     /**
      * Upgrades to another protocol from HTTP. Removes the {@link HttpRequestDecoder} and
      * {@link HttpResponseEncoder} from the pipeline.
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.handler.codec.http;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.PlatformDependent;
+
+import java.nio.ByteBuffer;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map.Entry;
+
+import static io.netty.handler.codec.http.HttpConstants.SP;
+
+/**
+ * The bytes of a {@link HttpResponse} which is encoded only once and then written as is by the
+ * {@link HttpResponseEncoder}, which is useful for responses which never change like the ones of health checks,
+ * {@code 304 Not Modified} or redirects. An instance can be shared and written to any number of
+ * {@link io.netty.channel.Channel}s at the same time.
+ * <p>
+ * The content of a {@link FullHttpResponse} becomes part of the encoded bytes and the {@code Content-Length} header is
+ * set to its length, which is {@code 0} if there is no content, so the client knows where the response ends. Only
+ * responses which never have a body ({@code 1xx}, {@code 204 No Content} and {@code 304 Not Modified}) keep their
+ * headers as they are. The {@code Date} header is kept up to date by patching the encoded bytes, which happens at most
+ * once per second.
+ * <p>
+ * As this is not a {@link HttpResponse} handlers which modify responses on their way out, like the
+ * {@link HttpContentCompressor} or the {@link HttpServerKeepAliveHandler}, will not see it. So the encoded headers must
+ * already be correct, for example by including {@code Connection: close} if the connection is closed after the write.
+ * <p>
+ * The encoded content is always written, as the {@link HttpResponseEncoder} does not know which request is answered.
+ * So an instance with content must not be written in response to a {@code HEAD} request, which should be answered
+ * with a regular {@link HttpResponse} instead.
+ */
+public final class PreEncodedHttpResponse {
+    // RFC 1123 dates like "Sun, 06 Nov 1994 08:49:37 GMT" always have the same length.
+    private static final int DATE_LENGTH = 29;
+
+    private final byte[] encoded;
+    private final int dateIndex;
+    private volatile Encoded current;
+
+    /**
+     * Creates a new instance which includes a {@code Date} header.
+     */
+    public PreEncodedHttpResponse(HttpResponse response) {
+        this(response, true);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param response  the response to encode, which is not modified or released by this constructor
+     * @param date      {@code true} if a {@code Date} header which holds the time of the write should be included.
+     *                  A {@code Date} header of the {@code response} itself is dropped in this case.
+     */
+    public PreEncodedHttpResponse(HttpResponse response, boolean date) {
+        ObjectUtil.checkNotNull(response, "response");
+        if (HttpUtil.isTransferEncodingChunked(response)) {
+            throw new IllegalArgumentException("chunked responses can't be pre-encoded");
+        }
+        ByteBuf content = response instanceof FullHttpResponse ?
+                ((FullHttpResponse) response).content() : Unpooled.EMPTY_BUFFER;
+        boolean contentLength = mayHaveBody(response.status().code());
+        if (!contentLength && content.isReadable()) {
+            throw new IllegalArgumentException("a " + response.status() + " response can't have content");
+        }
+
+        ByteBuf buf = Unpooled.buffer();
+        int dateIndex = -1;
+        try {
+            response.protocolVersion().encode(buf);
+            buf.writeByte(SP);
+            response.status().encode(buf);
+            buf.writeBytes(HttpObjectEncoder.CRLF);
+
+            Iterator<Entry<CharSequence, CharSequence>> iter = response.headers().iteratorCharSequence();
+            while (iter.hasNext()) {
+                Entry<CharSequence, CharSequence> header = iter.next();
+                CharSequence name = header.getKey();
+                if (date && HttpHeaderNames.DATE.contentEqualsIgnoreCase(name) ||
+                    contentLength && HttpHeaderNames.CONTENT_LENGTH.contentEqualsIgnoreCase(name)) {
+                    continue;
+                }
+                HttpHeadersEncoder.encoderHeader(name, header.getValue(), buf);
+            }
+            if (contentLength) {
+                HttpHeadersEncoder.encoderHeader(
+                        HttpHeaderNames.CONTENT_LENGTH, String.valueOf(content.readableBytes()), buf);
+            }
+            if (date) {
+                HttpHeadersEncoder.encoderHeader(HttpHeaderNames.DATE, formatDate(0), buf);
+                dateIndex = buf.writerIndex() - DATE_LENGTH - HttpObjectEncoder.CRLF.length;
+            }
+            buf.writeBytes(HttpObjectEncoder.CRLF);
+            buf.writeBytes(content, content.readerIndex(), content.readableBytes());
+        } catch (Exception e) {
+            buf.release();
+            PlatformDependent.throwException(e);
+        }
+        encoded = new byte[buf.readableBytes()];
+        buf.readBytes(encoded);
+        buf.release();
+
+        this.dateIndex = dateIndex;
+        if (dateIndex < 0) {
+            current = new Encoded(0, encoded);
+        }
+    }
+
+    /**
+     * Returns the encoded response, which must not be released.
+     */
+    ByteBuf encodedBuffer() {
+        Encoded current = this.current;
+        if (dateIndex >= 0) {
+            long second = System.currentTimeMillis() / 1000;
+            if (current == null || current.second != second) {
+                // Multiple threads may do this at the same time, which is fine as they will all produce the same bytes.
+                byte[] patched = encoded.clone();
+                System.arraycopy(formatDate(second).getBytes(CharsetUtil.US_ASCII), 0, patched, dateIndex,
+                                 DATE_LENGTH);
+                this.current = current = new Encoded(second, patched);
+            }
+        }
+        return current.buf.duplicate();
+    }
+
+    private static boolean mayHaveBody(int code) {
+        return code >= 200 && code != HttpResponseStatus.NO_CONTENT.code() &&
+               code != HttpResponseStatus.NOT_MODIFIED.code();
+    }
+
+    private static String formatDate(long second) {
+        String date = HttpHeaderDateFormat.get().format(new Date(second * 1000));
+        assert date.length() == DATE_LENGTH : date;
+        return date;
+    }
+
+    private static final class Encoded {
+        final long second;
+        final ByteBuf buf;
+
+        Encoded(long second, byte[] bytes) {
+            this.second = second;
+            // Use a direct buffer so writing it to a socket does not need a copy. It is freed by the GC once it is not
+            // referenced anymore, so it is fine that the duplicates given out for each write are never released.
+            ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+            direct.put(bytes).flip();
+            buf = Unpooled.unreleasableBuffer(Unpooled.wrappedBuffer(direct.asReadOnlyBuffer()));
+        }
+    }
+}
@@ -122,12 +122,7 @@ public abstract class AbstractDiskHttpData extends AbstractHttpData {
             FileOutputStream outputStream = new FileOutputStream(file);
             try {
                 FileChannel localfileChannel = outputStream.getChannel();
-                ByteBuffer byteBuffer = buffer.nioBuffer();
-                int written = 0;
-                while (written < size) {
-                    written += localfileChannel.write(byteBuffer);
-                }
-                buffer.readerIndex(buffer.readerIndex() + written);
+                writeFully(localfileChannel, buffer);
                 localfileChannel.force(false);
             } finally {
                 outputStream.close();
@@ -140,6 +135,27 @@ public abstract class AbstractDiskHttpData extends AbstractHttpData {
         }
     }
 
+    /**
+     * Write all readable bytes of the given {@link ByteBuf} to the {@link FileChannel}. A composite buffer is written
+     * with a gathering write of its components instead of being copied into a single buffer first.
+     */
+    private static void writeFully(FileChannel fileChannel, ByteBuf buffer) throws IOException {
+        int readable = buffer.readableBytes();
+        long written = 0;
+        if (buffer.nioBufferCount() == 1) {
+            ByteBuffer byteBuffer = buffer.nioBuffer();
+            while (written < readable) {
+                written += fileChannel.write(byteBuffer);
+            }
+        } else {
+            ByteBuffer[] byteBuffers = buffer.nioBuffers();
+            while (written < readable) {
+                written += fileChannel.write(byteBuffers);
+            }
+        }
+        buffer.readerIndex(buffer.readerIndex() + readable);
+    }
+
     @Override
     public void addContent(ByteBuf buffer, boolean last)
             throws IOException {
@@ -151,8 +167,6 @@ public abstract class AbstractDiskHttpData extends AbstractHttpData {
                     throw new IOException("Out of size: " + (size + localsize) +
                             " > " + definedSize);
                 }
-                ByteBuffer byteBuffer = buffer.nioBufferCount() == 1 ? buffer.nioBuffer() : buffer.copy().nioBuffer();
-                int written = 0;
                 if (file == null) {
                     file = tempFile();
                 }
@@ -160,11 +174,8 @@ public abstract class AbstractDiskHttpData extends AbstractHttpData {
                     FileOutputStream outputStream = new FileOutputStream(file);
                     fileChannel = outputStream.getChannel();
                 }
-                while (written < localsize) {
-                    written += fileChannel.write(byteBuffer);
-                }
+                writeFully(fileChannel, buffer);
                 size += localsize;
-                buffer.readerIndex(buffer.readerIndex() + written);
             } finally {
                 // Release the buffer as it was retained before and we not need a reference to it at all
                 // See https://github.com/netty/netty/issues/1516
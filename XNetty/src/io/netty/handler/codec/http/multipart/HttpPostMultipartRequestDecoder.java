@@ -29,6 +29,7 @@ import io.netty.handler.codec.http.multipart.HttpPostRequestDecoder.EndOfDataDec
 import io.netty.handler.codec.http.multipart.HttpPostRequestDecoder.ErrorDataDecoderException;
 import io.netty.handler.codec.http.multipart.HttpPostRequestDecoder.MultiPartStatus;
 import io.netty.handler.codec.http.multipart.HttpPostRequestDecoder.NotEnoughDataDecoderException;
+import io.netty.util.ByteProcessor;
 import io.netty.util.CharsetUtil;
 import io.netty.util.internal.InternalThreadLocalMap;
 import io.netty.util.internal.StringUtil;
@@ -127,6 +128,15 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
 
     private int discardThreshold = HttpPostRequestDecoder.DEFAULT_DISCARD_THRESHOLD;
 
+    private ProgressListener progressListener;
+
+    /**
+     * The delimiter the bytes were last computed for, as it does not change while a FileUpload is read
+     */
+    private String lastDelimiter;
+
+    private byte[] lastDelimiterBytes;
+
     /**
      *
      * @param request
@@ -192,7 +202,7 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
             // See #1089
             offer((HttpContent) request);
         } else {
-            undecodedChunk = buffer();
+            // The buffer is created from the first chunk, so it is allocated like the content of the chunks.
             parseBody();
         }
     }
@@ -252,6 +262,22 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
         return discardThreshold;
     }
 
+    /**
+     * Set the {@link ProgressListener} which is notified each time bytes were added to a {@link FileUpload}, or
+     * {@code null} to remove it.
+     */
+    public void setProgressListener(ProgressListener progressListener) {
+        checkDestroyed();
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Return the {@link ProgressListener} or {@code null} if none was set.
+     */
+    public ProgressListener getProgressListener() {
+        return progressListener;
+    }
+
     /**
      * This getMethod returns a List of all HttpDatas from body.<br>
      *
@@ -345,8 +371,15 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
             isLastChunk = true;
         }
         parseBody();
-        if (undecodedChunk != null && undecodedChunk.writerIndex() > discardThreshold) {
-            undecodedChunk.discardReadBytes();
+        if (undecodedChunk != null) {
+            if (!undecodedChunk.isReadable()) {
+                // Cheap, and the next chunk is written to the start of the buffer again.
+                undecodedChunk.clear();
+            } else if (currentFileUpload != null || undecodedChunk.writerIndex() > discardThreshold) {
+                // What is left of an upload is at most a line break and a partial delimiter, so moving it is cheap,
+                // while otherwise the buffer would grow with the size of the upload.
+                undecodedChunk.discardReadBytes();
+            }
         }
         return this;
     }
@@ -1292,6 +1325,10 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
     /**
      * Read a FileUpload data as Byte (Binary) and add the bytes directly to the
      * FileUpload. If the delimiter is found, the FileUpload is completed.
+     * <p>
+     * Only the line breaks are inspected one by one, as the delimiter can only start a line. All bytes before a line
+     * break which is not followed by (the start of) the delimiter are added right away, so the bytes which are kept
+     * for the next chunk, and scanned again then, are at most a line break and a partial delimiter.
      *
      * @throws NotEnoughDataDecoderException
      *             Need more chunks but do not reset the readerInder since some
@@ -1299,218 +1336,112 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
      * @throws ErrorDataDecoderException
      *             write IO error occurs with the FileUpload
      */
-    private void readFileUploadByteMultipartStandard(String delimiter) {
+    private void readFileUploadByteMultipart(String delimiter) {
+        byte[] delimiterBytes = delimiterBytes(delimiter);
         int readerIndex = undecodedChunk.readerIndex();
-        // found the decoder limit
-        boolean newLine = true;
-        int index = 0;
-        int lastPosition = undecodedChunk.readerIndex();
+        int writerIndex = undecodedChunk.writerIndex();
+        // The end of the bytes which are known to be content.
+        int lastPosition = readerIndex;
         boolean found = false;
-        while (undecodedChunk.isReadable()) {
-            byte nextByte = undecodedChunk.readByte();
-            if (newLine) {
-                // Check the delimiter
-                if (nextByte == delimiter.codePointAt(index)) {
-                    index++;
-                    if (delimiter.length() == index) {
-                        found = true;
-                        break;
-                    }
+        if (currentFileUpload.length() == 0) {
+            // The delimiter may directly follow the headers of an empty upload.
+            int matched = matchDelimiter(readerIndex, writerIndex, delimiterBytes);
+            found = matched == delimiterBytes.length;
+            if (!found && matched == writerIndex - readerIndex) {
+                // Need more data to decide.
+                throw new NotEnoughDataDecoderException();
+            }
+        }
+        int index = readerIndex;
+        while (!found) {
+            int lineBreak = undecodedChunk.forEachByte(index, writerIndex - index, ByteProcessor.FIND_CRLF);
+            if (lineBreak == -1) {
+                lastPosition = writerIndex;
+                break;
+            }
+            lastPosition = lineBreak;
+            int next;
+            if (undecodedChunk.getByte(lineBreak) == HttpConstants.CR) {
+                if (lineBreak + 1 == writerIndex) {
+                    // Need the next byte to know if this is a line break.
+                    break;
+                }
+                if (undecodedChunk.getByte(lineBreak + 1) != HttpConstants.LF) {
+                    // A CR on its own is content.
+                    index = lineBreak + 1;
                     continue;
-                } else {
-                    newLine = false;
-                    index = 0;
-                    // continue until end of line
-                    if (nextByte == HttpConstants.CR) {
-                        if (undecodedChunk.isReadable()) {
-                            nextByte = undecodedChunk.readByte();
-                            if (nextByte == HttpConstants.LF) {
-                                newLine = true;
-                                index = 0;
-                                lastPosition = undecodedChunk.readerIndex() - 2;
-                            } else {
-                                // save last valid position
-                                lastPosition = undecodedChunk.readerIndex() - 1;
-
-                                // Unread next byte.
-                                undecodedChunk.readerIndex(lastPosition);
-                            }
-                        }
-                    } else if (nextByte == HttpConstants.LF) {
-                        newLine = true;
-                        index = 0;
-                        lastPosition = undecodedChunk.readerIndex() - 1;
-                    } else {
-                        // save last valid position
-                        lastPosition = undecodedChunk.readerIndex();
-                    }
                 }
+                next = lineBreak + 2;
             } else {
-                // continue until end of line
-                if (nextByte == HttpConstants.CR) {
-                    if (undecodedChunk.isReadable()) {
-                        nextByte = undecodedChunk.readByte();
-                        if (nextByte == HttpConstants.LF) {
-                            newLine = true;
-                            index = 0;
-                            lastPosition = undecodedChunk.readerIndex() - 2;
-                        } else {
-                            // save last valid position
-                            lastPosition = undecodedChunk.readerIndex() - 1;
-
-                            // Unread next byte.
-                            undecodedChunk.readerIndex(lastPosition);
-                        }
-                    }
-                } else if (nextByte == HttpConstants.LF) {
-                    newLine = true;
-                    index = 0;
-                    lastPosition = undecodedChunk.readerIndex() - 1;
-                } else {
-                    // save last valid position
-                    lastPosition = undecodedChunk.readerIndex();
-                }
+                next = lineBreak + 1;
             }
-        }
-        ByteBuf buffer = undecodedChunk.copy(readerIndex, lastPosition - readerIndex);
-        if (found) {
-            // found so lastPosition is correct and final
-            try {
-                currentFileUpload.addContent(buffer, true);
-                // just before the CRLF and delimiter
-                undecodedChunk.readerIndex(lastPosition);
-            } catch (IOException e) {
-                throw new ErrorDataDecoderException(e);
+            int matched = matchDelimiter(next, writerIndex, delimiterBytes);
+            if (matched == delimiterBytes.length) {
+                found = true;
+            } else if (matched == writerIndex - next) {
+                // The line break may be followed by the delimiter, which needs more data to decide.
+                break;
+            } else {
+                index = next;
             }
+        }
+
+        int length = lastPosition - readerIndex;
+        ByteBuf buffer;
+        if (isWrittenToDisk(currentFileUpload)) {
+            // Written to disk right away, so there is no need to copy. This also keeps a direct buffer direct, which
+            // saves the copy FileChannel makes of heap buffers.
+            buffer = undecodedChunk.retainedSlice(readerIndex, length);
         } else {
-            // possibly the delimiter is partially found but still the last
-            // position is OK
-            try {
-                currentFileUpload.addContent(buffer, false);
-                // last valid char (not CR, not LF, not beginning of delimiter)
-                undecodedChunk.readerIndex(lastPosition);
-                throw new NotEnoughDataDecoderException();
-            } catch (IOException e) {
-                throw new ErrorDataDecoderException(e);
-            }
+            // Any other FileUpload may keep the buffer, while the bytes of undecodedChunk are overwritten once they
+            // were discarded.
+            buffer = undecodedChunk.copy(readerIndex, length);
+        }
+        try {
+            currentFileUpload.addContent(buffer, found);
+            // just before the CRLF and delimiter if found, otherwise after the last byte known to be content
+            undecodedChunk.readerIndex(lastPosition);
+        } catch (IOException e) {
+            throw new ErrorDataDecoderException(e);
+        }
+        if (progressListener != null && (length > 0 || found)) {
+            progressListener.uploadProgressed(currentFileUpload, found);
+        }
+        if (!found) {
+            throw new NotEnoughDataDecoderException();
         }
     }
 
     /**
-     * Read a FileUpload data as Byte (Binary) and add the bytes directly to the
-     * FileUpload. If the delimiter is found, the FileUpload is completed.
-     *
-     * @throws NotEnoughDataDecoderException
-     *             Need more chunks but do not reset the readerInder since some
-     *             values will be already added to the FileOutput
-     * @throws ErrorDataDecoderException
-     *             write IO error occurs with the FileUpload
+     * Returns {@code true} if the given {@link FileUpload} writes the content it is given to disk right away and so
+     * does not keep the buffer.
      */
-    private void readFileUploadByteMultipart(String delimiter) {
-        SeekAheadOptimize sao;
-        try {
-            sao = new SeekAheadOptimize(undecodedChunk);
-        } catch (SeekAheadNoBackArrayException ignored) {
-            readFileUploadByteMultipartStandard(delimiter);
-            return;
-        }
-        int readerIndex = undecodedChunk.readerIndex();
-        // found the decoder limit
-        boolean newLine = true;
-        int index = 0;
-        int lastrealpos = sao.pos;
-        int lastPosition;
-        boolean found = false;
-
-        while (sao.pos < sao.limit) {
-            byte nextByte = sao.bytes[sao.pos++];
-            if (newLine) {
-                // Check the delimiter
-                if (nextByte == delimiter.codePointAt(index)) {
-                    index++;
-                    if (delimiter.length() == index) {
-                        found = true;
-                        break;
-                    }
-                    continue;
-                } else {
-                    newLine = false;
-                    index = 0;
-                    // continue until end of line
-                    if (nextByte == HttpConstants.CR) {
-                        if (sao.pos < sao.limit) {
-                            nextByte = sao.bytes[sao.pos++];
-                            if (nextByte == HttpConstants.LF) {
-                                newLine = true;
-                                index = 0;
-                                lastrealpos = sao.pos - 2;
-                            } else {
-                                // unread next byte
-                                sao.pos--;
-
-                                // save last valid position
-                                lastrealpos = sao.pos;
-                            }
-                        }
-                    } else if (nextByte == HttpConstants.LF) {
-                        newLine = true;
-                        index = 0;
-                        lastrealpos = sao.pos - 1;
-                    } else {
-                        // save last valid position
-                        lastrealpos = sao.pos;
-                    }
-                }
-            } else {
-                // continue until end of line
-                if (nextByte == HttpConstants.CR) {
-                    if (sao.pos < sao.limit) {
-                        nextByte = sao.bytes[sao.pos++];
-                        if (nextByte == HttpConstants.LF) {
-                            newLine = true;
-                            index = 0;
-                            lastrealpos = sao.pos - 2;
-                        } else {
-                            // unread next byte
-                            sao.pos--;
+    private static boolean isWrittenToDisk(FileUpload fileUpload) {
+        return fileUpload instanceof AbstractDiskHttpData ||
+               fileUpload instanceof MixedFileUpload && !fileUpload.isInMemory();
+    }
 
-                            // save last valid position
-                            lastrealpos = sao.pos;
-                        }
-                    }
-                } else if (nextByte == HttpConstants.LF) {
-                    newLine = true;
-                    index = 0;
-                    lastrealpos = sao.pos - 1;
-                } else {
-                    // save last valid position
-                    lastrealpos = sao.pos;
-                }
+    /**
+     * Returns the number of bytes of the delimiter which match the bytes starting at {@code index} if all of them
+     * match up to the delimiter length or {@code writerIndex}, otherwise {@code -1}.
+     */
+    private int matchDelimiter(int index, int writerIndex, byte[] delimiterBytes) {
+        int length = Math.min(delimiterBytes.length, writerIndex - index);
+        for (int i = 0; i < length; i++) {
+            if (undecodedChunk.getByte(index + i) != delimiterBytes[i]) {
+                return -1;
             }
         }
-        lastPosition = sao.getReadPosition(lastrealpos);
-        ByteBuf buffer = undecodedChunk.copy(readerIndex, lastPosition - readerIndex);
-        if (found) {
-            // found so lastPosition is correct and final
-            try {
-                currentFileUpload.addContent(buffer, true);
-                // just before the CRLF and delimiter
-                undecodedChunk.readerIndex(lastPosition);
-            } catch (IOException e) {
-                throw new ErrorDataDecoderException(e);
-            }
-        } else {
-            // possibly the delimiter is partially found but still the last
-            // position is OK
-            try {
-                currentFileUpload.addContent(buffer, false);
-                // last valid char (not CR, not LF, not beginning of delimiter)
-                undecodedChunk.readerIndex(lastPosition);
-                throw new NotEnoughDataDecoderException();
-            } catch (IOException e) {
-                throw new ErrorDataDecoderException(e);
-            }
+        return length;
+    }
+
+    private byte[] delimiterBytes(String delimiter) {
+        // The same delimiter is used for all chunks of an upload.
+        if (!delimiter.equals(lastDelimiter)) {
+            lastDelimiterBytes = delimiter.getBytes(CharsetUtil.US_ASCII);
+            lastDelimiter = delimiter;
         }
+        return lastDelimiterBytes;
     }
 
     /**
@@ -1870,4 +1801,20 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
         values.add(svalue.substring(start));
         return values.toArray(new String[values.size()]);
     }
+
+    /**
+     * Notified by {@link HttpPostMultipartRequestDecoder} each time the bytes of a chunk were added to a
+     * {@link FileUpload}. This allows to track large uploads, for example to report the progress or to abort them once
+     * they grow too large, before the whole upload was received.
+     */
+    public interface ProgressListener {
+        /**
+         * Called after bytes were added to the given {@link FileUpload} and once it is complete.
+         *
+         * @param upload the {@link FileUpload}, whose {@link FileUpload#length()} is the number of bytes received
+         *               so far
+         * @param completed {@code true} if the delimiter was found, so the upload is complete
+         */
+        void uploadProgressed(FileUpload upload, boolean completed);
+    }
 }
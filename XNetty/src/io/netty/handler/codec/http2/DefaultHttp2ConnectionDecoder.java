@@ -455,6 +455,12 @@ public class DefaultHttp2ConnectionDecoder implements Http2ConnectionDecoder {
 
         @Override
         public void onPingAckRead(ChannelHandlerContext ctx, ByteBuf data) throws Http2Exception {
+            Http2LocalFlowController flowController = flowController();
+            if (flowController instanceof DefaultHttp2LocalFlowController &&
+                    ((DefaultHttp2LocalFlowController) flowController).pingAckRead(data)) {
+                // Sent to estimate the bandwidth-delay product, not by the application.
+                return;
+            }
             listener.onPingAckRead(ctx, data);
         }
 
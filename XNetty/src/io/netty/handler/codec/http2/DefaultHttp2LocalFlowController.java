@@ -33,9 +33,15 @@ import io.netty.handler.codec.http2.Http2Exception.StreamException;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.UnstableApi;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * Basic implementation of {@link Http2LocalFlowController}.
  * <p>
+ * The windows can be tuned to the bandwidth-delay product of the connection by
+ * {@link #windowAutoTuning(int, int)}, so a single stream is not limited to one window per round trip on links with a
+ * high latency.
+ * <p>
  * This class is <strong>NOT</strong> thread safe. The assumption is all methods must be invoked from a single thread.
  * Typically this thread is the event loop thread for the {@link ChannelHandlerContext} managed by this class.
  */
@@ -47,12 +53,18 @@ public class DefaultHttp2LocalFlowController implements Http2LocalFlowController
      */
     public static final float DEFAULT_WINDOW_UPDATE_RATIO = 0.5f;
 
+    /**
+     * The payload of the {@code PING} frames sent to estimate the bandwidth-delay product.
+     */
+    private static final long BDP_PING_PAYLOAD = 0x4e65747479424450L;
+
     private final Http2Connection connection;
     private final Http2Connection.PropertyKey stateKey;
     private Http2FrameWriter frameWriter;
     private ChannelHandlerContext ctx;
     private float windowUpdateRatio;
     private int initialWindowSize = DEFAULT_WINDOW_SIZE;
+    private BdpEstimator bdpEstimator;
 
     public DefaultHttp2LocalFlowController(Http2Connection connection) {
         this(connection, DEFAULT_WINDOW_UPDATE_RATIO, false);
@@ -267,18 +279,90 @@ public class DefaultHttp2LocalFlowController implements Http2LocalFlowController
         // Apply the connection-level flow control
         FlowState connectionState = connectionState();
         connectionState.receiveFlowControlledFrame(dataLength);
+        if (bdpEstimator != null) {
+            if (!connectionState.isWindowTuned()) {
+                // The connection window may have been configured after the auto-tuning was enabled.
+                bdpEstimator.seed();
+                connectionState.tuneWindow(bdpEstimator.windowSize);
+            }
+            bdpEstimator.receivedBytes(dataLength);
+        }
 
         if (stream != null && !isClosed(stream)) {
             // Apply the stream-level flow control
             FlowState state = state(stream);
             state.endOfStream(endOfStream);
             state.receiveFlowControlledFrame(dataLength);
+            if (bdpEstimator != null && !state.isWindowTuned()) {
+                // Only tune streams which received data, as the peer may not know about the others yet.
+                state.tuneWindow(bdpEstimator.windowSize);
+            }
         } else if (dataLength > 0) {
             // Immediately consume the bytes for the connection window.
             connectionState.consumeBytes(dataLength);
         }
     }
 
+    /**
+     * Enables the auto-tuning of the connection and stream windows. While {@code DATA} frames are received a
+     * {@code PING} is sent and the bytes which are received until it is acknowledged are counted. If these bytes come
+     * close to the current estimate of the bandwidth-delay product and the bandwidth did not drop, the estimate is
+     * doubled. If they stay far below it for several round trips, the estimate is halved. The windows of the
+     * connection and of all streams which receive data are then set to the estimate, bounded by the given sizes.
+     * The estimate starts at the larger of the connection window and the initial stream window.
+     * <p>
+     * The acknowledgements of these {@code PING} frames are not passed on to the {@link Http2FrameListener}.
+     *
+     * @param minWindowSize the smallest window size the windows are shrunk to.
+     * @param maxWindowSize the largest window size the windows are grown to.
+     */
+    public void windowAutoTuning(int minWindowSize, int maxWindowSize) {
+        assert ctx == null || ctx.executor().inEventLoop();
+        if (minWindowSize < MIN_INITIAL_WINDOW_SIZE || minWindowSize > maxWindowSize ||
+                maxWindowSize > MAX_INITIAL_WINDOW_SIZE) {
+            throw new IllegalArgumentException("minWindowSize: " + minWindowSize + ", maxWindowSize: " +
+                    maxWindowSize + " (expected: " + MIN_INITIAL_WINDOW_SIZE +
+                    " <= minWindowSize <= maxWindowSize <= " + MAX_INITIAL_WINDOW_SIZE + ')');
+        }
+        bdpEstimator = new BdpEstimator(minWindowSize, maxWindowSize);
+    }
+
+    /**
+     * Returns the current estimate of the bandwidth-delay product in bytes, or {@code -1} if
+     * {@link #windowAutoTuning(int, int)} is not enabled. The windows are set to this estimate, bounded by the sizes
+     * given to {@link #windowAutoTuning(int, int)}.
+     */
+    public int bdpEstimate() {
+        return bdpEstimator == null ? -1 : bdpEstimator.bdp;
+    }
+
+    /**
+     * Returns the window size the connection and streams are tuned to, or {@code -1} if
+     * {@link #windowAutoTuning(int, int)} is not enabled.
+     */
+    public int autoTunedWindowSize() {
+        return bdpEstimator == null ? -1 : bdpEstimator.windowSize;
+    }
+
+    /**
+     * Returns the smoothed round-trip time measured by the {@code PING} frames of the window auto-tuning, or
+     * {@code -1} if {@link #windowAutoTuning(int, int)} is not enabled or no round trip completed yet.
+     */
+    public long roundTripTime(TimeUnit unit) {
+        return bdpEstimator == null || bdpEstimator.rttNanos == 0 ? -1 :
+                unit.convert(bdpEstimator.rttNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Called for each received {@code PING} acknowledgement.
+     *
+     * @return {@code true} if the {@code PING} was sent by the window auto-tuning, which means it must not be passed
+     * on to the application.
+     */
+    boolean pingAckRead(ByteBuf data) throws Http2Exception {
+        return bdpEstimator != null && bdpEstimator.pingAckRead(data);
+    }
+
     private FlowState connectionState() {
         return connection.connectionStream().getProperty(stateKey);
     }
@@ -291,6 +375,109 @@ public class DefaultHttp2LocalFlowController implements Http2LocalFlowController
         return stream.state() == Http2Stream.State.CLOSED;
     }
 
+    /**
+     * Estimates the bandwidth-delay product of the connection from the bytes which are received during a
+     * {@code PING} round trip and tunes the windows to it. See {@link #windowAutoTuning(int, int)}.
+     */
+    private final class BdpEstimator {
+        /**
+         * The estimate is doubled if a sample reaches this fraction of it.
+         */
+        private static final double GROW_THRESHOLD = 2 / 3d;
+        /**
+         * The estimate is halved if {@link #SHRINK_SAMPLES} samples in a row stay below this fraction of it.
+         */
+        private static final double SHRINK_THRESHOLD = 1 / 8d;
+        private static final int SHRINK_SAMPLES = 8;
+
+        private final int minWindowSize;
+        private final int maxWindowSize;
+        int bdp;
+        int windowSize;
+        long rttNanos;
+        private double maxBandwidth;
+        private boolean pingPending;
+        private long pingSentNanos;
+        private long sample;
+        private int smallSamples;
+
+        BdpEstimator(int minWindowSize, int maxWindowSize) {
+            this.minWindowSize = minWindowSize;
+            this.maxWindowSize = maxWindowSize;
+            seed();
+        }
+
+        /**
+         * Starts the estimate from the current windows, so the first tuning does not shrink a configured window.
+         */
+        void seed() {
+            bdp = max(initialWindowSize, connectionState().initialWindowSize());
+            windowSize = min(maxWindowSize, max(minWindowSize, bdp));
+        }
+
+        void receivedBytes(int dataLength) {
+            if (!pingPending) {
+                pingPending = true;
+                sample = 0;
+                pingSentNanos = System.nanoTime();
+                ByteBuf payload = ctx.alloc().buffer(8).writeLong(BDP_PING_PAYLOAD);
+                frameWriter.writePing(ctx, false, payload, ctx.newPromise());
+            }
+            sample += dataLength;
+        }
+
+        boolean pingAckRead(ByteBuf data) throws Http2Exception {
+            if (!pingPending || data.readableBytes() != 8 || data.getLong(data.readerIndex()) != BDP_PING_PAYLOAD) {
+                return false;
+            }
+            pingPending = false;
+            long rtt = max(1, System.nanoTime() - pingSentNanos);
+            rttNanos = rttNanos == 0 ? rtt : (rttNanos * 7 + rtt) >>> 3;
+
+            // Only grow if the bandwidth did not drop, as otherwise the sample grew because of a longer round trip,
+            // for example caused by queueing on the way, which a larger window would only make worse.
+            double bandwidth = (double) sample / rtt;
+            int newBdp = bdp;
+            if (sample >= bdp * GROW_THRESHOLD && bandwidth >= maxBandwidth) {
+                maxBandwidth = bandwidth;
+                newBdp = (int) min(MAX_INITIAL_WINDOW_SIZE, sample * 2);
+                smallSamples = 0;
+            } else if (sample < bdp * SHRINK_THRESHOLD) {
+                if (++smallSamples == SHRINK_SAMPLES) {
+                    // The peer sends less than before, so forget the bandwidth and size the windows for what it sends.
+                    maxBandwidth = bandwidth;
+                    newBdp = max(minWindowSize, bdp >>> 1);
+                    smallSamples = 0;
+                }
+            } else {
+                smallSamples = 0;
+            }
+            if (newBdp != bdp) {
+                bdp = newBdp;
+                int newWindowSize = min(maxWindowSize, max(minWindowSize, newBdp));
+                if (newWindowSize != windowSize) {
+                    windowSize = newWindowSize;
+                    tuneWindows();
+                }
+            }
+            return true;
+        }
+
+        private void tuneWindows() throws Http2Exception {
+            connectionState().tuneWindow(windowSize);
+            connection.forEachActiveStream(new Http2StreamVisitor() {
+                @Override
+                public boolean visit(Http2Stream stream) throws Http2Exception {
+                    FlowState state = state(stream);
+                    if (state.isWindowTuned()) {
+                        state.tuneWindow(windowSize);
+                    }
+                    return true;
+                }
+            });
+        }
+    }
+
     /**
      * Flow control state that does autorefill of the flow control window when the data is
      * received.
@@ -348,6 +535,7 @@ public class DefaultHttp2LocalFlowController implements Http2LocalFlowController
 
         private int lowerBound;
         private boolean endOfStream;
+        private boolean windowTuned;
 
         public DefaultState(Http2Stream stream, int initialWindowSize) {
             this.stream = stream;
@@ -447,6 +635,20 @@ public class DefaultHttp2LocalFlowController implements Http2LocalFlowController
             return processedWindow - window;
         }
 
+        @Override
+        public boolean isWindowTuned() {
+            return windowTuned;
+        }
+
+        @Override
+        public void tuneWindow(int windowSize) throws Http2Exception {
+            windowTuned = true;
+            incrementInitialStreamWindow(windowSize - initialStreamWindowSize);
+            // Only sends a WINDOW_UPDATE if the window grew enough, a smaller window takes effect as the peer uses up
+            // the window it was granted already.
+            writeWindowUpdateIfNeeded();
+        }
+
         @Override
         public boolean writeWindowUpdateIfNeeded() throws Http2Exception {
             if (endOfStream || initialStreamWindowSize <= 0) {
@@ -522,6 +724,16 @@ public class DefaultHttp2LocalFlowController implements Http2LocalFlowController
             return 0;
         }
 
+        @Override
+        public boolean isWindowTuned() {
+            return false;
+        }
+
+        @Override
+        public void tuneWindow(int windowSize) {
+            throw new UnsupportedOperationException();
+        }
+
         @Override
         public float windowUpdateRatio() {
             throw new UnsupportedOperationException();
@@ -585,6 +797,16 @@ public class DefaultHttp2LocalFlowController implements Http2LocalFlowController
 
         int unconsumedBytes();
 
+        /**
+         * Returns {@code true} if {@link #tuneWindow(int)} was called before.
+         */
+        boolean isWindowTuned();
+
+        /**
+         * Sets the initial window size of this stream to the size chosen by the window auto-tuning.
+         */
+        void tuneWindow(int windowSize) throws Http2Exception;
+
         float windowUpdateRatio();
 
         void windowUpdateRatio(float ratio);
@@ -0,0 +1,306 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.handler.codec.http2;
+
+import io.netty.util.internal.UnstableApi;
+
+import java.util.Arrays;
+
+import static io.netty.handler.codec.http2.Http2CodecUtil.MAX_WEIGHT;
+import static io.netty.handler.codec.http2.Http2CodecUtil.streamableBytes;
+import static io.netty.handler.codec.http2.Http2Error.INTERNAL_ERROR;
+import static io.netty.handler.codec.http2.Http2Exception.connectionError;
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+/**
+ * A {@link StreamByteDistributor} that allocates bytes in proportion to the weight of the streams using
+ * <a href="https://en.wikipedia.org/wiki/Start-time_fair_queuing">Start-time Fair Queueing</a>.
+ * <p>
+ * Each stream which wants to write is ordered by a virtual start time. The stream with the smallest start time is
+ * allocated up to {@link #allocationQuantum(int)} bytes, after which its start time advances by the allocated bytes
+ * divided by its weight. A stream which becomes able to write again starts at the virtual time of the stream which
+ * was allocated bytes last, so it neither loses its share nor catches up for the time it had nothing to write.
+ * <p>
+ * Unlike {@link WeightedFairQueueByteDistributor} the priority tree is flattened: only the weight of a stream counts,
+ * not the streams it depends on. In exchange allocating bytes costs {@code O(log n)} in the number of streams which
+ * want to write, no matter how the priority tree changes, and allocates no objects. The state is kept in arrays
+ * which are indexed by a slot that is handed out when a stream first wants to write and reused once it is closed,
+ * so closed streams do not hold on to any state.
+ */
+@UnstableApi
+public final class StartTimeFairQueueByteDistributor implements StreamByteDistributor {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int NOT_IN_QUEUE = -1;
+
+    private static final byte HAS_FRAME = 1;
+    private static final byte WINDOW_POSITIVE = 1 << 1;
+    private static final byte WRITING = 1 << 2;
+    private static final byte CLOSED = 1 << 3;
+
+    private final Http2Connection.PropertyKey stateKey;
+
+    // The state of the streams, indexed by slot.
+    private Http2Stream[] streams = new Http2Stream[INITIAL_CAPACITY];
+    private int[] streamableBytes = new int[INITIAL_CAPACITY];
+    private long[] startTimes = new long[INITIAL_CAPACITY];
+    private long[] finishTimes = new long[INITIAL_CAPACITY];
+    private int[] queueIndexes = new int[INITIAL_CAPACITY];
+    private byte[] flags = new byte[INITIAL_CAPACITY];
+    private int slots;
+    private int[] freeSlots = new int[INITIAL_CAPACITY];
+    private int freeSlotCount;
+
+    // A binary min-heap of the slots which want to write, ordered by their start time.
+    private int[] queue = new int[INITIAL_CAPACITY];
+    private int queueSize;
+
+    private long virtualTime;
+    private long totalStreamableBytes;
+    /**
+     * The maximum number of bytes that we will allocate to a stream before the next stream is picked.
+     */
+    private int allocationQuantum = 1024;
+
+    public StartTimeFairQueueByteDistributor(Http2Connection connection) {
+        stateKey = connection.newKey();
+
+        // Register for notification of closed streams.
+        connection.addListener(new Http2ConnectionAdapter() {
+            @Override
+            public void onStreamClosed(Http2Stream stream) {
+                int slot = slot(stream);
+                if (slot == -1) {
+                    return;
+                }
+                if ((flags[slot] & WRITING) != 0) {
+                    // Released once the write returns.
+                    flags[slot] |= CLOSED;
+                } else {
+                    releaseSlot(slot);
+                }
+            }
+        });
+    }
+
+    /**
+     * Sets the maximum number of bytes that will be allocated to a stream before the next stream is picked. Defaults
+     * to 1KiB.
+     * @param allocationQuantum the amount of bytes that will be allocated to each stream. Must be &gt; 0.
+     */
+    public void allocationQuantum(int allocationQuantum) {
+        if (allocationQuantum <= 0) {
+            throw new IllegalArgumentException("allocationQuantum must be > 0");
+        }
+        this.allocationQuantum = allocationQuantum;
+    }
+
+    @Override
+    public void updateStreamableBytes(StreamState state) {
+        Http2Stream stream = state.stream();
+        boolean hasFrame = state.hasFrame();
+        int slot = slot(stream);
+        if (slot == -1) {
+            if (!hasFrame || stream.state() == Http2Stream.State.CLOSED) {
+                return;
+            }
+            slot = allocateSlot(stream);
+        }
+
+        int newStreamableBytes = streamableBytes(state);
+        totalStreamableBytes += newStreamableBytes - streamableBytes[slot];
+        streamableBytes[slot] = newStreamableBytes;
+
+        int windowSize = state.windowSize();
+        byte f = (byte) (flags[slot] & (WRITING | CLOSED));
+        if (hasFrame) {
+            f |= HAS_FRAME;
+        }
+        if (windowSize > 0) {
+            f |= WINDOW_POSITIVE;
+        }
+        flags[slot] = f;
+        if ((f & WRITING) != 0) {
+            // Queued again once the write returns, see write(...).
+            return;
+        }
+
+        // A stream with a window of 0 is queued as well to give it the chance to write empty frames. If the window is
+        // negative it must not write at all.
+        if (hasFrame && windowSize >= 0) {
+            if (queueIndexes[slot] == NOT_IN_QUEUE) {
+                offer(slot, max(virtualTime, finishTimes[slot]));
+            }
+        } else if (queueIndexes[slot] != NOT_IN_QUEUE) {
+            removeAt(queueIndexes[slot]);
+        }
+    }
+
+    @Override
+    public boolean distribute(int maxBytes, Writer writer) throws Http2Exception {
+        checkNotNull(writer, "writer");
+
+        while (queueSize != 0) {
+            int slot = queue[0];
+            if (maxBytes == 0 && streamableBytes[slot] > 0) {
+                // Stop at the first stream that can't send. Empty frames at the head of the queue will still be
+                // written.
+                break;
+            }
+            removeAt(0);
+            virtualTime = startTimes[slot];
+
+            int chunk = min(allocationQuantum, min(maxBytes, streamableBytes[slot]));
+            maxBytes -= chunk;
+            write(slot, chunk, writer);
+        }
+
+        return totalStreamableBytes > 0;
+    }
+
+    /**
+     * For testing only!
+     */
+    int streamableBytes0(Http2Stream stream) {
+        int slot = slot(stream);
+        return slot == -1 ? 0 : streamableBytes[slot];
+    }
+
+    private void write(int slot, int numBytes, Writer writer) throws Http2Exception {
+        flags[slot] |= WRITING;
+        try {
+            writer.write(streams[slot], numBytes);
+        } catch (Throwable t) {
+            throw connectionError(INTERNAL_ERROR, t, "byte distribution write error");
+        } finally {
+            byte f = flags[slot] &= ~WRITING;
+            finishTimes[slot] = virtualTime + (long) numBytes * MAX_WEIGHT / streams[slot].weight();
+            if ((f & CLOSED) != 0) {
+                releaseSlot(slot);
+            } else if (numBytes > 0 && (f & (HAS_FRAME | WINDOW_POSITIVE)) == (HAS_FRAME | WINDOW_POSITIVE)) {
+                offer(slot, finishTimes[slot]);
+            }
+            // If no bytes were written the stream had its chance to write empty frames, so it is not queued again
+            // until updateStreamableBytes(...) is called.
+        }
+    }
+
+    private int slot(Http2Stream stream) {
+        Integer slot = checkNotNull(stream, "stream").getProperty(stateKey);
+        return slot == null ? -1 : slot;
+    }
+
+    private int allocateSlot(Http2Stream stream) {
+        int slot;
+        if (freeSlotCount != 0) {
+            slot = freeSlots[--freeSlotCount];
+        } else {
+            if (slots == streams.length) {
+                grow();
+            }
+            slot = slots++;
+        }
+        streams[slot] = stream;
+        queueIndexes[slot] = NOT_IN_QUEUE;
+        stream.setProperty(stateKey, slot);
+        return slot;
+    }
+
+    private void releaseSlot(int slot) {
+        if (queueIndexes[slot] != NOT_IN_QUEUE) {
+            removeAt(queueIndexes[slot]);
+        }
+        totalStreamableBytes -= streamableBytes[slot];
+        streams[slot].removeProperty(stateKey);
+        streams[slot] = null;
+        streamableBytes[slot] = 0;
+        finishTimes[slot] = 0;
+        flags[slot] = 0;
+        if (freeSlotCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlots.length << 1);
+        }
+        freeSlots[freeSlotCount++] = slot;
+    }
+
+    private void grow() {
+        int capacity = streams.length << 1;
+        streams = Arrays.copyOf(streams, capacity);
+        streamableBytes = Arrays.copyOf(streamableBytes, capacity);
+        startTimes = Arrays.copyOf(startTimes, capacity);
+        finishTimes = Arrays.copyOf(finishTimes, capacity);
+        queueIndexes = Arrays.copyOf(queueIndexes, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        queue = Arrays.copyOf(queue, capacity);
+    }
+
+    private void offer(int slot, long startTime) {
+        startTimes[slot] = startTime;
+        siftUp(queueSize++, slot);
+    }
+
+    private void removeAt(int index) {
+        int slot = queue[index];
+        queueIndexes[slot] = NOT_IN_QUEUE;
+        int last = queue[--queueSize];
+        if (index == queueSize) {
+            return;
+        }
+        siftDown(index, last);
+        if (queue[index] == last) {
+            siftUp(index, last);
+        }
+    }
+
+    private void siftUp(int index, int slot) {
+        long startTime = startTimes[slot];
+        while (index > 0) {
+            int parentIndex = (index - 1) >>> 1;
+            int parent = queue[parentIndex];
+            if (startTime >= startTimes[parent]) {
+                break;
+            }
+            queue[index] = parent;
+            queueIndexes[parent] = index;
+            index = parentIndex;
+        }
+        queue[index] = slot;
+        queueIndexes[slot] = index;
+    }
+
+    private void siftDown(int index, int slot) {
+        long startTime = startTimes[slot];
+        int half = queueSize >>> 1;
+        while (index < half) {
+            int childIndex = (index << 1) + 1;
+            int child = queue[childIndex];
+            int rightIndex = childIndex + 1;
+            if (rightIndex < queueSize && startTimes[queue[rightIndex]] < startTimes[child]) {
+                childIndex = rightIndex;
+                child = queue[childIndex];
+            }
+            if (startTime <= startTimes[child]) {
+                break;
+            }
+            queue[index] = child;
+            queueIndexes[child] = index;
+            index = childIndex;
+        }
+        queue[index] = slot;
+        queueIndexes[slot] = index;
+    }
+}
@@ -58,10 +58,12 @@ import static java.lang.Math.max;
 import static java.lang.Math.min;
 
 public final class Encoder {
-    // a linked hash map of header fields
+    // a linked hash map of header fields, hashed by name and value
     private final HeaderEntry[] headerFields;
-    private final HeaderEntry head = new HeaderEntry(-1, AsciiString.EMPTY_STRING,
-            AsciiString.EMPTY_STRING, Integer.MAX_VALUE, null);
+    // the same entries hashed by name only
+    private final HeaderEntry[] headerNames;
+    private final HeaderEntry head = new HeaderEntry(-1, -1, AsciiString.EMPTY_STRING,
+            AsciiString.EMPTY_STRING, Integer.MAX_VALUE, null, null);
     private final HuffmanEncoder huffmanEncoder = new HuffmanEncoder();
     private final byte hashMask;
     private final boolean ignoreMaxHeaderListSize;
@@ -93,6 +95,7 @@ public final class Encoder {
         // Enforce a bound of [2, 128] because hashMask is a byte. The max possible value of hashMask is one less
         // than the length of this array, and we want the mask to be > 0.
         headerFields = new HeaderEntry[findNextPositivePowerOfTwo(max(2, min(arraySizeHint, 128)))];
+        headerNames = new HeaderEntry[headerFields.length];
         hashMask = (byte) (headerFields.length - 1);
         head.before = head.after = head;
     }
@@ -349,11 +352,13 @@ public final class Encoder {
         if (length() == 0 || name == null || value == null) {
             return null;
         }
-        int h = AsciiString.hashCode(name);
+        int nameHash = AsciiString.hashCode(name);
+        int h = fieldHash(nameHash, value);
         int i = index(h);
         for (HeaderEntry e = headerFields[i]; e != null; e = e.next) {
             // To avoid short circuit behavior a bitwise operator is used instead of a boolean operator.
-            if (e.hash == h && (equalsConstantTime(name, e.name) & equalsConstantTime(value, e.value)) != 0) {
+            if (e.hash == h && e.nameHash == nameHash &&
+                (equalsConstantTime(name, e.name) & equalsConstantTime(value, e.value)) != 0) {
                 return e;
             }
         }
@@ -370,8 +375,8 @@ public final class Encoder {
         }
         int h = AsciiString.hashCode(name);
         int i = index(h);
-        for (HeaderEntry e = headerFields[i]; e != null; e = e.next) {
-            if (e.hash == h && equalsConstantTime(name, e.name) != 0) {
+        for (HeaderEntry e = headerNames[i]; e != null; e = e.nextName) {
+            if (e.nameHash == h && equalsConstantTime(name, e.name) != 0) {
                 return getIndex(e.index);
             }
         }
@@ -402,11 +407,14 @@ public final class Encoder {
             remove();
         }
 
-        int h = AsciiString.hashCode(name);
+        int nameHash = AsciiString.hashCode(name);
+        int h = fieldHash(nameHash, value);
         int i = index(h);
-        HeaderEntry old = headerFields[i];
-        HeaderEntry e = new HeaderEntry(h, name, value, head.before.index - 1, old);
+        int nameIndex = index(nameHash);
+        HeaderEntry e = new HeaderEntry(nameHash, h, name, value, head.before.index - 1, headerFields[i],
+                                        headerNames[nameIndex]);
         headerFields[i] = e;
+        headerNames[nameIndex] = e;
         e.addBefore(head);
         size += headerSize;
     }
@@ -419,8 +427,7 @@ public final class Encoder {
             return null;
         }
         HeaderEntry eldest = head.after;
-        int h = eldest.hash;
-        int i = index(h);
+        int i = index(eldest.hash);
         HeaderEntry prev = headerFields[i];
         HeaderEntry e = prev;
         while (e != null) {
@@ -431,6 +438,7 @@ public final class Encoder {
                 } else {
                     prev.next = next;
                 }
+                removeName(eldest);
                 eldest.remove();
                 size -= eldest.size();
                 return eldest;
@@ -441,15 +449,39 @@ public final class Encoder {
         return null;
     }
 
+    private void removeName(HeaderEntry eldest) {
+        int i = index(eldest.nameHash);
+        HeaderEntry prev = headerNames[i];
+        for (HeaderEntry e = prev; e != null; prev = e, e = e.nextName) {
+            if (e == eldest) {
+                if (prev == eldest) {
+                    headerNames[i] = e.nextName;
+                } else {
+                    prev.nextName = e.nextName;
+                }
+                return;
+            }
+        }
+    }
+
     /**
      * Remove all entries from the dynamic table.
      */
     private void clear() {
         Arrays.fill(headerFields, null);
+        Arrays.fill(headerNames, null);
         head.before = head.after = head;
         size = 0;
     }
 
+    /**
+     * Returns the hash of a header field, which is used to find the entry for a name and value without having to
+     * compare all the entries which share the name.
+     */
+    private static int fieldHash(int nameHash, CharSequence value) {
+        return 31 * nameHash + AsciiString.hashCode(value);
+    }
+
     /**
      * Returns the index into the hash table for the hash code h.
      */
@@ -468,17 +500,24 @@ public final class Encoder {
         HeaderEntry next;
         int hash;
 
+        // These fields comprise the chained list for header fields with the same name hash.
+        HeaderEntry nextName;
+        int nameHash;
+
         // This is used to compute the index in the dynamic table.
         int index;
 
         /**
          * Creates new entry.
          */
-        HeaderEntry(int hash, CharSequence name, CharSequence value, int index, HeaderEntry next) {
+        HeaderEntry(int nameHash, int hash, CharSequence name, CharSequence value, int index, HeaderEntry next,
+                    HeaderEntry nextName) {
             super(name, value);
             this.index = index;
+            this.nameHash = nameHash;
             this.hash = hash;
             this.next = next;
+            this.nextName = nextName;
         }
 
         /**
@@ -490,6 +529,7 @@ public final class Encoder {
             before = null; // null references to prevent nepotism in generational GC.
             after = null;
             next = null;
+            nextName = null;
         }
 
         /**
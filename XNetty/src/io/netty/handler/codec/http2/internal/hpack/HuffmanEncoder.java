@@ -33,9 +33,7 @@ package io.netty.handler.codec.http2.internal.hpack;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.util.AsciiString;
-import io.netty.util.ByteProcessor;
 import io.netty.util.internal.ObjectUtil;
-import io.netty.util.internal.PlatformDependent;
 
 
 import static io.netty.handler.codec.http2.internal.hpack.HpackUtil.HUFFMAN_CODES;
@@ -45,8 +43,6 @@ final class HuffmanEncoder {
 
     private final int[] codes;
     private final byte[] lengths;
-    private final EncodedLengthProcessor encodedLengthProcessor = new EncodedLengthProcessor();
-    private final EncodeProcessor encodeProcessor = new EncodeProcessor();
 
     HuffmanEncoder() {
         this(HUFFMAN_CODES, HUFFMAN_CODE_LENGTHS);
@@ -72,20 +68,37 @@ final class HuffmanEncoder {
     public void encode(ByteBuf out, CharSequence data) {
         ObjectUtil.checkNotNull(out, "out");
         if (data instanceof AsciiString) {
+            // Fast-path which reads the bytes straight from the backing array.
             AsciiString string = (AsciiString) data;
-            try {
-                encodeProcessor.out = out;
-                string.forEachByte(encodeProcessor);
-            } catch (Exception e) {
-                PlatformDependent.throwException(e);
-            } finally {
-                encodeProcessor.end();
-            }
+            encode(out, string.array(), string.arrayOffset(), string.length());
         } else {
             encodeSlowPath(out, data);
         }
     }
 
+    // The codes are at most 30 bits long, so up to 31 pending bits plus one more code always fit into the long.
+    // Writing 32 bits at once saves most of the bounds checks of writing byte by byte.
+    private void encode(ByteBuf out, byte[] data, int offset, int length) {
+        long current = 0;
+        int n = 0;
+
+        for (int i = offset, end = offset + length; i < end; i++) {
+            int b = data[i] & 0xFF;
+            int nbits = lengths[b];
+
+            current <<= nbits;
+            current |= codes[b];
+            n += nbits;
+
+            if (n >= 32) {
+                n -= 32;
+                out.writeInt((int) (current >> n));
+            }
+        }
+
+        end(out, current, n);
+    }
+
     private void encodeSlowPath(ByteBuf out, CharSequence data) {
         long current = 0;
         int n = 0;
@@ -99,12 +112,21 @@ final class HuffmanEncoder {
             current |= code;
             n += nbits;
 
-            while (n >= 8) {
-                n -= 8;
-                out.writeByte((int) (current >> n));
+            if (n >= 32) {
+                n -= 32;
+                out.writeInt((int) (current >> n));
             }
         }
 
+        end(out, current, n);
+    }
+
+    private static void end(ByteBuf out, long current, int n) {
+        while (n >= 8) {
+            n -= 8;
+            out.writeByte((int) (current >> n));
+        }
+
         if (n > 0) {
             current <<= 8 - n;
             current |= 0xFF >>> n; // this should be EOS symbol
@@ -121,14 +143,12 @@ final class HuffmanEncoder {
     public int getEncodedLength(CharSequence data) {
         if (data instanceof AsciiString) {
             AsciiString string = (AsciiString) data;
-            try {
-                encodedLengthProcessor.reset();
-                string.forEachByte(encodedLengthProcessor);
-                return encodedLengthProcessor.length();
-            } catch (Exception e) {
-                PlatformDependent.throwException(e);
-                return -1;
+            byte[] array = string.array();
+            long len = 0;
+            for (int i = string.arrayOffset(), end = i + string.length(); i < end; i++) {
+                len += lengths[array[i] & 0xFF];
             }
+            return (int) ((len + 7) >> 3);
         } else {
             return getEncodedLengthSlowPath(data);
         }
@@ -141,58 +161,4 @@ final class HuffmanEncoder {
         }
         return (int) ((len + 7) >> 3);
     }
-
-    private final class EncodeProcessor implements ByteProcessor {
-        ByteBuf out;
-        private long current;
-        private int n;
-
-        @Override
-        public boolean process(byte value) {
-            int b = value & 0xFF;
-            int nbits = lengths[b];
-
-            current <<= nbits;
-            current |= codes[b];
-            n += nbits;
-
-            while (n >= 8) {
-                n -= 8;
-                out.writeByte((int) (current >> n));
-            }
-            return true;
-        }
-
-        void end() {
-            try {
-                if (n > 0) {
-                    current <<= 8 - n;
-                    current |= 0xFF >>> n; // this should be EOS symbol
-                    out.writeByte((int) current);
-                }
-            } finally {
-                out = null;
-                current = 0;
-                n = 0;
-            }
-        }
-    }
-
-    private final class EncodedLengthProcessor implements ByteProcessor {
-        private long len;
-
-        @Override
-        public boolean process(byte value) {
-            len += lengths[value & 0xFF];
-            return true;
-        }
-
-        void reset() {
-            len = 0;
-        }
-
-        int length() {
-            return (int) ((len + 7) >> 3);
-        }
-    }
 }
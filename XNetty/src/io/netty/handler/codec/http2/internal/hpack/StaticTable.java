@@ -31,8 +31,6 @@
  */
 package io.netty.handler.codec.http2.internal.hpack;
 
-import io.netty.handler.codec.UnsupportedValueConverter;
-import io.netty.handler.codec.http2.CharSequenceMap;
 import io.netty.util.AsciiString;
 
 import java.util.Arrays;
@@ -116,13 +114,63 @@ final class StaticTable {
         return new HeaderField(AsciiString.of(name), AsciiString.of(value));
     }
 
-    private static final CharSequenceMap<Integer> STATIC_INDEX_BY_NAME = createMap();
-
     /**
      * The number of header fields in the static table.
      */
     static final int length = STATIC_TABLE.size();
 
+    // A perfect hash of the distinct header names: NAME_INDEX[slot(hash)] holds the smallest index of the name with
+    // that hash, so a lookup takes one hash (which is cached by AsciiString) and one comparison.
+    private static final int NAME_INDEX_MIN_BITS = 6;
+    private static final int NAME_INDEX_MAX_BITS = 12;
+    private static final int NAME_INDEX_MAX_SEEDS = 4096;
+    private static final int[] NAME_INDEX;
+    private static final int NAME_INDEX_SEED;
+    private static final int NAME_INDEX_SHIFT;
+
+    static {
+        int[] hashes = new int[length];
+        for (int index = 1; index <= length; index++) {
+            hashes[index - 1] = AsciiString.hashCode(getEntry(index).name);
+        }
+        int[] table = null;
+        int seed = 0;
+        int shift = 0;
+        search:
+        for (int bits = NAME_INDEX_MIN_BITS; bits <= NAME_INDEX_MAX_BITS; bits++) {
+            table = new int[1 << bits];
+            shift = 32 - bits;
+            for (int i = 0; i < NAME_INDEX_MAX_SEEDS; i++) {
+                // Odd multipliers derived from the golden ratio, so the search and its result are deterministic.
+                seed = 0x9E3779B9 + (i << 1);
+                if (fillNameIndex(table, hashes, seed, shift)) {
+                    break search;
+                }
+            }
+            table = null;
+        }
+        if (table == null) {
+            throw new IllegalStateException("could not find a perfect hash for the static table");
+        }
+        NAME_INDEX = table;
+        NAME_INDEX_SEED = seed;
+        NAME_INDEX_SHIFT = shift;
+    }
+
+    private static boolean fillNameIndex(int[] table, int[] hashes, int seed, int shift) {
+        Arrays.fill(table, 0);
+        for (int index = 1; index <= hashes.length; index++) {
+            int slot = hashes[index - 1] * seed >>> shift;
+            int existing = table[slot];
+            if (existing == 0) {
+                table[slot] = index;
+            } else if (equalsConstantTime(getEntry(existing).name, getEntry(index).name) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Return the header field at the given index value.
      */
@@ -135,8 +183,8 @@ final class StaticTable {
      * -1 if the header field name is not in the static table.
      */
     static int getIndex(CharSequence name) {
-        Integer index = STATIC_INDEX_BY_NAME.get(name);
-        if (index == null) {
+        int index = NAME_INDEX[AsciiString.hashCode(name) * NAME_INDEX_SEED >>> NAME_INDEX_SHIFT];
+        if (index == 0 || equalsConstantTime(name, getEntry(index).name) == 0) {
             return -1;
         }
         return index;
@@ -167,22 +215,6 @@ final class StaticTable {
         return -1;
     }
 
-    // create a map CharSequenceMap header name to index value to allow quick lookup
-    private static CharSequenceMap<Integer> createMap() {
-        int length = STATIC_TABLE.size();
-        @SuppressWarnings("unchecked")
-        CharSequenceMap<Integer> ret = new CharSequenceMap<Integer>(true,
-                UnsupportedValueConverter.<Integer>instance(), length);
-        // Iterate through the static table in reverse order to
-        // save the smallest index for a given name in the map.
-        for (int index = length; index > 0; index--) {
-            HeaderField entry = getEntry(index);
-            CharSequence name = entry.name;
-            ret.set(name, index);
-        }
-        return ret;
-    }
-
     // singleton
     private StaticTable() {
     }
@@ -15,7 +15,6 @@
  */
 package io.netty.handler.ipfilter;
 
-import java.math.BigInteger;
 import java.net.Inet4Address;
 import java.net.Inet6Address;
 import java.net.InetAddress;
@@ -25,10 +24,13 @@ import java.net.UnknownHostException;
 /**
  * Use this class to create rules for {@link RuleBasedIpFilter} that group IP addresses into subnets.
  * Supports both, IPv4 and IPv6.
+ * <p>
+ * Large numbers of these rules should be combined into an {@link IpSubnetFilterRuleSet}, which finds the matching
+ * subnet without testing the rules one after the other.
  */
 public final class IpSubnetFilterRule implements IpFilterRule {
 
-    private final IpFilterRule filterRule;
+    private final AbstractSubnetFilterRule filterRule;
 
     public IpSubnetFilterRule(String ipAddress, int cidrPrefix, IpFilterRuleType ruleType) {
         try {
@@ -42,7 +44,8 @@ public final class IpSubnetFilterRule implements IpFilterRule {
         filterRule = selectFilterRule(ipAddress, cidrPrefix, ruleType);
     }
 
-    private static IpFilterRule selectFilterRule(InetAddress ipAddress, int cidrPrefix, IpFilterRuleType ruleType) {
+    private static AbstractSubnetFilterRule selectFilterRule(InetAddress ipAddress, int cidrPrefix,
+                                                             IpFilterRuleType ruleType) {
         if (ipAddress == null) {
             throw new NullPointerException("ipAddress");
         }
@@ -70,35 +73,75 @@ public final class IpSubnetFilterRule implements IpFilterRule {
         return filterRule.ruleType();
     }
 
-    private static final class Ip4SubnetFilterRule implements IpFilterRule {
+    /**
+     * Returns the length of the subnet prefix in bits.
+     */
+    public int cidrPrefix() {
+        return filterRule.cidrPrefix;
+    }
+
+    /**
+     * Returns the address of the subnet with all the bits after the prefix cleared. The returned array is shared and
+     * must not be modified.
+     */
+    byte[] networkAddress() {
+        return filterRule.networkOctets;
+    }
+
+    private abstract static class AbstractSubnetFilterRule implements IpFilterRule {
+
+        final byte[] networkOctets;
+        final int cidrPrefix;
+        private final IpFilterRuleType ruleType;
+
+        AbstractSubnetFilterRule(InetAddress ipAddress, int cidrPrefix, IpFilterRuleType ruleType) {
+            networkOctets = ipAddress.getAddress();
+            for (int i = 0; i < networkOctets.length; i++) {
+                int bits = cidrPrefix - (i << 3);
+                if (bits < 8) {
+                    networkOctets[i] &= bits <= 0 ? 0 : 0xff << 8 - bits;
+                }
+            }
+            this.cidrPrefix = cidrPrefix;
+            this.ruleType = ruleType;
+        }
+
+        @Override
+        public final IpFilterRuleType ruleType() {
+            return ruleType;
+        }
+    }
+
+    private static final class Ip4SubnetFilterRule extends AbstractSubnetFilterRule {
 
         private final int networkAddress;
         private final int subnetMask;
-        private final IpFilterRuleType ruleType;
 
         private Ip4SubnetFilterRule(Inet4Address ipAddress, int cidrPrefix, IpFilterRuleType ruleType) {
+            super(ipAddress, checkPrefix(cidrPrefix), ruleType);
+            subnetMask = prefixToSubnetMask(cidrPrefix);
+            networkAddress = ipToInt(ipAddress) & subnetMask;
+        }
+
+        private static int checkPrefix(int cidrPrefix) {
             if (cidrPrefix < 0 || cidrPrefix > 32) {
                 throw new IllegalArgumentException(String.format("IPv4 requires the subnet prefix to be in range of " +
                                                                     "[0,32]. The prefix was: %d", cidrPrefix));
             }
-
-            subnetMask = prefixToSubnetMask(cidrPrefix);
-            networkAddress = ipToInt(ipAddress) & subnetMask;
-            this.ruleType = ruleType;
+            return cidrPrefix;
         }
 
         @Override
         public boolean matches(InetSocketAddress remoteAddress) {
-            int ipAddress = ipToInt((Inet4Address) remoteAddress.getAddress());
+            InetAddress address = remoteAddress.getAddress();
+            if (!(address instanceof Inet4Address)) {
+                return false;
+            }
+            int ipAddress = ipToInt((Inet4Address) address);
 
             return (ipAddress & subnetMask) == networkAddress;
         }
 
-        @Override
-        public IpFilterRuleType ruleType() {
-            return ruleType;
-        }
-
         private static int ipToInt(Inet4Address ipAddress) {
             byte[] octets = ipAddress.getAddress();
             assert octets.length == 4;
@@ -124,46 +167,55 @@ public final class IpSubnetFilterRule implements IpFilterRule {
         }
     }
 
-    private static final class Ip6SubnetFilterRule implements IpFilterRule {
+    private static final class Ip6SubnetFilterRule extends AbstractSubnetFilterRule {
 
-        private static final BigInteger MINUS_ONE = BigInteger.valueOf(-1);
-
-        private final BigInteger networkAddress;
-        private final BigInteger subnetMask;
-        private final IpFilterRuleType ruleType;
+        // The 128 bits of the address are kept in two longs, which avoids allocating for every match.
+        private final long networkAddressHigh;
+        private final long networkAddressLow;
+        private final long subnetMaskHigh;
+        private final long subnetMaskLow;
 
         private Ip6SubnetFilterRule(Inet6Address ipAddress, int cidrPrefix, IpFilterRuleType ruleType) {
+            super(ipAddress, checkPrefix(cidrPrefix), ruleType);
+            subnetMaskHigh = prefixToSubnetMask(Math.min(cidrPrefix, 64));
+            subnetMaskLow = prefixToSubnetMask(Math.max(cidrPrefix - 64, 0));
+            byte[] octets = ipAddress.getAddress();
+            networkAddressHigh = ipToLong(octets, 0) & subnetMaskHigh;
+            networkAddressLow = ipToLong(octets, 8) & subnetMaskLow;
+        }
+
+        private static int checkPrefix(int cidrPrefix) {
             if (cidrPrefix < 0 || cidrPrefix > 128) {
                 throw new IllegalArgumentException(String.format("IPv6 requires the subnet prefix to be in range of " +
                                                                     "[0,128]. The prefix was: %d", cidrPrefix));
             }
-
-            subnetMask = prefixToSubnetMask(cidrPrefix);
-            networkAddress = ipToInt(ipAddress).and(subnetMask);
-            this.ruleType = ruleType;
+            return cidrPrefix;
         }
 
         @Override
         public boolean matches(InetSocketAddress remoteAddress) {
-            BigInteger ipAddress = ipToInt((Inet6Address) remoteAddress.getAddress());
-
-            return ipAddress.and(subnetMask).equals(networkAddress);
-        }
+            InetAddress address = remoteAddress.getAddress();
+            if (!(address instanceof Inet6Address)) {
+                return false;
+            }
+            byte[] octets = address.getAddress();
+            assert octets.length == 16;
 
-        @Override
-        public IpFilterRuleType ruleType() {
-            return ruleType;
+            return (ipToLong(octets, 0) & subnetMaskHigh) == networkAddressHigh &&
+                   (ipToLong(octets, 8) & subnetMaskLow) == networkAddressLow;
         }
 
-        private static BigInteger ipToInt(Inet6Address ipAddress) {
-            byte[] octets = ipAddress.getAddress();
-            assert octets.length == 16;
-
-            return new BigInteger(octets);
+        private static long ipToLong(byte[] octets, int offset) {
+            long value = 0;
+            for (int i = offset; i < offset + 8; i++) {
+                value = value << 8 | octets[i] & 0xff;
+            }
+            return value;
         }
 
-        private static BigInteger prefixToSubnetMask(int cidrPrefix) {
-            return MINUS_ONE.shiftLeft(128 - cidrPrefix);
+        private static long prefixToSubnetMask(int cidrPrefix) {
+            // cidrPrefix is in the range of [0,64]. As with IPv4 a shift by 64 would be a no-op, so zero is special.
+            return cidrPrefix == 0 ? 0 : -1L << 64 - cidrPrefix;
         }
     }
 }
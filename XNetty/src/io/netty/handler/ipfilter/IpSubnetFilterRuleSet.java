@@ -0,0 +1,193 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.handler.ipfilter;
+
+import io.netty.util.internal.UnstableApi;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+/**
+ * An immutable set of {@link IpSubnetFilterRule}s which finds the rule for an address by a longest-prefix match, so
+ * the most specific subnet which contains the address decides whether it is accepted or rejected. If several rules
+ * have the same subnet, the one which was passed first is used.
+ * <p>
+ * The rules are kept in a path-compressed binary radix trie per address family, so the cost of a lookup depends on
+ * the length of the address but not on the number of rules. This makes it suitable for rule sets with tens of
+ * thousands of subnets, which should be passed to {@link RuleBasedIpFilter#ruleSet(IpSubnetFilterRuleSet)} as a
+ * whole when they change.
+ */
+@UnstableApi
+public final class IpSubnetFilterRuleSet {
+
+    private final Node ip4Root = new Node(new byte[4], 0, null);
+    private final Node ip6Root = new Node(new byte[16], 0, null);
+    private final int size;
+
+    public IpSubnetFilterRuleSet(IpSubnetFilterRule... rules) {
+        this(Arrays.asList(checkNotNull(rules, "rules")));
+    }
+
+    public IpSubnetFilterRuleSet(Iterable<? extends IpSubnetFilterRule> rules) {
+        checkNotNull(rules, "rules");
+        int size = 0;
+        for (IpSubnetFilterRule rule : rules) {
+            if (rule == null) {
+                break;
+            }
+            byte[] networkAddress = rule.networkAddress();
+            insert(networkAddress.length == 4 ? ip4Root : ip6Root, networkAddress, rule.cidrPrefix(), rule.ruleType());
+            size++;
+        }
+        this.size = size;
+    }
+
+    /**
+     * Returns the number of rules in this set.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the {@link IpFilterRuleType} of the rule with the longest prefix which matches the address of the given
+     * {@link InetSocketAddress}, or {@code null} if no rule matches.
+     */
+    public IpFilterRuleType match(InetSocketAddress remoteAddress) {
+        InetAddress address = remoteAddress.getAddress();
+        return address == null ? null : match(address);
+    }
+
+    /**
+     * Returns the {@link IpFilterRuleType} of the rule with the longest prefix which matches the given
+     * {@link InetAddress}, or {@code null} if no rule matches.
+     */
+    public IpFilterRuleType match(InetAddress address) {
+        byte[] octets = address.getAddress();
+        Node node;
+        if (octets.length == 4) {
+            node = ip4Root;
+        } else if (octets.length == 16) {
+            node = ip6Root;
+        } else {
+            return null;
+        }
+
+        int addressBits = octets.length << 3;
+        IpFilterRuleType ruleType = node.ruleType;
+        while (node.bits < addressBits) {
+            Node child = node.child(bit(octets, node.bits));
+            // The bit at node.bits was just matched by choosing the child, only the bits after it are left.
+            if (child == null || firstDifferentBit(octets, child.key, node.bits + 1, child.bits) != child.bits) {
+                break;
+            }
+            node = child;
+            if (node.ruleType != null) {
+                ruleType = node.ruleType;
+            }
+        }
+        return ruleType;
+    }
+
+    private static void insert(Node node, byte[] key, int bits, IpFilterRuleType ruleType) {
+        for (;;) {
+            // key matches the first node.bits bits of node.key here.
+            if (bits == node.bits) {
+                if (node.ruleType == null) {
+                    node.ruleType = ruleType;
+                }
+                return;
+            }
+
+            int nextBit = bit(key, node.bits);
+            Node child = node.child(nextBit);
+            if (child == null) {
+                node.child(nextBit, new Node(key, bits, ruleType));
+                return;
+            }
+
+            int common = firstDifferentBit(key, child.key, node.bits + 1, Math.min(bits, child.bits));
+            if (common == child.bits) {
+                node = child;
+                continue;
+            }
+
+            // The new prefix diverges from the one of child or is shorter, so a node is inserted between them.
+            Node parent;
+            if (common == bits) {
+                parent = new Node(key, bits, ruleType);
+            } else {
+                parent = new Node(key, common, null);
+                parent.child(bit(key, common), new Node(key, bits, ruleType));
+            }
+            parent.child(bit(child.key, common), child);
+            node.child(nextBit, parent);
+            return;
+        }
+    }
+
+    private static int bit(byte[] octets, int index) {
+        return (octets[index >>> 3] >>> 7 - (index & 7)) & 1;
+    }
+
+    /**
+     * Returns the index of the first bit in the range of {@code [from, to)} in which {@code a} and {@code b} differ,
+     * or {@code to} if they are the same in this range.
+     */
+    private static int firstDifferentBit(byte[] a, byte[] b, int from, int to) {
+        for (int i = from; i < to;) {
+            int octet = i >>> 3;
+            int diff = (a[octet] ^ b[octet]) & 0xff >>> (i & 7);
+            if (diff != 0) {
+                return Math.min((octet << 3) + Integer.numberOfLeadingZeros(diff) - 24, to);
+            }
+            i = octet + 1 << 3;
+        }
+        return to;
+    }
+
+    private static final class Node {
+        // Only the first bits bits of key are significant, the rest of the array may be shared with a longer prefix.
+        final byte[] key;
+        final int bits;
+        // null if there is no rule for exactly this prefix.
+        IpFilterRuleType ruleType;
+        private Node zero;
+        private Node one;
+
+        Node(byte[] key, int bits, IpFilterRuleType ruleType) {
+            this.key = key;
+            this.bits = bits;
+            this.ruleType = ruleType;
+        }
+
+        Node child(int bit) {
+            return bit == 0 ? zero : one;
+        }
+
+        void child(int bit, Node child) {
+            if (bit == 0) {
+                zero = child;
+            } else {
+                one = child;
+            }
+        }
+    }
+}
@@ -22,6 +22,8 @@ import io.netty.channel.ChannelHandlerContext;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
 /**
  * This class allows one to filter new {@link Channel}s based on the
  * {@link IpFilterRule}s passed to its constructor. If no rules are provided, all connections
@@ -29,11 +31,18 @@ import java.net.SocketAddress;
  *
  * If you would like to explicitly take action on rejected {@link Channel}s, you should override
  * {@link #channelRejected(ChannelHandlerContext, SocketAddress)}.
+ * <p>
+ * Large numbers of subnets should be given as an {@link IpSubnetFilterRuleSet} instead, which is consulted before
+ * the {@link IpFilterRule}s and can be replaced at any time via {@link #ruleSet(IpSubnetFilterRuleSet)} without
+ * blocking the {@link Channel}s which are being accepted.
  */
 @Sharable
 public class RuleBasedIpFilter extends AbstractRemoteAddressFilter<InetSocketAddress> {
 
+    private static final IpFilterRule[] EMPTY_RULES = new IpFilterRule[0];
+
     private final IpFilterRule[] rules;
+    private volatile IpSubnetFilterRuleSet ruleSet;
 
     public RuleBasedIpFilter(IpFilterRule... rules) {
         if (rules == null) {
@@ -43,8 +52,44 @@ public class RuleBasedIpFilter extends AbstractRemoteAddressFilter<InetSocketAdd
         this.rules = rules;
     }
 
+    public RuleBasedIpFilter(IpSubnetFilterRuleSet ruleSet) {
+        this(ruleSet, EMPTY_RULES);
+    }
+
+    /**
+     * Creates a new instance which consults the given {@link IpSubnetFilterRuleSet} first and the {@link IpFilterRule}s
+     * only for addresses which are not matched by any rule of the set.
+     */
+    public RuleBasedIpFilter(IpSubnetFilterRuleSet ruleSet, IpFilterRule... rules) {
+        this(rules);
+        this.ruleSet = checkNotNull(ruleSet, "ruleSet");
+    }
+
+    /**
+     * Returns the {@link IpSubnetFilterRuleSet} which is currently used, or {@code null} if none.
+     */
+    public IpSubnetFilterRuleSet ruleSet() {
+        return ruleSet;
+    }
+
+    /**
+     * Atomically replaces the {@link IpSubnetFilterRuleSet}. {@link Channel}s which are accepted from now on are
+     * filtered by the new set only. Passing {@code null} removes the set.
+     */
+    public void ruleSet(IpSubnetFilterRuleSet ruleSet) {
+        this.ruleSet = ruleSet;
+    }
+
     @Override
     protected boolean accept(ChannelHandlerContext ctx, InetSocketAddress remoteAddress) throws Exception {
+        IpSubnetFilterRuleSet ruleSet = this.ruleSet;
+        if (ruleSet != null) {
+            IpFilterRuleType ruleType = ruleSet.match(remoteAddress);
+            if (ruleType != null) {
+                return ruleType == IpFilterRuleType.ACCEPT;
+            }
+        }
+
         for (IpFilterRule rule : rules) {
             if (rule == null) {
                 break;
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.handler.ssl;
+
+import io.netty.buffer.ByteBufUtil;
+import io.netty.util.internal.LongCounter;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.UnstableApi;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+/**
+ * A {@link SslSessionStore} which keeps each value in its own file in a directory. If the directory is on a file
+ * system all nodes mount, like NFS, the nodes share the store.
+ * <p>
+ * A value is written to a temporary file first, which is then renamed, so a node never reads a partially written
+ * value. Expiry uses the wall clock as the nodes do not share anything else, so their clocks should be kept in sync.
+ * Expired values are removed once they are read or by {@link #removeExpired()}.
+ * <p>
+ * As the file system may fail at any time, I/O errors are logged and reading the value then fails like a miss.
+ */
+@UnstableApi
+public final class FileSslSessionStore implements SslSessionStore {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(FileSslSessionStore.class);
+
+    private static final String SUFFIX = ".session";
+    private static final String TMP_SUFFIX = ".tmp";
+    // The deadline and the length of the value.
+    private static final int HEADER_LENGTH = 8 + 4;
+
+    private final File directory;
+    private final LongCounter hits = PlatformDependent.newLongCounter();
+    private final LongCounter misses = PlatformDependent.newLongCounter();
+
+    /**
+     * Creates a new instance which stores the values in the given directory, creating it if needed.
+     */
+    public FileSslSessionStore(File directory) {
+        this.directory = checkNotNull(directory, "directory");
+        if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+            throw new IllegalArgumentException("not a directory: " + directory);
+        }
+    }
+
+    @Override
+    public byte[] get(byte[] key) {
+        File file = file(checkNotNull(key, "key"));
+        byte[] value = null;
+        try {
+            FileInputStream fis = new FileInputStream(file);
+            boolean expired = false;
+            try {
+                DataInputStream in = new DataInputStream(fis);
+                long deadlineMillis = in.readLong();
+                if (deadlineMillis > System.currentTimeMillis()) {
+                    int length = in.readInt();
+                    // Check the length before allocating, so a corrupt file can not trigger a huge allocation.
+                    if (length < 0 || length > fis.getChannel().size() - HEADER_LENGTH) {
+                        throw new IOException("invalid value length: " + length);
+                    }
+                    value = new byte[length];
+                    in.readFully(value);
+                } else {
+                    expired = true;
+                }
+            } finally {
+                fis.close();
+            }
+            if (expired && !deleteIfExpired(file, System.currentTimeMillis())) {
+                logger.debug("Did not delete the expired session store file: {}", file);
+            }
+        } catch (FileNotFoundException ignore) {
+            // No value stored.
+        } catch (EOFException e) {
+            // Only a truncated file can end early as values are renamed into place.
+            logger.warn("Truncated session store file: {}", file, e);
+            value = null;
+        } catch (IOException e) {
+            logger.warn("Failed to read the session store file: {}", file, e);
+            value = null;
+        }
+        if (value == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return value;
+    }
+
+    @Override
+    public void put(byte[] key, byte[] value, long timeToLive, TimeUnit unit) {
+        File file = file(checkNotNull(key, "key"));
+        checkNotNull(value, "value");
+        checkNotNull(unit, "unit");
+        File tmp = null;
+        try {
+            tmp = File.createTempFile(file.getName(), TMP_SUFFIX, directory);
+            FileOutputStream fos = new FileOutputStream(tmp);
+            try {
+                DataOutputStream out = new DataOutputStream(fos);
+                out.writeLong(System.currentTimeMillis() + unit.toMillis(timeToLive));
+                out.writeInt(value.length);
+                out.write(value);
+                out.flush();
+                fos.getFD().sync();
+            } finally {
+                fos.close();
+            }
+            // On Windows renameTo(...) does not replace an existing file.
+            if (!tmp.renameTo(file) && !(file.delete() && tmp.renameTo(file))) {
+                throw new IOException("failed to rename " + tmp + " to " + file);
+            }
+            tmp = null;
+        } catch (IOException e) {
+            logger.warn("Failed to write the session store file: {}", file, e);
+        } finally {
+            if (tmp != null && !tmp.delete()) {
+                logger.debug("Failed to delete the temporary session store file: {}", tmp);
+            }
+        }
+    }
+
+    @Override
+    public void remove(byte[] key) {
+        File file = file(checkNotNull(key, "key"));
+        if (!file.delete() && file.exists()) {
+            logger.warn("Failed to delete the session store file: {}", file);
+        }
+    }
+
+    /**
+     * Removes the files of all expired values.
+     *
+     * @return the number of removed values
+     */
+    public int removeExpired() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return 0;
+        }
+        long now = System.currentTimeMillis();
+        int removed = 0;
+        for (File file: files) {
+            if (file.getName().endsWith(SUFFIX) && deleteIfExpired(file, now)) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Deletes the given file if the value it holds right now is expired. The deadline is read again right before
+     * deleting, so a fresh value which another node renamed into place in the meantime is kept.
+     */
+    private static boolean deleteIfExpired(File file, long now) {
+        long deadlineMillis;
+        try {
+            DataInputStream in = new DataInputStream(new FileInputStream(file));
+            try {
+                deadlineMillis = in.readLong();
+            } finally {
+                in.close();
+            }
+        } catch (IOException ignore) {
+            // Removed concurrently or unreadable, which get(...) reports.
+            return false;
+        }
+        return deadlineMillis <= now && file.delete();
+    }
+
+    /**
+     * Returns the directory the values are stored in.
+     */
+    public File directory() {
+        return directory;
+    }
+
+    /**
+     * Returns the number of {@link #get(byte[])} calls which found a value.
+     */
+    public long hits() {
+        return hits.value();
+    }
+
+    /**
+     * Returns the number of {@link #get(byte[])} calls which found no value.
+     */
+    public long misses() {
+        return misses.value();
+    }
+
+    private File file(byte[] key) {
+        return new File(directory, ByteBufUtil.hexDump(key) + SUFFIX);
+    }
+}
@@ -17,6 +17,7 @@
 package io.netty.handler.ssl;
 
 import io.netty.buffer.ByteBufAllocator;
+import io.netty.util.concurrent.ImmediateExecutor;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
@@ -41,6 +42,7 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 import static io.netty.util.internal.ObjectUtil.*;
 
@@ -171,7 +173,13 @@ public class JdkSslContext extends SslContext {
 
     JdkSslContext(SSLContext sslContext, boolean isClient, Iterable<String> ciphers, CipherSuiteFilter cipherFilter,
                   JdkApplicationProtocolNegotiator apn, ClientAuth clientAuth, boolean startTls) {
-        super(startTls);
+        this(sslContext, isClient, ciphers, cipherFilter, apn, clientAuth, startTls, ImmediateExecutor.INSTANCE, null);
+    }
+
+    JdkSslContext(SSLContext sslContext, boolean isClient, Iterable<String> ciphers, CipherSuiteFilter cipherFilter,
+                  JdkApplicationProtocolNegotiator apn, ClientAuth clientAuth, boolean startTls,
+                  Executor delegatedTaskExecutor, SslHandshakeLimiter handshakeLimiter) {
+        super(startTls, delegatedTaskExecutor, handshakeLimiter);
         this.apn = checkNotNull(apn, "apn");
         this.clientAuth = checkNotNull(clientAuth, "clientAuth");
         cipherSuites = checkNotNull(cipherFilter, "cipherFilter").filterCipherSuites(
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.handler.ssl;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.util.internal.LongCounter;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.UnstableApi;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+import static io.netty.util.internal.ObjectUtil.checkPositive;
+
+/**
+ * A {@link SslSessionStore} which keeps the values in direct memory of this process, so even a large store does not
+ * add to the heap the garbage collector has to scan. The store is bounded by the number of entries and the number of
+ * bytes of the values. Once a bound is hit the least recently used entries are evicted.
+ */
+@UnstableApi
+public final class LocalSslSessionStore implements SslSessionStore {
+
+    private final ByteBufAllocator alloc;
+    private final int maxEntries;
+    private final long maxBytes;
+    // Access ordered, so the eldest entry is the least recently used one. Guarded by itself.
+    private final Map<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+    private long usedBytes;
+
+    private final LongCounter hits = PlatformDependent.newLongCounter();
+    private final LongCounter misses = PlatformDependent.newLongCounter();
+    private final LongCounter evictions = PlatformDependent.newLongCounter();
+
+    /**
+     * Creates a new instance which allocates the memory for the values from {@link ByteBufAllocator#DEFAULT}.
+     *
+     * @param maxEntries the maximum number of entries
+     * @param maxBytes the maximum number of bytes all values may occupy
+     */
+    public LocalSslSessionStore(int maxEntries, long maxBytes) {
+        this(maxEntries, maxBytes, ByteBufAllocator.DEFAULT);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param maxEntries the maximum number of entries
+     * @param maxBytes the maximum number of bytes all values may occupy
+     * @param alloc the {@link ByteBufAllocator} the direct memory for the values is allocated from
+     */
+    public LocalSslSessionStore(int maxEntries, long maxBytes, ByteBufAllocator alloc) {
+        this.maxEntries = checkPositive(maxEntries, "maxEntries");
+        this.maxBytes = checkPositive(maxBytes, "maxBytes");
+        this.alloc = checkNotNull(alloc, "alloc");
+    }
+
+    @Override
+    public byte[] get(byte[] key) {
+        Key k = new Key(checkNotNull(key, "key"));
+        synchronized (entries) {
+            Entry entry = entries.get(k);
+            if (entry != null) {
+                if (entry.deadlineNanos - System.nanoTime() > 0) {
+                    hits.increment();
+                    ByteBuf value = entry.value;
+                    byte[] bytes = new byte[value.readableBytes()];
+                    value.getBytes(value.readerIndex(), bytes);
+                    return bytes;
+                }
+                removeEntry(k);
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    @Override
+    public void put(byte[] key, byte[] value, long timeToLive, TimeUnit unit) {
+        checkNotNull(key, "key");
+        checkNotNull(value, "value");
+        checkNotNull(unit, "unit");
+        if (value.length > maxBytes) {
+            // Would evict everything else and still not fit.
+            remove(key);
+            return;
+        }
+        ByteBuf buf = alloc.directBuffer(value.length).writeBytes(value);
+        Entry entry = new Entry(buf, System.nanoTime() + unit.toNanos(timeToLive));
+        // Copy the key as the caller may modify the array afterwards.
+        Key k = new Key(key.clone());
+        synchronized (entries) {
+            Entry old = entries.put(k, entry);
+            if (old != null) {
+                usedBytes -= old.value.readableBytes();
+                old.value.release();
+            }
+            usedBytes += value.length;
+            evictIfNeeded();
+        }
+    }
+
+    @Override
+    public void remove(byte[] key) {
+        Key k = new Key(checkNotNull(key, "key"));
+        synchronized (entries) {
+            removeEntry(k);
+        }
+    }
+
+    /**
+     * Removes all entries and releases their memory.
+     */
+    public void clear() {
+        synchronized (entries) {
+            for (Entry entry : entries.values()) {
+                entry.value.release();
+            }
+            entries.clear();
+            usedBytes = 0;
+        }
+    }
+
+    /**
+     * Returns the number of entries, including the expired ones which were not removed yet.
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Returns the number of bytes the values occupy.
+     */
+    public long usedBytes() {
+        synchronized (entries) {
+            return usedBytes;
+        }
+    }
+
+    /**
+     * Returns the number of {@link #get(byte[])} calls which found a value.
+     */
+    public long hits() {
+        return hits.value();
+    }
+
+    /**
+     * Returns the number of {@link #get(byte[])} calls which found no value.
+     */
+    public long misses() {
+        return misses.value();
+    }
+
+    /**
+     * Returns the number of entries which were evicted to stay within the bounds.
+     */
+    public long evictions() {
+        return evictions.value();
+    }
+
+    private void removeEntry(Key key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            usedBytes -= entry.value.readableBytes();
+            entry.value.release();
+        }
+    }
+
+    private void evictIfNeeded() {
+        if (entries.size() <= maxEntries && usedBytes <= maxBytes) {
+            return;
+        }
+        long now = System.nanoTime();
+        // Drop the expired entries first, then the least recently used ones.
+        Iterator<Entry> i = entries.values().iterator();
+        while (i.hasNext()) {
+            Entry entry = i.next();
+            if (entry.deadlineNanos - now <= 0) {
+                i.remove();
+                usedBytes -= entry.value.readableBytes();
+                entry.value.release();
+            }
+        }
+        i = entries.values().iterator();
+        while ((entries.size() > maxEntries || usedBytes > maxBytes) && i.hasNext()) {
+            Entry entry = i.next();
+            i.remove();
+            usedBytes -= entry.value.readableBytes();
+            entry.value.release();
+            evictions.increment();
+        }
+    }
+
+    private static final class Key {
+        private final byte[] bytes;
+        private final int hash;
+
+        Key(byte[] bytes) {
+            this.bytes = bytes;
+            hash = Arrays.hashCode(bytes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && Arrays.equals(bytes, ((Key) o).bytes);
+        }
+    }
+
+    private static final class Entry {
+        final ByteBuf value;
+        final long deadlineNanos;
+
+        Entry(ByteBuf value, long deadlineNanos) {
+            this.value = value;
+            this.deadlineNanos = deadlineNanos;
+        }
+    }
+}
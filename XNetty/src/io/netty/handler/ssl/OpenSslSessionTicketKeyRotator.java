@@ -0,0 +1,374 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.handler.ssl;
+
+import io.netty.util.CharsetUtil;
+import io.netty.util.internal.UnstableApi;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+import static io.netty.util.internal.ObjectUtil.checkPositive;
+
+/**
+ * Rotates the session ticket keys of {@link OpenSslSessionContext}s and shares them through a {@link SslSessionStore}.
+ * If all nodes behind a load balancer use the same store, a session ticket issued by one node can be decrypted by all
+ * others, so clients can resume their session no matter on which node they land.
+ * <p>
+ * Each {@link #refresh()} reads the keys from the store and, if the newest key is older than the rotation interval,
+ * adds a new key and writes them back. A new key is only used to decrypt tickets until it is one refresh period old,
+ * so all nodes have picked it up before the first ticket is encrypted with it. The keys which were used before are
+ * kept to decrypt the tickets issued with them, so a ticket stays valid for the rotation interval times the number of
+ * retained keys.
+ * <p>
+ * If two nodes rotate at the same time the last write wins, and the other node adopts its key as it reads the keys
+ * back after writing.
+ */
+@UnstableApi
+public final class OpenSslSessionTicketKeyRotator {
+    private static final InternalLogger logger =
+            InternalLoggerFactory.getInstance(OpenSslSessionTicketKeyRotator.class);
+
+    private static final byte[] DEFAULT_STORE_KEY = "netty.ssl.sessionTicketKeys".getBytes(CharsetUtil.US_ASCII);
+    private static final int VERSION = 1;
+
+    private final SslSessionStore store;
+    private final byte[] storeKey;
+    private final long rotationIntervalMillis;
+    private final long refreshIntervalMillis;
+    private final int retainedKeys;
+    private final List<OpenSslSessionContext> contexts = new CopyOnWriteArrayList<OpenSslSessionContext>();
+    private final SecureRandom random = new SecureRandom();
+
+    // Guarded by this.
+    private List<StoredKey> keys = Collections.emptyList();
+    private int activeKeyIndex = -1;
+    private OpenSslSessionTicketKey[] ticketKeys;
+    private ScheduledFuture<?> refreshFuture;
+
+    private volatile long rotations;
+    private volatile long refreshFailures;
+
+    /**
+     * Creates a new instance which keeps the current and the two previous keys, and checks the store for new keys
+     * eight times per rotation interval.
+     *
+     * @param store the store to share the keys through
+     * @param rotationInterval the interval in which a new key is used to encrypt tickets
+     * @param unit the {@link TimeUnit} of {@code rotationInterval}
+     */
+    public OpenSslSessionTicketKeyRotator(SslSessionStore store, long rotationInterval, TimeUnit unit) {
+        this(store, DEFAULT_STORE_KEY, rotationInterval, unit.toMillis(rotationInterval) / 8, TimeUnit.MILLISECONDS, 3);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param store the store to share the keys through
+     * @param storeKey the key the ticket keys are stored under
+     * @param rotationInterval the interval in which a new key is used to encrypt tickets
+     * @param refreshInterval the interval in which {@link #start(ScheduledExecutorService)} checks the store for new
+     *                        keys, which must be shorter than the rotation interval
+     * @param unit the {@link TimeUnit} of {@code rotationInterval} and {@code refreshInterval}
+     * @param retainedKeys the number of keys which are used to decrypt tickets, including the current one
+     */
+    public OpenSslSessionTicketKeyRotator(SslSessionStore store, byte[] storeKey, long rotationInterval,
+                                          long refreshInterval, TimeUnit unit, int retainedKeys) {
+        this.store = checkNotNull(store, "store");
+        this.storeKey = checkNotNull(storeKey, "storeKey").clone();
+        checkNotNull(unit, "unit");
+        rotationIntervalMillis = checkPositive(unit.toMillis(rotationInterval), "rotationInterval");
+        refreshIntervalMillis = checkPositive(unit.toMillis(refreshInterval), "refreshInterval");
+        if (refreshIntervalMillis >= rotationIntervalMillis) {
+            throw new IllegalArgumentException("refreshInterval: " + refreshInterval +
+                    " (expected: < rotationInterval " + rotationInterval + ')');
+        }
+        this.retainedKeys = checkPositive(retainedKeys, "retainedKeys");
+    }
+
+    /**
+     * Uses the keys of this rotator for the given context from now on.
+     */
+    public void addContext(OpenSslSessionContext context) {
+        checkNotNull(context, "context");
+        OpenSslSessionTicketKey[] current;
+        synchronized (this) {
+            contexts.add(context);
+            current = ticketKeys;
+        }
+        if (current != null) {
+            context.setTicketKeys(current);
+        }
+    }
+
+    /**
+     * Stops updating the keys of the given context. Contexts which were released are removed automatically.
+     */
+    public void removeContext(OpenSslSessionContext context) {
+        contexts.remove(context);
+    }
+
+    /**
+     * Calls {@link #refresh()} now and then periodically on the given executor until {@link #stop()} is called.
+     */
+    public synchronized void start(ScheduledExecutorService executor) {
+        checkNotNull(executor, "executor");
+        if (refreshFuture != null) {
+            throw new IllegalStateException("started already");
+        }
+        refreshFuture = executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    refresh();
+                } catch (Throwable t) {
+                    refreshFailures++;
+                    logger.warn("Failed to refresh the session ticket keys", t);
+                }
+            }
+        }, 0, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the periodic refresh started by {@link #start(ScheduledExecutorService)}.
+     */
+    public synchronized void stop() {
+        if (refreshFuture != null) {
+            refreshFuture.cancel(false);
+            refreshFuture = null;
+        }
+    }
+
+    /**
+     * Reads the keys from the store, rotates them if the newest key is too old and applies them to all contexts.
+     */
+    public synchronized void refresh() {
+        List<StoredKey> stored = decode(store.get(storeKey));
+        long now = System.currentTimeMillis();
+        if (stored.isEmpty() || now - stored.get(0).createdMillis >= rotationIntervalMillis - refreshIntervalMillis) {
+            // Publish the next key one refresh period ahead of its use, see activeIndex(...).
+            stored = rotate(stored, now);
+        }
+        apply(stored, now);
+    }
+
+    /**
+     * Adds a new key right away, no matter how old the newest one is, and applies the keys to all contexts.
+     */
+    public synchronized void rotate() {
+        long now = System.currentTimeMillis();
+        apply(rotate(decode(store.get(storeKey)), now), now);
+    }
+
+    /**
+     * Returns the number of keys this node added.
+     */
+    public long rotations() {
+        return rotations;
+    }
+
+    /**
+     * Returns the number of periodic refreshes which failed.
+     */
+    public long refreshFailures() {
+        return refreshFailures;
+    }
+
+    /**
+     * Returns the number of sessions the contexts resumed from a session ticket since they were created.
+     */
+    public long ticketResumptions() {
+        long count = 0;
+        for (OpenSslSessionContext context: contexts) {
+            if (context.context.refCnt() > 0) {
+                count += context.stats().ticketKeyResume();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of session tickets the contexts failed to decrypt since they were created, for example
+     * because the key was rotated out already.
+     */
+    public long ticketFailures() {
+        long count = 0;
+        for (OpenSslSessionContext context: contexts) {
+            if (context.context.refCnt() > 0) {
+                count += context.stats().ticketKeyFail();
+            }
+        }
+        return count;
+    }
+
+    private List<StoredKey> rotate(List<StoredKey> stored, long now) {
+        byte[] name = new byte[OpenSslSessionTicketKey.NAME_SIZE];
+        byte[] hmacKey = new byte[OpenSslSessionTicketKey.HMAC_KEY_SIZE];
+        byte[] aesKey = new byte[OpenSslSessionTicketKey.AES_KEY_SIZE];
+        random.nextBytes(name);
+        random.nextBytes(hmacKey);
+        random.nextBytes(aesKey);
+
+        // Keep one more key than retained, as the newest one is not used for encryption yet.
+        List<StoredKey> rotated = new ArrayList<StoredKey>(retainedKeys + 1);
+        rotated.add(new StoredKey(now, name, hmacKey, aesKey));
+        for (int i = 0; i < stored.size() && rotated.size() <= retainedKeys; i++) {
+            rotated.add(stored.get(i));
+        }
+        store.put(storeKey, encode(rotated), rotationIntervalMillis * (retainedKeys + 1), TimeUnit.MILLISECONDS);
+        rotations++;
+
+        // Another node may have rotated at the same time, so use what won.
+        List<StoredKey> winner = decode(store.get(storeKey));
+        return winner.isEmpty() ? rotated : winner;
+    }
+
+    private void apply(List<StoredKey> stored, long now) {
+        int active = activeIndex(stored, now);
+        if (active == activeKeyIndex && stored.equals(keys)) {
+            return;
+        }
+        OpenSslSessionTicketKey[] newTicketKeys = new OpenSslSessionTicketKey[stored.size()];
+        // OpenSSL encrypts new tickets with the first key and tries all keys to decrypt.
+        newTicketKeys[0] = stored.get(active).ticketKey();
+        for (int i = 0, j = 1; i < stored.size(); i++) {
+            if (i != active) {
+                newTicketKeys[j++] = stored.get(i).ticketKey();
+            }
+        }
+        keys = stored;
+        activeKeyIndex = active;
+        ticketKeys = newTicketKeys;
+        for (OpenSslSessionContext context: contexts) {
+            if (context.context.refCnt() > 0) {
+                context.setTicketKeys(newTicketKeys);
+            } else {
+                contexts.remove(context);
+            }
+        }
+    }
+
+    /**
+     * Returns the index of the newest key which is at least one refresh period old, as all nodes know it by now.
+     */
+    private int activeIndex(List<StoredKey> stored, long now) {
+        for (int i = 0; i < stored.size(); i++) {
+            if (now - stored.get(i).createdMillis >= refreshIntervalMillis) {
+                return i;
+            }
+        }
+        // Either the store was empty or all keys were added very recently, so no node can use an older one.
+        return stored.size() - 1;
+    }
+
+    private static byte[] encode(List<StoredKey> keys) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeByte(VERSION);
+            out.writeByte(keys.size());
+            for (StoredKey key: keys) {
+                out.writeLong(key.createdMillis);
+                out.write(key.name);
+                out.write(key.hmacKey);
+                out.write(key.aesKey);
+            }
+        } catch (IOException e) {
+            // Can not happen with a ByteArrayOutputStream.
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static List<StoredKey> decode(byte[] bytes) {
+        if (bytes == null) {
+            return Collections.emptyList();
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        try {
+            int version = in.readUnsignedByte();
+            if (version != VERSION) {
+                logger.warn("Ignoring session ticket keys of unknown version: {}", version);
+                return Collections.emptyList();
+            }
+            int size = in.readUnsignedByte();
+            List<StoredKey> keys = new ArrayList<StoredKey>(size);
+            for (int i = 0; i < size; i++) {
+                long createdMillis = in.readLong();
+                byte[] name = new byte[OpenSslSessionTicketKey.NAME_SIZE];
+                byte[] hmacKey = new byte[OpenSslSessionTicketKey.HMAC_KEY_SIZE];
+                byte[] aesKey = new byte[OpenSslSessionTicketKey.AES_KEY_SIZE];
+                in.readFully(name);
+                in.readFully(hmacKey);
+                in.readFully(aesKey);
+                keys.add(new StoredKey(createdMillis, name, hmacKey, aesKey));
+            }
+            return keys;
+        } catch (IOException e) {
+            logger.warn("Ignoring malformed session ticket keys", e);
+            return Collections.emptyList();
+        }
+    }
+
+    private static final class StoredKey {
+        final long createdMillis;
+        final byte[] name;
+        final byte[] hmacKey;
+        final byte[] aesKey;
+
+        StoredKey(long createdMillis, byte[] name, byte[] hmacKey, byte[] aesKey) {
+            this.createdMillis = createdMillis;
+            this.name = name;
+            this.hmacKey = hmacKey;
+            this.aesKey = aesKey;
+        }
+
+        OpenSslSessionTicketKey ticketKey() {
+            return new OpenSslSessionTicketKey(name, hmacKey, aesKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(name);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof StoredKey)) {
+                return false;
+            }
+            StoredKey other = (StoredKey) o;
+            return createdMillis == other.createdMillis && Arrays.equals(name, other.name) &&
+                    Arrays.equals(hmacKey, other.hmacKey) && Arrays.equals(aesKey, other.aesKey);
+        }
+    }
+}
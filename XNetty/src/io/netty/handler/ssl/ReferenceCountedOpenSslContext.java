@@ -45,6 +45,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 import javax.net.ssl.KeyManager;
 import javax.net.ssl.SSLEngine;
@@ -200,16 +201,19 @@ public abstract class ReferenceCountedOpenSslContext extends SslContext implemen
     ReferenceCountedOpenSslContext(Iterable<String> ciphers, CipherSuiteFilter cipherFilter,
                                    ApplicationProtocolConfig apnCfg, long sessionCacheSize, long sessionTimeout,
                                    int mode, Certificate[] keyCertChain, ClientAuth clientAuth, boolean startTls,
-                                   boolean leakDetection) throws SSLException {
+                                   boolean leakDetection, Executor delegatedTaskExecutor,
+                                   SslHandshakeLimiter handshakeLimiter) throws SSLException {
         this(ciphers, cipherFilter, toNegotiator(apnCfg), sessionCacheSize, sessionTimeout, mode, keyCertChain,
-                clientAuth, startTls, leakDetection);
+                clientAuth, startTls, leakDetection, delegatedTaskExecutor, handshakeLimiter);
     }
 
     ReferenceCountedOpenSslContext(Iterable<String> ciphers, CipherSuiteFilter cipherFilter,
                                    OpenSslApplicationProtocolNegotiator apn, long sessionCacheSize,
                                    long sessionTimeout, int mode, Certificate[] keyCertChain,
-                                   ClientAuth clientAuth, boolean startTls, boolean leakDetection) throws SSLException {
-        super(startTls);
+                                   ClientAuth clientAuth, boolean startTls, boolean leakDetection,
+                                   Executor delegatedTaskExecutor, SslHandshakeLimiter handshakeLimiter)
+            throws SSLException {
+        super(startTls, delegatedTaskExecutor, handshakeLimiter);
 
         OpenSsl.ensureAvailability();
 
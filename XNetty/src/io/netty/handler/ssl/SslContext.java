@@ -24,6 +24,7 @@ import io.netty.channel.ChannelPipeline;
 import io.netty.handler.ssl.ApplicationProtocolConfig.Protocol;
 import io.netty.handler.ssl.ApplicationProtocolConfig.SelectedListenerFailureBehavior;
 import io.netty.handler.ssl.ApplicationProtocolConfig.SelectorFailureBehavior;
+import io.netty.util.concurrent.ImmediateExecutor;
 import io.netty.util.internal.EmptyArrays;
 
 import javax.net.ssl.KeyManager;
@@ -60,6 +61,7 @@ import java.security.cert.X509Certificate;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * A secure socket protocol implementation which acts as a factory for {@link SSLEngine} and {@link SslHandler}.
@@ -94,6 +96,8 @@ public abstract class SslContext {
     }
 
     private final boolean startTls;
+    private final Executor delegatedTaskExecutor;
+    private final SslHandshakeLimiter handshakeLimiter;
 
     /**
      * Returns the default server-side implementation provider currently in use.
@@ -384,7 +388,8 @@ public abstract class SslContext {
                                             toX509Certificates(keyCertChainFile),
                                             toPrivateKey(keyFile, keyPassword),
                                             keyPassword, keyManagerFactory, ciphers, cipherFilter, apn,
-                                            sessionCacheSize, sessionTimeout, ClientAuth.NONE, false);
+                                            sessionCacheSize, sessionTimeout, ClientAuth.NONE, false,
+                                            ImmediateExecutor.INSTANCE, null);
         } catch (Exception e) {
             if (e instanceof SSLException) {
                 throw (SSLException) e;
@@ -398,7 +403,8 @@ public abstract class SslContext {
             X509Certificate[] trustCertCollection, TrustManagerFactory trustManagerFactory,
             X509Certificate[] keyCertChain, PrivateKey key, String keyPassword, KeyManagerFactory keyManagerFactory,
             Iterable<String> ciphers, CipherSuiteFilter cipherFilter, ApplicationProtocolConfig apn,
-            long sessionCacheSize, long sessionTimeout, ClientAuth clientAuth, boolean startTls) throws SSLException {
+            long sessionCacheSize, long sessionTimeout, ClientAuth clientAuth, boolean startTls,
+            Executor delegatedTaskExecutor, SslHandshakeLimiter handshakeLimiter) throws SSLException {
 
         if (provider == null) {
             provider = defaultServerProvider();
@@ -409,17 +415,17 @@ public abstract class SslContext {
             return new JdkSslServerContext(
                     trustCertCollection, trustManagerFactory, keyCertChain, key, keyPassword,
                     keyManagerFactory, ciphers, cipherFilter, apn, sessionCacheSize, sessionTimeout,
-                    clientAuth, startTls);
+                    clientAuth, startTls, delegatedTaskExecutor, handshakeLimiter);
         case OPENSSL:
             return new OpenSslServerContext(
                     trustCertCollection, trustManagerFactory, keyCertChain, key, keyPassword,
                     keyManagerFactory, ciphers, cipherFilter, apn, sessionCacheSize, sessionTimeout,
-                    clientAuth, startTls);
+                    clientAuth, startTls, delegatedTaskExecutor, handshakeLimiter);
         case OPENSSL_REFCNT:
             return new ReferenceCountedOpenSslServerContext(
                     trustCertCollection, trustManagerFactory, keyCertChain, key, keyPassword,
                     keyManagerFactory, ciphers, cipherFilter, apn, sessionCacheSize, sessionTimeout,
-                    clientAuth, startTls);
+                    clientAuth, startTls, delegatedTaskExecutor, handshakeLimiter);
         default:
             throw new Error(provider.toString());
         }
@@ -728,7 +734,7 @@ public abstract class SslContext {
                                             toX509Certificates(keyCertChainFile), toPrivateKey(keyFile, keyPassword),
                                             keyPassword, keyManagerFactory, ciphers, cipherFilter,
                                             apn,
-                                            sessionCacheSize, sessionTimeout);
+                                            sessionCacheSize, sessionTimeout, ImmediateExecutor.INSTANCE, null);
         } catch (Exception e) {
             if (e instanceof SSLException) {
                 throw (SSLException) e;
@@ -742,7 +748,8 @@ public abstract class SslContext {
             X509Certificate[] trustCert, TrustManagerFactory trustManagerFactory,
             X509Certificate[] keyCertChain, PrivateKey key, String keyPassword, KeyManagerFactory keyManagerFactory,
             Iterable<String> ciphers, CipherSuiteFilter cipherFilter, ApplicationProtocolConfig apn,
-            long sessionCacheSize, long sessionTimeout) throws SSLException {
+            long sessionCacheSize, long sessionTimeout,
+            Executor delegatedTaskExecutor, SslHandshakeLimiter handshakeLimiter) throws SSLException {
         if (provider == null) {
             provider = defaultClientProvider();
         }
@@ -750,15 +757,18 @@ public abstract class SslContext {
             case JDK:
                 return new JdkSslClientContext(
                         trustCert, trustManagerFactory, keyCertChain, key, keyPassword,
-                        keyManagerFactory, ciphers, cipherFilter, apn, sessionCacheSize, sessionTimeout);
+                        keyManagerFactory, ciphers, cipherFilter, apn, sessionCacheSize, sessionTimeout,
+                        delegatedTaskExecutor, handshakeLimiter);
             case OPENSSL:
                 return new OpenSslClientContext(
                         trustCert, trustManagerFactory, keyCertChain, key, keyPassword,
-                        keyManagerFactory, ciphers, cipherFilter, apn, sessionCacheSize, sessionTimeout);
+                        keyManagerFactory, ciphers, cipherFilter, apn, sessionCacheSize, sessionTimeout,
+                        delegatedTaskExecutor, handshakeLimiter);
             case OPENSSL_REFCNT:
                 return new ReferenceCountedOpenSslClientContext(
                         trustCert, trustManagerFactory, keyCertChain, key, keyPassword,
-                        keyManagerFactory, ciphers, cipherFilter, apn, sessionCacheSize, sessionTimeout);
+                        keyManagerFactory, ciphers, cipherFilter, apn, sessionCacheSize, sessionTimeout,
+                        delegatedTaskExecutor, handshakeLimiter);
             default:
                 throw new Error(provider.toString());
         }
@@ -787,7 +797,20 @@ public abstract class SslContext {
      * Creates a new instance.
      */
     protected SslContext(boolean startTls) {
+        this(startTls, ImmediateExecutor.INSTANCE, null);
+    }
+
+    /**
+     * Creates a new instance which passes the given {@link Executor} and {@link SslHandshakeLimiter} to the
+     * {@link SslHandler}s it creates.
+     */
+    SslContext(boolean startTls, Executor delegatedTaskExecutor, SslHandshakeLimiter handshakeLimiter) {
         this.startTls = startTls;
+        if (delegatedTaskExecutor == null) {
+            throw new NullPointerException("delegatedTaskExecutor");
+        }
+        this.delegatedTaskExecutor = delegatedTaskExecutor;
+        this.handshakeLimiter = handshakeLimiter;
     }
 
     /**
@@ -863,7 +886,7 @@ public abstract class SslContext {
      * @return a new {@link SslHandler}
      */
     public final SslHandler newHandler(ByteBufAllocator alloc) {
-        return new SslHandler(newEngine(alloc), startTls);
+        return new SslHandler(newEngine(alloc), startTls, delegatedTaskExecutor, handshakeLimiter);
     }
 
     /**
@@ -877,7 +900,8 @@ public abstract class SslContext {
      * @return a new {@link SslHandler}
      */
     public final SslHandler newHandler(ByteBufAllocator alloc, String peerHost, int peerPort) {
-        return new SslHandler(newEngine(alloc, peerHost, peerPort), startTls);
+        return new SslHandler(newEngine(alloc, peerHost, peerPort), startTls, delegatedTaskExecutor,
+                              handshakeLimiter);
     }
 
     /**
@@ -18,6 +18,8 @@ package io.netty.handler.ssl;
 
 import static io.netty.util.internal.ObjectUtil.checkNotNull;
 
+import io.netty.util.concurrent.ImmediateExecutor;
+
 import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.SSLException;
 import javax.net.ssl.TrustManagerFactory;
@@ -25,6 +27,7 @@ import java.io.File;
 import java.io.InputStream;
 import java.security.PrivateKey;
 import java.security.cert.X509Certificate;
+import java.util.concurrent.Executor;
 
 /**
  * Builder for configuring a new SslContext for creation.
@@ -138,6 +141,8 @@ public final class SslContextBuilder {
     private long sessionTimeout;
     private ClientAuth clientAuth = ClientAuth.NONE;
     private boolean startTls;
+    private Executor delegatedTaskExecutor = ImmediateExecutor.INSTANCE;
+    private SslHandshakeLimiter handshakeLimiter;
 
     private SslContextBuilder(boolean forServer) {
         this.forServer = forServer;
@@ -392,6 +397,25 @@ public final class SslContextBuilder {
         return this;
     }
 
+    /**
+     * Sets the {@link Executor} which runs the delegated tasks of the {@link javax.net.ssl.SSLEngine}, like the key
+     * exchange and certificate validation, so they do not block the {@link io.netty.channel.EventLoop}. The
+     * default runs them directly on the {@link io.netty.channel.EventLoop}.
+     */
+    public SslContextBuilder delegatedTaskExecutor(Executor delegatedTaskExecutor) {
+        this.delegatedTaskExecutor = checkNotNull(delegatedTaskExecutor, "delegatedTaskExecutor");
+        return this;
+    }
+
+    /**
+     * Sets the {@link SslHandshakeLimiter} which limits the number of concurrent handshakes per
+     * {@link io.netty.channel.EventLoop}, or {@code null} to not limit them, which is the default.
+     */
+    public SslContextBuilder handshakeLimiter(SslHandshakeLimiter handshakeLimiter) {
+        this.handshakeLimiter = handshakeLimiter;
+        return this;
+    }
+
     /**
      * Create new {@code SslContext} instance with configured settings.
      * <p>If {@link #sslProvider(SslProvider)} is set to {@link SslProvider#OPENSSL_REFCNT} then the caller is
@@ -401,11 +425,12 @@ public final class SslContextBuilder {
         if (forServer) {
             return SslContext.newServerContextInternal(provider, trustCertCollection,
                 trustManagerFactory, keyCertChain, key, keyPassword, keyManagerFactory,
-                ciphers, cipherFilter, apn, sessionCacheSize, sessionTimeout, clientAuth, startTls);
+                ciphers, cipherFilter, apn, sessionCacheSize, sessionTimeout, clientAuth, startTls,
+                delegatedTaskExecutor, handshakeLimiter);
         } else {
             return SslContext.newClientContextInternal(provider, trustCertCollection,
                 trustManagerFactory, keyCertChain, key, keyPassword, keyManagerFactory,
-                ciphers, cipherFilter, apn, sessionCacheSize, sessionTimeout);
+                ciphers, cipherFilter, apn, sessionCacheSize, sessionTimeout, delegatedTaskExecutor, handshakeLimiter);
         }
     }
 }
@@ -31,6 +31,7 @@ import io.netty.channel.ChannelOutboundHandler;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.ChannelPromise;
 import io.netty.channel.ChannelPromiseNotifier;
+import io.netty.channel.EventLoop;
 import io.netty.channel.PendingWriteQueue;
 import io.netty.handler.codec.ByteToMessageDecoder;
 import io.netty.handler.codec.UnsupportedMessageTypeException;
@@ -59,8 +60,8 @@ import java.nio.channels.DatagramChannel;
 import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
@@ -138,6 +139,16 @@ import static io.netty.handler.ssl.SslUtils.getEncryptedPacketLength;
  * <li>Initiate SSL handshake.</li>
  * </ol>
  *
+ * <h3>Offloading the handshake</h3>
+ * <p>
+ * The delegated tasks of the {@link SSLEngine}, which do the expensive key exchange and certificate validation,
+ * are run by the {@code delegatedTaskExecutor}. By default they are run directly on the {@link EventLoop}. If
+ * another {@link Executor} is given, the handshake of the {@link Channel} is suspended while the tasks run there,
+ * and resumed on the {@link EventLoop} once they are done, so the {@link EventLoop} can serve other
+ * {@link Channel}s in the meantime. An {@link SslHandshakeLimiter} can additionally cap the number of
+ * handshakes which are in progress on each {@link EventLoop}. While the handshake is suspended no more data is read
+ * from the {@link Channel}, so the received records do not pile up.
+ *
  * <h3>Known issues</h3>
  * <p>
  * Because of a known issue with the current implementation of the SslEngine that comes
@@ -183,6 +194,7 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
     private final SSLEngine engine;
     private final int maxPacketBufferSize;
     private final Executor delegatedTaskExecutor;
+    private final SslHandshakeLimiter handshakeLimiter;
 
     /**
      * Used if {@link SSLEngine#wrap(ByteBuffer[], ByteBuffer)} and {@link SSLEngine#unwrap(ByteBuffer, ByteBuffer[])}
@@ -214,6 +226,39 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
     private boolean readDuringHandshake;
     private PendingWriteQueue pendingUnencryptedWrites;
 
+    /**
+     * {@code true} while the delegated tasks of the {@link SSLEngine} run on the {@link #delegatedTaskExecutor}.
+     * The {@link SSLEngine} must not be used until they are done.
+     */
+    private boolean processTask;
+    /**
+     * {@code false} until the {@link #handshakeLimiter} gave this handler a slot for its initial handshake.
+     */
+    private boolean handshakeAdmitted;
+    private boolean waitingForHandshakeSlot;
+    private boolean holdsHandshakeSlot;
+    /**
+     * Set if {@link #flush(ChannelHandlerContext)} was called while the {@link SSLEngine} could not be used.
+     */
+    private boolean flushWhileSuspended;
+    /**
+     * Set while no more data is read because the {@link SSLEngine} could not be used.
+     */
+    private boolean readSuspended;
+    /**
+     * Set if {@link ChannelConfig#isAutoRead()} was disabled by {@link #suspendRead(ChannelHandlerContext)}.
+     */
+    private boolean autoReadSuspended;
+    /**
+     * Set if {@link #read(ChannelHandlerContext)} was called while reading was suspended.
+     */
+    private boolean readWhileSuspended;
+    /**
+     * The inbound records which were not unwrapped yet when the delegated tasks were handed to the
+     * {@link #delegatedTaskExecutor}.
+     */
+    private ByteBuf pendingUnwrap;
+
     private Promise<Channel> handshakePromise = new LazyChannelPromise();
     private final LazyChannelPromise sslCloseFuture = new LazyChannelPromise();
 
@@ -252,24 +297,44 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
      * @param startTls  {@code true} if the first write request shouldn't be
      *                  encrypted by the {@link SSLEngine}
      */
-    @SuppressWarnings("deprecation")
     public SslHandler(SSLEngine engine, boolean startTls) {
         this(engine, startTls, ImmediateExecutor.INSTANCE);
     }
 
     /**
-     * @deprecated Use {@link #SslHandler(SSLEngine)} instead.
+     * Creates a new instance.
+     *
+     * @param engine                the {@link SSLEngine} this handler will use
+     * @param delegatedTaskExecutor the {@link Executor} which runs the delegated tasks of the {@link SSLEngine}
      */
-    @Deprecated
     public SslHandler(SSLEngine engine, Executor delegatedTaskExecutor) {
         this(engine, false, delegatedTaskExecutor);
     }
 
     /**
-     * @deprecated Use {@link #SslHandler(SSLEngine, boolean)} instead.
+     * Creates a new instance.
+     *
+     * @param engine                the {@link SSLEngine} this handler will use
+     * @param startTls              {@code true} if the first write request shouldn't be
+     *                              encrypted by the {@link SSLEngine}
+     * @param delegatedTaskExecutor the {@link Executor} which runs the delegated tasks of the {@link SSLEngine}
      */
-    @Deprecated
     public SslHandler(SSLEngine engine, boolean startTls, Executor delegatedTaskExecutor) {
+        this(engine, startTls, delegatedTaskExecutor, null);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param engine                the {@link SSLEngine} this handler will use
+     * @param startTls              {@code true} if the first write request shouldn't be
+     *                              encrypted by the {@link SSLEngine}
+     * @param delegatedTaskExecutor the {@link Executor} which runs the delegated tasks of the {@link SSLEngine}
+     * @param handshakeLimiter      the {@link SslHandshakeLimiter} which the initial handshake must get a slot from
+     *                              or {@code null} if the number of handshakes should not be limited
+     */
+    public SslHandler(SSLEngine engine, boolean startTls, Executor delegatedTaskExecutor,
+                      SslHandshakeLimiter handshakeLimiter) {
         if (engine == null) {
             throw new NullPointerException("engine");
         }
@@ -278,6 +343,8 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
         }
         this.engine = engine;
         this.delegatedTaskExecutor = delegatedTaskExecutor;
+        this.handshakeLimiter = handshakeLimiter;
+        handshakeAdmitted = handshakeLimiter == null;
         this.startTls = startTls;
         maxPacketBufferSize = engine.getSession().getPacketBufferSize();
 
@@ -415,6 +482,12 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
             // Check if queue is not empty first because create a new ChannelException is expensive
             pendingUnencryptedWrites.removeAndFailAll(new ChannelException("Pending write on removal of SslHandler"));
         }
+        if (pendingUnwrap != null) {
+            pendingUnwrap.release();
+            pendingUnwrap = null;
+        }
+        releaseHandshakeSlot();
+        resumeRead(ctx);
         if (engine instanceof ReferenceCountedOpenSslEngine) {
             ((ReferenceCountedOpenSslEngine) engine).release();
         }
@@ -453,6 +526,10 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
         if (!handshakePromise.isDone()) {
             readDuringHandshake = true;
         }
+        if (readSuspended) {
+            readWhileSuspended = true;
+            return;
+        }
 
         ctx.read();
     }
@@ -486,6 +563,11 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
         if (!handshakePromise.isDone()) {
             flushedBeforeHandshake = true;
         }
+        if (processTask || !handshakeAdmitted) {
+            // Wrapped once the SSLEngine can be used again.
+            flushWhileSuspended = true;
+            return;
+        }
         try {
             wrap(ctx, false);
         } catch (Throwable cause) {
@@ -535,7 +617,11 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
 
                     switch (result.getHandshakeStatus()) {
                         case NEED_TASK:
-                            runDelegatedTasks();
+                            if (!runDelegatedTasks()) {
+                                // Continued by delegatedTasksDone().
+                                flushWhileSuspended = true;
+                                return;
+                            }
                             break;
                         case FINISHED:
                             setHandshakeSuccess();
@@ -592,6 +678,9 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
     }
 
     private void wrapNonAppData(ChannelHandlerContext ctx, boolean inUnwrap) throws SSLException {
+        if (processTask) {
+            return;
+        }
         ByteBuf out = null;
         ByteBufAllocator alloc = ctx.alloc();
         try {
@@ -616,7 +705,10 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
                         setHandshakeSuccess();
                         break;
                     case NEED_TASK:
-                        runDelegatedTasks();
+                        if (!runDelegatedTasks()) {
+                            // Continued by delegatedTasksDone().
+                            return;
+                        }
                         break;
                     case NEED_UNWRAP:
                         if (!inUnwrap) {
@@ -835,6 +927,11 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
 
     @Override
     protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws SSLException {
+        if (processTask || !handshakeAdmitted && !admitHandshake()) {
+            // Keep the records in the cumulation until the SSLEngine can be used again, but do not read any more.
+            suspendRead(ctx);
+            return;
+        }
         final int startOffset = in.readerIndex();
         final int endOffset = in.writerIndex();
         int offset = startOffset;
@@ -930,7 +1027,8 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
 
     private void readIfNeeded(ChannelHandlerContext ctx) {
         // If handshake is not finished yet, we need more data.
-        if (!ctx.channel().config().isAutoRead() && (!firedChannelRead || !handshakePromise.isDone())) {
+        if (!readSuspended && !ctx.channel().config().isAutoRead() &&
+                (!firedChannelRead || !handshakePromise.isDone())) {
             // No auto-read used and no message passed through the ChannelPipeline or the handhshake was not complete
             // yet, which means we need to trigger the read to ensure we not encounter any stalls.
             ctx.read();
@@ -1041,6 +1139,17 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
                         throw new IllegalStateException("unknown handshake status: " + handshakeStatus);
                 }
 
+                if (processTask) {
+                    // The delegated tasks were handed to the delegatedTaskExecutor, either directly or by
+                    // wrapNonAppData(...). Keep the records which follow for delegatedTasksDone().
+                    if (length > 0) {
+                        assert pendingUnwrap == null;
+                        pendingUnwrap = packet.copy(offset, length);
+                    }
+                    wrapLater = false;
+                    break;
+                }
+
                 if (status == Status.BUFFER_UNDERFLOW || consumed == 0 && produced == 0) {
                     if (handshakeStatus == HandshakeStatus.NEED_UNWRAP) {
                         // The underlying engine is starving so we need to feed it with more data.
@@ -1108,64 +1217,231 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
 
     /**
      * Fetches all delegated tasks from the {@link SSLEngine} and runs them via the {@link #delegatedTaskExecutor}.
-     * If the {@link #delegatedTaskExecutor} is {@link ImmediateExecutor}, just call {@link Runnable#run()} directly
-     * instead of using {@link Executor#execute(Runnable)}.  Otherwise, run the tasks via
-     * the {@link #delegatedTaskExecutor} and wait until the tasks are finished.
+     * If the {@link #delegatedTaskExecutor} is {@link ImmediateExecutor} or the {@link EventExecutor} of this
+     * handler, the tasks are run directly. Otherwise they are handed to the {@link #delegatedTaskExecutor} and the
+     * {@link SSLEngine} must not be used until {@link #delegatedTasksDone(Throwable)} is called.
+     *
+     * @return {@code true} if the tasks were run already, {@code false} if they were handed to the
+     *         {@link #delegatedTaskExecutor}
      */
-    private void runDelegatedTasks() {
-        if (delegatedTaskExecutor == ImmediateExecutor.INSTANCE) {
-            for (;;) {
-                Runnable task = engine.getDelegatedTask();
-                if (task == null) {
-                    break;
-                }
+    private boolean runDelegatedTasks() {
+        final Executor delegatedTaskExecutor = this.delegatedTaskExecutor;
+        if (delegatedTaskExecutor == ImmediateExecutor.INSTANCE || delegatedTaskExecutor == ctx.executor()) {
+            runDelegatedTasksNow();
+            return true;
+        }
 
-                task.run();
+        final List<Runnable> tasks = new ArrayList<Runnable>(2);
+        for (;;) {
+            final Runnable task = engine.getDelegatedTask();
+            if (task == null) {
+                break;
             }
-        } else {
-            final List<Runnable> tasks = new ArrayList<Runnable>(2);
-            for (;;) {
-                final Runnable task = engine.getDelegatedTask();
-                if (task == null) {
-                    break;
-                }
 
-                tasks.add(task);
-            }
+            tasks.add(task);
+        }
 
-            if (tasks.isEmpty()) {
-                return;
-            }
+        if (tasks.isEmpty()) {
+            return true;
+        }
 
-            final CountDownLatch latch = new CountDownLatch(1);
+        final EventExecutor executor = ctx.executor();
+        processTask = true;
+        try {
             delegatedTaskExecutor.execute(new Runnable() {
                 @Override
                 public void run() {
+                    Throwable cause = null;
                     try {
                         for (Runnable task: tasks) {
                             task.run();
                         }
-                    } catch (Exception e) {
-                        ctx.fireExceptionCaught(e);
-                    } finally {
-                        latch.countDown();
+                    } catch (Throwable t) {
+                        cause = t;
+                    }
+                    final Throwable error = cause;
+                    try {
+                        executor.execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                delegatedTasksDone(error);
+                            }
+                        });
+                    } catch (RejectedExecutionException e) {
+                        // The EventLoop was shut down, so is the Channel.
+                        logger.debug("Failed to resume the handshake after running the delegated tasks", e);
                     }
                 }
             });
+        } catch (RejectedExecutionException e) {
+            // The delegatedTaskExecutor is saturated or shut down, fall back to run the tasks on the EventLoop.
+            processTask = false;
+            for (Runnable task: tasks) {
+                task.run();
+            }
+            runDelegatedTasksNow();
+            return true;
+        }
+        return false;
+    }
+
+    private void runDelegatedTasksNow() {
+        for (;;) {
+            Runnable task = engine.getDelegatedTask();
+            if (task == null) {
+                break;
+            }
+
+            task.run();
+        }
+    }
+
+    /**
+     * Continues the handshake on the {@link EventExecutor} once the delegated tasks which were handed to the
+     * {@link #delegatedTaskExecutor} are done.
+     */
+    private void delegatedTasksDone(Throwable cause) {
+        assert processTask;
+        processTask = false;
+
+        ByteBuf pending = pendingUnwrap;
+        pendingUnwrap = null;
+        final ChannelHandlerContext ctx = this.ctx;
+        try {
+            if (ctx.isRemoved() || !ctx.channel().isActive()) {
+                return;
+            }
+            if (cause != null) {
+                setHandshakeFailure(ctx, cause);
+                ctx.fireExceptionCaught(cause);
+                return;
+            }
+
+            // Let unwrap(...) feed the SSLEngine with whatever it needs next, which may hand out new tasks.
+            if (pending != null) {
+                firedChannelRead = unwrap(ctx, pending, pending.readerIndex(), pending.readableBytes()) ||
+                        firedChannelRead;
+            } else {
+                firedChannelRead = unwrap(ctx, Unpooled.EMPTY_BUFFER, 0, 0) || firedChannelRead;
+            }
+            resumeSuspended(ctx);
+        } catch (Throwable t) {
+            setHandshakeFailure(ctx, t);
+            flushIfNeeded(ctx);
+            ctx.fireExceptionCaught(t);
+        } finally {
+            if (pending != null) {
+                pending.release();
+            }
+        }
+    }
+
+    /**
+     * Processes the writes and reads which arrived while the {@link SSLEngine} could not be used.
+     */
+    private void resumeSuspended(ChannelHandlerContext ctx) throws Exception {
+        if (processTask) {
+            return;
+        }
+        resumeRead(ctx);
+        if (flushWhileSuspended) {
+            flushWhileSuspended = false;
+            wrap(ctx, true);
+        }
+        if (internalBuffer().isReadable()) {
+            // Decode the records which were received in the meantime.
+            channelRead(ctx, Unpooled.EMPTY_BUFFER);
+        }
+        channelReadComplete(ctx);
+    }
 
-            boolean interrupted = false;
-            while (latch.getCount() != 0) {
+    /**
+     * Stops reading from the {@link Channel} until {@link #resumeRead(ChannelHandlerContext)} is called.
+     */
+    private void suspendRead(ChannelHandlerContext ctx) {
+        if (readSuspended) {
+            return;
+        }
+        readSuspended = true;
+        ChannelConfig config = ctx.channel().config();
+        if (config.isAutoRead()) {
+            autoReadSuspended = true;
+            config.setAutoRead(false);
+        }
+    }
+
+    private void resumeRead(ChannelHandlerContext ctx) {
+        if (!readSuspended) {
+            return;
+        }
+        readSuspended = false;
+        if (autoReadSuspended) {
+            autoReadSuspended = false;
+            readWhileSuspended = false;
+            // Triggers a read by itself.
+            ctx.channel().config().setAutoRead(true);
+        } else if (readWhileSuspended) {
+            readWhileSuspended = false;
+            ctx.read();
+        }
+    }
+
+    /**
+     * Takes a slot of the {@link #handshakeLimiter} for the initial handshake.
+     *
+     * @return {@code true} if the handshake may start, {@code false} if it has to wait for a slot
+     */
+    private boolean admitHandshake() {
+        if (handshakeAdmitted) {
+            return true;
+        }
+        if (waitingForHandshakeSlot) {
+            return false;
+        }
+        final EventExecutor executor = ctx.executor();
+        boolean acquired = handshakeLimiter.acquire(executor, new SslHandshakeLimiter.Waiter() {
+            @Override
+            public boolean admit() {
+                waitingForHandshakeSlot = false;
+                if (ctx.isRemoved() || handshakePromise.isDone()) {
+                    return false;
+                }
+                handshakeSlotTaken();
                 try {
-                    latch.await();
-                } catch (InterruptedException e) {
-                    // Interrupt later.
-                    interrupted = true;
+                    if (engine.getUseClientMode() && !startTls) {
+                        handshake(null);
+                    }
+                    resumeSuspended(ctx);
+                } catch (Throwable cause) {
+                    setHandshakeFailure(ctx, cause);
+                    ctx.fireExceptionCaught(cause);
                 }
+                return true;
             }
+        });
+        if (acquired) {
+            handshakeSlotTaken();
+            return true;
+        }
+        waitingForHandshakeSlot = true;
+        return false;
+    }
 
-            if (interrupted) {
-                Thread.currentThread().interrupt();
+    private void handshakeSlotTaken() {
+        handshakeAdmitted = true;
+        holdsHandshakeSlot = true;
+        handshakePromise.addListener(new FutureListener<Channel>() {
+            @Override
+            public void operationComplete(Future<Channel> future) {
+                releaseHandshakeSlot();
             }
+        });
+    }
+
+    private void releaseHandshakeSlot() {
+        if (holdsHandshakeSlot) {
+            holdsHandshakeSlot = false;
+            handshakeLimiter.release(ctx.executor());
         }
     }
 
@@ -1242,7 +1518,8 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
 
     private void closeOutboundAndChannel(
             final ChannelHandlerContext ctx, final ChannelPromise promise, boolean disconnect) throws Exception {
-        if (!ctx.channel().isActive()) {
+        // While the handshake is suspended no close_notify can be produced, so just close the connection.
+        if (!ctx.channel().isActive() || processTask || !handshakeAdmitted) {
             if (disconnect) {
                 ctx.disconnect(promise);
             } else {
@@ -1355,6 +1632,9 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
             // Not all SSLEngine implementations support calling beginHandshake multiple times while a handshake
             // is in progress. See https://github.com/netty/netty/issues/4718.
             return;
+        } else if (!admitHandshake()) {
+            // Started once the SslHandshakeLimiter has a free slot.
+            return;
         } else {
             // Forced to reuse the old handshake.
             p = handshakePromise;
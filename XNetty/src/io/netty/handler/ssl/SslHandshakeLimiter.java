@@ -0,0 +1,171 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.handler.ssl;
+
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.UnstableApi;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentMap;
+
+import static io.netty.util.internal.ObjectUtil.checkPositive;
+
+/**
+ * Limits the number of TLS handshakes which may be in progress at the same time on each
+ * {@link io.netty.channel.EventLoop}. An {@link SslHandler} which uses a limiter does not start processing its
+ * initial handshake before a slot is free, so a storm of new connections can not starve the established ones.
+ * The handshakes which have to wait are served in the order they arrived.
+ * <p>
+ * One instance is meant to be shared by all the {@link SslHandler}s of a server or client, for example by passing it
+ * to {@link SslContextBuilder#handshakeLimiter(SslHandshakeLimiter)}.
+ */
+@UnstableApi
+public final class SslHandshakeLimiter {
+
+    private final int maxHandshakesPerLoop;
+    private final ConcurrentMap<EventExecutor, LoopState> states = PlatformDependent.newConcurrentHashMap();
+
+    /**
+     * Creates a new instance.
+     *
+     * @param maxHandshakesPerLoop  the maximal number of handshakes which may be in progress on one
+     *                              {@link io.netty.channel.EventLoop}
+     */
+    public SslHandshakeLimiter(int maxHandshakesPerLoop) {
+        this.maxHandshakesPerLoop = checkPositive(maxHandshakesPerLoop, "maxHandshakesPerLoop");
+    }
+
+    /**
+     * Returns the maximal number of handshakes which may be in progress on one {@link io.netty.channel.EventLoop}.
+     */
+    public int maxHandshakesPerLoop() {
+        return maxHandshakesPerLoop;
+    }
+
+    /**
+     * Returns the number of handshakes which are in progress, over all {@link io.netty.channel.EventLoop}s.
+     */
+    public int activeHandshakes() {
+        int active = 0;
+        for (LoopState state: states.values()) {
+            active += state.active;
+        }
+        return active;
+    }
+
+    /**
+     * Returns the number of handshakes which wait for a free slot, over all {@link io.netty.channel.EventLoop}s.
+     */
+    public int queuedHandshakes() {
+        int queued = 0;
+        for (LoopState state: states.values()) {
+            queued += state.queued;
+        }
+        return queued;
+    }
+
+    /**
+     * Returns the number of handshakes which had to wait for a free slot since this limiter was created.
+     */
+    public long delayedHandshakes() {
+        long delayed = 0;
+        for (LoopState state: states.values()) {
+            delayed += state.delayed;
+        }
+        return delayed;
+    }
+
+    /**
+     * Takes a slot for a handshake on the given {@link EventExecutor} if one is free. Otherwise the {@link Waiter}
+     * is queued and admitted once a slot is released.
+     *
+     * @return {@code true} if the slot was taken, {@code false} if the {@link Waiter} was queued
+     */
+    boolean acquire(EventExecutor executor, Waiter waiter) {
+        assert executor.inEventLoop();
+        LoopState state = state(executor);
+        if (state.active < maxHandshakesPerLoop) {
+            state.active++;
+            return true;
+        }
+        state.waiters.add(waiter);
+        state.queued = state.waiters.size();
+        state.delayed++;
+        return false;
+    }
+
+    /**
+     * Releases a slot which was taken via {@link #acquire(EventExecutor, Waiter)} or handed to a {@link Waiter}.
+     */
+    void release(EventExecutor executor) {
+        assert executor.inEventLoop();
+        LoopState state = state(executor);
+        state.active--;
+        assert state.active >= 0;
+        while (state.active < maxHandshakesPerLoop) {
+            Waiter waiter = state.waiters.poll();
+            if (waiter == null) {
+                break;
+            }
+            state.queued = state.waiters.size();
+            state.active++;
+            if (!waiter.admit()) {
+                state.active--;
+            }
+        }
+    }
+
+    private LoopState state(EventExecutor executor) {
+        LoopState state = states.get(executor);
+        if (state == null) {
+            LoopState newState = new LoopState();
+            state = states.putIfAbsent(executor, newState);
+            if (state == null) {
+                state = newState;
+            }
+        }
+        return state;
+    }
+
+    @Override
+    public String toString() {
+        return "SslHandshakeLimiter(maxHandshakesPerLoop=" + maxHandshakesPerLoop +
+                ", active=" + activeHandshakes() + ", queued=" + queuedHandshakes() + ')';
+    }
+
+    /**
+     * A handshake which waits for a free slot.
+     */
+    interface Waiter {
+        /**
+         * Called on the {@link EventExecutor} once a slot was handed to this handshake.
+         *
+         * @return {@code false} if the handshake does not need the slot anymore, for example because the
+         *         {@link io.netty.channel.Channel} was closed in the meantime
+         */
+        boolean admit();
+    }
+
+    // Only modified by the EventExecutor the state belongs to.
+    private static final class LoopState {
+        final ArrayDeque<Waiter> waiters = new ArrayDeque<Waiter>();
+        volatile int active;
+        volatile int queued;
+        volatile long delayed;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.handler.ssl;
+
+import io.netty.util.internal.UnstableApi;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stores the state TLS session resumption depends on, like the session ticket keys which are managed by
+ * {@link OpenSslSessionTicketKeyRotator}. If all nodes behind a load balancer use a shared store a client can resume
+ * its session no matter on which node it lands.
+ * <p>
+ * Implementations must be thread-safe.
+ *
+ * @see LocalSslSessionStore
+ * @see FileSslSessionStore
+ */
+@UnstableApi
+public interface SslSessionStore {
+
+    /**
+     * Returns the value stored for the given key or {@code null} if there is none or it has expired.
+     */
+    byte[] get(byte[] key);
+
+    /**
+     * Stores the given value for the given key, replacing the value stored before. The value expires after the
+     * given time to live.
+     */
+    void put(byte[] key, byte[] value, long timeToLive, TimeUnit unit);
+
+    /**
+     * Removes the value stored for the given key, if any.
+     */
+    void remove(byte[] key);
+}
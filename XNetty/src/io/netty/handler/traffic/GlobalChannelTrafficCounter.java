@@ -15,8 +15,6 @@
  */
 package io.netty.handler.traffic;
 
-import io.netty.handler.traffic.GlobalChannelTrafficShapingHandler.PerChannel;
-
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
@@ -24,7 +22,8 @@ import java.util.concurrent.TimeUnit;
  * Version for {@link GlobalChannelTrafficShapingHandler}.
  * This TrafficCounter is the Global one, and its special property is to directly handle
  * other channel's TrafficCounters. In particular, there are no scheduler for those
- * channel's TrafficCounters because it is managed by this one.
+ * channel's TrafficCounters because they are reset by the event loop of the channel
+ * while this one is active.
  */
 public class GlobalChannelTrafficCounter extends TrafficCounter {
     /**
@@ -72,11 +71,7 @@ public class GlobalChannelTrafficCounter extends TrafficCounter {
             if (!counter.monitorActive) {
                 return;
             }
-            long newLastTime = milliSecondFromNano();
-            counter.resetAccounting(newLastTime);
-            for (PerChannel perChannel : trafficShapingHandler1.channelQueues.values()) {
-                perChannel.channelTrafficCounter.resetAccounting(newLastTime);
-            }
+            counter.resetAccounting(milliSecondFromNano());
             trafficShapingHandler1.doAccounting(counter);
             counter.scheduledFuture = counter.executor.schedule(this, counter.checkInterval.get(),
                                                                 TimeUnit.MILLISECONDS);
@@ -119,10 +114,7 @@ public class GlobalChannelTrafficCounter extends TrafficCounter {
 
     @Override
     public void resetCumulativeTime() {
-        for (PerChannel perChannel :
-            ((GlobalChannelTrafficShapingHandler) trafficShapingHandler).channelQueues.values()) {
-            perChannel.channelTrafficCounter.resetCumulativeTime();
-        }
+        ((GlobalChannelTrafficShapingHandler) trafficShapingHandler).resetCumulativeTime();
         super.resetCumulativeTime();
     }
 
@@ -23,6 +23,7 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPromise;
 import io.netty.util.Attribute;
 import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.ScheduledFuture;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
@@ -31,9 +32,11 @@ import java.util.AbstractCollection;
 import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -81,16 +84,43 @@ import java.util.concurrent.atomic.AtomicLong;
  * </ul><br>
  *
  * Be sure to call {@link #release()} once this handler is not needed anymore to release all internal resources.
- * This will not shutdown the {@link EventExecutor} as it may be shared, so you need to do this by your own.
+ * This will not shutdown the {@link EventExecutor} as it may be shared, so you need to do this by your own.<br><br>
+ *
+ * The state of the channels is sharded by the {@link EventExecutor} of their {@link ChannelHandlerContext}, so
+ * reads and writes do not touch state which is shared between event loops. Each shard borrows from the global
+ * limits in batches of a hundredth of a second of traffic, which may let the global traffic exceed the limits by
+ * at most one such batch per event loop. The per channel counters are reset by a task on their own event loop, and
+ * the global {@link TrafficCounter} receives the bytes of each shard in batches as well.
  */
 @Sharable
 public class GlobalChannelTrafficShapingHandler extends AbstractTrafficShapingHandler {
     private static final InternalLogger logger =
             InternalLoggerFactory.getInstance(GlobalChannelTrafficShapingHandler.class);
     /**
-     * All queues per channel
+     * Number of batches in which a shard borrows one second of traffic from the global limits
+     */
+    private static final long BUDGET_BATCHES_PER_SECOND = 100;
+
+    /**
+     * Number of bytes a shard collects before it reports them to the global {@link TrafficCounter}
+     */
+    private static final long STATISTICS_BATCH_SIZE = 64 * 1024;
+
+    /**
+     * All shards, one per {@link EventExecutor} which handles channels of this handler
+     */
+    final ConcurrentMap<EventExecutor, Shard> shards = PlatformDependent.newConcurrentHashMap();
+
+    /**
+     * Incremented to reset the cumulative counters of all channels, which is done lazily by their shards
+     */
+    private final AtomicInteger cumulativeTimeGeneration = new AtomicInteger();
+
+    /**
+     * Global budgets which are shared by all shards
      */
-    final ConcurrentMap<Integer, PerChannel> channelQueues = PlatformDependent.newConcurrentHashMap();
+    private final GlobalBudget writeBudget = new GlobalBudget();
+    private final GlobalBudget readBudget = new GlobalBudget();
 
     /**
      * Global queues size
@@ -139,6 +169,231 @@ public class GlobalChannelTrafficShapingHandler extends AbstractTrafficShapingHa
         long queueSize;
         long lastWriteTimestamp;
         long lastReadTimestamp;
+        int cumulativeTimeGeneration;
+    }
+
+    /**
+     * The channels of one {@link EventExecutor} and their share of the global limits. Apart from
+     * {@link #channels} and the published statistics this is only used from the {@link EventExecutor}.
+     */
+    final class Shard implements Runnable {
+        final EventExecutor executor;
+        final ConcurrentMap<Integer, PerChannel> channels = PlatformDependent.newConcurrentHashMap();
+
+        private long writeTokens;
+        private long writeTokensLimit;
+        private long readTokens;
+        private long readTokensLimit;
+
+        private long unreportedWrittenBytes;
+        private long unreportedRealWrittenBytes;
+        private long unreportedReadBytes;
+
+        private ScheduledFuture<?> scheduledFuture;
+        private boolean removed;
+
+        // Published by the accounting task for computeDeviationCumulativeBytes()
+        volatile long maxWrittenBytes;
+        volatile long minWrittenBytes = Long.MAX_VALUE;
+        volatile long maxReadBytes;
+        volatile long minReadBytes = Long.MAX_VALUE;
+
+        Shard(EventExecutor executor) {
+            this.executor = executor;
+        }
+
+        void scheduleIfNeeded() {
+            if (scheduledFuture == null && trafficCounter.monitorActive) {
+                scheduledFuture = executor.schedule(this, checkInterval, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        /**
+         * Removes this shard once its last channel was removed, so it does not keep an idle accounting task.
+         */
+        void removeIfEmpty() {
+            if (!channels.isEmpty()) {
+                return;
+            }
+            removed = true;
+            shards.remove(executor, this);
+            reportStatistics();
+            if (scheduledFuture != null) {
+                scheduledFuture.cancel(false);
+                scheduledFuture = null;
+            }
+        }
+
+        PerChannel get(Integer key) {
+            PerChannel perChannel = channels.get(key);
+            if (perChannel != null) {
+                int generation = cumulativeTimeGeneration.get();
+                if (perChannel.cumulativeTimeGeneration != generation) {
+                    perChannel.cumulativeTimeGeneration = generation;
+                    perChannel.channelTrafficCounter.resetCumulativeTime();
+                }
+            }
+            return perChannel;
+        }
+
+        /**
+         * Returns the time to wait in ms before the given number of bytes may be written without exceeding the
+         * global write limit.
+         */
+        long writeTimeToWait(long size, long limit) {
+            unreportedWrittenBytes += size;
+            if (unreportedWrittenBytes >= STATISTICS_BATCH_SIZE) {
+                reportStatistics();
+            }
+            if (limit == 0) {
+                return 0;
+            }
+            if (writeTokensLimit != limit) {
+                writeTokensLimit = limit;
+                writeTokens = 0;
+            }
+            if (writeTokens >= size) {
+                writeTokens -= size;
+                return 0;
+            }
+            long needed = size - writeTokens;
+            long batch = Math.max(needed, limit / BUDGET_BATCHES_PER_SECOND);
+            writeTokens = batch - needed;
+            return Math.min(writeBudget.borrow(batch, limit), maxTime);
+        }
+
+        /**
+         * Returns the time to wait in ms before the given number of bytes may be read without exceeding the
+         * global read limit.
+         */
+        long readTimeToWait(long size, long limit) {
+            unreportedReadBytes += size;
+            if (unreportedReadBytes >= STATISTICS_BATCH_SIZE) {
+                reportStatistics();
+            }
+            if (limit == 0) {
+                return 0;
+            }
+            if (readTokensLimit != limit) {
+                readTokensLimit = limit;
+                readTokens = 0;
+            }
+            if (readTokens >= size) {
+                readTokens -= size;
+                return 0;
+            }
+            long needed = size - readTokens;
+            long batch = Math.max(needed, limit / BUDGET_BATCHES_PER_SECOND);
+            readTokens = batch - needed;
+            return Math.min(readBudget.borrow(batch, limit), maxTime);
+        }
+
+        void bytesRealWriteFlowControl(long size) {
+            unreportedRealWrittenBytes += size;
+            if (unreportedRealWrittenBytes >= STATISTICS_BATCH_SIZE) {
+                reportStatistics();
+            }
+        }
+
+        private void reportStatistics() {
+            if (unreportedWrittenBytes != 0) {
+                trafficCounter.bytesWriteFlowControl(unreportedWrittenBytes);
+                unreportedWrittenBytes = 0;
+            }
+            if (unreportedRealWrittenBytes != 0) {
+                trafficCounter.bytesRealWriteFlowControl(unreportedRealWrittenBytes);
+                unreportedRealWrittenBytes = 0;
+            }
+            if (unreportedReadBytes != 0) {
+                trafficCounter.bytesRecvFlowControl(unreportedReadBytes);
+                unreportedReadBytes = 0;
+            }
+        }
+
+        /**
+         * The accounting task of this shard, which resets the counters of its channels every check interval.
+         */
+        @Override
+        public void run() {
+            reportStatistics();
+            if (removed) {
+                return;
+            }
+            if (!trafficCounter.monitorActive) {
+                scheduledFuture = null;
+                return;
+            }
+            long now = TrafficCounter.milliSecondFromNano();
+            long maxWrittenBytes = 0;
+            long maxReadBytes = 0;
+            long minWrittenBytes = Long.MAX_VALUE;
+            long minReadBytes = Long.MAX_VALUE;
+            for (Integer key : channels.keySet()) {
+                PerChannel perChannel = get(key);
+                if (perChannel == null) {
+                    continue;
+                }
+                TrafficCounter counter = perChannel.channelTrafficCounter;
+                counter.resetAccounting(now);
+                long value = counter.cumulativeWrittenBytes();
+                maxWrittenBytes = Math.max(maxWrittenBytes, value);
+                minWrittenBytes = Math.min(minWrittenBytes, value);
+                value = counter.cumulativeReadBytes();
+                maxReadBytes = Math.max(maxReadBytes, value);
+                minReadBytes = Math.min(minReadBytes, value);
+            }
+            this.maxWrittenBytes = maxWrittenBytes;
+            this.minWrittenBytes = minWrittenBytes;
+            this.maxReadBytes = maxReadBytes;
+            this.minReadBytes = minReadBytes;
+            scheduledFuture = executor.schedule(this, checkInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * A global limit which the shards borrow from in batches. The budget is tracked as the time at which all the
+     * bytes which were borrowed so far are sent at the limit, so borrowing is a single compare-and-set.
+     */
+    private static final class GlobalBudget {
+        private final AtomicLong sentAt = new AtomicLong(System.nanoTime());
+
+        /**
+         * Borrows the given number of bytes and returns the time in ms to wait until they are within the limit.
+         */
+        long borrow(long bytes, long limit) {
+            long nanoNow = System.nanoTime();
+            long duration = bytes < Long.MAX_VALUE / 1000000000L ?
+                    bytes * 1000000000L / limit : bytes / limit * 1000000000L;
+            for (;;) {
+                long last = sentAt.get();
+                // Unused budget is not accumulated, so an idle period does not allow a burst afterwards.
+                long start = last - nanoNow > 0 ? last : nanoNow;
+                if (sentAt.compareAndSet(last, start + duration)) {
+                    return (start - nanoNow) / 1000000;
+                }
+            }
+        }
+    }
+
+    Shard shard(ChannelHandlerContext ctx) {
+        EventExecutor executor = ctx.executor();
+        Shard shard = shards.get(executor);
+        if (shard == null) {
+            shard = new Shard(executor);
+            Shard old = shards.putIfAbsent(executor, shard);
+            if (old != null) {
+                shard = old;
+            }
+        }
+        shard.scheduleIfNeeded();
+        return shard;
+    }
+
+    /**
+     * Reset the cumulative counters of all channels, which is done by their shards the next time they are used.
+     */
+    void resetCumulativeTime() {
+        cumulativeTimeGeneration.incrementAndGet();
     }
 
     /**
@@ -311,28 +566,20 @@ public class GlobalChannelTrafficShapingHandler extends AbstractTrafficShapingHa
     }
 
     private void computeDeviationCumulativeBytes() {
-        // compute the maximum cumulativeXxxxBytes among still connected Channels
+        // compute the maximum cumulativeXxxxBytes among still connected Channels, as last published by the shards
         long maxWrittenBytes = 0;
         long maxReadBytes = 0;
         long minWrittenBytes = Long.MAX_VALUE;
         long minReadBytes = Long.MAX_VALUE;
-        for (PerChannel perChannel : channelQueues.values()) {
-            long value = perChannel.channelTrafficCounter.cumulativeWrittenBytes();
-            if (maxWrittenBytes < value) {
-                maxWrittenBytes = value;
-            }
-            if (minWrittenBytes > value) {
-                minWrittenBytes = value;
-            }
-            value = perChannel.channelTrafficCounter.cumulativeReadBytes();
-            if (maxReadBytes < value) {
-                maxReadBytes = value;
-            }
-            if (minReadBytes > value) {
-                minReadBytes = value;
-            }
+        int channels = 0;
+        for (Shard shard : shards.values()) {
+            maxWrittenBytes = Math.max(maxWrittenBytes, shard.maxWrittenBytes);
+            minWrittenBytes = Math.min(minWrittenBytes, shard.minWrittenBytes);
+            maxReadBytes = Math.max(maxReadBytes, shard.maxReadBytes);
+            minReadBytes = Math.min(minReadBytes, shard.minReadBytes);
+            channels += shard.channels.size();
         }
-        boolean multiple = channelQueues.size() > 1;
+        boolean multiple = channels > 1;
         readDeviationActive = multiple && minReadBytes < maxReadBytes / 2;
         writeDeviationActive = multiple && minWrittenBytes < maxWrittenBytes / 2;
         cumulativeWrittenBytes.set(maxWrittenBytes);
@@ -406,8 +653,8 @@ public class GlobalChannelTrafficShapingHandler extends AbstractTrafficShapingHa
         writeChannelLimit = newWriteLimit;
         readChannelLimit = newReadLimit;
         long now = TrafficCounter.milliSecondFromNano();
-        for (PerChannel perChannel : channelQueues.values()) {
-            perChannel.channelTrafficCounter.resetAccounting(now);
+        for (TrafficCounter counter : channelTrafficCounters()) {
+            counter.resetAccounting(now);
         }
     }
 
@@ -424,8 +671,8 @@ public class GlobalChannelTrafficShapingHandler extends AbstractTrafficShapingHa
     public void setWriteChannelLimit(long writeLimit) {
         writeChannelLimit = writeLimit;
         long now = TrafficCounter.milliSecondFromNano();
-        for (PerChannel perChannel : channelQueues.values()) {
-            perChannel.channelTrafficCounter.resetAccounting(now);
+        for (TrafficCounter counter : channelTrafficCounters()) {
+            counter.resetAccounting(now);
         }
     }
 
@@ -442,8 +689,8 @@ public class GlobalChannelTrafficShapingHandler extends AbstractTrafficShapingHa
     public void setReadChannelLimit(long readLimit) {
         readChannelLimit = readLimit;
         long now = TrafficCounter.milliSecondFromNano();
-        for (PerChannel perChannel : channelQueues.values()) {
-            perChannel.channelTrafficCounter.resetAccounting(now);
+        for (TrafficCounter counter : channelTrafficCounters()) {
+            counter.resetAccounting(now);
         }
     }
 
@@ -454,11 +701,11 @@ public class GlobalChannelTrafficShapingHandler extends AbstractTrafficShapingHa
         trafficCounter.stop();
     }
 
-    private PerChannel getOrSetPerChannel(ChannelHandlerContext ctx) {
+    private PerChannel getOrSetPerChannel(ChannelHandlerContext ctx, Shard shard) {
         // ensure creation is limited to one thread per channel
         Channel channel = ctx.channel();
         Integer key = channel.hashCode();
-        PerChannel perChannel = channelQueues.get(key);
+        PerChannel perChannel = shard.get(key);
         if (perChannel == null) {
             perChannel = new PerChannel();
             perChannel.messagesQueue = new ArrayDeque<ToSend>();
@@ -468,14 +715,15 @@ public class GlobalChannelTrafficShapingHandler extends AbstractTrafficShapingHa
             perChannel.queueSize = 0L;
             perChannel.lastReadTimestamp = TrafficCounter.milliSecondFromNano();
             perChannel.lastWriteTimestamp = perChannel.lastReadTimestamp;
-            channelQueues.put(key, perChannel);
+            perChannel.cumulativeTimeGeneration = cumulativeTimeGeneration.get();
+            shard.channels.put(key, perChannel);
         }
         return perChannel;
     }
 
     @Override
     public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
-        getOrSetPerChannel(ctx);
+        getOrSetPerChannel(ctx, shard(ctx));
         trafficCounter.resetCumulativeTime();
         super.handlerAdded(ctx);
     }
@@ -485,14 +733,15 @@ public class GlobalChannelTrafficShapingHandler extends AbstractTrafficShapingHa
         trafficCounter.resetCumulativeTime();
         Channel channel = ctx.channel();
         Integer key = channel.hashCode();
-        PerChannel perChannel = channelQueues.remove(key);
+        Shard shard = shard(ctx);
+        PerChannel perChannel = shard.channels.remove(key);
         if (perChannel != null) {
             // write operations need synchronization
             synchronized (perChannel) {
                 if (channel.isActive()) {
                     for (ToSend toSend : perChannel.messagesQueue) {
                         long size = calculateSize(toSend.toSend);
-                        trafficCounter.bytesRealWriteFlowControl(size);
+                        shard.bytesRealWriteFlowControl(size);
                         perChannel.channelTrafficCounter.bytesRealWriteFlowControl(size);
                         perChannel.queueSize -= size;
                         queuesSize.addAndGet(-size);
@@ -509,6 +758,7 @@ public class GlobalChannelTrafficShapingHandler extends AbstractTrafficShapingHa
                 perChannel.messagesQueue.clear();
             }
         }
+        shard.removeIfEmpty();
         releaseWriteSuspended(ctx);
         releaseReadSuspended(ctx);
         super.handlerRemoved(ctx);
@@ -520,9 +770,10 @@ public class GlobalChannelTrafficShapingHandler extends AbstractTrafficShapingHa
         long now = TrafficCounter.milliSecondFromNano();
         if (size > 0) {
             // compute the number of ms to wait before reopening the channel
-            long waitGlobal = trafficCounter.readTimeToWait(size, getReadLimit(), maxTime, now);
+            Shard shard = shard(ctx);
+            long waitGlobal = shard.readTimeToWait(size, getReadLimit());
             Integer key = ctx.channel().hashCode();
-            PerChannel perChannel = channelQueues.get(key);
+            PerChannel perChannel = shard.get(key);
             long wait = 0;
             if (perChannel != null) {
                 wait = perChannel.channelTrafficCounter.readTimeToWait(size, readChannelLimit, maxTime, now);
@@ -578,7 +829,7 @@ public class GlobalChannelTrafficShapingHandler extends AbstractTrafficShapingHa
     @Override
     protected long checkWaitReadTime(final ChannelHandlerContext ctx, long wait, final long now) {
         Integer key = ctx.channel().hashCode();
-        PerChannel perChannel = channelQueues.get(key);
+        PerChannel perChannel = shard(ctx).channels.get(key);
         if (perChannel != null) {
             if (wait > maxTime && now + wait - perChannel.lastReadTimestamp > maxTime) {
                 wait = maxTime;
@@ -590,7 +841,7 @@ public class GlobalChannelTrafficShapingHandler extends AbstractTrafficShapingHa
     @Override
     protected void informReadOperation(final ChannelHandlerContext ctx, final long now) {
         Integer key = ctx.channel().hashCode();
-        PerChannel perChannel = channelQueues.get(key);
+        PerChannel perChannel = shard(ctx).channels.get(key);
         if (perChannel != null) {
             perChannel.lastReadTimestamp = now;
         }
@@ -627,13 +878,23 @@ public class GlobalChannelTrafficShapingHandler extends AbstractTrafficShapingHa
             @Override
             public Iterator<TrafficCounter> iterator() {
                 return new Iterator<TrafficCounter>() {
-                    final Iterator<PerChannel> iter = channelQueues.values().iterator();
+                    final Iterator<Shard> shardIter = shards.values().iterator();
+                    Iterator<PerChannel> iter;
                     @Override
                     public boolean hasNext() {
-                        return iter.hasNext();
+                        while (iter == null || !iter.hasNext()) {
+                            if (!shardIter.hasNext()) {
+                                return false;
+                            }
+                            iter = shardIter.next().channels.values().iterator();
+                        }
+                        return true;
                     }
                     @Override
                     public TrafficCounter next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
                         return iter.next().channelTrafficCounter;
                     }
                     @Override
@@ -644,7 +905,11 @@ public class GlobalChannelTrafficShapingHandler extends AbstractTrafficShapingHa
             }
             @Override
             public int size() {
-                return channelQueues.size();
+                int size = 0;
+                for (Shard shard : shards.values()) {
+                    size += shard.channels.size();
+                }
+                return size;
             }
         };
     }
@@ -656,9 +921,10 @@ public class GlobalChannelTrafficShapingHandler extends AbstractTrafficShapingHa
         long now = TrafficCounter.milliSecondFromNano();
         if (size > 0) {
             // compute the number of ms to wait before continue with the channel
-            long waitGlobal = trafficCounter.writeTimeToWait(size, getWriteLimit(), maxTime, now);
+            Shard shard = shard(ctx);
+            long waitGlobal = shard.writeTimeToWait(size, getWriteLimit());
             Integer key = ctx.channel().hashCode();
-            PerChannel perChannel = channelQueues.get(key);
+            PerChannel perChannel = shard.get(key);
             long wait = 0;
             if (perChannel != null) {
                 wait = perChannel.channelTrafficCounter.writeTimeToWait(size, writeChannelLimit, maxTime, now);
@@ -698,11 +964,12 @@ public class GlobalChannelTrafficShapingHandler extends AbstractTrafficShapingHa
             final ChannelPromise promise) {
         Channel channel = ctx.channel();
         Integer key = channel.hashCode();
-        PerChannel perChannel = channelQueues.get(key);
+        final Shard shard = shard(ctx);
+        PerChannel perChannel = shard.channels.get(key);
         if (perChannel == null) {
             // in case write occurs before handlerAdded is raized for this handler
             // imply a synchronized only if needed
-            perChannel = getOrSetPerChannel(ctx);
+            perChannel = getOrSetPerChannel(ctx, shard);
         }
         final ToSend newToSend;
         long delay = writedelay;
@@ -710,7 +977,7 @@ public class GlobalChannelTrafficShapingHandler extends AbstractTrafficShapingHa
         // write operations need synchronization
         synchronized (perChannel) {
             if (writedelay == 0 && perChannel.messagesQueue.isEmpty()) {
-                trafficCounter.bytesRealWriteFlowControl(size);
+                shard.bytesRealWriteFlowControl(size);
                 perChannel.channelTrafficCounter.bytesRealWriteFlowControl(size);
                 ctx.write(msg, promise);
                 perChannel.lastWriteTimestamp = now;
@@ -736,19 +1003,20 @@ public class GlobalChannelTrafficShapingHandler extends AbstractTrafficShapingHa
         ctx.executor().schedule(new Runnable() {
             @Override
             public void run() {
-                sendAllValid(ctx, forSchedule, futureNow);
+                sendAllValid(ctx, shard, forSchedule, futureNow);
             }
         }, delay, TimeUnit.MILLISECONDS);
     }
 
-    private void sendAllValid(final ChannelHandlerContext ctx, final PerChannel perChannel, final long now) {
+    private void sendAllValid(final ChannelHandlerContext ctx, final Shard shard, final PerChannel perChannel,
+                              final long now) {
         // write operations need synchronization
         synchronized (perChannel) {
             ToSend newToSend = perChannel.messagesQueue.pollFirst();
             for (; newToSend != null; newToSend = perChannel.messagesQueue.pollFirst()) {
                 if (newToSend.relativeTimeAction <= now) {
                     long size = newToSend.size;
-                    trafficCounter.bytesRealWriteFlowControl(size);
+                    shard.bytesRealWriteFlowControl(size);
                     perChannel.channelTrafficCounter.bytesRealWriteFlowControl(size);
                     perChannel.queueSize -= size;
                     queuesSize.addAndGet(-size);
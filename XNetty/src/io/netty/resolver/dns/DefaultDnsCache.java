@@ -17,31 +17,74 @@ package io.netty.resolver.dns;
 
 import io.netty.channel.EventLoop;
 import io.netty.handler.codec.dns.DnsRecord;
+import io.netty.util.internal.LongCounter;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.UnstableApi;
 
 import java.net.InetAddress;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 import static io.netty.util.internal.ObjectUtil.checkNotNull;
+import static io.netty.util.internal.ObjectUtil.checkPositive;
 import static io.netty.util.internal.ObjectUtil.checkPositiveOrZero;
 
 /**
  * Default implementation of {@link DnsCache}, backed by a {@link ConcurrentMap}.
  * If any additional {@link DnsRecord} is used, no caching takes place.
+ * <p>
+ * The number of cached hostnames can be bounded, in which case the least recently used ones are evicted following
+ * the CLOCK (second chance) approximation of LRU, so lookups never need to take a lock. Expired hostnames are
+ * reclaimed by a single timing wheel which is advanced once a second, instead of a scheduled task per entry.
+ * <p>
+ * If prefetching is enabled, a hostname which was looked up repeatedly is resolved again in the background once
+ * less than a tenth of its TTL is left, so hot hostnames never expire while they are in use.
  */
 @UnstableApi
 public class DefaultDnsCache implements DnsCache {
 
-    private final ConcurrentMap<String, List<DnsCacheEntry>> resolveCache = PlatformDependent.newConcurrentHashMap();
+    // Ticks of 2^30 nanoseconds, which is about a second.
+    private static final int TICK_SHIFT = 30;
+    private static final int WHEEL_SIZE = 512;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int PREFETCH_FRACTION = 10;
+    private static final int PREFETCH_MIN_HITS = 2;
+
+    private final ConcurrentMap<String, Entries> resolveCache = PlatformDependent.newConcurrentHashMap();
     private final int minTtl;
     private final int maxTtl;
     private final int negativeTtl;
+    private final int maxSize;
+    private final boolean prefetch;
+
+    private final LongCounter hits = PlatformDependent.newLongCounter();
+    private final LongCounter misses = PlatformDependent.newLongCounter();
+    private final LongCounter prefetches = PlatformDependent.newLongCounter();
+    private final LongCounter evictions = PlatformDependent.newLongCounter();
+
+    // Guards all modifications of resolveCache and the fields below. Lookups do not need it.
+    private final Object lock = new Object();
+    private final ArrayDeque<Entries> clock = new ArrayDeque<Entries>();
+    @SuppressWarnings("unchecked")
+    private final List<Entries>[] wheel = new List[WHEEL_SIZE];
+    private final Runnable expireTask = new Runnable() {
+        @Override
+        public void run() {
+            expire();
+        }
+    };
+    private int size;
+    // The number of removed Entries which are still in the clock.
+    private int removedInClock;
+    private long currentTick;
+    private ScheduledFuture<?> expireFuture;
 
     /**
      * Create a cache that respects the TTL returned by the DNS server
@@ -58,6 +101,18 @@ public class DefaultDnsCache implements DnsCache {
      * @param negativeTtl the TTL for failed queries
      */
     public DefaultDnsCache(int minTtl, int maxTtl, int negativeTtl) {
+        this(minTtl, maxTtl, negativeTtl, Integer.MAX_VALUE, false);
+    }
+
+    /**
+     * Create a cache.
+     * @param minTtl the minimum TTL
+     * @param maxTtl the maximum TTL
+     * @param negativeTtl the TTL for failed queries
+     * @param maxSize the maximum number of cached hostnames
+     * @param prefetch {@code true} if hostnames which are in use should be resolved again before they expire
+     */
+    public DefaultDnsCache(int minTtl, int maxTtl, int negativeTtl, int maxSize, boolean prefetch) {
         this.minTtl = checkPositiveOrZero(minTtl, "minTtl");
         this.maxTtl = checkPositiveOrZero(maxTtl, "maxTtl");
         if (minTtl > maxTtl) {
@@ -65,6 +120,8 @@ public class DefaultDnsCache implements DnsCache {
                     "minTtl: " + minTtl + ", maxTtl: " + maxTtl + " (expected: 0 <= minTtl <= maxTtl)");
         }
         this.negativeTtl = checkPositiveOrZero(negativeTtl, "negativeTtl");
+        this.maxSize = checkPositive(maxSize, "maxSize");
+        this.prefetch = prefetch;
     }
 
     /**
@@ -93,28 +150,83 @@ public class DefaultDnsCache implements DnsCache {
         return negativeTtl;
     }
 
+    /**
+     * Returns the maximum number of cached hostnames. The default value is {@link Integer#MAX_VALUE}.
+     */
+    public int maxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Returns {@code true} if hostnames which are in use are resolved again before they expire.
+     */
+    public boolean isPrefetch() {
+        return prefetch;
+    }
+
+    /**
+     * Returns the number of cached hostnames.
+     */
+    public int size() {
+        synchronized (lock) {
+            return size;
+        }
+    }
+
+    /**
+     * Returns the number of lookups which were answered from the cache.
+     */
+    public long hits() {
+        return hits.value();
+    }
+
+    /**
+     * Returns the number of lookups which could not be answered from the cache.
+     */
+    public long misses() {
+        return misses.value();
+    }
+
+    /**
+     * Returns the number of hostnames which were resolved again before they expired.
+     */
+    public long prefetches() {
+        return prefetches.value();
+    }
+
+    /**
+     * Returns the number of hostnames which were removed from the cache before they expired to stay within
+     * {@link #maxSize()}.
+     */
+    public long evictions() {
+        return evictions.value();
+    }
+
     @Override
     public void clear() {
-        for (Iterator<Map.Entry<String, List<DnsCacheEntry>>> i = resolveCache.entrySet().iterator(); i.hasNext();) {
-            final Map.Entry<String, List<DnsCacheEntry>> e = i.next();
-            i.remove();
-            cancelExpiration(e.getValue());
+        synchronized (lock) {
+            for (Iterator<Entries> i = resolveCache.values().iterator(); i.hasNext();) {
+                i.next().removed = true;
+                i.remove();
+            }
+            clock.clear();
+            Arrays.fill(wheel, null);
+            size = 0;
+            removedInClock = 0;
+            stopExpiration();
         }
     }
 
     @Override
     public boolean clear(String hostname) {
         checkNotNull(hostname, "hostname");
-        boolean removed = false;
-        for (Iterator<Map.Entry<String, List<DnsCacheEntry>>> i = resolveCache.entrySet().iterator(); i.hasNext();) {
-            final Map.Entry<String, List<DnsCacheEntry>> e = i.next();
-            if (e.getKey().equals(hostname)) {
-                i.remove();
-                cancelExpiration(e.getValue());
-                removed = true;
-            }
+        Entries e = resolveCache.get(hostname);
+        if (e == null) {
+            return false;
+        }
+        synchronized (lock) {
+            return remove(e);
         }
-        return removed;
     }
 
     private static boolean emptyAdditionals(DnsRecord[] additionals) {
@@ -127,20 +239,54 @@ public class DefaultDnsCache implements DnsCache {
         if (!emptyAdditionals(additionals)) {
             return null;
         }
-        return resolveCache.get(hostname);
+        Entries e = resolveCache.get(hostname);
+        if (e == null) {
+            misses.increment();
+            return null;
+        }
+        if (e.expiresAt - System.nanoTime() <= 0) {
+            // The wheel did not get to it yet.
+            synchronized (lock) {
+                remove(e);
+            }
+            misses.increment();
+            return null;
+        }
+        // Only write if needed, as the same hostname may be looked up by many threads.
+        if (!e.referenced) {
+            e.referenced = true;
+        }
+        if (e.hits < PREFETCH_MIN_HITS) {
+            e.hits++;
+        }
+        hits.increment();
+        return e.entries;
     }
 
-    private List<DnsCacheEntry> cachedEntries(String hostname) {
-        List<DnsCacheEntry> oldEntries = resolveCache.get(hostname);
-        final List<DnsCacheEntry> entries;
-        if (oldEntries == null) {
-            List<DnsCacheEntry> newEntries = new ArrayList<DnsCacheEntry>(8);
-            oldEntries = resolveCache.putIfAbsent(hostname, newEntries);
-            entries = oldEntries != null? oldEntries : newEntries;
-        } else {
-            entries = oldEntries;
+    /**
+     * Returns {@code true} if the caller should resolve the given hostname again as the cached addresses are about
+     * to expire. Only ever returns {@code true} once per cached answer.
+     */
+    boolean prefetch(String hostname) {
+        if (!prefetch) {
+            return false;
+        }
+        Entries e = resolveCache.get(hostname);
+        if (e == null || e.hits < PREFETCH_MIN_HITS || e.negative) {
+            return false;
         }
-        return entries;
+        long remaining = e.expiresAt - System.nanoTime();
+        if (remaining <= 0 || remaining > e.ttlNanos / PREFETCH_FRACTION) {
+            return false;
+        }
+        synchronized (e) {
+            if (e.refreshing) {
+                return false;
+            }
+            e.refreshing = true;
+        }
+        prefetches.increment();
+        return true;
     }
 
     @Override
@@ -153,22 +299,7 @@ public class DefaultDnsCache implements DnsCache {
             return;
         }
         final int ttl = Math.max(minTtl, (int) Math.min(maxTtl, originalTtl));
-        final List<DnsCacheEntry> entries = cachedEntries(hostname);
-        final DnsCacheEntry e = new DnsCacheEntry(hostname, address);
-
-        synchronized (entries) {
-            if (!entries.isEmpty()) {
-                final DnsCacheEntry firstEntry = entries.get(0);
-                if (firstEntry.cause() != null) {
-                    assert entries.size() == 1;
-                    firstEntry.cancelExpiration();
-                    entries.clear();
-                }
-            }
-            entries.add(e);
-        }
-
-        scheduleCacheExpiration(entries, e, ttl, loop);
+        cache(hostname, new DnsCacheEntry(hostname, address), ttl, loop);
     }
 
     @Override
@@ -176,47 +307,168 @@ public class DefaultDnsCache implements DnsCache {
         checkNotNull(hostname, "hostname");
         checkNotNull(cause, "cause");
         checkNotNull(loop, "loop");
-
-        if (negativeTtl == 0 || !emptyAdditionals(additionals)) {
+        if (!emptyAdditionals(additionals)) {
+            return;
+        }
+        Entries e = resolveCache.get(hostname);
+        if (e != null) {
+            synchronized (e) {
+                if (e.refreshing) {
+                    // A prefetch failed, keep serving the addresses we have until they expire.
+                    e.refreshing = false;
+                    return;
+                }
+            }
+        }
+        if (negativeTtl == 0) {
             return;
         }
-        final List<DnsCacheEntry> entries = cachedEntries(hostname);
-        final DnsCacheEntry e = new DnsCacheEntry(hostname, cause);
+        cache(hostname, new DnsCacheEntry(hostname, cause), negativeTtl, loop);
+    }
 
-        synchronized (entries) {
-            final int numEntries = entries.size();
-            for (int i = 0; i < numEntries; i ++) {
-                entries.get(i).cancelExpiration();
+    private void cache(String hostname, DnsCacheEntry entry, int ttl, EventLoop loop) {
+        final long now = System.nanoTime();
+        final long ttlNanos = TimeUnit.SECONDS.toNanos(ttl);
+        final long expiresAt = now + ttlNanos;
+        for (;;) {
+            Entries e = resolveCache.get(hostname);
+            if (e != null) {
+                synchronized (e) {
+                    if (!e.removed) {
+                        if (e.refreshing || e.negative || entry.cause() != null || e.expiresAt - now <= 0) {
+                            // A new answer replaces the previous one.
+                            e.set(entry, expiresAt, ttlNanos);
+                        } else {
+                            // Another address of the same answer.
+                            e.add(entry, expiresAt);
+                        }
+                        return;
+                    }
+                }
+            }
+            synchronized (lock) {
+                if (resolveCache.get(hostname) != null) {
+                    // Lost a race, try again.
+                    continue;
+                }
+                e = new Entries(hostname);
+                e.set(entry, expiresAt, ttlNanos);
+                resolveCache.put(hostname, e);
+                size++;
+                clock.add(e);
+                startExpiration(loop);
+                addToWheel(e);
+                if (size > maxSize) {
+                    evict();
+                }
+                return;
             }
-            entries.clear();
-            entries.add(e);
         }
+    }
 
-        scheduleCacheExpiration(entries, e, negativeTtl, loop);
+    private void evict() {
+        assert Thread.holdsLock(lock);
+        while (size > maxSize) {
+            Entries e = clock.remove();
+            if (e.removed) {
+                removedInClock--;
+            } else if (e.referenced) {
+                // Second chance.
+                e.referenced = false;
+                clock.add(e);
+            } else {
+                resolveCache.remove(e.hostname, e);
+                e.removed = true;
+                size--;
+                evictions.increment();
+            }
+        }
     }
 
-    private static void cancelExpiration(List<DnsCacheEntry> entries) {
-        final int numEntries = entries.size();
-        for (int i = 0; i < numEntries; i++) {
-            entries.get(i).cancelExpiration();
+    private boolean remove(Entries e) {
+        assert Thread.holdsLock(lock);
+        if (!resolveCache.remove(e.hostname, e)) {
+            return false;
         }
+        e.removed = true;
+        size--;
+        if (++removedInClock > clock.size() >>> 1) {
+            for (Iterator<Entries> i = clock.iterator(); i.hasNext();) {
+                if (i.next().removed) {
+                    i.remove();
+                }
+            }
+            removedInClock = 0;
+        }
+        return true;
     }
 
-    private void scheduleCacheExpiration(final List<DnsCacheEntry> entries,
-                                         final DnsCacheEntry e,
-                                         int ttl,
-                                         EventLoop loop) {
-        e.scheduleExpiration(loop, new Runnable() {
-                    @Override
-                    public void run() {
-                        synchronized (entries) {
-                            entries.remove(e);
-                            if (entries.isEmpty()) {
-                                resolveCache.remove(e.hostname());
-                            }
-                        }
+    private void startExpiration(EventLoop loop) {
+        assert Thread.holdsLock(lock);
+        if (expireFuture != null && !expireFuture.isDone()) {
+            return;
+        }
+        currentTick = System.nanoTime() >> TICK_SHIFT;
+        try {
+            expireFuture = loop.scheduleAtFixedRate(expireTask, 1, 1, TimeUnit.SECONDS);
+        } catch (RejectedExecutionException ignore) {
+            // The EventLoop is shutting down, expired entries are still detected on lookup and the next cache
+            // operation will try again.
+            expireFuture = null;
+        }
+    }
+
+    private void stopExpiration() {
+        assert Thread.holdsLock(lock);
+        if (expireFuture != null) {
+            expireFuture.cancel(false);
+            expireFuture = null;
+        }
+    }
+
+    private void addToWheel(Entries e) {
+        // Never file into a bucket which was already processed in this round.
+        long tick = Math.max(e.expiresAt >> TICK_SHIFT, currentTick + 1);
+        int idx = (int) tick & WHEEL_MASK;
+        List<Entries> bucket = wheel[idx];
+        if (bucket == null) {
+            bucket = wheel[idx] = new ArrayList<Entries>();
+        }
+        bucket.add(e);
+    }
+
+    private void expire() {
+        final long now = System.nanoTime();
+        final long nowTick = now >> TICK_SHIFT;
+        synchronized (lock) {
+            long ticks = Math.min(nowTick - currentTick, WHEEL_SIZE);
+            long tick = currentTick;
+            currentTick = nowTick;
+            for (long i = 1; i <= ticks; i++) {
+                int idx = (int) (tick + i) & WHEEL_MASK;
+                List<Entries> bucket = wheel[idx];
+                if (bucket == null) {
+                    continue;
+                }
+                wheel[idx] = null;
+                for (int j = 0; j < bucket.size(); j++) {
+                    Entries e = bucket.get(j);
+                    if (e.removed) {
+                        continue;
+                    }
+                    if (e.expiresAt - now <= 0) {
+                        remove(e);
+                    } else {
+                        // Either not due in this round or the answer was replaced since it was filed.
+                        addToWheel(e);
                     }
-                }, ttl, TimeUnit.SECONDS);
+                }
+            }
+            if (size == 0) {
+                Arrays.fill(wheel, null);
+                stopExpiration();
+            }
+        }
     }
 
     @Override
@@ -225,8 +477,56 @@ public class DefaultDnsCache implements DnsCache {
                 .append("DefaultDnsCache(minTtl=")
                 .append(minTtl).append(", maxTtl=")
                 .append(maxTtl).append(", negativeTtl=")
-                .append(negativeTtl).append(", cached resolved hostname=")
+                .append(negativeTtl).append(", maxSize=")
+                .append(maxSize).append(", prefetch=")
+                .append(prefetch).append(", cached resolved hostname=")
                 .append(resolveCache.size()).append(")")
                 .toString();
     }
+
+    /**
+     * The cached answer for a hostname. The list of {@link DnsCacheEntry}s is copied on write so it can be handed
+     * out without holding a lock.
+     */
+    private static final class Entries {
+        final String hostname;
+        volatile List<DnsCacheEntry> entries;
+        volatile long expiresAt;
+        volatile long ttlNanos;
+        volatile boolean negative;
+        // Saturates at PREFETCH_MIN_HITS.
+        volatile int hits;
+        volatile boolean referenced;
+        volatile boolean removed;
+        // Guarded by this.
+        boolean refreshing;
+
+        Entries(String hostname) {
+            this.hostname = hostname;
+        }
+
+        void set(DnsCacheEntry entry, long expiresAt, long ttlNanos) {
+            assert Thread.holdsLock(this) || entries == null;
+            List<DnsCacheEntry> entries = new ArrayList<DnsCacheEntry>(1);
+            entries.add(entry);
+            negative = entry.cause() != null;
+            refreshing = false;
+            hits = 0;
+            this.ttlNanos = ttlNanos;
+            this.expiresAt = expiresAt;
+            this.entries = entries;
+        }
+
+        void add(DnsCacheEntry entry, long expiresAt) {
+            assert Thread.holdsLock(this);
+            List<DnsCacheEntry> entries = new ArrayList<DnsCacheEntry>(this.entries.size() + 1);
+            entries.addAll(this.entries);
+            entries.add(entry);
+            // The records of an RRset share their TTL (RFC 2181, 5.2) so this is usually a no-op.
+            if (expiresAt - this.expiresAt < 0) {
+                this.expiresAt = expiresAt;
+            }
+            this.entries = entries;
+        }
+    }
 }
@@ -504,6 +504,7 @@ public class DnsNameResolver extends InetNameResolver {
 
         if (address != null) {
             trySuccess(promise, address);
+            prefetchIfNeeded(hostname, additionals, resolveCache);
             return true;
         }
         if (cause != null) {
@@ -513,6 +514,13 @@ public class DnsNameResolver extends InetNameResolver {
         return false;
     }
 
+    private void prefetchIfNeeded(String hostname, DnsRecord[] additionals, DnsCache resolveCache) {
+        if (resolveCache instanceof DefaultDnsCache && ((DefaultDnsCache) resolveCache).prefetch(hostname)) {
+            // The answer is cached by the resolve itself, so the result can be ignored.
+            doResolveAllUncached(hostname, additionals, executor().<List<InetAddress>>newPromise(), resolveCache);
+        }
+    }
+
     private static <T> void trySuccess(Promise<T> promise, T result) {
         if (!promise.trySuccess(result)) {
             logger.warn("Failed to notify success ({}) to a promise: {}", result, promise);
@@ -630,6 +638,7 @@ public class DnsNameResolver extends InetNameResolver {
 
         if (result != null) {
             trySuccess(promise, result);
+            prefetchIfNeeded(hostname, additionals, resolveCache);
             return true;
         }
         if (cause != null) {
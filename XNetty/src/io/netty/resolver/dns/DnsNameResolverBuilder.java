@@ -43,6 +43,8 @@ public final class DnsNameResolverBuilder {
     private Integer minTtl;
     private Integer maxTtl;
     private Integer negativeTtl;
+    private Integer maxCacheSize;
+    private boolean prefetch;
     private long queryTimeoutMillis = 5000;
     private InternetProtocolFamily[] resolvedAddressTypes = DnsNameResolver.DEFAULT_RESOLVE_ADDRESS_TYPES;
     private boolean recursionDesired = true;
@@ -126,6 +128,32 @@ public final class DnsNameResolverBuilder {
         return this;
     }
 
+    /**
+     * Sets the maximum number of hostnames which are cached. Once it is reached, the least recently used
+     * hostnames are evicted. The default value is {@link Integer#MAX_VALUE}.
+     *
+     * @param maxCacheSize the maximum number of cached hostnames
+     * @return {@code this}
+     */
+    public DnsNameResolverBuilder maxCacheSize(int maxCacheSize) {
+        this.maxCacheSize = maxCacheSize;
+        return this;
+    }
+
+    /**
+     * Sets if hostnames which are looked up repeatedly should be resolved again in the background before their
+     * cached addresses expire. The hit, miss and prefetch counters of the cache are available via
+     * {@link DefaultDnsCache#hits()}, {@link DefaultDnsCache#misses()} and {@link DefaultDnsCache#prefetches()}
+     * on {@link DnsNameResolver#resolveCache()}.
+     *
+     * @param prefetch {@code true} to enable prefetching
+     * @return {@code this}
+     */
+    public DnsNameResolverBuilder prefetch(boolean prefetch) {
+        this.prefetch = prefetch;
+        return this;
+    }
+
     /**
      * Sets the TTL of the cache for the failed DNS queries (in seconds).
      *
@@ -341,9 +369,13 @@ public final class DnsNameResolverBuilder {
         if (resolveCache != null && (minTtl != null || maxTtl != null || negativeTtl != null)) {
             throw new IllegalStateException("resolveCache and TTLs are mutually exclusive");
         }
+        if (resolveCache != null && (maxCacheSize != null || prefetch)) {
+            throw new IllegalStateException("resolveCache and maxCacheSize/prefetch are mutually exclusive");
+        }
 
         DnsCache cache = resolveCache != null ? resolveCache :
-                new DefaultDnsCache(intValue(minTtl, 0), intValue(maxTtl, Integer.MAX_VALUE), intValue(negativeTtl, 0));
+                new DefaultDnsCache(intValue(minTtl, 0), intValue(maxTtl, Integer.MAX_VALUE), intValue(negativeTtl, 0),
+                                    intValue(maxCacheSize, Integer.MAX_VALUE), prefetch);
 
         return new DnsNameResolver(
                 eventLoop,
@@ -0,0 +1,797 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util;
+
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.FastThreadLocal;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
+import io.netty.util.concurrent.ScheduledFuture;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.ThreadExecutorMap;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link Timer} which keeps its {@link Timeout}s in hierarchical timing wheels and is optimized for a high rate of
+ * timeouts which are cancelled before they expire, like I/O timeouts.
+ *
+ * <h3>Event loop local wheels</h3>
+ *
+ * If {@link #newTimeout(TimerTask, long, TimeUnit)} is called from the {@link Thread} of an {@link EventExecutor}
+ * the {@link Timeout} is added to a wheel which is local to this {@link EventExecutor}. Such a wheel is only ever
+ * touched by its {@link EventExecutor}, so scheduling and cancelling from there needs no synchronization and no
+ * hand-off to another {@link Thread}, and the {@link TimerTask} is also executed by the {@link EventExecutor}.
+ * All other callers use a wheel which is driven by a background {@link Thread} like the one of
+ * {@link HashedWheelTimer}. A {@link Timeout} which is cancelled from a {@link Thread} that does not own its wheel
+ * is marked as cancelled right away and removed from its wheel lazily.
+ *
+ * <h3>Hierarchical wheels</h3>
+ *
+ * Each wheel consists of {@value #LEVELS} levels with {@value #SLOTS} slots each, where every slot of a level
+ * spans all slots of the level below. A {@link Timeout} is added to the lowest level which covers its deadline and
+ * cascades down one level whenever the level below wraps around, so adding and cancelling is {@code O(1)} no matter
+ * how far in the future the deadline is, and no per-round bookkeeping as in {@link HashedWheelTimer} is needed.
+ * Timeouts which are more than {@code 2^24} ticks in the future are parked in the top level and re-added once it
+ * reaches them.
+ *
+ * <h3>Tick coalescing</h3>
+ *
+ * The occupied slots of every level are tracked in a bitmap, so a wheel is only woken up for the next tick which
+ * actually expires or cascades {@link Timeout}s and skips all empty ticks in between.
+ *
+ * <h3>Tick Duration</h3>
+ *
+ * Like {@link HashedWheelTimer} this timer does not execute the scheduled {@link TimerTask}s on time but on the
+ * first tick after their deadline. The default tick duration is 10 milliseconds.
+ */
+public class HierarchicalWheelTimer implements Timer {
+
+    static final InternalLogger logger = InternalLoggerFactory.getInstance(HierarchicalWheelTimer.class);
+
+    private static final AtomicIntegerFieldUpdater<HierarchicalWheelTimer> WORKER_STATE_UPDATER;
+    static {
+        AtomicIntegerFieldUpdater<HierarchicalWheelTimer> workerStateUpdater =
+                PlatformDependent.newAtomicIntegerFieldUpdater(HierarchicalWheelTimer.class, "workerState");
+        if (workerStateUpdater == null) {
+            workerStateUpdater = AtomicIntegerFieldUpdater.newUpdater(HierarchicalWheelTimer.class, "workerState");
+        }
+        WORKER_STATE_UPDATER = workerStateUpdater;
+    }
+
+    private static final int LEVELS = 4;
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final long MAX_TICKS = 1L << (LEVELS * SLOT_BITS);
+
+    public static final int WORKER_STATE_INIT = 0;
+    public static final int WORKER_STATE_STARTED = 1;
+    public static final int WORKER_STATE_SHUTDOWN = 2;
+    @SuppressWarnings({ "unused", "FieldMayBeFinal", "RedundantFieldInitialization" })
+    private volatile int workerState = WORKER_STATE_INIT; // 0 - init, 1 - started, 2 - shut down
+
+    private final long tickDuration;
+    private final long startTime = System.nanoTime();
+    private final boolean eventLoopLocal;
+    private final Worker worker = new Worker();
+    private final Thread workerThread;
+    private final FastThreadLocal<LocalWheel> localWheel = new FastThreadLocal<LocalWheel>();
+    private final Set<LocalWheel> localWheels =
+            Collections.newSetFromMap(PlatformDependent.<LocalWheel, Boolean>newConcurrentHashMap());
+
+    /**
+     * Creates a new timer with the default thread factory ({@link Executors#defaultThreadFactory()}) and default
+     * tick duration.
+     */
+    public HierarchicalWheelTimer() {
+        this(Executors.defaultThreadFactory());
+    }
+
+    /**
+     * Creates a new timer with the default tick duration.
+     *
+     * @param threadFactory  a {@link ThreadFactory} that creates the background {@link Thread} which executes the
+     *                       {@link TimerTask}s that were not scheduled from an {@link EventExecutor}.
+     * @throws NullPointerException if {@code threadFactory} is {@code null}
+     */
+    public HierarchicalWheelTimer(ThreadFactory threadFactory) {
+        this(threadFactory, 10, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a new timer.
+     *
+     * @param threadFactory  a {@link ThreadFactory} that creates the background {@link Thread} which executes the
+     *                       {@link TimerTask}s that were not scheduled from an {@link EventExecutor}.
+     * @param tickDuration   the duration between tick
+     * @param unit           the time unit of the {@code tickDuration}
+     * @throws NullPointerException     if either of {@code threadFactory} and {@code unit} is {@code null}
+     * @throws IllegalArgumentException if {@code tickDuration} is &lt;= 0
+     */
+    public HierarchicalWheelTimer(ThreadFactory threadFactory, long tickDuration, TimeUnit unit) {
+        this(threadFactory, tickDuration, unit, true);
+    }
+
+    /**
+     * Creates a new timer.
+     *
+     * @param threadFactory  a {@link ThreadFactory} that creates the background {@link Thread} which executes the
+     *                       {@link TimerTask}s that were not scheduled from an {@link EventExecutor}.
+     * @param tickDuration   the duration between tick
+     * @param unit           the time unit of the {@code tickDuration}
+     * @param eventLoopLocal {@code true} if {@link Timeout}s which are scheduled from an {@link EventExecutor}
+     *                       should be kept in a wheel local to the {@link EventExecutor}, {@code false} if all
+     *                       {@link Timeout}s should be handled by the background {@link Thread}.
+     * @throws NullPointerException     if either of {@code threadFactory} and {@code unit} is {@code null}
+     * @throws IllegalArgumentException if {@code tickDuration} is &lt;= 0
+     */
+    public HierarchicalWheelTimer(
+            ThreadFactory threadFactory, long tickDuration, TimeUnit unit, boolean eventLoopLocal) {
+        if (threadFactory == null) {
+            throw new NullPointerException("threadFactory");
+        }
+        if (unit == null) {
+            throw new NullPointerException("unit");
+        }
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("tickDuration must be greater than 0: " + tickDuration);
+        }
+
+        this.tickDuration = unit.toNanos(tickDuration);
+
+        // Prevent overflow.
+        if (this.tickDuration >= Long.MAX_VALUE / MAX_TICKS) {
+            throw new IllegalArgumentException(String.format(
+                    "tickDuration: %d (expected: 0 < tickDuration in nanos < %d",
+                    tickDuration, Long.MAX_VALUE / MAX_TICKS));
+        }
+        this.eventLoopLocal = eventLoopLocal;
+        workerThread = threadFactory.newThread(worker);
+    }
+
+    /**
+     * Starts the background thread explicitly.  The background thread will
+     * start automatically on demand even if you did not call this method.
+     *
+     * @throws IllegalStateException if this timer has been
+     *                               {@linkplain #stop() stopped} already
+     */
+    public void start() {
+        switch (WORKER_STATE_UPDATER.get(this)) {
+            case WORKER_STATE_INIT:
+                if (WORKER_STATE_UPDATER.compareAndSet(this, WORKER_STATE_INIT, WORKER_STATE_STARTED)) {
+                    workerThread.start();
+                }
+                break;
+            case WORKER_STATE_STARTED:
+                break;
+            case WORKER_STATE_SHUTDOWN:
+                throw new IllegalStateException("cannot be started once stopped");
+            default:
+                throw new Error("Invalid WorkerState");
+        }
+    }
+
+    @Override
+    public Set<Timeout> stop() {
+        if (Thread.currentThread() == workerThread) {
+            throw new IllegalStateException(
+                    HierarchicalWheelTimer.class.getSimpleName() +
+                            ".stop() cannot be called from " +
+                            TimerTask.class.getSimpleName());
+        }
+
+        int oldState = WORKER_STATE_UPDATER.getAndSet(this, WORKER_STATE_SHUTDOWN);
+        if (oldState == WORKER_STATE_SHUTDOWN) {
+            return Collections.emptySet();
+        }
+
+        Set<Timeout> unprocessed = new HashSet<Timeout>();
+        if (oldState == WORKER_STATE_STARTED) {
+            boolean interrupted = false;
+            while (workerThread.isAlive()) {
+                workerThread.interrupt();
+                try {
+                    workerThread.join(100);
+                } catch (InterruptedException ignored) {
+                    interrupted = true;
+                }
+            }
+
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            unprocessed.addAll(worker.unprocessedTimeouts);
+        }
+
+        // The local wheels may only be touched by their EventExecutors, so let these hand out their Timeouts.
+        List<Future<List<Timeout>>> futures = new ArrayList<Future<List<Timeout>>>(localWheels.size());
+        for (final LocalWheel wheel: localWheels) {
+            if (wheel.executor.inEventLoop()) {
+                unprocessed.addAll(wheel.clearTimeouts());
+                continue;
+            }
+            try {
+                futures.add(wheel.executor.submit(new Callable<List<Timeout>>() {
+                    @Override
+                    public List<Timeout> call() {
+                        return wheel.clearTimeouts();
+                    }
+                }));
+            } catch (RejectedExecutionException ignore) {
+                // The EventExecutor was terminated already, so its Timeouts will never expire anyway.
+            }
+        }
+        localWheels.clear();
+        for (Future<List<Timeout>> future: futures) {
+            if (future.awaitUninterruptibly().isSuccess()) {
+                unprocessed.addAll(future.getNow());
+            }
+        }
+        return Collections.unmodifiableSet(unprocessed);
+    }
+
+    @Override
+    public Timeout newTimeout(TimerTask task, long delay, TimeUnit unit) {
+        if (task == null) {
+            throw new NullPointerException("task");
+        }
+        if (unit == null) {
+            throw new NullPointerException("unit");
+        }
+        long deadline = System.nanoTime() + unit.toNanos(delay) - startTime;
+
+        LocalWheel wheel = localWheel();
+        if (wheel != null) {
+            HierarchicalWheelTimeout timeout = new HierarchicalWheelTimeout(wheel, task, deadline);
+            wheel.schedule(timeout);
+            return timeout;
+        }
+
+        start();
+        HierarchicalWheelTimeout timeout = new HierarchicalWheelTimeout(worker, task, deadline);
+        worker.schedule(timeout);
+        return timeout;
+    }
+
+    private LocalWheel localWheel() {
+        if (!eventLoopLocal) {
+            return null;
+        }
+        EventExecutor executor = ThreadExecutorMap.currentExecutor();
+        if (executor == null || executor.isShuttingDown()) {
+            return null;
+        }
+        if (WORKER_STATE_UPDATER.get(this) == WORKER_STATE_SHUTDOWN) {
+            throw new IllegalStateException("cannot be started once stopped");
+        }
+        LocalWheel wheel = localWheel.get();
+        if (wheel == null) {
+            final LocalWheel newWheel = new LocalWheel(executor);
+            localWheel.set(newWheel);
+            localWheels.add(newWheel);
+            // Its Timeouts never expire once the EventExecutor is terminated, so do not keep the wheel any longer.
+            executor.terminationFuture().addListener(new FutureListener<Object>() {
+                @Override
+                public void operationComplete(Future<Object> future) {
+                    localWheels.remove(newWheel);
+                }
+            });
+            wheel = newWheel;
+        }
+        return wheel;
+    }
+
+    private long currentTick() {
+        return (System.nanoTime() - startTime) / tickDuration;
+    }
+
+    /**
+     * A hierarchical timing wheel which is only ever accessed by the {@link Thread} that owns it.
+     */
+    private abstract class Wheel {
+        private final Bucket[] buckets = new Bucket[LEVELS * SLOTS];
+        private final long[] occupied = new long[LEVELS];
+        // Timeouts which were cancelled by other threads and still need to be removed.
+        final Queue<HierarchicalWheelTimeout> cancelledTimeouts = PlatformDependent.newMpscQueue();
+        // The next tick to process.
+        long tick;
+        int size;
+
+        Wheel() {
+            for (int i = 0; i < buckets.length; i ++) {
+                buckets[i] = new Bucket(i >>> SLOT_BITS, i & SLOT_MASK);
+            }
+        }
+
+        abstract boolean inOwnerThread();
+
+        final HierarchicalWheelTimer timer() {
+            return HierarchicalWheelTimer.this;
+        }
+
+        /**
+         * Add a new {@link HierarchicalWheelTimeout} to this wheel.
+         */
+        final void addNew(HierarchicalWheelTimeout timeout) {
+            if (size == 0) {
+                // Nothing to cascade or expire, so skip all the ticks that passed in the meantime.
+                tick = Math.max(tick, currentTick());
+            }
+            add(timeout);
+        }
+
+        private void add(HierarchicalWheelTimeout timeout) {
+            long expiration = Math.max(timeout.deadline / tickDuration, tick);
+            long delta = expiration - tick;
+            int level;
+            if (delta < SLOTS) {
+                level = 0;
+            } else if (delta < MAX_TICKS) {
+                level = (63 - Long.numberOfLeadingZeros(delta)) / SLOT_BITS;
+            } else {
+                // Park it in the farthest slot of the top level, it will be re-added once this one cascades.
+                level = LEVELS - 1;
+                expiration = tick + MAX_TICKS - 1;
+            }
+            int slot = (int) (expiration >>> (level * SLOT_BITS)) & SLOT_MASK;
+            buckets[(level << SLOT_BITS) | slot].add(timeout);
+        }
+
+        /**
+         * Process all ticks that passed until {@code currentTime} and expire the due {@link Timeout}s.
+         */
+        final void expireTimeouts(long currentTime) {
+            processCancelledTasks();
+
+            final long lastTick = (currentTime - startTime) / tickDuration - 1;
+            while (tick <= lastTick) {
+                long next = nextTick();
+                if (next > lastTick) {
+                    tick = lastTick + 1;
+                    break;
+                }
+                tick = next;
+                processTick(next);
+            }
+        }
+
+        private void processCancelledTasks() {
+            for (;;) {
+                HierarchicalWheelTimeout timeout = cancelledTimeouts.poll();
+                if (timeout == null) {
+                    // all processed
+                    break;
+                }
+                timeout.remove();
+            }
+        }
+
+        private void processTick(long tick) {
+            // Cascade the higher levels first, so the lower levels contain everything that is due in this tick.
+            for (int level = LEVELS - 1; level > 0; level --) {
+                int shift = level * SLOT_BITS;
+                if ((tick & ((1L << shift) - 1)) == 0) {
+                    HierarchicalWheelTimeout timeout =
+                            buckets[(level << SLOT_BITS) | ((int) (tick >>> shift) & SLOT_MASK)].clear();
+                    while (timeout != null) {
+                        HierarchicalWheelTimeout next = timeout.next;
+                        timeout.next = null;
+                        if (!timeout.isCancelled()) {
+                            add(timeout);
+                        }
+                        timeout = next;
+                    }
+                }
+            }
+
+            HierarchicalWheelTimeout timeout = buckets[(int) tick & SLOT_MASK].clear();
+            // Advance first so timeouts which are added by the expired TimerTasks end up in a later tick.
+            this.tick = tick + 1;
+            while (timeout != null) {
+                HierarchicalWheelTimeout next = timeout.next;
+                timeout.next = null;
+                timeout.expire();
+                timeout = next;
+            }
+        }
+
+        /**
+         * Returns the next tick which expires or cascades {@link Timeout}s or {@link Long#MAX_VALUE} if the wheel is
+         * empty. The returned tick may be earlier than needed, but never later.
+         */
+        final long nextTick() {
+            if (size == 0) {
+                return Long.MAX_VALUE;
+            }
+            long nextTick = Long.MAX_VALUE;
+            for (int level = 0; level < LEVELS; level ++) {
+                long bits = occupied[level];
+                if (bits == 0) {
+                    continue;
+                }
+                int shift = level * SLOT_BITS;
+                long block = tick >>> shift;
+                // Bit i of rotated is the slot which is i slots ahead of the current one.
+                long rotated = Long.rotateRight(bits, (int) block & SLOT_MASK);
+                long candidate;
+                if (level == 0) {
+                    candidate = tick + Long.numberOfTrailingZeros(rotated);
+                } else {
+                    if ((tick & ((1L << shift) - 1)) != 0) {
+                        // The span of the current slot already started, so it holds timeouts for the next round
+                        // of this level which are due after those of all the other slots.
+                        rotated &= ~1L;
+                    }
+                    int distance = rotated == 0 ? SLOTS : Long.numberOfTrailingZeros(rotated);
+                    candidate = (block + distance) << shift;
+                }
+                nextTick = Math.min(nextTick, candidate);
+            }
+            return nextTick;
+        }
+
+        final List<Timeout> clearTimeouts() {
+            List<Timeout> timeouts = new ArrayList<Timeout>(size);
+            for (Bucket bucket: buckets) {
+                HierarchicalWheelTimeout timeout = bucket.clear();
+                while (timeout != null) {
+                    HierarchicalWheelTimeout next = timeout.next;
+                    timeout.next = null;
+                    if (!timeout.isCancelled() && !timeout.isExpired()) {
+                        timeouts.add(timeout);
+                    }
+                    timeout = next;
+                }
+            }
+            return timeouts;
+        }
+
+        /**
+         * Slot that stores HierarchicalWheelTimeouts in a double-linked-list, so these can be removed in {@code O(1)}.
+         */
+        final class Bucket {
+            private final int level;
+            private final long bit;
+            private HierarchicalWheelTimeout head;
+            private HierarchicalWheelTimeout tail;
+
+            Bucket(int level, int slot) {
+                this.level = level;
+                bit = 1L << slot;
+            }
+
+            void add(HierarchicalWheelTimeout timeout) {
+                assert timeout.bucket == null;
+                timeout.bucket = this;
+                if (head == null) {
+                    head = tail = timeout;
+                    occupied[level] |= bit;
+                } else {
+                    tail.next = timeout;
+                    timeout.prev = tail;
+                    tail = timeout;
+                }
+                size ++;
+            }
+
+            void remove(HierarchicalWheelTimeout timeout) {
+                HierarchicalWheelTimeout next = timeout.next;
+                HierarchicalWheelTimeout prev = timeout.prev;
+                if (prev != null) {
+                    prev.next = next;
+                } else {
+                    head = next;
+                }
+                if (next != null) {
+                    next.prev = prev;
+                } else {
+                    tail = prev;
+                }
+                if (head == null) {
+                    occupied[level] &= ~bit;
+                }
+                timeout.prev = null;
+                timeout.next = null;
+                timeout.bucket = null;
+                size --;
+            }
+
+            /**
+             * Remove all {@link HierarchicalWheelTimeout}s and return them as a list linked via their {@code next}
+             * field.
+             */
+            HierarchicalWheelTimeout clear() {
+                HierarchicalWheelTimeout timeout = head;
+                if (timeout == null) {
+                    return null;
+                }
+                head = tail = null;
+                occupied[level] &= ~bit;
+                for (HierarchicalWheelTimeout t = timeout; t != null; t = t.next) {
+                    t.prev = null;
+                    t.bucket = null;
+                    size --;
+                }
+                return timeout;
+            }
+        }
+    }
+
+    /**
+     * Wheel which is owned by an {@link EventExecutor} and woken up via
+     * {@link EventExecutor#schedule(Runnable, long, TimeUnit)} for the next tick that has work to do.
+     */
+    private final class LocalWheel extends Wheel implements Runnable {
+        final EventExecutor executor;
+        // The tick for which this wheel is scheduled on the EventExecutor, there is only ever one wakeup pending.
+        private long wakeupTick = Long.MAX_VALUE;
+        private ScheduledFuture<?> wakeupFuture;
+
+        LocalWheel(EventExecutor executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        boolean inOwnerThread() {
+            return executor.inEventLoop();
+        }
+
+        void schedule(HierarchicalWheelTimeout timeout) {
+            addNew(timeout);
+            scheduleWakeup();
+        }
+
+        @Override
+        public void run() {
+            wakeupTick = Long.MAX_VALUE;
+            wakeupFuture = null;
+            if (WORKER_STATE_UPDATER.get(HierarchicalWheelTimer.this) == WORKER_STATE_SHUTDOWN) {
+                return;
+            }
+            expireTimeouts(System.nanoTime());
+            scheduleWakeup();
+        }
+
+        private void scheduleWakeup() {
+            long next = nextTick();
+            if (next < wakeupTick) {
+                if (wakeupFuture != null) {
+                    // Replace the later wakeup, so the wakeups do not multiply.
+                    wakeupFuture.cancel(false);
+                    wakeupFuture = null;
+                }
+                wakeupTick = next;
+                long delay = (next + 1) * tickDuration - (System.nanoTime() - startTime);
+                try {
+                    wakeupFuture = executor.schedule(this, delay, TimeUnit.NANOSECONDS);
+                } catch (RejectedExecutionException e) {
+                    logger.warn("Failed to schedule the next tick, the EventExecutor was shut down.", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Wheel which is owned by the background {@link Thread}. Other threads hand over new {@link Timeout}s via a
+     * queue and only wake up the {@link Thread} if their {@link Timeout} is due before it would wake up anyway.
+     */
+    private final class Worker extends Wheel implements Runnable {
+        private final Queue<HierarchicalWheelTimeout> timeouts = PlatformDependent.newMpscQueue();
+        private final Set<Timeout> unprocessedTimeouts = new HashSet<Timeout>();
+        // The deadline at which the worker will wake up or Long.MIN_VALUE if it is running.
+        private volatile long wakeupDeadline = Long.MIN_VALUE;
+
+        @Override
+        boolean inOwnerThread() {
+            return Thread.currentThread() == workerThread;
+        }
+
+        void schedule(HierarchicalWheelTimeout timeout) {
+            timeouts.add(timeout);
+            if (timeout.deadline < wakeupDeadline) {
+                LockSupport.unpark(workerThread);
+            }
+        }
+
+        @Override
+        public void run() {
+            do {
+                transferTimeoutsToWheel();
+                expireTimeouts(System.nanoTime());
+
+                long next = nextTick();
+                long deadline = next == Long.MAX_VALUE ? Long.MAX_VALUE : (next + 1) * tickDuration;
+                wakeupDeadline = deadline;
+                // Check again after publishing the deadline, so we will not miss a wakeup.
+                if (timeouts.isEmpty()) {
+                    if (deadline == Long.MAX_VALUE) {
+                        LockSupport.park(this);
+                    } else {
+                        long sleepTime = deadline - (System.nanoTime() - startTime);
+                        if (sleepTime > 0) {
+                            LockSupport.parkNanos(this, sleepTime);
+                        }
+                    }
+                }
+                wakeupDeadline = Long.MIN_VALUE;
+            } while (WORKER_STATE_UPDATER.get(HierarchicalWheelTimer.this) == WORKER_STATE_STARTED);
+
+            // Fill the unprocessedTimeouts so we can return them from stop() method.
+            unprocessedTimeouts.addAll(clearTimeouts());
+            for (;;) {
+                HierarchicalWheelTimeout timeout = timeouts.poll();
+                if (timeout == null) {
+                    break;
+                }
+                if (!timeout.isCancelled()) {
+                    unprocessedTimeouts.add(timeout);
+                }
+            }
+            cancelledTimeouts.clear();
+        }
+
+        private void transferTimeoutsToWheel() {
+            // transfer only max. 100000 timeouts per tick to prevent a thread to stale the workerThread when it just
+            // adds new timeouts in a loop.
+            for (int i = 0; i < 100000; i++) {
+                HierarchicalWheelTimeout timeout = timeouts.poll();
+                if (timeout == null) {
+                    // all processed
+                    break;
+                }
+                if (!timeout.isCancelled()) {
+                    addNew(timeout);
+                }
+            }
+        }
+    }
+
+    private static final class HierarchicalWheelTimeout implements Timeout {
+
+        private static final int ST_INIT = 0;
+        private static final int ST_CANCELLED = 1;
+        private static final int ST_EXPIRED = 2;
+        private static final AtomicIntegerFieldUpdater<HierarchicalWheelTimeout> STATE_UPDATER;
+
+        static {
+            AtomicIntegerFieldUpdater<HierarchicalWheelTimeout> updater =
+                    PlatformDependent.newAtomicIntegerFieldUpdater(HierarchicalWheelTimeout.class, "state");
+            if (updater == null) {
+                updater = AtomicIntegerFieldUpdater.newUpdater(HierarchicalWheelTimeout.class, "state");
+            }
+            STATE_UPDATER = updater;
+        }
+
+        private final Wheel wheel;
+        private final TimerTask task;
+        // The deadline relative to the startTime of the timer.
+        final long deadline;
+
+        @SuppressWarnings({"unused", "FieldMayBeFinal", "RedundantFieldInitialization" })
+        private volatile int state = ST_INIT;
+
+        // Only accessed by the thread which owns the wheel, so there is no need for synchronization / volatile.
+        HierarchicalWheelTimeout next;
+        HierarchicalWheelTimeout prev;
+        Wheel.Bucket bucket;
+
+        HierarchicalWheelTimeout(Wheel wheel, TimerTask task, long deadline) {
+            this.wheel = wheel;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public Timer timer() {
+            return wheel.timer();
+        }
+
+        @Override
+        public TimerTask task() {
+            return task;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (!STATE_UPDATER.compareAndSet(this, ST_INIT, ST_CANCELLED)) {
+                return false;
+            }
+            if (wheel.inOwnerThread()) {
+                remove();
+            } else {
+                // Let the owner of the wheel remove it the next time it processes its wheel.
+                wheel.cancelledTimeouts.add(this);
+            }
+            return true;
+        }
+
+        void remove() {
+            Wheel.Bucket bucket = this.bucket;
+            if (bucket != null) {
+                bucket.remove(this);
+            }
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return state == ST_CANCELLED;
+        }
+
+        @Override
+        public boolean isExpired() {
+            return state == ST_EXPIRED;
+        }
+
+        void expire() {
+            if (!STATE_UPDATER.compareAndSet(this, ST_INIT, ST_EXPIRED)) {
+                return;
+            }
+
+            try {
+                task.run(this);
+            } catch (Throwable t) {
+                if (logger.isWarnEnabled()) {
+                    logger.warn("An exception was thrown by " + TimerTask.class.getSimpleName() + '.', t);
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            long remaining = deadline - (System.nanoTime() - wheel.timer().startTime);
+
+            StringBuilder buf = new StringBuilder(192)
+               .append(StringUtil.simpleClassName(this))
+               .append('(')
+               .append("deadline: ");
+            if (remaining > 0) {
+                buf.append(remaining)
+                   .append(" ns later");
+            } else if (remaining < 0) {
+                buf.append(-remaining)
+                   .append(" ns ago");
+            } else {
+                buf.append("now");
+            }
+
+            if (isCancelled()) {
+                buf.append(", cancelled");
+            }
+
+            return buf.append(", task: ")
+                      .append(task())
+                      .append(')')
+                      .toString();
+        }
+    }
+}
@@ -17,8 +17,7 @@ package io.netty.util.concurrent;
 
 import io.netty.util.internal.ObjectUtil;
 
-import java.util.PriorityQueue;
-import java.util.Queue;
+import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -28,28 +27,45 @@ import java.util.concurrent.TimeUnit;
  */
 public abstract class AbstractScheduledEventExecutor extends AbstractEventExecutor {
 
-    Queue<ScheduledFutureTask<?>> scheduledTaskQueue;
+    private final ScheduledTaskStoreFactory scheduledTaskStoreFactory;
+    ScheduledTaskStore scheduledTaskStore;
 
     protected AbstractScheduledEventExecutor() {
+        this(null);
     }
 
     protected AbstractScheduledEventExecutor(EventExecutorGroup parent) {
+        this(parent, ScheduledTaskStores.priorityQueue());
+    }
+
+    /**
+     * Create a new instance
+     *
+     * @param parent                        the {@link EventExecutorGroup} which is the parent of this instance and
+     *                                      belongs to it
+     * @param scheduledTaskStoreFactory     the {@link ScheduledTaskStoreFactory} which creates the
+     *                                      {@link ScheduledTaskStore} that keeps the scheduled tasks of this instance
+     */
+    protected AbstractScheduledEventExecutor(EventExecutorGroup parent,
+                                             ScheduledTaskStoreFactory scheduledTaskStoreFactory) {
         super(parent);
+        this.scheduledTaskStoreFactory = ObjectUtil.checkNotNull(scheduledTaskStoreFactory,
+                "scheduledTaskStoreFactory");
     }
 
     protected static long nanoTime() {
         return ScheduledFutureTask.nanoTime();
     }
 
-    Queue<ScheduledFutureTask<?>> scheduledTaskQueue() {
-        if (scheduledTaskQueue == null) {
-            scheduledTaskQueue = new PriorityQueue<ScheduledFutureTask<?>>();
+    ScheduledTaskStore scheduledTaskStore() {
+        if (scheduledTaskStore == null) {
+            scheduledTaskStore = scheduledTaskStoreFactory.newScheduledTaskStore();
         }
-        return scheduledTaskQueue;
+        return scheduledTaskStore;
     }
 
-    private static  boolean isNullOrEmpty(Queue<ScheduledFutureTask<?>> queue) {
-        return queue == null || queue.isEmpty();
+    private static  boolean isNullOrEmpty(ScheduledTaskStore store) {
+        return store == null || store.isEmpty();
     }
 
     /**
@@ -59,19 +75,16 @@ public abstract class AbstractScheduledEventExecutor extends AbstractEventExecut
      */
     protected void cancelScheduledTasks() {
         assert inEventLoop();
-        Queue<ScheduledFutureTask<?>> scheduledTaskQueue = this.scheduledTaskQueue;
-        if (isNullOrEmpty(scheduledTaskQueue)) {
+        ScheduledTaskStore scheduledTaskStore = this.scheduledTaskStore;
+        if (isNullOrEmpty(scheduledTaskStore)) {
             return;
         }
 
-        final ScheduledFutureTask<?>[] scheduledTasks =
-                scheduledTaskQueue.toArray(new ScheduledFutureTask<?>[scheduledTaskQueue.size()]);
+        final List<ScheduledTask> scheduledTasks = scheduledTaskStore.clear();
 
-        for (ScheduledFutureTask<?> task: scheduledTasks) {
-            task.cancelWithoutRemove(false);
+        for (ScheduledTask task: scheduledTasks) {
+            ((ScheduledFutureTask<?>) task).cancelWithoutRemove(false);
         }
-
-        scheduledTaskQueue.clear();
     }
 
     /**
@@ -88,46 +101,39 @@ public abstract class AbstractScheduledEventExecutor extends AbstractEventExecut
     protected final Runnable pollScheduledTask(long nanoTime) {
         assert inEventLoop();
 
-        Queue<ScheduledFutureTask<?>> scheduledTaskQueue = this.scheduledTaskQueue;
-        ScheduledFutureTask<?> scheduledTask = scheduledTaskQueue == null ? null : scheduledTaskQueue.peek();
-        if (scheduledTask == null) {
-            return null;
-        }
-
-        if (scheduledTask.deadlineNanos() <= nanoTime) {
-            scheduledTaskQueue.remove();
-            return scheduledTask;
-        }
-        return null;
+        ScheduledTaskStore scheduledTaskStore = this.scheduledTaskStore;
+        return scheduledTaskStore == null ? null : (ScheduledFutureTask<?>) scheduledTaskStore.poll(nanoTime);
     }
 
     /**
      * Return the nanoseconds when the next scheduled task is ready to be run or {@code -1} if no task is scheduled.
      */
     protected final long nextScheduledTaskNano() {
-        Queue<ScheduledFutureTask<?>> scheduledTaskQueue = this.scheduledTaskQueue;
-        ScheduledFutureTask<?> scheduledTask = scheduledTaskQueue == null ? null : scheduledTaskQueue.peek();
-        if (scheduledTask == null) {
+        long deadlineNanos = nextScheduledTaskDeadlineNanos();
+        if (deadlineNanos == -1) {
             return -1;
         }
-        return Math.max(0, scheduledTask.deadlineNanos() - nanoTime());
+        return Math.max(0, deadlineNanos - nanoTime());
     }
 
-    final ScheduledFutureTask<?> peekScheduledTask() {
-        Queue<ScheduledFutureTask<?>> scheduledTaskQueue = this.scheduledTaskQueue;
-        if (scheduledTaskQueue == null) {
-            return null;
+    /**
+     * Return the deadline by which the next scheduled task may be ready to be run or {@code -1} if no task is
+     * scheduled. Depending on the {@link ScheduledTaskStore} this may be earlier than the actual deadline.
+     */
+    final long nextScheduledTaskDeadlineNanos() {
+        ScheduledTaskStore scheduledTaskStore = this.scheduledTaskStore;
+        if (isNullOrEmpty(scheduledTaskStore)) {
+            return -1;
         }
-        return scheduledTaskQueue.peek();
+        return scheduledTaskStore.nextDeadlineNanos();
     }
 
     /**
      * Returns {@code true} if a scheduled task is ready for processing.
      */
     protected final boolean hasScheduledTasks() {
-        Queue<ScheduledFutureTask<?>> scheduledTaskQueue = this.scheduledTaskQueue;
-        ScheduledFutureTask<?> scheduledTask = scheduledTaskQueue == null ? null : scheduledTaskQueue.peek();
-        return scheduledTask != null && scheduledTask.deadlineNanos() <= nanoTime();
+        long deadlineNanos = nextScheduledTaskDeadlineNanos();
+        return deadlineNanos != -1 && deadlineNanos <= nanoTime();
     }
 
     @Override
@@ -192,12 +198,12 @@ public abstract class AbstractScheduledEventExecutor extends AbstractEventExecut
 
     <V> ScheduledFuture<V> schedule(final ScheduledFutureTask<V> task) {
         if (inEventLoop()) {
-            scheduledTaskQueue().add(task);
+            scheduledTaskStore().add(task);
         } else {
             execute(new Runnable() {
                 @Override
                 public void run() {
-                    scheduledTaskQueue().add(task);
+                    scheduledTaskStore().add(task);
                 }
             });
         }
@@ -207,7 +213,7 @@ public abstract class AbstractScheduledEventExecutor extends AbstractEventExecut
 
     final void removeScheduled(final ScheduledFutureTask<?> task) {
         if (inEventLoop()) {
-            scheduledTaskQueue().remove(task);
+            scheduledTaskStore().remove(task);
         } else {
             execute(new Runnable() {
                 @Override
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.ObjectUtil;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Default {@link EventExecutorMetric} of a {@link SingleThreadEventExecutor}, which may be extended to record more
+ * metrics.
+ */
+public class DefaultEventExecutorMetric implements EventExecutorMetric {
+    private static final AtomicReferenceFieldUpdater<DefaultEventExecutorMetric, Runnable> PROBED_TASK_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(DefaultEventExecutorMetric.class, Runnable.class, "probedTask");
+    private static final AtomicLongFieldUpdater<DefaultEventExecutorMetric> REJECTED_TASKS_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(DefaultEventExecutorMetric.class, "rejectedTasks");
+
+    private final SingleThreadEventExecutor executor;
+    private final EventExecutorHistogram taskRunTime = new EventExecutorHistogram();
+    private final EventExecutorHistogram taskQueueLatency = new EventExecutorHistogram();
+
+    // The submitted task whose time in the task queue is measured, at most one at a time. The task itself is
+    // remembered, so measuring neither allocates nor adds anything to the task queue.
+    private volatile Runnable probedTask;
+    private volatile long probeTime;
+    @SuppressWarnings("unused")
+    private volatile long rejectedTasks;
+
+    protected DefaultEventExecutorMetric(SingleThreadEventExecutor executor) {
+        this.executor = ObjectUtil.checkNotNull(executor, "executor");
+    }
+
+    @Override
+    public SingleThreadEventExecutor executor() {
+        return executor;
+    }
+
+    @Override
+    public int pendingTasks() {
+        return executor.queuedTasks();
+    }
+
+    @Override
+    public long rejectedTasks() {
+        return rejectedTasks;
+    }
+
+    @Override
+    public EventExecutorHistogram taskRunTime() {
+        return taskRunTime;
+    }
+
+    @Override
+    public EventExecutorHistogram taskQueueLatency() {
+        return taskQueueLatency;
+    }
+
+    /**
+     * Measure how long the given task waits in the task queue if no other task is measured at the moment. Must be
+     * called before the task is added to the task queue.
+     */
+    final void acquireProbe(Runnable task) {
+        if (probedTask == null && PROBED_TASK_UPDATER.compareAndSet(this, null, task)) {
+            probeTime = System.nanoTime();
+        }
+    }
+
+    /**
+     * Must be called by the executor thread once the given task was taken from the task queue.
+     */
+    final void taskDequeued(Runnable task) {
+        if (probedTask == task) {
+            // Read before the task is released, as afterwards the time may belong to the next probed task.
+            long probeTime = this.probeTime;
+            if (PROBED_TASK_UPDATER.compareAndSet(this, task, null)) {
+                taskQueueLatency.record(System.nanoTime() - probeTime);
+            }
+        }
+    }
+
+    /**
+     * Must be called if the given task was rejected or removed from the task queue, so another task can be measured.
+     */
+    final void releaseProbe(Runnable task) {
+        if (probedTask == task) {
+            PROBED_TASK_UPDATER.compareAndSet(this, task, null);
+        }
+    }
+
+    final void incrementRejectedTasks() {
+        REJECTED_TASKS_UPDATER.incrementAndGet(this);
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder(256)
+                .append(getClass().getSimpleName())
+                .append("(pendingTasks: ").append(pendingTasks())
+                .append(", rejectedTasks: ").append(rejectedTasks())
+                .append(", taskRunTime: ").append(taskRunTime)
+                .append(", taskQueueLatency: ").append(taskQueueLatency)
+                .append(')').toString();
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.util.concurrent;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of {@code long} values, for example durations in nanoseconds, which is recorded by a single thread and
+ * may be read by any thread.
+ * <p>
+ * Values are counted in buckets whose width grows with the value, so every bucket covers a range of at most a
+ * quarter of its lower bound. Recording a value does not allocate and costs a few plain array updates, while the
+ * statistics which are read from other threads may lag slightly behind.
+ */
+public final class EventExecutorHistogram {
+    // Every power of two range is split into 1 << SUB_BUCKET_BITS buckets.
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+    private static final int COUNT = BUCKETS;
+    private static final int SUM = BUCKETS + 1;
+    private static final int MAX = BUCKETS + 2;
+
+    // The bucket counters followed by count, sum and max.
+    private final AtomicLongArray values = new AtomicLongArray(BUCKETS + 3);
+
+    /**
+     * Record the given value. Negative values are recorded as {@code 0}.
+     * <p>
+     * Must only be called by one thread at a time.
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        int bucket = bucket(value);
+        // Only one thread writes, so lazySet is enough to publish the new values.
+        values.lazySet(bucket, values.get(bucket) + 1);
+        values.lazySet(COUNT, values.get(COUNT) + 1);
+        values.lazySet(SUM, values.get(SUM) + value);
+        if (value > values.get(MAX)) {
+            values.lazySet(MAX, value);
+        }
+    }
+
+    private static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (msb - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return ((msb - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS) | sub;
+    }
+
+    /**
+     * Returns the number of recorded values.
+     */
+    public long count() {
+        return values.get(COUNT);
+    }
+
+    /**
+     * Returns the sum of all recorded values.
+     */
+    public long sum() {
+        return values.get(SUM);
+    }
+
+    /**
+     * Returns the largest recorded value or {@code 0} if none was recorded yet.
+     */
+    public long max() {
+        return values.get(MAX);
+    }
+
+    /**
+     * Returns the mean of all recorded values or {@code 0} if none was recorded yet.
+     */
+    public double mean() {
+        long count = count();
+        return count == 0 ? 0 : (double) sum() / count;
+    }
+
+    /**
+     * Returns the upper bound of the bucket which contains the value at the given percentile, so the returned value
+     * overestimates the actual one by at most a quarter. Returns {@code 0} if no value was recorded yet.
+     *
+     * @param percentile    the percentile between {@code 0} and {@code 100}, for example {@code 99.9}
+     */
+    public long valueAtPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile: " + percentile + " (expected: 0-100)");
+        }
+        long count = 0;
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = values.get(i);
+            count += counts[i];
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i), max());
+            }
+        }
+        return max();
+    }
+
+    /**
+     * Returns the number of buckets of this histogram.
+     */
+    public int buckets() {
+        return BUCKETS;
+    }
+
+    /**
+     * Returns the number of recorded values which fell into the bucket with the given index.
+     */
+    public long bucketCount(int bucket) {
+        checkBucket(bucket);
+        return values.get(bucket);
+    }
+
+    /**
+     * Returns the largest value which falls into the bucket with the given index.
+     */
+    public long bucketUpperBound(int bucket) {
+        checkBucket(bucket);
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket >>> SUB_BUCKET_BITS) - 1;
+        long lowerBound = (long) (SUB_BUCKETS | (bucket & (SUB_BUCKETS - 1))) << shift;
+        return lowerBound + (1L << shift) - 1;
+    }
+
+    private static void checkBucket(int bucket) {
+        if (bucket < 0 || bucket >= BUCKETS) {
+            throw new IndexOutOfBoundsException("bucket: " + bucket + " (expected: 0-" + (BUCKETS - 1) + ')');
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder(96)
+                .append("EventExecutorHistogram(count: ").append(count())
+                .append(", mean: ").append((long) mean())
+                .append(", p50: ").append(valueAtPercentile(50))
+                .append(", p99: ").append(valueAtPercentile(99))
+                .append(", p99.9: ").append(valueAtPercentile(99.9))
+                .append(", max: ").append(max())
+                .append(')').toString();
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.util.concurrent;
+
+/**
+ * Expose metrics of an {@link EventExecutor} which was enabled via
+ * {@link SingleThreadEventExecutor#enableMetrics()}.
+ */
+public interface EventExecutorMetric {
+
+    /**
+     * Returns the {@link EventExecutor} these metrics belong to.
+     */
+    EventExecutor executor();
+
+    /**
+     * Returns the number of tasks which are waiting to be run.
+     */
+    int pendingTasks();
+
+    /**
+     * Returns the number of tasks which were handed to the {@link RejectedExecutionHandler}.
+     */
+    long rejectedTasks();
+
+    /**
+     * Returns the histogram of the time in nanoseconds that it took to run each task.
+     */
+    EventExecutorHistogram taskRunTime();
+
+    /**
+     * Returns the histogram of the time in nanoseconds that tasks waited in the task queue before they were run.
+     * This is sampled, so at most one task is measured at a time.
+     */
+    EventExecutorHistogram taskQueueLatency();
+}
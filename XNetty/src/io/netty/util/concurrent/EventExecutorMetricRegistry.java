@@ -0,0 +1,47 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.ConcurrentSet;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps track of the {@link EventExecutorMetric}s of all {@link EventExecutor}s which enabled metrics and are not
+ * terminated yet, so these can be scraped without holding a reference to each {@link EventExecutorGroup}.
+ */
+public final class EventExecutorMetricRegistry {
+    private static final ConcurrentSet<EventExecutorMetric> METRICS = new ConcurrentSet<EventExecutorMetric>();
+
+    private EventExecutorMetricRegistry() { }
+
+    /**
+     * Returns a snapshot of the {@link EventExecutorMetric}s which are registered.
+     */
+    public static List<EventExecutorMetric> metrics() {
+        return new ArrayList<EventExecutorMetric>(METRICS);
+    }
+
+    static void register(EventExecutorMetric metric) {
+        METRICS.add(metric);
+    }
+
+    static void unregister(EventExecutorMetric metric) {
+        METRICS.remove(metric);
+    }
+}
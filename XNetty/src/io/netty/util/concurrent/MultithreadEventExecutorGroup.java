@@ -15,9 +15,11 @@
  */
 package io.netty.util.concurrent;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadFactory;
@@ -150,6 +152,22 @@ public abstract class MultithreadEventExecutorGroup extends AbstractEventExecuto
         return children.length;
     }
 
+    /**
+     * Enable metrics for all {@link EventExecutor}s of this group which support them.
+     *
+     * @return the {@link EventExecutorMetric}s of these executors.
+     * @see SingleThreadEventExecutor#enableMetrics()
+     */
+    public final List<EventExecutorMetric> enableMetrics() {
+        List<EventExecutorMetric> metrics = new ArrayList<EventExecutorMetric>(children.length);
+        for (EventExecutor e: children) {
+            if (e instanceof SingleThreadEventExecutor) {
+                metrics.add(((SingleThreadEventExecutor) e).enableMetrics());
+            }
+        }
+        return metrics;
+    }
+
     /**
      * Create a new EventExecutor which will later then accessible via the {@link #next()}  method. This method will be
      * called for each thread that will serve this {@link MultithreadEventExecutorGroup}.
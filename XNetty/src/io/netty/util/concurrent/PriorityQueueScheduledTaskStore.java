@@ -0,0 +1,71 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.util.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * {@link ScheduledTaskStore} which keeps all tasks in a binary heap.
+ */
+final class PriorityQueueScheduledTaskStore implements ScheduledTaskStore {
+
+    private final PriorityQueue<ScheduledTask> queue = new PriorityQueue<ScheduledTask>();
+
+    @Override
+    public void add(ScheduledTask task) {
+        queue.add(task);
+    }
+
+    @Override
+    public void remove(ScheduledTask task) {
+        queue.remove(task);
+    }
+
+    @Override
+    public ScheduledTask poll(long nanoTime) {
+        ScheduledTask task = queue.peek();
+        if (task == null || task.deadlineNanos() > nanoTime) {
+            return null;
+        }
+        return queue.poll();
+    }
+
+    @Override
+    public long nextDeadlineNanos() {
+        ScheduledTask task = queue.peek();
+        return task == null ? -1 : task.deadlineNanos();
+    }
+
+    @Override
+    public int size() {
+        return queue.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return queue.isEmpty();
+    }
+
+    @Override
+    public List<ScheduledTask> clear() {
+        List<ScheduledTask> tasks = new ArrayList<ScheduledTask>(queue);
+        queue.clear();
+        return tasks;
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.util.concurrent;
+
+import java.util.concurrent.Delayed;
+
+/**
+ * A task which was scheduled on an {@link AbstractScheduledEventExecutor} and is kept in its
+ * {@link ScheduledTaskStore} until it is due.
+ * <p>
+ * Tasks are ordered by their deadline first and by the order in which they were scheduled second, which is what
+ * {@link #compareTo(Object)} reflects.
+ */
+public interface ScheduledTask extends Delayed {
+
+    /**
+     * Returns the time at which this task is due, on the same scale as
+     * {@link AbstractScheduledEventExecutor#nanoTime()}.
+     */
+    long deadlineNanos();
+
+    /**
+     * Returns {@code true} if this task was cancelled and so must not be run anymore.
+     */
+    boolean isCancelled();
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.util.concurrent;
+
+import java.util.List;
+
+/**
+ * Holds the {@link ScheduledTask}s of an {@link AbstractScheduledEventExecutor} until they are due.
+ * <p>
+ * A store is only ever accessed from the thread of the {@link EventExecutor} it belongs to, so implementations do
+ * not need to be thread-safe. All times are on the scale of {@link AbstractScheduledEventExecutor#nanoTime()}.
+ *
+ * @see ScheduledTaskStores
+ */
+public interface ScheduledTaskStore {
+
+    /**
+     * Add the given task.
+     */
+    void add(ScheduledTask task);
+
+    /**
+     * Remove the given task which was cancelled. Implementations may defer the actual removal, in which case
+     * {@link #poll(long)} must never return the task.
+     */
+    void remove(ScheduledTask task);
+
+    /**
+     * Remove and return the task with the earliest deadline if it is due at the given {@code nanoTime}, or return
+     * {@code null} otherwise. Tasks with the same deadline are returned in the order in which they were scheduled.
+     */
+    ScheduledTask poll(long nanoTime);
+
+    /**
+     * Return the time by which {@link #poll(long)} must be called again, or {@code -1} if no task is left. This is
+     * never later than the deadline of the earliest task but may be earlier, for example if the store only tracks
+     * deadlines with a coarser granularity.
+     */
+    long nextDeadlineNanos();
+
+    /**
+     * Return the number of tasks in this store, which may include cancelled tasks whose removal was deferred.
+     */
+    int size();
+
+    /**
+     * Return {@code true} if this store holds no tasks.
+     */
+    boolean isEmpty();
+
+    /**
+     * Remove all tasks from this store and return them.
+     */
+    List<ScheduledTask> clear();
+}
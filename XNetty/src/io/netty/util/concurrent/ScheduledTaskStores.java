@@ -0,0 +1,84 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.util.concurrent;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Expose helper methods which create different {@link ScheduledTaskStoreFactory}s.
+ */
+public final class ScheduledTaskStores {
+    private static final int DEFAULT_TICK_SHIFT = 20;
+    private static final long MAX_TICK_NANOS = 1L << 40;
+
+    private static final ScheduledTaskStoreFactory PRIORITY_QUEUE = new ScheduledTaskStoreFactory() {
+        @Override
+        public ScheduledTaskStore newScheduledTaskStore() {
+            return new PriorityQueueScheduledTaskStore();
+        }
+    };
+
+    private static final ScheduledTaskStoreFactory TIMING_WHEEL = newTimingWheel(DEFAULT_TICK_SHIFT);
+
+    private ScheduledTaskStores() { }
+
+    /**
+     * Returns a {@link ScheduledTaskStoreFactory} whose stores keep the tasks in a binary heap. Adding and removing a
+     * task costs {@code O(log n)} and {@code O(n)} respectively.
+     */
+    public static ScheduledTaskStoreFactory priorityQueue() {
+        return PRIORITY_QUEUE;
+    }
+
+    /**
+     * Returns a {@link ScheduledTaskStoreFactory} whose stores sort the tasks into a hierarchical timing wheel with
+     * ticks of roughly one millisecond. Adding and removing a task costs {@code O(1)}, while tasks are still run in
+     * the exact order of their deadlines. This is the default of {@link SingleThreadEventExecutor}.
+     */
+    public static ScheduledTaskStoreFactory timingWheel() {
+        return TIMING_WHEEL;
+    }
+
+    /**
+     * Returns a {@link ScheduledTaskStoreFactory} whose stores sort the tasks into a hierarchical timing wheel with
+     * ticks of the given duration, rounded up to the next power of two nanoseconds. Shorter ticks sort the tasks more
+     * finely in advance but let the wheel cover less time before it needs to cascade.
+     */
+    public static ScheduledTaskStoreFactory timingWheel(long tickDuration, TimeUnit unit) {
+        if (unit == null) {
+            throw new NullPointerException("unit");
+        }
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("tickDuration: " + tickDuration + " (expected: > 0)");
+        }
+        long tickNanos = unit.toNanos(tickDuration);
+        if (tickNanos > MAX_TICK_NANOS) {
+            throw new IllegalArgumentException(
+                    "tickDuration: " + tickDuration + ' ' + unit + " (expected: <= " + MAX_TICK_NANOS + " ns)");
+        }
+        return newTimingWheel(tickNanos == 1 ? 0 : 64 - Long.numberOfLeadingZeros(tickNanos - 1));
+    }
+
+    private static ScheduledTaskStoreFactory newTimingWheel(final int tickShift) {
+        return new ScheduledTaskStoreFactory() {
+            @Override
+            public ScheduledTaskStore newScheduledTaskStore() {
+                return new TimingWheelScheduledTaskStore(tickShift);
+            }
+        };
+    }
+}
@@ -18,6 +18,7 @@ package io.netty.util.concurrent;
 import io.netty.util.internal.ObjectUtil;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.ThreadExecutorMap;
 import io.netty.util.internal.UnstableApi;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
@@ -75,6 +76,11 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
 
     private static final AtomicIntegerFieldUpdater<SingleThreadEventExecutor> STATE_UPDATER;
     private static final AtomicReferenceFieldUpdater<SingleThreadEventExecutor, ThreadProperties> PROPERTIES_UPDATER;
+    private static final AtomicReferenceFieldUpdater<SingleThreadEventExecutor, DefaultEventExecutorMetric>
+            METRIC_UPDATER;
+
+    private static final boolean METRICS_ENABLED =
+            SystemPropertyUtil.getBoolean("io.netty.eventexecutor.metrics", false);
 
     static {
         AtomicIntegerFieldUpdater<SingleThreadEventExecutor> updater =
@@ -91,6 +97,14 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
                                                                    ThreadProperties.class, "threadProperties");
         }
         PROPERTIES_UPDATER = propertiesUpdater;
+
+        AtomicReferenceFieldUpdater<SingleThreadEventExecutor, DefaultEventExecutorMetric> metricUpdater =
+                PlatformDependent.newAtomicReferenceFieldUpdater(SingleThreadEventExecutor.class, "metric");
+        if (metricUpdater == null) {
+            metricUpdater = AtomicReferenceFieldUpdater.newUpdater(SingleThreadEventExecutor.class,
+                                                                   DefaultEventExecutorMetric.class, "metric");
+        }
+        METRIC_UPDATER = metricUpdater;
     }
 
     private final Queue<Runnable> taskQueue;
@@ -98,6 +112,7 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
     private volatile Thread thread;
     @SuppressWarnings("unused")
     private volatile ThreadProperties threadProperties;
+    private volatile DefaultEventExecutorMetric metric;
     private final Executor executor;
     private volatile boolean interrupted;
 
@@ -147,6 +162,26 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
         this(parent, new ThreadPerTaskExecutor(threadFactory), addTaskWakesUp, maxPendingTasks, rejectedHandler);
     }
 
+    /**
+     * Create a new instance
+     *
+     * @param parent                        the {@link EventExecutorGroup} which is the parent of this instance and
+     *                                      belongs to it
+     * @param threadFactory                 the {@link ThreadFactory} which will be used for the used {@link Thread}
+     * @param addTaskWakesUp                {@code true} if and only if invocation of {@link #addTask(Runnable)} will
+     *                                      wake up the executor thread
+     * @param maxPendingTasks               the maximum number of pending tasks before new tasks will be rejected.
+     * @param rejectedHandler               the {@link RejectedExecutionHandler} to use.
+     * @param scheduledTaskStoreFactory     the {@link ScheduledTaskStoreFactory} to use for the scheduled tasks.
+     */
+    protected SingleThreadEventExecutor(
+            EventExecutorGroup parent, ThreadFactory threadFactory,
+            boolean addTaskWakesUp, int maxPendingTasks, RejectedExecutionHandler rejectedHandler,
+            ScheduledTaskStoreFactory scheduledTaskStoreFactory) {
+        this(parent, new ThreadPerTaskExecutor(threadFactory), addTaskWakesUp, maxPendingTasks, rejectedHandler,
+             scheduledTaskStoreFactory);
+    }
+
     /**
      * Create a new instance
      *
@@ -172,7 +207,26 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
     protected SingleThreadEventExecutor(EventExecutorGroup parent, Executor executor,
                                         boolean addTaskWakesUp, int maxPendingTasks,
                                         RejectedExecutionHandler rejectedHandler) {
-        super(parent);
+        this(parent, executor, addTaskWakesUp, maxPendingTasks, rejectedHandler, ScheduledTaskStores.timingWheel());
+    }
+
+    /**
+     * Create a new instance
+     *
+     * @param parent                        the {@link EventExecutorGroup} which is the parent of this instance and
+     *                                      belongs to it
+     * @param executor                      the {@link Executor} which will be used for executing
+     * @param addTaskWakesUp                {@code true} if and only if invocation of {@link #addTask(Runnable)} will
+     *                                      wake up the executor thread
+     * @param maxPendingTasks               the maximum number of pending tasks before new tasks will be rejected.
+     * @param rejectedHandler               the {@link RejectedExecutionHandler} to use.
+     * @param scheduledTaskStoreFactory     the {@link ScheduledTaskStoreFactory} to use for the scheduled tasks.
+     */
+    protected SingleThreadEventExecutor(EventExecutorGroup parent, Executor executor,
+                                        boolean addTaskWakesUp, int maxPendingTasks,
+                                        RejectedExecutionHandler rejectedHandler,
+                                        ScheduledTaskStoreFactory scheduledTaskStoreFactory) {
+        super(parent, scheduledTaskStoreFactory);
         this.addTaskWakesUp = addTaskWakesUp;
         this.maxPendingTasks = Math.max(16, maxPendingTasks);
         this.executor = ObjectUtil.checkNotNull(executor, "executor");
@@ -224,8 +278,16 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
             if (task == WAKEUP_TASK) {
                 continue;
             }
-            return task;
+            return taskDequeued(task);
+        }
+    }
+
+    private Runnable taskDequeued(Runnable task) {
+        DefaultEventExecutorMetric metric = this.metric;
+        if (metric != null && task != null) {
+            metric.taskDequeued(task);
         }
+        return task;
     }
 
     /**
@@ -245,8 +307,8 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
 
         BlockingQueue<Runnable> taskQueue = (BlockingQueue<Runnable>) this.taskQueue;
         for (;;) {
-            ScheduledFutureTask<?> scheduledTask = peekScheduledTask();
-            if (scheduledTask == null) {
+            long deadlineNanos = nextScheduledTaskDeadlineNanos();
+            if (deadlineNanos == -1) {
                 Runnable task = null;
                 try {
                     task = taskQueue.take();
@@ -256,9 +318,9 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
                 } catch (InterruptedException e) {
                     // Ignore
                 }
-                return task;
+                return taskDequeued(task);
             } else {
-                long delayNanos = scheduledTask.delayNanos();
+                long delayNanos = ScheduledFutureTask.deadlineToDelayNanos(deadlineNanos);
                 Runnable task = null;
                 if (delayNanos > 0) {
                     try {
@@ -278,7 +340,7 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
                 }
 
                 if (task != null) {
-                    return task;
+                    return taskDequeued(task);
                 }
             }
         }
@@ -289,8 +351,8 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
         Runnable scheduledTask  = pollScheduledTask(nanoTime);
         while (scheduledTask != null) {
             if (!taskQueue.offer(scheduledTask)) {
-                // No space left in the task queue add it back to the scheduledTaskQueue so we pick it up again.
-                scheduledTaskQueue().add((ScheduledFutureTask<?>) scheduledTask);
+                // No space left in the task queue add it back to the scheduledTaskStore so we pick it up again.
+                scheduledTaskStore().add((ScheduledFutureTask<?>) scheduledTask);
                 return false;
             }
             scheduledTask  = pollScheduledTask(nanoTime);
@@ -324,6 +386,56 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
         return taskQueue.size();
     }
 
+    /**
+     * Return the number of tasks that are pending for processing like {@link #pendingTasks()}, but may be called from
+     * any thread without blocking or starting this executor. Used by {@link EventExecutorMetric#pendingTasks()}.
+     */
+    protected int queuedTasks() {
+        return taskQueue.size();
+    }
+
+    /**
+     * Start recording metrics for this executor if not done yet, and register them with the
+     * {@link EventExecutorMetricRegistry} until this executor is terminated. If the system property
+     * {@code io.netty.eventexecutor.metrics} is set to {@code true}, this is called for every executor once its thread
+     * is started.
+     *
+     * @return the {@link EventExecutorMetric} of this executor.
+     */
+    public final EventExecutorMetric enableMetrics() {
+        DefaultEventExecutorMetric metric = this.metric;
+        if (metric == null) {
+            DefaultEventExecutorMetric newMetric = newMetric();
+            if (METRIC_UPDATER.compareAndSet(this, null, newMetric)) {
+                metric = newMetric;
+                EventExecutorMetricRegistry.register(metric);
+                if (isTerminated()) {
+                    // Terminated concurrently, so it may have missed the metric when it unregistered.
+                    EventExecutorMetricRegistry.unregister(metric);
+                }
+            } else {
+                metric = this.metric;
+            }
+        }
+        return metric;
+    }
+
+    /**
+     * Returns the {@link EventExecutorMetric} of this executor or {@code null} if {@link #enableMetrics()} was not
+     * called yet.
+     */
+    public final EventExecutorMetric metric() {
+        return metric;
+    }
+
+    /**
+     * Create the {@link DefaultEventExecutorMetric} of this executor once {@link #enableMetrics()} is called.
+     * Sub-classes may override this to record additional metrics.
+     */
+    protected DefaultEventExecutorMetric newMetric() {
+        return new DefaultEventExecutorMetric(this);
+    }
+
     /**
      * Add a task to the task queue, or throws a {@link RejectedExecutionException} if this instance was shutdown
      * before.
@@ -351,6 +463,10 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
         if (task == null) {
             throw new NullPointerException("task");
         }
+        DefaultEventExecutorMetric metric = this.metric;
+        if (metric != null) {
+            metric.releaseProbe(task);
+        }
         return taskQueue.remove(task);
     }
 
@@ -390,8 +506,9 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
         if (task == null) {
             return false;
         }
+        final DefaultEventExecutorMetric metric = this.metric;
         for (;;) {
-            safeExecute(task);
+            runTask(metric, task);
             task = pollTaskFrom(taskQueue);
             if (task == null) {
                 return true;
@@ -399,6 +516,16 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
         }
     }
 
+    private static void runTask(DefaultEventExecutorMetric metric, Runnable task) {
+        if (metric == null) {
+            safeExecute(task);
+        } else {
+            long start = System.nanoTime();
+            safeExecute(task);
+            metric.taskRunTime().record(System.nanoTime() - start);
+        }
+    }
+
     /**
      * Poll all tasks from the task queue and run them via {@link Runnable#run()} method.  This method stops running
      * the tasks in the task queue and returns if it ran longer than {@code timeoutNanos}.
@@ -412,10 +539,11 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
         }
 
         final long deadline = ScheduledFutureTask.nanoTime() + timeoutNanos;
+        final DefaultEventExecutorMetric metric = this.metric;
         long runTasks = 0;
         long lastExecutionTime;
         for (;;) {
-            safeExecute(task);
+            runTask(metric, task);
 
             runTasks ++;
 
@@ -449,12 +577,12 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
      * Returns the amount of time left until the scheduled task with the closest dead line is executed.
      */
     protected long delayNanos(long currentTimeNanos) {
-        ScheduledFutureTask<?> scheduledTask = peekScheduledTask();
-        if (scheduledTask == null) {
+        long deadlineNanos = nextScheduledTaskDeadlineNanos();
+        if (deadlineNanos == -1) {
             return SCHEDULE_PURGE_INTERVAL;
         }
 
-        return scheduledTask.delayNanos(currentTimeNanos);
+        return ScheduledFutureTask.deadlineToDelayNanos(currentTimeNanos, deadlineNanos);
     }
 
     /**
@@ -753,6 +881,12 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
             throw new NullPointerException("task");
         }
 
+        DefaultEventExecutorMetric metric = this.metric;
+        if (metric != null && !isShutdown()) {
+            // Sample how long the task has to wait in the task queue.
+            metric.acquireProbe(task);
+        }
+
         boolean inEventLoop = inEventLoop();
         if (inEventLoop) {
             addTask(task);
@@ -842,6 +976,11 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
      * @param task to reject.
      */
     protected final void reject(Runnable task) {
+        DefaultEventExecutorMetric metric = this.metric;
+        if (metric != null) {
+            metric.incrementRejectedTasks();
+            metric.releaseProbe(task);
+        }
         rejectedExecutionHandler.rejected(task, this);
     }
 
@@ -852,6 +991,9 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
     private void startThread() {
         if (STATE_UPDATER.get(this) == ST_NOT_STARTED) {
             if (STATE_UPDATER.compareAndSet(this, ST_NOT_STARTED, ST_STARTED)) {
+                if (METRICS_ENABLED) {
+                    enableMetrics();
+                }
                 doStartThread();
             }
         }
@@ -863,6 +1005,7 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
             @Override
             public void run() {
                 thread = Thread.currentThread();
+                ThreadExecutorMap.setCurrentEventExecutor(SingleThreadEventExecutor.this);
                 if (interrupted) {
                     thread.interrupt();
                 }
@@ -903,6 +1046,10 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
                         } finally {
                             STATE_UPDATER.set(SingleThreadEventExecutor.this, ST_TERMINATED);
                             threadLock.release();
+                            DefaultEventExecutorMetric metric = SingleThreadEventExecutor.this.metric;
+                            if (metric != null) {
+                                EventExecutorMetricRegistry.unregister(metric);
+                            }
                             if (!taskQueue.isEmpty()) {
                                 logger.warn(
                                         "An event executor terminated with " +
@@ -0,0 +1,347 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.util.concurrent;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * {@link ScheduledTaskStore} which sorts tasks into a hierarchical timing wheel, so adding a task is {@code O(1)}
+ * no matter how many tasks are scheduled.
+ * <p>
+ * The wheel has {@value #LEVELS} levels of {@value #SLOTS} slots each, where a slot of the first level covers one
+ * tick and a slot of every further level covers a whole round of the level below it. Once the wheel reaches a slot
+ * of a higher level its tasks are cascaded into the lower levels, and once it reaches a slot of the first level its
+ * tasks are moved into a small heap from which they are polled in their exact order. Tasks which are due too far in
+ * the future for the wheel wait in another heap until they come into its range. Cancelled tasks are not searched for
+ * but dropped once they are reached, unless too many of them pile up.
+ */
+final class TimingWheelScheduledTaskStore implements ScheduledTaskStore {
+
+    private static final int LEVELS = 4;
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final long MAX_TICKS = 1L << (LEVELS * SLOT_BITS);
+    private static final int PURGE_THRESHOLD = 256;
+
+    private final int tickShift;
+    private final Bucket[] buckets = new Bucket[LEVELS * SLOTS];
+    private final long[] occupied = new long[LEVELS];
+    // Tasks which are due before the current tick of the wheel. These are always due before all tasks in the wheel.
+    private final PriorityQueue<ScheduledTask> ready = new PriorityQueue<ScheduledTask>();
+    // Tasks which are due too far after the current tick of the wheel to be sorted into it yet.
+    private final PriorityQueue<ScheduledTask> overflow = new PriorityQueue<ScheduledTask>();
+    private long tick;
+    private int wheelSize;
+    // Number of cancelled tasks which are still stored. This may overestimate as tasks are not looked up on removal.
+    private int cancelled;
+
+    /**
+     * Create a new instance whose ticks last {@code 2^tickShift} nanoseconds.
+     */
+    TimingWheelScheduledTaskStore(int tickShift) {
+        if (tickShift < 0 || tickShift > 40) {
+            throw new IllegalArgumentException("tickShift: " + tickShift + " (expected: 0-40)");
+        }
+        this.tickShift = tickShift;
+    }
+
+    @Override
+    public void add(ScheduledTask task) {
+        if (wheelSize == 0 && overflow.isEmpty()) {
+            // Nothing to cascade, so skip all the ticks that passed in the meantime.
+            tick = Math.max(tick, ScheduledFutureTask.nanoTime() >> tickShift);
+        }
+        addTask(task);
+    }
+
+    private void addTask(ScheduledTask task) {
+        long expiration = task.deadlineNanos() >> tickShift;
+        if (expiration < tick) {
+            ready.add(task);
+            return;
+        }
+        long delta = expiration - tick;
+        if (delta >= MAX_TICKS) {
+            overflow.add(task);
+            return;
+        }
+        int level = delta < SLOTS ? 0 : (63 - Long.numberOfLeadingZeros(delta)) / SLOT_BITS;
+        int slot = (int) (expiration >>> (level * SLOT_BITS)) & SLOT_MASK;
+        int index = (level << SLOT_BITS) | slot;
+        Bucket bucket = buckets[index];
+        if (bucket == null) {
+            bucket = buckets[index] = new Bucket();
+        }
+        bucket.add(task);
+        occupied[level] |= 1L << slot;
+        wheelSize++;
+    }
+
+    @Override
+    public void remove(ScheduledTask task) {
+        // The task is dropped once it is reached, which saves searching for it now.
+        if (++cancelled >= PURGE_THRESHOLD && cancelled > size() >>> 1) {
+            purge();
+        }
+    }
+
+    @Override
+    public ScheduledTask poll(long nanoTime) {
+        for (;;) {
+            ScheduledTask task = ready.peek();
+            if (task != null) {
+                if (task.isCancelled()) {
+                    ready.remove();
+                    dropped();
+                    continue;
+                }
+                return task.deadlineNanos() <= nanoTime ? ready.poll() : null;
+            }
+
+            long lastTick = nanoTime >> tickShift;
+            long next = nextTick();
+            if (next > lastTick) {
+                // Nothing is due until after lastTick, so skip the ticks in between.
+                tick = Math.max(tick, lastTick + 1);
+                return null;
+            }
+            processTick(next);
+        }
+    }
+
+    @Override
+    public long nextDeadlineNanos() {
+        for (;;) {
+            ScheduledTask task = ready.peek();
+            if (task == null) {
+                break;
+            }
+            if (!task.isCancelled()) {
+                return task.deadlineNanos();
+            }
+            ready.remove();
+            dropped();
+        }
+        long next = nextTick();
+        return next == Long.MAX_VALUE ? -1 : next << tickShift;
+    }
+
+    @Override
+    public int size() {
+        return ready.size() + wheelSize + overflow.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public List<ScheduledTask> clear() {
+        List<ScheduledTask> tasks = new ArrayList<ScheduledTask>(size());
+        tasks.addAll(ready);
+        ready.clear();
+        tasks.addAll(overflow);
+        overflow.clear();
+        for (int level = 0; level < LEVELS; level++) {
+            long bits = occupied[level];
+            while (bits != 0) {
+                int slot = Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                buckets[(level << SLOT_BITS) | slot].drainTo(tasks);
+            }
+            occupied[level] = 0;
+        }
+        wheelSize = 0;
+        cancelled = 0;
+        return tasks;
+    }
+
+    private void dropped() {
+        if (cancelled > 0) {
+            cancelled--;
+        }
+    }
+
+    private void processTick(long tick) {
+        this.tick = tick;
+        for (;;) {
+            ScheduledTask task = overflow.peek();
+            if (task == null || (task.deadlineNanos() >> tickShift) - tick >= MAX_TICKS) {
+                break;
+            }
+            overflow.remove();
+            if (task.isCancelled()) {
+                dropped();
+            } else {
+                addTask(task);
+            }
+        }
+
+        // Cascade the higher levels first, so the first level contains everything that is due in this tick.
+        for (int level = LEVELS - 1; level > 0; level--) {
+            int shift = level * SLOT_BITS;
+            if ((tick & ((1L << shift) - 1)) == 0) {
+                int slot = (int) (tick >>> shift) & SLOT_MASK;
+                if ((occupied[level] & (1L << slot)) != 0) {
+                    occupied[level] &= ~(1L << slot);
+                    Bucket bucket = buckets[(level << SLOT_BITS) | slot];
+                    ScheduledTask[] tasks = bucket.tasks;
+                    int size = bucket.size;
+                    bucket.size = 0;
+                    wheelSize -= size;
+                    for (int i = 0; i < size; i++) {
+                        ScheduledTask task = tasks[i];
+                        tasks[i] = null;
+                        if (task.isCancelled()) {
+                            dropped();
+                        } else {
+                            // Lands in a lower level, so never in the bucket that is processed right now.
+                            addTask(task);
+                        }
+                    }
+                }
+            }
+        }
+
+        int slot = (int) tick & SLOT_MASK;
+        if ((occupied[0] & (1L << slot)) != 0) {
+            occupied[0] &= ~(1L << slot);
+            Bucket bucket = buckets[slot];
+            ScheduledTask[] tasks = bucket.tasks;
+            int size = bucket.size;
+            bucket.size = 0;
+            wheelSize -= size;
+            for (int i = 0; i < size; i++) {
+                ScheduledTask task = tasks[i];
+                tasks[i] = null;
+                if (task.isCancelled()) {
+                    dropped();
+                } else {
+                    ready.add(task);
+                }
+            }
+        }
+        this.tick = tick + 1;
+    }
+
+    /**
+     * Returns the next tick which cascades, readies or takes over tasks or {@link Long#MAX_VALUE} if there are no
+     * such tasks. The returned tick may be earlier than needed, but never later.
+     */
+    private long nextTick() {
+        long nextTick = Long.MAX_VALUE;
+        ScheduledTask task = overflow.peek();
+        if (task != null) {
+            nextTick = Math.max(tick, (task.deadlineNanos() >> tickShift) - MAX_TICKS + 1);
+        }
+        if (wheelSize == 0) {
+            return nextTick;
+        }
+        for (int level = 0; level < LEVELS; level++) {
+            long bits = occupied[level];
+            if (bits == 0) {
+                continue;
+            }
+            int shift = level * SLOT_BITS;
+            long block = tick >>> shift;
+            // Bit i of rotated is the slot which is i slots ahead of the current one.
+            long rotated = Long.rotateRight(bits, (int) block & SLOT_MASK);
+            long candidate;
+            if (level == 0) {
+                candidate = tick + Long.numberOfTrailingZeros(rotated);
+            } else {
+                if ((tick & ((1L << shift) - 1)) != 0) {
+                    // The span of the current slot already started, so it holds tasks for the next round of this
+                    // level which are due after those of all the other slots.
+                    rotated &= ~1L;
+                }
+                int distance = rotated == 0 ? SLOTS : Long.numberOfTrailingZeros(rotated);
+                candidate = (block + distance) << shift;
+            }
+            nextTick = Math.min(nextTick, candidate);
+        }
+        return nextTick;
+    }
+
+    private void purge() {
+        removeCancelled(ready);
+        removeCancelled(overflow);
+        for (int level = 0; level < LEVELS; level++) {
+            long bits = occupied[level];
+            while (bits != 0) {
+                int slot = Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                Bucket bucket = buckets[(level << SLOT_BITS) | slot];
+                wheelSize -= bucket.removeCancelled();
+                if (bucket.size == 0) {
+                    occupied[level] &= ~(1L << slot);
+                }
+            }
+        }
+        cancelled = 0;
+    }
+
+    private static void removeCancelled(PriorityQueue<ScheduledTask> queue) {
+        Iterator<ScheduledTask> i = queue.iterator();
+        while (i.hasNext()) {
+            if (i.next().isCancelled()) {
+                i.remove();
+            }
+        }
+    }
+
+    private static final class Bucket {
+        ScheduledTask[] tasks = new ScheduledTask[4];
+        int size;
+
+        void add(ScheduledTask task) {
+            if (size == tasks.length) {
+                ScheduledTask[] newTasks = new ScheduledTask[size << 1];
+                System.arraycopy(tasks, 0, newTasks, 0, size);
+                tasks = newTasks;
+            }
+            tasks[size++] = task;
+        }
+
+        void drainTo(List<ScheduledTask> list) {
+            for (int i = 0; i < size; i++) {
+                list.add(tasks[i]);
+                tasks[i] = null;
+            }
+            size = 0;
+        }
+
+        int removeCancelled() {
+            int j = 0;
+            for (int i = 0; i < size; i++) {
+                ScheduledTask task = tasks[i];
+                tasks[i] = null;
+                if (!task.isCancelled()) {
+                    tasks[j++] = task;
+                }
+            }
+            int removed = size - j;
+            size = j;
+            return removed;
+        }
+    }
+}
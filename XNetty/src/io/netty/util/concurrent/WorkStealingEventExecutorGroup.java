@@ -0,0 +1,619 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.MathUtil;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.ReadOnlyIterator;
+import io.netty.util.internal.UnstableApi;
+import io.netty.util.internal.chmv8.ForkJoinPool;
+import io.netty.util.internal.chmv8.ForkJoinWorkerThread;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link EventExecutorGroup} which is backed by a single work-stealing {@link ForkJoinPool} and so balances the load
+ * over all its threads instead of binding each task to a fixed {@link Thread} like {@link DefaultEventExecutorGroup}
+ * does. This makes it a good fit to offload blocking or CPU heavy handlers whose cost differs a lot between
+ * {@link io.netty.channel.Channel}s.
+ * <p>
+ * Ordering is provided by serial executors which run their tasks one after the other, but on whatever thread of the
+ * pool is free:
+ * <ul>
+ *     <li>{@link #next()} returns a new {@link OrderedEventExecutor} on each call. As a
+ *     {@link io.netty.channel.ChannelPipeline} calls {@link #next()} once per handler and
+ *     {@link io.netty.channel.Channel} the events of each {@link io.netty.channel.Channel} are still handled in
+ *     order.</li>
+ *     <li>{@link #executor(Object)} returns an {@link OrderedEventExecutor} for a key, so all tasks submitted for equal
+ *     keys run in order. Distinct keys may share an executor.</li>
+ *     <li>{@link #unordered()}, {@link #execute(Runnable)} and the {@code submit} methods make no ordering guarantees
+ *     at all.</li>
+ * </ul>
+ * Scheduled tasks are timed by the {@link GlobalEventExecutor} and then run by the {@link EventExecutor} they were
+ * scheduled on, so their timing is less precise than the one of an {@link io.netty.channel.EventLoop}.
+ */
+@UnstableApi
+public final class WorkStealingEventExecutorGroup extends AbstractEventExecutorGroup {
+    private static final InternalLogger logger =
+            InternalLoggerFactory.getInstance(WorkStealingEventExecutorGroup.class);
+
+    private static final int DEFAULT_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors());
+    private static final int STRIPES_PER_THREAD = 16;
+    private static final long TERMINATION_CHECK_INTERVAL_MILLIS = 100;
+    private static final AtomicInteger poolId = new AtomicInteger();
+
+    private final ForkJoinPool pool;
+    private final int maxTaskExecutePerRun;
+    private final SerialEventExecutor[] stripes;
+    private final EventExecutor unordered = new UnorderedEventExecutor();
+    private final Promise<?> terminationFuture = new DefaultPromise<Void>(GlobalEventExecutor.INSTANCE);
+    private volatile boolean shuttingDown;
+
+    /**
+     * Creates a new instance which uses as many threads as there are available processors.
+     */
+    public WorkStealingEventExecutorGroup() {
+        this(DEFAULT_THREADS);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param nThreads          the maximum number of threads to use
+     */
+    public WorkStealingEventExecutorGroup(int nThreads) {
+        this(nThreads, DefaultThreadFactory.toPoolName(WorkStealingEventExecutorGroup.class));
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param nThreads          the maximum number of threads to use
+     * @param poolName          the prefix of the names of the created threads
+     */
+    public WorkStealingEventExecutorGroup(int nThreads, String poolName) {
+        this(nThreads, poolName, 1024);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param nThreads              the maximum number of threads to use
+     * @param poolName              the prefix of the names of the created threads
+     * @param maxTaskExecutePerRun  the maximum number of tasks an ordered executor runs before it gives up its thread
+     *                              so other work can be done in between
+     */
+    public WorkStealingEventExecutorGroup(int nThreads, String poolName, int maxTaskExecutePerRun) {
+        ObjectUtil.checkPositive(nThreads, "nThreads");
+        ObjectUtil.checkNotNull(poolName, "poolName");
+        this.maxTaskExecutePerRun = ObjectUtil.checkPositive(maxTaskExecutePerRun, "maxTaskExecutePerRun");
+        pool = new ForkJoinPool(nThreads, new WorkerThreadFactory(poolName + '-' + poolId.incrementAndGet() + '-'),
+                null, true);
+
+        stripes = new SerialEventExecutor[MathUtil.findNextPositivePowerOfTwo(nThreads * STRIPES_PER_THREAD)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new SerialEventExecutor();
+        }
+    }
+
+    /**
+     * Returns a new {@link OrderedEventExecutor} whose tasks are run in the order they were submitted but may run on
+     * any thread of this group.
+     */
+    @Override
+    public EventExecutor next() {
+        return new SerialEventExecutor();
+    }
+
+    /**
+     * Returns the {@link OrderedEventExecutor} which is used for the given key. The same executor is returned for all
+     * keys which are {@link Object#equals(Object) equal}.
+     */
+    public EventExecutor executor(Object key) {
+        int hash = ObjectUtil.checkNotNull(key, "key").hashCode();
+        hash ^= hash >>> 16;
+        return stripes[hash & stripes.length - 1];
+    }
+
+    /**
+     * Returns an {@link EventExecutor} which submits its tasks straight to the pool, so they may run concurrently
+     * and in any order.
+     */
+    public EventExecutor unordered() {
+        return unordered;
+    }
+
+    /**
+     * Returns the number of tasks which were stolen by one thread from the queue of another one so far.
+     */
+    public long stealCount() {
+        return pool.getStealCount();
+    }
+
+    /**
+     * Returns an estimate of the number of tasks which are queued but not executed yet.
+     */
+    public long pendingTasks() {
+        return pool.getQueuedTaskCount() + pool.getQueuedSubmissionCount();
+    }
+
+    /**
+     * Returns the keyed executors of this group, see {@link #executor(Object)}.
+     */
+    @Override
+    public Iterator<EventExecutor> iterator() {
+        return new ReadOnlyIterator<EventExecutor>(Arrays.<EventExecutor>asList(stripes).iterator());
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        unordered.execute(command);
+    }
+
+    @Override
+    public Future<?> submit(Runnable task) {
+        return unordered.submit(task);
+    }
+
+    @Override
+    public <T> Future<T> submit(Runnable task, T result) {
+        return unordered.submit(task, result);
+    }
+
+    @Override
+    public <T> Future<T> submit(Callable<T> task) {
+        return unordered.submit(task);
+    }
+
+    @Override
+    public <T> List<java.util.concurrent.Future<T>> invokeAll(Collection<? extends Callable<T>> tasks)
+            throws InterruptedException {
+        return unordered.invokeAll(tasks);
+    }
+
+    @Override
+    public <T> List<java.util.concurrent.Future<T>> invokeAll(
+            Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit) throws InterruptedException {
+        return unordered.invokeAll(tasks, timeout, unit);
+    }
+
+    @Override
+    public <T> T invokeAny(Collection<? extends Callable<T>> tasks) throws InterruptedException, ExecutionException {
+        return unordered.invokeAny(tasks);
+    }
+
+    @Override
+    public <T> T invokeAny(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        return unordered.invokeAny(tasks, timeout, unit);
+    }
+
+    @Override
+    public boolean isShuttingDown() {
+        return shuttingDown;
+    }
+
+    /**
+     * Shuts down this group. New tasks are rejected from now on while the already submitted ones are still run, so
+     * the quiet period is not used. If they are not done before the timeout the threads are interrupted.
+     */
+    @Override
+    public Future<?> shutdownGracefully(long quietPeriod, long timeout, TimeUnit unit) {
+        if (quietPeriod < 0) {
+            throw new IllegalArgumentException("quietPeriod: " + quietPeriod + " (expected >= 0)");
+        }
+        if (timeout < quietPeriod) {
+            throw new IllegalArgumentException(
+                    "timeout: " + timeout + " (expected >= quietPeriod (" + quietPeriod + "))");
+        }
+        ObjectUtil.checkNotNull(unit, "unit");
+
+        startShutdown(unit.toNanos(timeout), true);
+        return terminationFuture;
+    }
+
+    private void startShutdown(long timeoutNanos, final boolean interruptAfterTimeout) {
+        synchronized (this) {
+            if (shuttingDown) {
+                return;
+            }
+            shuttingDown = true;
+        }
+        pool.shutdown();
+        final long deadline = System.nanoTime() + timeoutNanos;
+        GlobalEventExecutor.INSTANCE.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (pool.isTerminated()) {
+                    terminationFuture.trySuccess(null);
+                    return;
+                }
+                if (interruptAfterTimeout && System.nanoTime() - deadline >= 0) {
+                    pool.shutdownNow();
+                }
+                GlobalEventExecutor.INSTANCE.schedule(this, TERMINATION_CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        });
+    }
+
+    @Override
+    public Future<?> terminationFuture() {
+        return terminationFuture;
+    }
+
+    @Override
+    @Deprecated
+    public void shutdown() {
+        startShutdown(0, false);
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return pool.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return pool.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return pool.awaitTermination(timeout, unit);
+    }
+
+    private abstract class PoolEventExecutor extends AbstractEventExecutor {
+        PoolEventExecutor() {
+            super(WorkStealingEventExecutorGroup.this);
+        }
+
+        @Override
+        public boolean isShuttingDown() {
+            return WorkStealingEventExecutorGroup.this.isShuttingDown();
+        }
+
+        @Override
+        public Future<?> shutdownGracefully(long quietPeriod, long timeout, TimeUnit unit) {
+            return WorkStealingEventExecutorGroup.this.shutdownGracefully(quietPeriod, timeout, unit);
+        }
+
+        @Override
+        public Future<?> terminationFuture() {
+            return WorkStealingEventExecutorGroup.this.terminationFuture();
+        }
+
+        @Override
+        @Deprecated
+        public void shutdown() {
+            WorkStealingEventExecutorGroup.this.shutdown();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return WorkStealingEventExecutorGroup.this.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return WorkStealingEventExecutorGroup.this.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return WorkStealingEventExecutorGroup.this.awaitTermination(timeout, unit);
+        }
+
+        @Override
+        public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+            ObjectUtil.checkNotNull(command, "command");
+            ObjectUtil.checkNotNull(unit, "unit");
+            if (delay < 0) {
+                throw new IllegalArgumentException(
+                        String.format("delay: %d (expected: >= 0)", delay));
+            }
+            return schedule(new PoolScheduledTask<Void>(
+                    this, Executors.<Void>callable(command, null), unit.toNanos(delay), 0));
+        }
+
+        @Override
+        public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+            ObjectUtil.checkNotNull(callable, "callable");
+            ObjectUtil.checkNotNull(unit, "unit");
+            if (delay < 0) {
+                throw new IllegalArgumentException(
+                        String.format("delay: %d (expected: >= 0)", delay));
+            }
+            return schedule(new PoolScheduledTask<V>(this, callable, unit.toNanos(delay), 0));
+        }
+
+        @Override
+        public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period,
+                                                      TimeUnit unit) {
+            ObjectUtil.checkNotNull(command, "command");
+            ObjectUtil.checkNotNull(unit, "unit");
+            if (initialDelay < 0) {
+                throw new IllegalArgumentException(
+                        String.format("initialDelay: %d (expected: >= 0)", initialDelay));
+            }
+            if (period <= 0) {
+                throw new IllegalArgumentException(
+                        String.format("period: %d (expected: > 0)", period));
+            }
+            return schedule(new PoolScheduledTask<Void>(
+                    this, Executors.<Void>callable(command, null), unit.toNanos(initialDelay), unit.toNanos(period)));
+        }
+
+        @Override
+        public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay,
+                                                         TimeUnit unit) {
+            ObjectUtil.checkNotNull(command, "command");
+            ObjectUtil.checkNotNull(unit, "unit");
+            if (initialDelay < 0) {
+                throw new IllegalArgumentException(
+                        String.format("initialDelay: %d (expected: >= 0)", initialDelay));
+            }
+            if (delay <= 0) {
+                throw new IllegalArgumentException(
+                        String.format("delay: %d (expected: > 0)", delay));
+            }
+            return schedule(new PoolScheduledTask<Void>(
+                    this, Executors.<Void>callable(command, null), unit.toNanos(initialDelay), -unit.toNanos(delay)));
+        }
+
+        private <V> ScheduledFuture<V> schedule(PoolScheduledTask<V> task) {
+            if (isShutdown()) {
+                throw new RejectedExecutionException("event executor shut down");
+            }
+            task.startTimer();
+            return task;
+        }
+    }
+
+    /**
+     * A task of a {@link PoolEventExecutor} which is timed by the {@link GlobalEventExecutor} and then handed to the
+     * {@link PoolEventExecutor} to run, so the ordering of a {@link SerialEventExecutor} is kept.
+     */
+    private static final class PoolScheduledTask<V> extends PromiseTask<V> implements ScheduledFuture<V> {
+        private final Runnable timeout = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    executor().execute(PoolScheduledTask.this);
+                } catch (RejectedExecutionException e) {
+                    tryFailureInternal(e);
+                }
+            }
+        };
+        private volatile long deadlineNanos;
+        /* 0 - no repeat, >0 - repeat at fixed rate, <0 - repeat with fixed delay */
+        private final long periodNanos;
+        private volatile ScheduledFuture<?> timer;
+
+        PoolScheduledTask(EventExecutor executor, Callable<V> callable, long delayNanos, long periodNanos) {
+            super(executor, callable);
+            deadlineNanos = ScheduledFutureTask.deadlineNanos(delayNanos);
+            this.periodNanos = periodNanos;
+        }
+
+        void startTimer() {
+            timer = GlobalEventExecutor.INSTANCE.schedule(
+                    timeout, ScheduledFutureTask.deadlineToDelayNanos(deadlineNanos), TimeUnit.NANOSECONDS);
+            if (isCancelled()) {
+                // Cancelled concurrently, so it may have missed the timer.
+                timer.cancel(false);
+            }
+        }
+
+        @Override
+        public void run() {
+            if (periodNanos == 0) {
+                super.run();
+                return;
+            }
+            // check if is done as it may was cancelled
+            if (isCancelled()) {
+                return;
+            }
+            try {
+                task.call();
+            } catch (Throwable cause) {
+                setFailureInternal(cause);
+                return;
+            }
+            if (!executor().isShutdown()) {
+                long p = periodNanos;
+                if (p > 0) {
+                    deadlineNanos += p;
+                } else {
+                    deadlineNanos = ScheduledFutureTask.nanoTime() - p;
+                }
+                if (!isCancelled()) {
+                    startTimer();
+                }
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean canceled = super.cancel(mayInterruptIfRunning);
+            if (canceled) {
+                ScheduledFuture<?> timer = this.timer;
+                if (timer != null) {
+                    timer.cancel(false);
+                }
+            }
+            return canceled;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(ScheduledFutureTask.deadlineToDelayNanos(deadlineNanos), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed o) {
+            if (this == o) {
+                return 0;
+            }
+            long d = getDelay(TimeUnit.NANOSECONDS) - o.getDelay(TimeUnit.NANOSECONDS);
+            return d < 0 ? -1 : d > 0 ? 1 : 0;
+        }
+    }
+
+    private final class UnorderedEventExecutor extends PoolEventExecutor {
+        @Override
+        public boolean inEventLoop(Thread thread) {
+            return false;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            pool.execute(ObjectUtil.checkNotNull(command, "command"));
+        }
+    }
+
+    /**
+     * Runs its tasks one after the other on whatever thread of the pool is free. Besides the ordering this also gives
+     * the same memory visibility guarantees between the tasks as a single thread would.
+     */
+    private final class SerialEventExecutor extends PoolEventExecutor implements Runnable, OrderedEventExecutor {
+        private static final int NONE = 0;
+        private static final int SUBMITTED = 1;
+        private static final int RUNNING = 2;
+
+        // Not a MPSC queue, as a task needs to be removed again by the producer if the pool rejects this executor.
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+        private final AtomicInteger state = new AtomicInteger();
+        private volatile Thread thread;
+
+        @Override
+        public void run() {
+            if (!state.compareAndSet(SUBMITTED, RUNNING)) {
+                return;
+            }
+            thread = Thread.currentThread();
+            for (;;) {
+                int i = 0;
+                try {
+                    for (; i < maxTaskExecutePerRun; i++) {
+                        Runnable task = tasks.poll();
+                        if (task == null) {
+                            break;
+                        }
+                        safeExecute(task);
+                    }
+                } finally {
+                    thread = null;
+                    if (i == maxTaskExecutePerRun) {
+                        try {
+                            // Give up the thread so the other tasks of the pool get their share.
+                            state.set(SUBMITTED);
+                            pool.execute(this);
+                            return; // done
+                        } catch (Throwable ignore) {
+                            // The pool was shut down, just keep on running the tasks which were accepted already.
+                            state.set(RUNNING);
+                            thread = Thread.currentThread();
+                        }
+                    } else {
+                        state.set(NONE);
+                        // A task may have been added after the queue was found empty but before the state was reset,
+                        // in which case the producer saw RUNNING and did not submit us.
+                        if (tasks.isEmpty() || !state.compareAndSet(NONE, RUNNING)) {
+                            return; // done
+                        }
+                        thread = Thread.currentThread();
+                    }
+                }
+            }
+        }
+
+        @Override
+        public boolean inEventLoop(Thread thread) {
+            return this.thread == thread;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            if (!tasks.offer(ObjectUtil.checkNotNull(command, "command"))) {
+                throw new RejectedExecutionException();
+            }
+            if (state.compareAndSet(NONE, SUBMITTED)) {
+                try {
+                    pool.execute(this);
+                } catch (Throwable e) {
+                    tasks.remove(command);
+                    // Reset the state as otherwise this executor would never be submitted again. Tasks which were
+                    // added in the meantime are run once a later execute(...) submits it successfully.
+                    state.set(NONE);
+                    PlatformDependent.throwException(e);
+                }
+            }
+        }
+    }
+
+    private static final class WorkerThreadFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+        private final String prefix;
+        private final AtomicInteger nextId = new AtomicInteger();
+
+        WorkerThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+            ForkJoinWorkerThread thread = new WorkerThread(pool);
+            thread.setName(prefix + nextId.incrementAndGet());
+            thread.setDaemon(false);
+            return thread;
+        }
+    }
+
+    private static final class WorkerThread extends ForkJoinWorkerThread {
+        WorkerThread(ForkJoinPool pool) {
+            super(pool);
+        }
+
+        @Override
+        protected void onTermination(Throwable exception) {
+            try {
+                if (exception != null) {
+                    logger.warn("Unexpected exception from a worker thread.", exception);
+                }
+                FastThreadLocal.removeAll();
+            } finally {
+                super.onTermination(exception);
+            }
+        }
+    }
+}